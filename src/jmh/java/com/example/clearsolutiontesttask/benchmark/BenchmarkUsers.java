@@ -0,0 +1,66 @@
+package com.example.clearsolutiontesttask.benchmark;
+
+import com.example.clearsolutiontesttask.dto.UpdateFieldRequest;
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.validator.UserAgeValidator;
+import java.time.LocalDate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Test data shared by the benchmarks.
+ */
+final class BenchmarkUsers {
+    /**
+     * First birth date handed out; users are spread over 60 years from here.
+     */
+    static final LocalDate FIRST_BIRTH_DATE = LocalDate.of(1940, 1, 1);
+    static final int BIRTH_DATE_SPREAD_DAYS = 60 * 365;
+
+    private BenchmarkUsers() {
+    }
+
+    /**
+     * Creates a valid user whose fields are derived from the seed.
+     *
+     * @param seed Any number; equal seeds give equal users, and only equal
+     *             seeds give equal emails.
+     * @return A new user without an ID.
+     */
+    static User newUser(int seed) {
+        return new User()
+                .setEmail(email(seed))
+                .setFirstName("First" + seed % 1000)
+                .setLastName("Last" + seed % 5000)
+                .setBirthDate(FIRST_BIRTH_DATE.plusDays(
+                        Math.floorMod(seed * 7919L, BIRTH_DATE_SPREAD_DAYS)))
+                .setAddress(seed + " Main St")
+                .setPhoneNumber("555-" + seed);
+    }
+
+    static String email(int seed) {
+        return "user" + seed + "@example.com";
+    }
+
+    /**
+     * Creates patches that each set a different address, so that applying
+     * one to a random user practically always changes it: identical
+     * patches would be skipped as no-ops after the first.
+     *
+     * @param count The number of patches.
+     * @return The patches.
+     */
+    static UpdateFieldRequest[] addressPatches(int count) {
+        UpdateFieldRequest[] patches = new UpdateFieldRequest[count];
+        for (int i = 0; i < count; i++) {
+            patches[i] = new UpdateFieldRequest();
+            patches[i].setAddress(i + " Patched Ave");
+        }
+        return patches;
+    }
+
+    static UserAgeValidator newAgeValidator() {
+        var ageValidator = new UserAgeValidator();
+        ReflectionTestUtils.setField(ageValidator, "minimumAge", 18);
+        return ageValidator;
+    }
+}
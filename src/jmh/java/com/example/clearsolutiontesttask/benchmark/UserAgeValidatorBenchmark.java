@@ -0,0 +1,40 @@
+package com.example.clearsolutiontesttask.benchmark;
+
+import com.example.clearsolutiontesttask.validator.UserAgeValidator;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the cached-cutoff age check with the former per-call
+ * {@code Period} computation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserAgeValidatorBenchmark {
+    private final UserAgeValidator ageValidator = BenchmarkUsers.newAgeValidator();
+    private final LocalDate birthDate = LocalDate.of(2000, 2, 29);
+
+    @Benchmark
+    public boolean cachedCutoff() {
+        return ageValidator.isUserOldEnough(birthDate);
+    }
+
+    @Benchmark
+    public boolean periodBetween() {
+        return Period.between(birthDate, LocalDate.now()).getYears() >= 18;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.clearsolutiontesttask.benchmark;
+
+import com.example.clearsolutiontesttask.dto.BatchResult;
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.exception.ValidationException;
+import com.example.clearsolutiontesttask.metrics.UserMetrics;
+import com.example.clearsolutiontesttask.repository.IdAllocator;
+import com.example.clearsolutiontesttask.repository.InMemoryUserRepository;
+import com.example.clearsolutiontesttask.repository.SequentialIdAllocator;
+import com.example.clearsolutiontesttask.repository.UserRepository;
+import com.example.clearsolutiontesttask.service.UserBatchService;
+import com.example.clearsolutiontesttask.service.UserService;
+import com.example.clearsolutiontesttask.validator.UserAgeValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares importing users through {@link UserBatchService} with adding
+ * them one at a time, including Bean Validation in both cases, as the
+ * controller applies it to every single add.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UserBatchBenchmark {
+    @Param({"10000", "100000"})
+    private int batchSize;
+
+    private Validator validator;
+    private UserService userService;
+    private UserBatchService userBatchService;
+    private UserRepository userRepository;
+    private List<User> batch;
+
+    @Setup(Level.Trial)
+    public void setUpServices() {
+        validator = Validation.buildDefaultValidatorFactory().getValidator();
+        UserAgeValidator ageValidator = BenchmarkUsers.newAgeValidator();
+        userRepository = new InMemoryUserRepository();
+        IdAllocator idAllocator = new SequentialIdAllocator();
+        userService = new UserService(ageValidator, userRepository, idAllocator,
+                UserMetrics.disabled());
+        userBatchService = new UserBatchService(validator, ageValidator,
+                userRepository, idAllocator, new ObjectMapper(), UserMetrics.disabled());
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpBatch() {
+        userRepository.deleteAll();
+        batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(BenchmarkUsers.newUser(i));
+        }
+    }
+
+    @Benchmark
+    public void addUsersOneByOne() throws ValidationException {
+        for (User user : batch) {
+            if (validator.validate(user).isEmpty()) {
+                userService.addUser(user);
+            }
+        }
+    }
+
+    @Benchmark
+    public BatchResult addUsersAsBatch() {
+        return userBatchService.addUsers(batch);
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.clearsolutiontesttask.benchmark;
+
+import com.example.clearsolutiontesttask.dto.UpdateFieldRequest;
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.exception.ValidationException;
+import com.example.clearsolutiontesttask.exception.VersionConflictException;
+import com.example.clearsolutiontesttask.metrics.UserMetrics;
+import com.example.clearsolutiontesttask.repository.InMemoryUserRepository;
+import com.example.clearsolutiontesttask.repository.SequentialIdAllocator;
+import com.example.clearsolutiontesttask.service.UserService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * Throughput of concurrent PATCHes aimed at a small set of hot users.
+ *
+ * <p>{@code blindPatch} leaves conflict handling to the service, which
+ * retries its compare-and-set internally. {@code conditionalPatch} is a
+ * client's read-modify-write cycle: it reads the user, sends the patch with
+ * the version it read, and starts over on a conflict; the
+ * {@code conflicts} counter reports how often that happened. Run with
+ * {@code -t 1}, {@code -t 4}, {@code -t 16} etc. to vary the number of
+ * writers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UserContentionBenchmark {
+    private static final int STORE_SIZE = 100_000;
+    private static final int PATCH_COUNT = 1024;
+
+    @Param({"1", "16", "1024"})
+    private int hotUsers;
+
+    private UserService userService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ValidationException {
+        userService = new UserService(BenchmarkUsers.newAgeValidator(),
+                new InMemoryUserRepository(), new SequentialIdAllocator(),
+                UserMetrics.disabled());
+        for (int i = 0; i < STORE_SIZE; i++) {
+            userService.addUser(BenchmarkUsers.newUser(i));
+        }
+    }
+
+    @Benchmark
+    public long blindPatch(Writer writer) throws ValidationException {
+        return userService.updateUserField(writer.nextPatch(), hotId(), null);
+    }
+
+    @Benchmark
+    public long conditionalPatch(Writer writer) throws ValidationException {
+        int id = hotId();
+        UpdateFieldRequest patch = writer.nextPatch();
+        while (true) {
+            User user = userService.findUserById(id);
+            try {
+                return userService.updateUserField(patch, id, user.getVersion());
+            } catch (VersionConflictException e) {
+                writer.conflicts++;
+            }
+        }
+    }
+
+    private int hotId() {
+        return ThreadLocalRandom.current().nextInt(hotUsers) + 1;
+    }
+
+    /**
+     * Patches of one writer thread, with addresses no other thread uses,
+     * and the conflicts it ran into.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Writer {
+        public long conflicts;
+        private UpdateFieldRequest[] patches;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp(ThreadParams threadParams) {
+            patches = new UpdateFieldRequest[PATCH_COUNT];
+            for (int i = 0; i < PATCH_COUNT; i++) {
+                patches[i] = new UpdateFieldRequest();
+                patches[i].setAddress(threadParams.getThreadIndex() + "/" + i + " Patched Ave");
+            }
+        }
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            conflicts = 0;
+        }
+
+        UpdateFieldRequest nextPatch() {
+            return patches[next++ & (PATCH_COUNT - 1)];
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.clearsolutiontesttask.benchmark;
+
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.export.ExportFormat;
+import com.example.clearsolutiontesttask.export.UserExportWriter;
+import com.example.clearsolutiontesttask.repository.InMemoryUserRepository;
+import com.example.clearsolutiontesttask.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Exporting the whole store, snapshot included, into a sink that discards
+ * the bytes, against writing the same NDJSON with Jackson.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UserExportBenchmark {
+    @Param({"1000000"})
+    private int storeSize;
+
+    private UserRepository userRepository;
+    private ObjectMapper objectMapper;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        userRepository = new InMemoryUserRepository();
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < storeSize; i++) {
+            users.add(BenchmarkUsers.newUser(i).setId(i + 1));
+            if (users.size() == 10_000) {
+                userRepository.saveAll(users);
+                users.clear();
+            }
+        }
+        userRepository.saveAll(users);
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    @Benchmark
+    public List<User> snapshot() {
+        return userRepository.snapshotById();
+    }
+
+    @Benchmark
+    public long csv() throws IOException {
+        return export(ExportFormat.CSV, false);
+    }
+
+    @Benchmark
+    public long ndjson() throws IOException {
+        return export(ExportFormat.NDJSON, false);
+    }
+
+    @Benchmark
+    public long ndjsonGzip() throws IOException {
+        return export(ExportFormat.NDJSON, true);
+    }
+
+    @Benchmark
+    public long jacksonNdjson() throws IOException {
+        var out = new CountingOutputStream();
+        try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            generator.setRootValueSeparator(null);
+            for (User user : userRepository.snapshotById()) {
+                generator.writeObject(user);
+                generator.writeRaw('\n');
+            }
+        }
+        return out.count;
+    }
+
+    private long export(ExportFormat format, boolean gzip) throws IOException {
+        var out = new CountingOutputStream();
+        UserExportWriter.export(userRepository.snapshotById().iterator(), format, gzip, out);
+        return out.count;
+    }
+
+    /**
+     * Stands in for the network: counts the bytes and drops them.
+     */
+    private static final class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.clearsolutiontesttask.benchmark;
+
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.repository.ColumnarUserRepository;
+import com.example.clearsolutiontesttask.repository.InMemoryUserRepository;
+import com.example.clearsolutiontesttask.repository.UserRepository;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Memory retained per stored user by each repository, reported as the
+ * {@code bytesPerUser} counter; the score is the time to load the store.
+ * Off-heap string pages are counted too.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UserFootprintBenchmark {
+    @Param({"heap", "columnar", "columnar-off-heap"})
+    private String store;
+
+    @Param({"1000000"})
+    private int storeSize;
+
+    private UserRepository userRepository;
+
+    @Benchmark
+    public UserRepository load(Footprint footprint) {
+        userRepository = null;
+        long before = usedBytes();
+        UserRepository repository = switch (store) {
+            case "heap" -> new InMemoryUserRepository();
+            case "columnar" -> new ColumnarUserRepository(List.of(), false);
+            default -> new ColumnarUserRepository(List.of(), true);
+        };
+        List<User> batch = new ArrayList<>();
+        for (int i = 0; i < storeSize; i++) {
+            batch.add(BenchmarkUsers.newUser(i).setId(i + 1));
+            if (batch.size() == 10_000) {
+                repository.saveAll(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        repository.saveAll(batch);
+        batch = null;
+        footprint.bytesPerUser = (usedBytes() - before) / storeSize;
+        userRepository = repository;
+        return repository;
+    }
+
+    private static long usedBytes() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        long used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                used += pool.getMemoryUsed();
+            }
+        }
+        return used;
+    }
+
+    /**
+     * Bytes retained per user by the last loaded store.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long bytesPerUser;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytesPerUser = 0;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.clearsolutiontesttask.benchmark;
+
+import com.example.clearsolutiontesttask.ClearSolutionTestTaskApplication;
+import com.example.clearsolutiontesttask.entity.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * End-to-end throughput of the {@code /users} endpoints: the application
+ * runs in-process on a random port and is called over real HTTP, so the
+ * numbers include Tomcat, JSON (de)serialization and validation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Threads(16)
+public class UserHttpBenchmark {
+    @Param({"1000", "100000"})
+    private int storeSize;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private ObjectMapper objectMapper;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        context = new SpringApplicationBuilder(ClearSolutionTestTaskApplication.class)
+                .properties("server.port=0", "logging.level.root=WARN")
+                .run();
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        baseUrl = "http://localhost:" + port + "/users";
+        client = HttpClient.newHttpClient();
+        objectMapper = context.getBean(ObjectMapper.class);
+        for (int i = 0; i < storeSize; i += 10_000) {
+            List<User> batch = new ArrayList<>();
+            for (int j = i; j < Math.min(storeSize, i + 10_000); j++) {
+                batch.add(BenchmarkUsers.newUser(j));
+            }
+            send(HttpRequest.newBuilder(URI.create(baseUrl + "/batch"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(
+                            objectMapper.writeValueAsBytes(batch))));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int addUser() throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/add"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(
+                        BenchmarkUsers.newUser(ThreadLocalRandom.current().nextInt())))));
+    }
+
+    @Benchmark
+    public int updateUserField() throws IOException, InterruptedException {
+        int id = ThreadLocalRandom.current().nextInt(storeSize) + 1;
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/updateField/" + id))
+                .header("Content-Type", "application/json")
+                .method("PATCH", HttpRequest.BodyPublishers.ofString(
+                        "{\"address\":\"42 Patched Ave\"}")));
+    }
+
+    @Benchmark
+    public int findUsersByAgeBetween() throws IOException, InterruptedException {
+        LocalDate from = BenchmarkUsers.FIRST_BIRTH_DATE.plusDays(
+                ThreadLocalRandom.current().nextInt(BenchmarkUsers.BIRTH_DATE_SPREAD_DAYS));
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/age?fromDate=" + from
+                + "&toDate=" + from.plusDays(30))).GET());
+    }
+
+    private int send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        HttpResponse<Void> response = client.send(request.build(),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() >= 400) {
+            throw new IllegalStateException("Unexpected status " + response.statusCode());
+        }
+        return response.statusCode();
+    }
+}
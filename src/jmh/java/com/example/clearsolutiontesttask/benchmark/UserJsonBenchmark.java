@@ -0,0 +1,91 @@
+package com.example.clearsolutiontesttask.benchmark;
+
+import com.example.clearsolutiontesttask.cache.UserJsonCache;
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.repository.InMemoryUserRepository;
+import com.example.clearsolutiontesttask.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading a birth date range from the store and serializing it, as the
+ * age endpoint does on a cache miss: with Jackson, from the JSON cached
+ * with each user, and with that cache disabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UserJsonBenchmark {
+    @Param({"1000000"})
+    private int storeSize;
+
+    /**
+     * Days in the range; about 46 users are born on each day.
+     */
+    @Param({"1", "21"})
+    private int rangeDays;
+
+    private UserRepository userRepository;
+    private ObjectMapper objectMapper;
+    private UserJsonCache cached;
+    private UserJsonCache uncached;
+    private LocalDate from;
+    private LocalDate to;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        userRepository = new InMemoryUserRepository();
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < storeSize; i++) {
+            users.add(BenchmarkUsers.newUser(i).setId(i + 1));
+            if (users.size() == 10_000) {
+                userRepository.saveAll(users);
+                users.clear();
+            }
+        }
+        userRepository.saveAll(users);
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        cached = new UserJsonCache(objectMapper, true);
+        uncached = new UserJsonCache(objectMapper, false);
+        from = BenchmarkUsers.FIRST_BIRTH_DATE.plusYears(30);
+        to = from.plusDays(rangeDays - 1);
+    }
+
+    @Benchmark
+    public byte[] jackson() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(userRepository.findAllByBirthDateBetween(from, to));
+    }
+
+    @Benchmark
+    public byte[] cached() {
+        return cached.toJson(userRepository.findAllByBirthDateBetween(from, to));
+    }
+
+    @Benchmark
+    public byte[] uncached() {
+        return uncached.toJson(userRepository.findAllByBirthDateBetween(from, to));
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.clearsolutiontesttask.benchmark;
+
+import com.example.clearsolutiontesttask.ClearSolutionTestTaskApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * Burst load against {@code POST /users/add}: each invocation opens
+ * {@code connections} concurrent requests at once and waits for all of
+ * them, comparing Tomcat's platform-thread pool with virtual threads.
+ *
+ * <p>Writes go through the write-ahead log with {@code fsync=always}, so
+ * every request blocks on the disk, which is the case where a bounded
+ * thread pool runs dry. The virtual-thread mode needs Java 21 or later;
+ * the client side needs an open-file limit above {@code connections}
+ * ({@code ulimit -n}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UserLoadBenchmark {
+    @Param({"platform", "virtual"})
+    private String threads;
+
+    @Param({"10000"})
+    private int connections;
+
+    @Param({"0", "2000"})
+    private int concurrencyLimit;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private ObjectMapper objectMapper;
+    private URI addUri;
+    private Path dataDirectory;
+    private int nextSeed;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        boolean virtual = threads.equals("virtual");
+        if (virtual && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("Virtual threads need Java 21 or later");
+        }
+        dataDirectory = Files.createTempDirectory("user-load");
+        context = new SpringApplicationBuilder(ClearSolutionTestTaskApplication.class)
+                .properties("server.port=0", "logging.level.root=WARN",
+                        "spring.threads.virtual.enabled=" + virtual,
+                        "server.tomcat.max-connections=" + (connections + 1000),
+                        "server.tomcat.accept-count=" + connections,
+                        "user.http.concurrency-limit=" + concurrencyLimit,
+                        "user.http.queue-timeout=30s",
+                        "user.persistence.enabled=true",
+                        "user.persistence.fsync=always",
+                        "user.persistence.directory=" + dataDirectory)
+                .run();
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        addUri = URI.create("http://localhost:" + port + "/users/add");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        objectMapper = context.getBean(ObjectMapper.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(dataDirectory);
+    }
+
+    @Benchmark
+    public void burst(Outcome outcome) throws IOException {
+        CompletableFuture<?>[] requests = new CompletableFuture<?>[connections];
+        for (int i = 0; i < connections; i++) {
+            HttpRequest request = HttpRequest.newBuilder(addUri)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(
+                            objectMapper.writeValueAsBytes(BenchmarkUsers.newUser(nextSeed++))))
+                    .build();
+            requests[i] = client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .handle((response, failure) -> {
+                        if (failure != null) {
+                            outcome.failures.incrementAndGet();
+                        } else if (response.statusCode() >= 400) {
+                            outcome.rejections.incrementAndGet();
+                        }
+                        return null;
+                    });
+        }
+        CompletableFuture.allOf(requests).join();
+    }
+
+    /**
+     * Requests per burst that failed at the connection level, or were
+     * answered with an error status (e.g. 503 from the concurrency limit).
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcome {
+        private final AtomicInteger failures = new AtomicInteger();
+        private final AtomicInteger rejections = new AtomicInteger();
+
+        public int failures() {
+            return failures.get();
+        }
+
+        public int rejections() {
+            return rejections.get();
+        }
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            failures.set(0);
+            rejections.set(0);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.clearsolutiontesttask.benchmark;
+
+import com.example.clearsolutiontesttask.dto.UpdateFieldRequest;
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.exception.ValidationException;
+import com.example.clearsolutiontesttask.metrics.UserMetrics;
+import com.example.clearsolutiontesttask.repository.InMemoryUserRepository;
+import com.example.clearsolutiontesttask.repository.SequentialIdAllocator;
+import com.example.clearsolutiontesttask.repository.UserRepository;
+import com.example.clearsolutiontesttask.service.UserService;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of the {@link UserMetrics} instrumentation on cheap service calls,
+ * with metrics published to a Prometheus registry versus switched off.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UserMetricsBenchmark {
+    private static final int STORE_SIZE = 100_000;
+    private static final int PATCH_COUNT = 1024;
+
+    @Param({"disabled", "enabled"})
+    private String metrics;
+
+    private UserService userService;
+    private UpdateFieldRequest[] patches;
+    private int nextPatch;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ValidationException {
+        UserRepository userRepository = new InMemoryUserRepository();
+        UserMetrics userMetrics = new UserMetrics(
+                new PrometheusMeterRegistry(PrometheusConfig.DEFAULT), userRepository,
+                metrics.equals("enabled"));
+        userService = new UserService(BenchmarkUsers.newAgeValidator(), userRepository,
+                new SequentialIdAllocator(), userMetrics);
+        for (int i = 0; i < STORE_SIZE; i++) {
+            userService.addUser(BenchmarkUsers.newUser(i));
+        }
+        patches = BenchmarkUsers.addressPatches(PATCH_COUNT);
+    }
+
+    @Benchmark
+    public void updateUserField() throws ValidationException {
+        userService.updateUserField(patches[nextPatch++ & (PATCH_COUNT - 1)],
+                ThreadLocalRandom.current().nextInt(STORE_SIZE) + 1);
+    }
+
+    @Benchmark
+    public List<User> findAllByBirthDateBetween() {
+        LocalDate from = BenchmarkUsers.FIRST_BIRTH_DATE.plusDays(
+                ThreadLocalRandom.current().nextInt(BenchmarkUsers.BIRTH_DATE_SPREAD_DAYS));
+        return userService.findAllByBirthDateBetween(from, from);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.clearsolutiontesttask.benchmark;
+
+import com.example.clearsolutiontesttask.dto.UserQuery;
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.metrics.UserMetrics;
+import com.example.clearsolutiontesttask.repository.InMemoryUserRepository;
+import com.example.clearsolutiontesttask.repository.UserRepository;
+import com.example.clearsolutiontesttask.search.UserFieldIndex;
+import com.example.clearsolutiontesttask.service.UserQueryService;
+import com.example.clearsolutiontesttask.stats.UserBirthDateStats;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Planned multi-filter queries against filtering a stream of all users,
+ * for queries that favour each access path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UserQueryBenchmark {
+    @Param({"1000000"})
+    private int storeSize;
+
+    /**
+     * "emailDomain": one of 1000 email domains over 30 years of birth dates;
+     * "birthDate": one week of birth dates, sorted by last name;
+     * "scan": a prefix and range that no index narrows, sorted by last name.
+     */
+    @Param({"emailDomain", "birthDate", "scan"})
+    private String shape;
+
+    private UserRepository userRepository;
+    private UserQueryService queryService;
+    private UserQuery query;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var fieldIndex = new UserFieldIndex(new SimpleMeterRegistry());
+        var birthDateStats = new UserBirthDateStats();
+        userRepository = new InMemoryUserRepository(List.of(fieldIndex, birthDateStats));
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < storeSize; i++) {
+            users.add(BenchmarkUsers.newUser(i)
+                    .setId(i + 1)
+                    .setEmail("user" + i + "@d" + i % 1000 + ".example.com"));
+            if (users.size() == 10_000) {
+                userRepository.saveAll(users);
+                users.clear();
+            }
+        }
+        userRepository.saveAll(users);
+        queryService = new UserQueryService(fieldIndex, birthDateStats, userRepository,
+                UserMetrics.disabled());
+        LocalDate from = BenchmarkUsers.FIRST_BIRTH_DATE;
+        query = switch (shape) {
+            case "emailDomain" -> new UserQuery(from, from.plusYears(30), "last",
+                    "d42.example.com", UserQuery.Sort.BIRTH_DATE, 20);
+            case "birthDate" -> new UserQuery(from.plusYears(20), from.plusYears(20).plusDays(6),
+                    "last", null, UserQuery.Sort.LAST_NAME, 20);
+            case "scan" -> new UserQuery(from, from.plusYears(30), "last", null,
+                    UserQuery.Sort.LAST_NAME, 20);
+            default -> throw new IllegalArgumentException(shape);
+        };
+    }
+
+    @Benchmark
+    public List<User> planned() {
+        return queryService.query(query).users();
+    }
+
+    @Benchmark
+    public List<User> naiveStream() {
+        String prefix = query.lastNamePrefix().toLowerCase(Locale.ROOT);
+        String domain = query.emailDomain() == null ? null
+                : "@" + query.emailDomain().toLowerCase(Locale.ROOT);
+        return userRepository.findAll().stream()
+                .filter(user -> !user.getBirthDate().isBefore(query.fromDate())
+                        && !user.getBirthDate().isAfter(query.toDate()))
+                .filter(user -> user.getLastName().toLowerCase(Locale.ROOT).startsWith(prefix))
+                .filter(user -> domain == null
+                        || user.getEmail().toLowerCase(Locale.ROOT).endsWith(domain))
+                .sorted(query.sort().order())
+                .limit(query.limit())
+                .toList();
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.clearsolutiontesttask.benchmark;
+
+import com.example.clearsolutiontesttask.dto.UserPage;
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.exception.ValidationException;
+import com.example.clearsolutiontesttask.metrics.UserMetrics;
+import com.example.clearsolutiontesttask.repository.InMemoryUserRepository;
+import com.example.clearsolutiontesttask.repository.UserRepository;
+import com.example.clearsolutiontesttask.search.UserSearchIndex;
+import com.example.clearsolutiontesttask.service.UserSearchService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency distribution of one search page against an indexed store, for
+ * queries with many, few and no matches. Sample mode reports the p99.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UserSearchBenchmark {
+    @Param({"1000000"})
+    private int storeSize;
+
+    /**
+     * "main" matches every user, "first7 last42" a few hundred, "first7
+     * last43" none although both words are common.
+     */
+    @Param({"main", "first7 last42", "first7 last43", "12345"})
+    private String query;
+
+    private UserSearchService searchService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        UserSearchIndex index = new UserSearchIndex(new SimpleMeterRegistry());
+        UserRepository userRepository = new InMemoryUserRepository(List.of(index));
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < storeSize; i++) {
+            users.add(BenchmarkUsers.newUser(i).setId(i + 1));
+            if (users.size() == 10_000) {
+                userRepository.saveAll(users);
+                users.clear();
+            }
+        }
+        userRepository.saveAll(users);
+        searchService = new UserSearchService(index, userRepository, UserMetrics.disabled());
+    }
+
+    @Benchmark
+    public UserPage search() throws ValidationException {
+        return searchService.search(query, null, 20);
+    }
+}
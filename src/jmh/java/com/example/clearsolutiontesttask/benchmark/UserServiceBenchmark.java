@@ -0,0 +1,163 @@
+package com.example.clearsolutiontesttask.benchmark;
+
+import com.example.clearsolutiontesttask.dto.UpdateFieldRequest;
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.exception.ValidationException;
+import com.example.clearsolutiontesttask.metrics.UserMetrics;
+import com.example.clearsolutiontesttask.repository.InMemoryUserRepository;
+import com.example.clearsolutiontesttask.repository.SequentialIdAllocator;
+import com.example.clearsolutiontesttask.repository.UserRepository;
+import com.example.clearsolutiontesttask.service.UserPatch;
+import com.example.clearsolutiontesttask.service.UserService;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the {@link UserService} operations against stores of
+ * different sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UserServiceBenchmark {
+    private static final int PATCH_COUNT = 1024;
+
+    @Param({"1000", "100000", "1000000"})
+    private int storeSize;
+
+    private UserService userService;
+    private UserRepository userRepository;
+    private UpdateFieldRequest[] patches;
+    private UpdateFieldRequest patch;
+    private int nextPatch;
+    private UserPatch userPatch;
+    private int lastAddedId;
+    private int nextSeed;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ValidationException {
+        userRepository = new InMemoryUserRepository();
+        userService = new UserService(BenchmarkUsers.newAgeValidator(),
+                userRepository, new SequentialIdAllocator(), UserMetrics.disabled());
+        for (int i = 0; i < storeSize; i++) {
+            userService.addUser(BenchmarkUsers.newUser(i));
+        }
+        nextSeed = storeSize;
+        patches = BenchmarkUsers.addressPatches(PATCH_COUNT);
+        patch = patches[0];
+        userPatch = new UserPatch(patch);
+    }
+
+    /**
+     * Removes the users added by {@link #addUser()}, so that the store keeps
+     * its nominal size across iterations.
+     */
+    @TearDown(Level.Iteration)
+    public void removeAddedUsers() {
+        for (int id = storeSize + 1; id <= lastAddedId; id++) {
+            userRepository.deleteById(id);
+        }
+    }
+
+    @Benchmark
+    public void addUser() throws ValidationException {
+        User user = BenchmarkUsers.newUser(nextSeed++);
+        userService.addUser(user);
+        lastAddedId = user.getId();
+    }
+
+    @Benchmark
+    public void updateUser() throws ValidationException {
+        int id = randomId();
+        // The user with this ID was added with seed id - 1; it keeps its
+        // email, as another user already has the one of seed id.
+        userService.updateUser(BenchmarkUsers.newUser(id)
+                .setEmail(BenchmarkUsers.email(id - 1)), id);
+    }
+
+    @Benchmark
+    public void updateUserField() throws ValidationException {
+        userService.updateUserField(patches[nextPatch++ & (PATCH_COUNT - 1)], randomId());
+    }
+
+    @Benchmark
+    public void deleteAndReAddUser() {
+        int id = randomId();
+        User user = userRepository.findById(id).orElseThrow();
+        userService.deleteUser(id);
+        userRepository.save(user);
+    }
+
+    @Benchmark
+    public List<User> findAllByBirthDateBetween() {
+        LocalDate from = BenchmarkUsers.FIRST_BIRTH_DATE.plusDays(
+                ThreadLocalRandom.current().nextInt(BenchmarkUsers.BIRTH_DATE_SPREAD_DAYS));
+        return userService.findAllByBirthDateBetween(from, from.plusYears(1));
+    }
+
+    /**
+     * The baseline for {@link #patchToUser()}: copies the user and sets
+     * every non-null field of the request on the copy, as a generated bean
+     * mapper would.
+     */
+    @Benchmark
+    public User copyToUser() {
+        User user = userRepository.findById(randomId()).orElseThrow();
+        User copy = new User()
+                .setId(user.getId())
+                .setVersion(user.getVersion())
+                .setEmail(user.getEmail())
+                .setFirstName(user.getFirstName())
+                .setLastName(user.getLastName())
+                .setBirthDate(user.getBirthDate())
+                .setPhoneNumber(user.getPhoneNumber())
+                .setAddress(user.getAddress());
+        if (patch.getEmail() != null) {
+            copy.setEmail(patch.getEmail());
+        }
+        if (patch.getFirstName() != null) {
+            copy.setFirstName(patch.getFirstName());
+        }
+        if (patch.getLastName() != null) {
+            copy.setLastName(patch.getLastName());
+        }
+        if (patch.getBirthDate() != null) {
+            copy.setBirthDate(patch.getBirthDate());
+        }
+        if (patch.getPhoneNumber() != null) {
+            copy.setPhoneNumber(patch.getPhoneNumber());
+        }
+        if (patch.getAddress() != null) {
+            copy.setAddress(patch.getAddress());
+        }
+        return copy;
+    }
+
+    @Benchmark
+    public User patchToUser() {
+        User user = userRepository.findById(randomId()).orElseThrow();
+        return userPatch.applyTo(user);
+    }
+
+    private int randomId() {
+        return ThreadLocalRandom.current().nextInt(storeSize) + 1;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.clearsolutiontesttask.cache;
+
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Values keyed by date ranges, looked up by a date inside the range.
+ *
+ * <p>A range is stored under the aligned blocks of 2^k days that exactly
+ * tile it, at most two blocks of each size. A date lies in exactly one
+ * block of each size, so a lookup reads one block per size and finds only
+ * the ranges that contain the date. Adding, removing and looking up all
+ * take time logarithmic in the span of dates, however many ranges are
+ * stored. The index is safe for concurrent use.
+ *
+ * @param <T> The type of the values.
+ */
+final class DateRangeIndex<T> {
+    /**
+     * Number of block sizes; 2^40 days span every {@link LocalDate}.
+     */
+    private static final int LEVELS = 41;
+
+    private final ConcurrentHashMap<Long, Set<T>> blocks = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a value for a range.
+     *
+     * @param fromDate The first date of the range.
+     * @param toDate   The last date of the range.
+     * @param value    The value.
+     */
+    void add(LocalDate fromDate, LocalDate toDate, T value) {
+        forEachBlock(fromDate, toDate, key -> blocks.compute(key, (k, values) -> {
+            if (values == null) {
+                values = ConcurrentHashMap.newKeySet();
+            }
+            values.add(value);
+            return values;
+        }));
+    }
+
+    /**
+     * Removes a value added for a range.
+     *
+     * @param fromDate The first date the value was added with.
+     * @param toDate   The last date the value was added with.
+     * @param value    The value.
+     */
+    void remove(LocalDate fromDate, LocalDate toDate, T value) {
+        forEachBlock(fromDate, toDate, key -> blocks.computeIfPresent(key, (k, values) -> {
+            values.remove(value);
+            return values.isEmpty() ? null : values;
+        }));
+    }
+
+    /**
+     * Passes every value whose range contains a date to an action. The
+     * action may remove values.
+     *
+     * @param date   The date.
+     * @param action Receives the values.
+     */
+    void forEachContaining(LocalDate date, Consumer<T> action) {
+        if (blocks.isEmpty()) {
+            return;
+        }
+        long day = date.toEpochDay();
+        for (int level = 0; level < LEVELS; level++) {
+            Set<T> values = blocks.get(key(level, day >> level));
+            if (values != null) {
+                values.forEach(action);
+            }
+        }
+    }
+
+    private static void forEachBlock(LocalDate fromDate, LocalDate toDate, LongConsumer action) {
+        long from = fromDate.toEpochDay();
+        long to = toDate.toEpochDay() + 1;
+        // Bottom-up over [from, to): an odd bound means that the block at
+        // this level is not part of a larger block inside the range.
+        for (int level = 0; from < to; level++) {
+            if ((from & 1) != 0) {
+                action.accept(key(level, from++));
+            }
+            if ((to & 1) != 0) {
+                action.accept(key(level, --to));
+            }
+            from >>= 1;
+            to >>= 1;
+        }
+    }
+
+    private static long key(int level, long block) {
+        return block << 6 | level;
+    }
+}
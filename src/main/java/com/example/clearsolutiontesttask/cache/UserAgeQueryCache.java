@@ -0,0 +1,233 @@
+package com.example.clearsolutiontesttask.cache;
+
+import com.example.clearsolutiontesttask.dto.UserPage;
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.exception.ValidationException;
+import com.example.clearsolutiontesttask.repository.UserChange;
+import com.example.clearsolutiontesttask.repository.UserChangeListener;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.LocalDate;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+/**
+ * Cache of serialized {@code /users/age} responses, keyed by the query.
+ *
+ * <p>The cache is bounded by the total size of the cached responses, since
+ * one unpaged range can cover the whole store, and evicts with Caffeine's
+ * W-TinyLFU policy, so the few date ranges that clients poll stay cached
+ * while one-off queries pass through. Every write to the repository drops
+ * exactly the entries whose date range contains the written user's old or
+ * new birth date; a {@link DateRangeIndex} finds them without looking at
+ * the other entries.
+ *
+ * <p>A query that races with a write may have read the data from before
+ * the write, and its entry may be added after the write dropped the
+ * matching entries. To never keep such an entry, a query is indexed by its
+ * range before it runs, and a write into that range marks it stale: a
+ * stale result is not cached, or is dropped again right after it was.
+ * Writes outside the range do not affect it.
+ */
+@Component
+public class UserAgeQueryCache implements UserChangeListener {
+    private final UserJsonCache userJson;
+    private final Cache<Query, Entry> cache;
+    private final DateRangeIndex<Entry> ranges = new DateRangeIndex<>();
+
+    /**
+     * Creates the cache.
+     *
+     * @param userJson    Serializes the query results.
+     * @param registry    Receives the cache statistics.
+     * @param maximumBytes The maximum total size of the cached responses;
+     *                     0 turns caching off, though ETags are still
+     *                     computed.
+     */
+    @Autowired
+    public UserAgeQueryCache(UserJsonCache userJson, MeterRegistry registry,
+                             @Value("${user.cache.age.maximum-bytes:67108864}") long maximumBytes) {
+        this.userJson = userJson;
+        if (maximumBytes > 0) {
+            cache = Caffeine.newBuilder()
+                    .maximumWeight(maximumBytes)
+                    .weigher((Query query, Entry entry) -> entry.json.body().length)
+                    .removalListener((Query query, Entry entry, RemovalCause cause) ->
+                            unindex(entry))
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(registry, cache, "users.age");
+        } else {
+            cache = null;
+        }
+    }
+
+    /**
+     * Returns the cached response of a query, running and caching the query
+     * if it is not cached yet.
+     *
+     * @param fromDate The first birth date of the range.
+     * @param toDate   The last birth date of the range.
+     * @param cursor   The page cursor, or null.
+     * @param limit    The page size, or null if the query is not paged.
+     * @param loader   Runs the query.
+     * @return The serialized result and its ETag.
+     * @throws ValidationException if the query fails validation.
+     */
+    public CachedJson get(LocalDate fromDate, LocalDate toDate, String cursor, Integer limit,
+                          ResultLoader loader) throws ValidationException {
+        if (cache == null) {
+            return load(loader);
+        }
+        Query query = new Query(fromDate, toDate, cursor, limit);
+        Entry cached = cache.getIfPresent(query);
+        if (cached != null && !cached.stale) {
+            return cached.json;
+        }
+        var entry = new Entry(query);
+        ranges.add(fromDate, toDate, entry);
+        try {
+            entry.json = load(loader);
+        } catch (RuntimeException | ValidationException e) {
+            unindex(entry);
+            throw e;
+        }
+        if (entry.stale) {
+            unindex(entry);
+        } else {
+            cache.put(query, entry);
+            if (entry.stale) {
+                cache.asMap().remove(query, entry);
+            }
+        }
+        return entry.json;
+    }
+
+    /**
+     * Runs a query and serializes its result without caching it, for
+     * results that writes on this node alone cannot invalidate.
+     *
+     * @param loader Runs the query.
+     * @return The serialized result and its ETag.
+     * @throws ValidationException if the query fails validation.
+     */
+    public CachedJson load(ResultLoader loader) throws ValidationException {
+        return CachedJson.of(serialize(loader.load()));
+    }
+
+    @Override
+    public void onChange(UserChange change) {
+        if (cache == null) {
+            return;
+        }
+        invalidate(birthDate(change.previous()));
+        invalidate(birthDate(change.current()));
+    }
+
+    private void invalidate(LocalDate birthDate) {
+        if (birthDate != null) {
+            ranges.forEachContaining(birthDate, entry -> {
+                entry.stale = true;
+                cache.asMap().remove(entry.query, entry);
+            });
+        }
+    }
+
+    private void unindex(Entry entry) {
+        ranges.remove(entry.query.fromDate(), entry.query.toDate(), entry);
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] serialize(Object result) {
+        return result instanceof UserPage page ? userJson.toJson(page)
+                : userJson.toJson((List<User>) result);
+    }
+
+    private static LocalDate birthDate(User user) {
+        return user == null ? null : user.getBirthDate();
+    }
+
+    /**
+     * Runs a query whose result is to be cached.
+     */
+    @FunctionalInterface
+    public interface ResultLoader {
+        /**
+         * Runs the query.
+         *
+         * @return The result to serialize: a list of users or a
+         * {@link UserPage}.
+         * @throws ValidationException if the query fails validation.
+         */
+        Object load() throws ValidationException;
+    }
+
+    /**
+     * A serialized query result and its strong ETag.
+     *
+     * @param body The JSON bytes.
+     * @param etag The quoted ETag of the bytes.
+     */
+    public record CachedJson(byte[] body, String etag) {
+        static CachedJson of(byte[] body) {
+            return new CachedJson(body, '"' + DigestUtils.md5DigestAsHex(body) + '"');
+        }
+
+        /**
+         * Checks an {@code If-None-Match} header against the ETag.
+         *
+         * @param ifNoneMatch The header value, may be null.
+         * @return true if the client's copy is current.
+         */
+        public boolean matches(String ifNoneMatch) {
+            return matches(ifNoneMatch, etag);
+        }
+
+        /**
+         * Checks an {@code If-None-Match} header against an ETag: the header
+         * matches if it is {@code *} or lists the ETag, weak or not.
+         *
+         * @param ifNoneMatch The header value, may be null.
+         * @param etag        The quoted ETag of the current representation.
+         * @return true if the client's copy is current.
+         */
+        public static boolean matches(String ifNoneMatch, String etag) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = tag.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private record Query(LocalDate fromDate, LocalDate toDate, String cursor, Integer limit) {
+    }
+
+    /**
+     * A query that is running or cached. Entries are compared by identity,
+     * so a write marks only the runs that may have missed it.
+     */
+    private static final class Entry {
+        private final Query query;
+        private volatile CachedJson json;
+        private volatile boolean stale;
+
+        private Entry(Query query) {
+            this.query = query;
+        }
+    }
+}
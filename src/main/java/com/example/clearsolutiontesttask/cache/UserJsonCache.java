@@ -0,0 +1,151 @@
+package com.example.clearsolutiontesttask.cache;
+
+import com.example.clearsolutiontesttask.dto.UserPage;
+import com.example.clearsolutiontesttask.entity.User;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes users as JSON from bytes cached with each stored user.
+ *
+ * <p>A user is serialized with the application's {@link ObjectMapper} the
+ * first time it is read, and the bytes are kept with the user object; see
+ * {@link User#cachedJson()}. Responses are then put together by copying
+ * those bytes, so reading a user again costs a copy instead of walking
+ * its properties. Writes replace the stored user with a new object, which
+ * drops the bytes.
+ *
+ * <p>The bytes add memory to every user that has been read. With
+ * {@code user.cache.json.enabled=false} they are built for every response
+ * and not kept. The columnar store rebuilds users on every read, so it
+ * gains nothing from the cache.
+ */
+@Component
+public class UserJsonCache {
+    /**
+     * About the size of a user's JSON, for sizing buffers.
+     */
+    private static final int USER_SIZE_HINT = 160;
+    private static final byte[] PAGE_START = "{\"users\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NEXT_CURSOR = ",\"nextCursor\":".getBytes(StandardCharsets.US_ASCII);
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+
+    /**
+     * Creates the cache.
+     *
+     * @param objectMapper Serializes the users.
+     * @param enabled      Whether to keep the bytes with the users.
+     */
+    @Autowired
+    public UserJsonCache(ObjectMapper objectMapper,
+                         @Value("${user.cache.json.enabled:true}") boolean enabled) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns the JSON of a user, serializing and caching it if needed.
+     *
+     * @param user The user.
+     * @return The UTF-8 JSON; must not be modified.
+     */
+    public byte[] toJson(User user) {
+        byte[] json = user.cachedJson();
+        if (json == null) {
+            json = serialize(user);
+            if (enabled) {
+                user.cacheJson(json);
+            }
+        }
+        return json;
+    }
+
+    /**
+     * Serializes users as a JSON array.
+     *
+     * @param users The users.
+     * @return The UTF-8 JSON.
+     */
+    public byte[] toJson(List<User> users) {
+        var out = new ByteArrayOutputStream(users.size() * USER_SIZE_HINT + 2);
+        writeToBuffer(users, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Serializes a page of users, as Jackson would.
+     *
+     * @param page The page.
+     * @return The UTF-8 JSON.
+     */
+    public byte[] toJson(UserPage page) {
+        var out = new ByteArrayOutputStream(page.getUsers().size() * USER_SIZE_HINT + 80);
+        out.writeBytes(PAGE_START);
+        writeToBuffer(page.getUsers(), out);
+        out.writeBytes(NEXT_CURSOR);
+        out.writeBytes(serialize(page.getNextCursor()));
+        out.write('}');
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes users to a stream as a JSON array.
+     *
+     * @param users The users.
+     * @param out   The stream to write to.
+     * @throws IOException if the stream cannot be written.
+     */
+    public void writeArray(Iterator<User> users, OutputStream out) throws IOException {
+        out.write('[');
+        for (boolean first = true; users.hasNext(); first = false) {
+            if (!first) {
+                out.write(',');
+            }
+            out.write(toJson(users.next()));
+        }
+        out.write(']');
+    }
+
+    /**
+     * Writes users to a stream as newline-delimited JSON.
+     *
+     * @param users The users.
+     * @param out   The stream to write to.
+     * @throws IOException if the stream cannot be written.
+     */
+    public void writeNdjson(Iterator<User> users, OutputStream out) throws IOException {
+        while (users.hasNext()) {
+            out.write(toJson(users.next()));
+            out.write('\n');
+        }
+    }
+
+    private void writeToBuffer(List<User> users, ByteArrayOutputStream out) {
+        try {
+            writeArray(users.iterator(), out);
+        } catch (IOException e) {
+            // A ByteArrayOutputStream does not fail.
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
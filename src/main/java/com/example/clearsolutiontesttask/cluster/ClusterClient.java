@@ -0,0 +1,313 @@
+package com.example.clearsolutiontesttask.cluster;
+
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.exception.ShardUnavailableException;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+/**
+ * HTTP client for the other nodes of the cluster.
+ *
+ * <p>Requests sent to a node carry the {@link #PEER_HEADER}, which tells
+ * it to answer from its own users only: a forwarded request is never
+ * forwarded again, and a query is never scattered twice.
+ */
+public class ClusterClient {
+    /**
+     * Header marking a request sent by another node.
+     */
+    public static final String PEER_HEADER = "X-User-Cluster-Peer";
+    private static final List<String> FORWARDED_HEADERS = List.of(HttpHeaders.CONTENT_TYPE,
+            HttpHeaders.ACCEPT, HttpHeaders.IF_MATCH, HttpHeaders.IF_NONE_MATCH);
+    private static final List<String> RETURNED_HEADERS = List.of(HttpHeaders.CONTENT_TYPE,
+            HttpHeaders.ETAG);
+
+    private final UserShards shards;
+    private final List<URI> nodes;
+    private final Duration timeout;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+
+    /**
+     * Creates a client for the nodes of a cluster.
+     *
+     * @param shards       The assignment of users to nodes.
+     * @param properties   The cluster settings.
+     * @param objectMapper The mapper for the JSON the nodes exchange.
+     */
+    public ClusterClient(UserShards shards, ClusterProperties properties,
+                         ObjectMapper objectMapper) {
+        this.shards = shards;
+        this.nodes = List.copyOf(properties.getNodes());
+        this.timeout = properties.getTimeout();
+        // Users from another node keep the version they have there.
+        this.objectMapper = objectMapper.copy().addMixIn(User.class, PeerUser.class);
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    /**
+     * Passes a request on to another node and copies its answer into the
+     * response.
+     *
+     * @param node     The node to send the request to.
+     * @param request  The request, whose body has not been read yet.
+     * @param response The response to fill in.
+     * @throws IOException               if the request cannot be read or the
+     * response cannot be written.
+     * @throws ShardUnavailableException if the node does not answer.
+     */
+    public void forward(int node, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        String query = request.getQueryString();
+        byte[] body = request.getInputStream().readAllBytes();
+        HttpRequest.Builder builder = newRequest(node, request.getRequestURI()
+                + (query == null ? "" : "?" + query))
+                .method(request.getMethod(), body.length == 0
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(body));
+        for (String name : FORWARDED_HEADERS) {
+            String value = request.getHeader(name);
+            if (value != null) {
+                builder.header(name, value);
+            }
+        }
+        HttpResponse<byte[]> answer = join(node, httpClient.sendAsync(builder.build(),
+                HttpResponse.BodyHandlers.ofByteArray()));
+        response.setStatus(answer.statusCode());
+        for (String name : RETURNED_HEADERS) {
+            answer.headers().firstValue(name).ifPresent(value -> response.setHeader(name, value));
+        }
+        response.getOutputStream().write(answer.body());
+    }
+
+    /**
+     * Sends a GET request to every other node at once.
+     *
+     * @param path       The path of the request.
+     * @param parameters The query parameters, in order.
+     * @param type       The type of the JSON answers.
+     * @param <T>        The type of the answers.
+     * @return The answers of the nodes, in node order; an answer is null if
+     * the node responded with 404 Not Found. Failures surface as a
+     * {@link ShardUnavailableException} from {@link #await(List)}.
+     */
+    public <T> List<CompletableFuture<T>> getFromPeers(String path, Map<String, ?> parameters,
+                                                       Class<T> type) {
+        return getFromPeers(path, parameters, objectMapper.constructType(type));
+    }
+
+    /**
+     * Sends a GET request to every other node at once.
+     *
+     * @param path       The path of the request.
+     * @param parameters The query parameters, in order.
+     * @param type       The generic type of the JSON answers.
+     * @param <T>        The type of the answers.
+     * @return The answers of the nodes, as in
+     * {@link #getFromPeers(String, Map, Class)}.
+     */
+    public <T> List<CompletableFuture<T>> getFromPeers(String path, Map<String, ?> parameters,
+                                                       TypeReference<T> type) {
+        return getFromPeers(path, parameters, objectMapper.getTypeFactory().constructType(type));
+    }
+
+    private <T> List<CompletableFuture<T>> getFromPeers(String path, Map<String, ?> parameters,
+                                                        JavaType type) {
+        String uri = path + query(parameters);
+        List<CompletableFuture<T>> answers = new ArrayList<>(nodes.size() - 1);
+        for (int node = 0; node < nodes.size(); node++) {
+            if (node != shards.nodeIndex()) {
+                answers.add(send(node, newRequest(node, uri).GET(), type));
+            }
+        }
+        return answers;
+    }
+
+    /**
+     * Sends a GET request to every other node at once and reads each answer
+     * as a stream of JSON values, such as newline-delimited JSON, without
+     * holding the whole answer in memory.
+     *
+     * @param path       The path of the request.
+     * @param parameters The query parameters, in order.
+     * @param type       The type of the JSON values.
+     * @param <T>        The type of the values.
+     * @return The answers of the nodes, in node order, each an iterator
+     * over the values that must be closed once read. Failures, including
+     * any status other than 200 OK, surface as a
+     * {@link ShardUnavailableException} from {@link #await(List)}.
+     */
+    public <T> List<CompletableFuture<MappingIterator<T>>> streamFromPeers(
+            String path, Map<String, ?> parameters, Class<T> type) {
+        String uri = path + query(parameters);
+        ObjectReader reader = objectMapper.readerFor(type);
+        List<CompletableFuture<MappingIterator<T>>> answers = new ArrayList<>(nodes.size() - 1);
+        for (int node = 0; node < nodes.size(); node++) {
+            if (node == shards.nodeIndex()) {
+                continue;
+            }
+            int peer = node;
+            answers.add(httpClient.sendAsync(newRequest(node, uri).GET().build(),
+                            HttpResponse.BodyHandlers.ofInputStream())
+                    .handle((answer, failure) -> {
+                        if (failure != null) {
+                            throw new ShardUnavailableException(peer, failure);
+                        }
+                        try {
+                            if (answer.statusCode() != HttpStatus.OK.value()) {
+                                try (InputStream body = answer.body()) {
+                                    throw new IOException("Status " + answer.statusCode() + ": "
+                                            + new String(body.readAllBytes(),
+                                            StandardCharsets.UTF_8));
+                                }
+                            }
+                            return reader.<T>readValues(answer.body());
+                        } catch (IOException e) {
+                            throw new ShardUnavailableException(peer, e);
+                        }
+                    }));
+        }
+        return answers;
+    }
+
+    /**
+     * Sends a POST request with a JSON body to another node.
+     *
+     * @param node The node to send the request to.
+     * @param path The path of the request.
+     * @param body The object to send as JSON.
+     * @param type The type of the JSON answer.
+     * @param <T>  The type of the answer.
+     * @return The answer of the node, as in
+     * {@link #getFromPeers(String, Map, Class)}.
+     */
+    public <T> CompletableFuture<T> postToPeer(int node, String path, Object body,
+                                               Class<T> type) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot send " + body, e);
+        }
+        return send(node, newRequest(node, path)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(json)),
+                objectMapper.constructType(type));
+    }
+
+    private <T> CompletableFuture<T> send(int node, HttpRequest.Builder request, JavaType type) {
+        return httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.ofByteArray())
+                .handle((answer, failure) -> {
+                    if (failure != null) {
+                        throw new ShardUnavailableException(node, failure);
+                    }
+                    return read(node, answer, type);
+                });
+    }
+
+    /**
+     * Waits for the answers of {@link #getFromPeers(String, Map, Class)} or
+     * {@link #postToPeer(int, String, Object, Class)}.
+     *
+     * @param answers The pending answers.
+     * @param <T>     The type of the answers.
+     * @return The answers, in node order.
+     * @throws ShardUnavailableException if a node did not answer.
+     */
+    public static <T> List<T> await(List<CompletableFuture<T>> answers) {
+        List<T> results = new ArrayList<>(answers.size());
+        for (CompletableFuture<T> answer : answers) {
+            try {
+                results.add(answer.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof ShardUnavailableException unavailable) {
+                    throw unavailable;
+                }
+                throw e;
+            }
+        }
+        return results;
+    }
+
+    private HttpRequest.Builder newRequest(int node, String pathAndQuery) {
+        return HttpRequest.newBuilder(nodes.get(node).resolve(pathAndQuery))
+                .timeout(timeout)
+                .header(PEER_HEADER, String.valueOf(shards.nodeIndex()));
+    }
+
+    private <T> HttpResponse<T> join(int node, CompletableFuture<HttpResponse<T>> answer) {
+        try {
+            return answer.join();
+        } catch (CompletionException e) {
+            throw new ShardUnavailableException(node, e.getCause());
+        }
+    }
+
+    private <T> T read(int node, HttpResponse<byte[]> answer, JavaType type) {
+        if (answer.statusCode() == HttpStatus.NOT_FOUND.value()) {
+            return null;
+        }
+        try {
+            if (answer.statusCode() != HttpStatus.OK.value()) {
+                throw new IOException("Status " + answer.statusCode() + ": "
+                        + new String(answer.body(), StandardCharsets.UTF_8));
+            }
+            return objectMapper.readValue(answer.body(), type);
+        } catch (IOException e) {
+            throw new ShardUnavailableException(node, e);
+        }
+    }
+
+    private static String query(Map<String, ?> parameters) {
+        var query = new StringJoiner("&", "?", "").setEmptyValue("");
+        parameters.forEach((name, value) -> {
+            if (value != null) {
+                query.add(name + "=" + URLEncoder.encode(value.toString(),
+                        StandardCharsets.UTF_8));
+            }
+        });
+        return query.toString();
+    }
+
+    /**
+     * Lets the version of users be read back from another node's JSON.
+     */
+    private abstract static class PeerUser {
+        // Lombok copies the read-only access onto the accessors as well.
+        @JsonProperty(access = JsonProperty.Access.READ_WRITE)
+        private long version;
+
+        @JsonProperty(access = JsonProperty.Access.READ_WRITE)
+        abstract long getVersion();
+
+        @JsonProperty(access = JsonProperty.Access.READ_WRITE)
+        abstract User setVersion(long version);
+    }
+}
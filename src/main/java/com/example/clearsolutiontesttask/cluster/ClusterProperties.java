@@ -0,0 +1,41 @@
+package com.example.clearsolutiontesttask.cluster;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the optional partitioned mode, in which users are spread
+ * over several application nodes, bound from the {@code user.cluster.*}
+ * properties. Every node must be given the same list of nodes.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "user.cluster")
+public class ClusterProperties {
+    /**
+     * Whether users are partitioned across {@link #nodes}.
+     */
+    private boolean enabled;
+    /**
+     * Base URLs of all nodes, in the same order on every node.
+     */
+    private List<URI> nodes = new ArrayList<>();
+    /**
+     * Position of this node in {@link #nodes}.
+     */
+    private int nodeIndex;
+    /**
+     * Number of consecutive user IDs that are owned by the same node; batch
+     * imports are split into chunks of at most this many users.
+     */
+    private int idBlockSize = 65_536;
+    /**
+     * How long to wait for another node to answer.
+     */
+    private Duration timeout = Duration.ofSeconds(5);
+}
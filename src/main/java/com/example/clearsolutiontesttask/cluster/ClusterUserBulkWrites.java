@@ -0,0 +1,135 @@
+package com.example.clearsolutiontesttask.cluster;
+
+import com.example.clearsolutiontesttask.dto.BulkPatchRequest;
+import com.example.clearsolutiontesttask.dto.BulkResult;
+import com.example.clearsolutiontesttask.dto.UserSelection;
+import com.example.clearsolutiontesttask.exception.ValidationException;
+import com.example.clearsolutiontesttask.service.UserBulkService;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Bulk updates and deletes over the users of all nodes. Selected IDs are
+ * sent only to the nodes that own them; a birth date range is sent to
+ * every node. The nodes write their users in parallel, and their results
+ * are added up here.
+ */
+@RequiredArgsConstructor
+public class ClusterUserBulkWrites {
+    private final UserBulkService userBulkService;
+    private final UserShards shards;
+    private final ClusterClient clusterClient;
+
+    /**
+     * Deletes the selected users on all nodes, like
+     * {@link UserBulkService#deleteUsers}.
+     *
+     * @param selection The IDs or the birth date range of the users.
+     * @return How many users were deleted, and the IDs that do not exist.
+     * @throws ValidationException if the selection is invalid.
+     * @throws com.example.clearsolutiontesttask.exception.ShardUnavailableException
+     * if another node does not answer.
+     */
+    public BulkResult deleteUsers(UserSelection selection) throws ValidationException {
+        var remote = new ArrayList<CompletableFuture<Result>>();
+        UserSelection local = null;
+        for (Map.Entry<Integer, UserSelection> part : split(selection,
+                UserSelection::new).entrySet()) {
+            if (part.getKey() == shards.nodeIndex()) {
+                local = part.getValue();
+            } else {
+                remote.add(clusterClient.postToPeer(part.getKey(), "/users/bulk/delete",
+                        part.getValue(), Result.class));
+            }
+        }
+        BulkResult result = local == null ? null : userBulkService.deleteUsers(local);
+        return add(result, ClusterClient.await(remote));
+    }
+
+    /**
+     * Updates the same fields of the selected users on all nodes, like
+     * {@link UserBulkService#updateUserFields}.
+     *
+     * @param request The IDs or the birth date range of the users, and the
+     *                fields to update.
+     * @return How many users were updated or already had the fields, and
+     * why the others were not updated.
+     * @throws ValidationException if the selection is invalid.
+     * @throws com.example.clearsolutiontesttask.exception.ShardUnavailableException
+     * if another node does not answer.
+     */
+    public BulkResult updateUserFields(BulkPatchRequest request) throws ValidationException {
+        var remote = new ArrayList<CompletableFuture<Result>>();
+        BulkPatchRequest local = null;
+        for (Map.Entry<Integer, BulkPatchRequest> part : split(request, () -> {
+            var patch = new BulkPatchRequest();
+            patch.setFields(request.getFields());
+            return patch;
+        }).entrySet()) {
+            if (part.getKey() == shards.nodeIndex()) {
+                local = part.getValue();
+            } else {
+                remote.add(clusterClient.postToPeer(part.getKey(), "/users/bulk/updateField",
+                        part.getValue(), Result.class));
+            }
+        }
+        BulkResult result = local == null ? null
+                : userBulkService.updateUserFields(local, local.getFields());
+        return add(result, ClusterClient.await(remote));
+    }
+
+    /**
+     * Splits a selection into the part each node has to handle: its own
+     * IDs, or the whole birth date range.
+     */
+    private <S extends UserSelection> Map<Integer, S> split(S selection, Supplier<S> empty)
+            throws ValidationException {
+        Map<Integer, S> parts = new TreeMap<>();
+        if (selection.byIds()) {
+            for (Integer id : selection.getIds()) {
+                S part = parts.computeIfAbsent(shards.ownerOf(id), node -> {
+                    S created = empty.get();
+                    created.setIds(new ArrayList<>());
+                    return created;
+                });
+                part.getIds().add(id);
+            }
+        } else {
+            for (int node = 0; node < shards.nodeCount(); node++) {
+                S part = empty.get();
+                part.setFromDate(selection.getFromDate());
+                part.setToDate(selection.getToDate());
+                parts.put(node, part);
+            }
+        }
+        return parts;
+    }
+
+    private static BulkResult add(BulkResult local, List<Result> remote) {
+        int applied = local == null ? 0 : local.getApplied();
+        int unchanged = local == null ? 0 : local.getUnchanged();
+        List<BulkResult.ItemError> errors = new ArrayList<>();
+        if (local != null) {
+            errors.addAll(local.getErrors());
+        }
+        for (Result result : remote) {
+            applied += result.applied();
+            unchanged += result.unchanged();
+            errors.addAll(result.errors());
+        }
+        errors.sort(Comparator.comparingInt(BulkResult.ItemError::id));
+        return new BulkResult(applied, unchanged, errors);
+    }
+
+    /**
+     * The result of a bulk write as another node sends it.
+     */
+    private record Result(int applied, int unchanged, List<BulkResult.ItemError> errors) {
+    }
+}
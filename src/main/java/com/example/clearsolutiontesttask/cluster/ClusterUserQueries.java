@@ -0,0 +1,406 @@
+package com.example.clearsolutiontesttask.cluster;
+
+import com.example.clearsolutiontesttask.dto.AgeHistogram;
+import com.example.clearsolutiontesttask.dto.BirthDateCursor;
+import com.example.clearsolutiontesttask.dto.BirthMonthCount;
+import com.example.clearsolutiontesttask.dto.BirthYearCount;
+import com.example.clearsolutiontesttask.dto.SearchCursor;
+import com.example.clearsolutiontesttask.dto.UserQuery;
+import com.example.clearsolutiontesttask.dto.UserPage;
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.exception.ValidationException;
+import com.example.clearsolutiontesttask.export.ExportFormat;
+import com.example.clearsolutiontesttask.service.UserQueryService;
+import com.example.clearsolutiontesttask.service.UserSearchService;
+import com.example.clearsolutiontesttask.service.UserService;
+import com.example.clearsolutiontesttask.stats.UserBirthDateStats;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import jakarta.persistence.EntityNotFoundException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.function.BiFunction;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Queries that span the users of all nodes: each node answers from its
+ * own users in parallel, and the sorted answers are merged here.
+ *
+ * <p>Paged queries ask every node for a full page after the same cursor;
+ * the first {@code limit} users of the merged pages form the page, since no
+ * user after a node's page can come before the last user on it.
+ * Statistics are the sums of the nodes' counts.
+ */
+@RequiredArgsConstructor
+public class ClusterUserQueries {
+    private static final Comparator<User> BIRTH_DATE_ORDER = Comparator
+            .comparing(User::getBirthDate)
+            .thenComparingInt(User::getId);
+    private static final Comparator<User> ID_ORDER = Comparator.comparingInt(User::getId);
+    private static final TypeReference<List<User>> USER_LIST = new TypeReference<>() {
+    };
+    private static final TypeReference<List<BirthYearCount>> YEAR_LIST = new TypeReference<>() {
+    };
+    private static final TypeReference<List<BirthMonthCount>> MONTH_LIST =
+            new TypeReference<>() {
+            };
+
+    private final UserService userService;
+    private final UserSearchService userSearchService;
+    private final UserQueryService userQueryService;
+    private final UserBirthDateStats birthDateStats;
+    private final ClusterClient clusterClient;
+
+    /**
+     * Finds users with birth dates within the specified range on all nodes.
+     *
+     * @param fromDate The start date of the range, inclusive.
+     * @param toDate   The end date of the range, inclusive.
+     * @return The users, ordered by birth date and then by ID.
+     * @throws com.example.clearsolutiontesttask.exception.ShardUnavailableException
+     * if another node does not answer.
+     */
+    public List<User> findAllByBirthDateBetween(LocalDate fromDate, LocalDate toDate) {
+        var remote = clusterClient.getFromPeers("/users/age",
+                parameters("fromDate", fromDate, "toDate", toDate), USER_LIST);
+        List<List<User>> shards = new ArrayList<>(remote.size() + 1);
+        shards.add(userService.findAllByBirthDateBetween(fromDate, toDate));
+        shards.addAll(ClusterClient.await(remote));
+        return merge(shards, BIRTH_DATE_ORDER, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Finds one page of users with birth dates within the specified range
+     * on all nodes.
+     *
+     * @param fromDate The start date of the range, inclusive.
+     * @param toDate   The end date of the range, inclusive.
+     * @param cursor   The cursor returned with the previous page, or null
+     *                 for the first page.
+     * @param limit    The maximum number of users on the page.
+     * @return The page, ordered by birth date and then by ID.
+     * @throws ValidationException if the cursor is malformed.
+     */
+    public UserPage findPageByBirthDateBetween(LocalDate fromDate, LocalDate toDate,
+                                               String cursor, int limit)
+            throws ValidationException {
+        var remote = clusterClient.getFromPeers("/users/age", parameters("fromDate", fromDate,
+                "toDate", toDate, "cursor", cursor, "limit", limit), Page.class);
+        UserPage local = userService.findPageByBirthDateBetween(fromDate, toDate, cursor, limit);
+        return mergePages(local, ClusterClient.await(remote), BIRTH_DATE_ORDER, limit,
+                user -> BirthDateCursor.after(user).toToken());
+    }
+
+    /**
+     * Searches users on all nodes like {@link UserSearchService#search}.
+     *
+     * @param query  The words to search for.
+     * @param cursor The cursor returned with the previous page, or null for
+     *               the first page.
+     * @param limit  The maximum number of users on the page.
+     * @return The page, ordered by ID.
+     * @throws ValidationException if the query has no letters or digits, or
+     * the cursor is malformed.
+     */
+    public UserPage search(String query, String cursor, int limit) throws ValidationException {
+        var remote = clusterClient.getFromPeers("/users/search",
+                parameters("q", query, "cursor", cursor, "limit", limit), Page.class);
+        UserPage local = userSearchService.search(query, cursor, limit);
+        return mergePages(local, ClusterClient.await(remote), ID_ORDER, limit,
+                user -> new SearchCursor(user.getId()).toToken());
+    }
+
+    /**
+     * Runs a query on all nodes, like {@link UserQueryService#query}.
+     *
+     * @param query The query.
+     * @return The first {@code limit} matching users of all nodes, in the
+     * requested order.
+     */
+    public List<User> query(UserQuery query) {
+        var remote = clusterClient.getFromPeers("/users/query", parameters(
+                "fromDate", query.fromDate(), "toDate", query.toDate(),
+                "lastNamePrefix", query.lastNamePrefix(), "emailDomain", query.emailDomain(),
+                "sort", query.sort().parameter(), "limit", query.limit()), USER_LIST);
+        List<List<User>> shards = new ArrayList<>(remote.size() + 1);
+        shards.add(userQueryService.query(query).users());
+        shards.addAll(ClusterClient.await(remote));
+        return merge(shards, query.sort().order(), query.limit());
+    }
+
+    /**
+     * Finds a user by email on any node.
+     *
+     * @param email The email of the user.
+     * @return The user.
+     * @throws EntityNotFoundException if no node has a user with the email.
+     */
+    public User findUserByEmail(String email) throws EntityNotFoundException {
+        var remote = clusterClient.getFromPeers("/users/by-email",
+                parameters("email", email), User.class);
+        try {
+            return userService.findUserByEmail(email);
+        } catch (EntityNotFoundException e) {
+            return ClusterClient.await(remote).stream()
+                    .filter(Objects::nonNull)
+                    .findFirst()
+                    .orElseThrow(() -> e);
+        }
+    }
+
+    /**
+     * Counts the users of all nodes by age, like
+     * {@link UserBirthDateStats#ageHistogram}.
+     *
+     * @param width       The number of ages in each bucket.
+     * @param bucketCount The number of buckets.
+     * @return The histogram.
+     */
+    public AgeHistogram ageHistogram(int width, int bucketCount) {
+        var remote = clusterClient.getFromPeers("/users/stats/age-histogram",
+                parameters("width", width, "buckets", bucketCount), Histogram.class);
+        AgeHistogram local = birthDateStats.ageHistogram(width, bucketCount);
+        long younger = local.getYounger();
+        long[] counts = local.getBuckets().stream().mapToLong(AgeHistogram.Bucket::count).toArray();
+        for (Histogram histogram : ClusterClient.await(remote)) {
+            younger += histogram.younger();
+            // A node that just passed midnight may disagree about the
+            // ages, but never about the buckets.
+            for (int k = 0; k < counts.length; k++) {
+                counts[k] += histogram.buckets().get(k).count();
+            }
+        }
+        List<AgeHistogram.Bucket> buckets = new ArrayList<>(counts.length);
+        for (int k = 0; k < counts.length; k++) {
+            AgeHistogram.Bucket bucket = local.getBuckets().get(k);
+            buckets.add(new AgeHistogram.Bucket(bucket.fromAge(), bucket.toAge(), counts[k]));
+        }
+        return new AgeHistogram(local.getAsOf(), local.getMinimumAge(), younger, buckets);
+    }
+
+    /**
+     * Counts the users of all nodes by birth year.
+     *
+     * @return The years in which users were born, in order, with the number
+     * of users born in each.
+     */
+    public List<BirthYearCount> birthYears() {
+        var remote = clusterClient.getFromPeers("/users/stats/birth-years", Map.of(), YEAR_LIST);
+        List<List<BirthYearCount>> shards = new ArrayList<>(remote.size() + 1);
+        shards.add(birthDateStats.birthYears());
+        shards.addAll(ClusterClient.await(remote));
+        return sum(shards, BirthYearCount::year, BirthYearCount::count, BirthYearCount::new);
+    }
+
+    /**
+     * Counts the users of all nodes by birth month.
+     *
+     * @param year The year whose twelve months to count, or null for all
+     *             months in which users were born.
+     * @return The months in order, with the number of users born in each.
+     */
+    public List<BirthMonthCount> birthMonths(Integer year) {
+        var remote = clusterClient.getFromPeers("/users/stats/birth-months",
+                year == null ? Map.of() : parameters("year", year), MONTH_LIST);
+        List<List<BirthMonthCount>> shards = new ArrayList<>(remote.size() + 1);
+        shards.add(birthDateStats.birthMonths(year));
+        shards.addAll(ClusterClient.await(remote));
+        return sum(shards, BirthMonthCount::month, BirthMonthCount::count, BirthMonthCount::new);
+    }
+
+    /**
+     * Streams all users of all nodes for an export. Each node streams its
+     * own snapshot, and the streams are merged by ID as they are read, so
+     * no node's users are held in memory here beyond this node's snapshot.
+     * The nodes take their snapshots at about the same time, but not at
+     * the same instant.
+     *
+     * @return The users, ordered by ID; the stream must be closed to
+     * release the connections to the other nodes.
+     * @throws com.example.clearsolutiontesttask.exception.ShardUnavailableException
+     * if another node does not answer.
+     */
+    public Stream<User> snapshotById() {
+        var remote = clusterClient.streamFromPeers("/users/export",
+                parameters("format", ExportFormat.NDJSON.parameter()), User.class);
+        List<User> local = userService.snapshotById();
+        List<MappingIterator<User>> peers;
+        try {
+            peers = ClusterClient.await(remote);
+        } catch (RuntimeException e) {
+            // Release the connections of the nodes that did answer.
+            remote.forEach(answer -> answer.thenAccept(ClusterUserQueries::closeQuietly));
+            throw e;
+        }
+        List<Iterator<User>> shards = new ArrayList<>(peers.size() + 1);
+        shards.add(local.iterator());
+        shards.addAll(peers);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                        new MergingIterator(shards, ID_ORDER),
+                        Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> peers.forEach(ClusterUserQueries::closeQuietly));
+    }
+
+    /**
+     * Merges sorted lists into one sorted list.
+     *
+     * @param shards The lists, each sorted by {@code order}.
+     * @param order  The order of the lists.
+     * @param limit  The maximum number of users to take.
+     * @return The first {@code limit} users of all lists, in order.
+     */
+    static List<User> merge(List<List<User>> shards, Comparator<User> order, int limit) {
+        var heads = new PriorityQueue<Head>(Math.max(1, shards.size()),
+                (a, b) -> order.compare(a.user(), b.user()));
+        int total = 0;
+        for (List<User> users : shards) {
+            if (!users.isEmpty()) {
+                heads.add(new Head(users, 0));
+                total += users.size();
+            }
+        }
+        List<User> merged = new ArrayList<>(Math.min(limit, total));
+        while (!heads.isEmpty() && merged.size() < limit) {
+            Head head = heads.poll();
+            merged.add(head.user());
+            if (head.position() + 1 < head.users().size()) {
+                heads.add(new Head(head.users(), head.position() + 1));
+            }
+        }
+        return merged;
+    }
+
+    private static UserPage mergePages(UserPage local, List<Page> remote,
+                                       Comparator<User> order, int limit,
+                                       Function<User, String> cursorAfter) {
+        List<List<User>> shards = new ArrayList<>(remote.size() + 1);
+        shards.add(local.getUsers());
+        boolean more = local.getNextCursor() != null;
+        for (Page page : remote) {
+            shards.add(page.users());
+            more |= page.nextCursor() != null;
+        }
+        // Taking one extra user tells whether the merged page is full.
+        List<User> users = merge(shards, order, limit + 1);
+        if (users.size() > limit) {
+            users = users.subList(0, limit);
+            more = true;
+        }
+        return new UserPage(users, more ? cursorAfter.apply(users.get(users.size() - 1)) : null);
+    }
+
+    private static <T, K extends Comparable<K>> List<T> sum(List<List<T>> shards,
+                                                            Function<T, K> key,
+                                                            ToLongFunction<T> count,
+                                                            BiFunction<K, Long, T> create) {
+        TreeMap<K, Long> sums = new TreeMap<>();
+        for (List<T> counts : shards) {
+            for (T item : counts) {
+                sums.merge(key.apply(item), count.applyAsLong(item), Long::sum);
+            }
+        }
+        List<T> summed = new ArrayList<>(sums.size());
+        sums.forEach((k, sum) -> summed.add(create.apply(k, sum)));
+        return summed;
+    }
+
+    private static Map<String, Object> parameters(Object... namesAndValues) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            parameters.put((String) namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return parameters;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // The connection is dropped either way.
+        }
+    }
+
+    /**
+     * Merges iterators sorted by the same order, reading each only as far
+     * as needed.
+     */
+    private static final class MergingIterator implements Iterator<User> {
+        private final PriorityQueue<Cursor> heads;
+
+        private MergingIterator(List<Iterator<User>> shards, Comparator<User> order) {
+            heads = new PriorityQueue<>(Math.max(1, shards.size()),
+                    (a, b) -> order.compare(a.user, b.user));
+            for (Iterator<User> users : shards) {
+                advance(new Cursor(users));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public User next() {
+            Cursor head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            User user = head.user;
+            advance(head);
+            return user;
+        }
+
+        private void advance(Cursor cursor) {
+            if (cursor.users.hasNext()) {
+                cursor.user = cursor.users.next();
+                heads.add(cursor);
+            }
+        }
+
+        private static final class Cursor {
+            private final Iterator<User> users;
+            private User user;
+
+            private Cursor(Iterator<User> users) {
+                this.users = users;
+            }
+        }
+    }
+
+    private record Head(List<User> users, int position) {
+        User user() {
+            return users.get(position);
+        }
+    }
+
+    /**
+     * A page as another node sends it.
+     */
+    private record Page(List<User> users, String nextCursor) {
+    }
+
+    /**
+     * The counts of a histogram as another node sends it.
+     */
+    private record Histogram(long younger, List<AgeHistogram.Bucket> buckets) {
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.clearsolutiontesttask.cluster;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Sends requests for a single user, i.e. those mapped to a path with an
+ * {@code {id}} variable, to the node that owns the user. The handler is
+ * resolved first, so routing follows the controller's own mappings, and
+ * the request body is passed on unread.
+ */
+@RequiredArgsConstructor
+public class ShardRoutingInterceptor implements HandlerInterceptor {
+    private final UserShards shards;
+    private final ClusterClient clusterClient;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
+                             Object handler) throws IOException {
+        if (!(handler instanceof HandlerMethod)
+                || request.getHeader(ClusterClient.PEER_HEADER) != null) {
+            return true;
+        }
+        @SuppressWarnings("unchecked")
+        var variables = (Map<String, String>) request.getAttribute(
+                HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String id = variables == null ? null : variables.get("id");
+        if (id == null) {
+            return true;
+        }
+        int owner;
+        try {
+            owner = shards.ownerOf(Integer.parseInt(id));
+        } catch (NumberFormatException e) {
+            // Rejected by the handler's own validation.
+            return true;
+        }
+        if (owner == shards.nodeIndex()) {
+            return true;
+        }
+        clusterClient.forward(owner, request, response);
+        return false;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.clearsolutiontesttask.cluster;
+
+import com.example.clearsolutiontesttask.repository.IdAllocator;
+
+/**
+ * Allocates user IDs from the blocks this node owns, so that the users it
+ * creates are stored here and no other node ever hands out the same ID.
+ * Contiguous allocations never span two blocks; the rest of a block that
+ * is too short is skipped.
+ */
+public class ShardedIdAllocator implements IdAllocator {
+    private final UserShards shards;
+    private long nextId;
+    private long blockEnd;
+
+    /**
+     * Creates an allocator that starts at the first block of this node.
+     *
+     * @param shards The assignment of IDs to nodes.
+     */
+    public ShardedIdAllocator(UserShards shards) {
+        this.shards = shards;
+    }
+
+    @Override
+    public synchronized int nextId() {
+        return nextIds(1);
+    }
+
+    @Override
+    public synchronized int nextIds(int count) {
+        if (count > shards.blockSize()) {
+            throw new IllegalArgumentException("Cannot allocate " + count
+                    + " contiguous IDs from blocks of " + shards.blockSize());
+        }
+        if (blockEnd - nextId < count) {
+            claimBlockAfter(blockEnd);
+        }
+        int first = (int) nextId;
+        nextId += count;
+        return first;
+    }
+
+    @Override
+    public int maxContiguousIds() {
+        return shards.blockSize();
+    }
+
+    @Override
+    public synchronized void advancePast(int id) {
+        if (id < nextId) {
+            return;
+        }
+        if (id + 1L < blockEnd) {
+            nextId = id + 1L;
+        } else {
+            claimBlockAfter(id + 1L);
+        }
+    }
+
+    /**
+     * Moves to the first block owned by this node that starts after the
+     * given position.
+     */
+    private void claimBlockAfter(long position) {
+        long blockSize = shards.blockSize();
+        long block = Math.max(0, (position - 1 + blockSize - 1) / blockSize);
+        while (shards.ownerOfBlock((int) block) != shards.nodeIndex()) {
+            block++;
+        }
+        long start = block * blockSize + 1;
+        if (start + blockSize - 1 > Integer.MAX_VALUE) {
+            throw new IllegalStateException("No user IDs left for node " + shards.nodeIndex());
+        }
+        nextId = start;
+        blockEnd = start + blockSize;
+    }
+}
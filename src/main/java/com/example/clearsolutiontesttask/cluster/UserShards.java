@@ -0,0 +1,84 @@
+package com.example.clearsolutiontesttask.cluster;
+
+/**
+ * Assignment of user IDs to the nodes of a cluster.
+ *
+ * <p>IDs are grouped into blocks of consecutive IDs, and each block is
+ * owned by the node its hashed block number selects. Hashing spreads the
+ * blocks evenly over the nodes regardless of which ones are in use, while
+ * a node that allocates IDs only from its own blocks always owns the users
+ * it creates: creating a user never leaves the node, and no two nodes can
+ * hand out the same ID.
+ */
+public final class UserShards {
+    private final int nodeCount;
+    private final int nodeIndex;
+    private final int blockSize;
+
+    /**
+     * Creates the assignment as seen from one node.
+     *
+     * @param nodeCount The number of nodes.
+     * @param nodeIndex The position of this node, from zero.
+     * @param blockSize The number of consecutive IDs in a block.
+     * @throws IllegalArgumentException if the arguments do not describe a
+     * node of a cluster.
+     */
+    public UserShards(int nodeCount, int nodeIndex, int blockSize) {
+        if (nodeCount < 1 || nodeIndex < 0 || nodeIndex >= nodeCount || blockSize < 1) {
+            throw new IllegalArgumentException("Node " + nodeIndex + " of " + nodeCount
+                    + " with blocks of " + blockSize + " IDs is not a valid cluster node");
+        }
+        this.nodeCount = nodeCount;
+        this.nodeIndex = nodeIndex;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Returns the node that stores the user with the given ID.
+     *
+     * @param id The user ID.
+     * @return The position of the owning node.
+     */
+    public int ownerOf(int id) {
+        return ownerOfBlock(blockOf(id));
+    }
+
+    /**
+     * Checks whether this node stores the user with the given ID.
+     *
+     * @param id The user ID.
+     * @return true if the user belongs here.
+     */
+    public boolean isLocal(int id) {
+        return ownerOf(id) == nodeIndex;
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    public int nodeIndex() {
+        return nodeIndex;
+    }
+
+    public int blockSize() {
+        return blockSize;
+    }
+
+    int blockOf(int id) {
+        // IDs start at 1, so block 0 holds 1..blockSize.
+        return Math.floorDiv(id - 1, blockSize);
+    }
+
+    int ownerOfBlock(int block) {
+        // Murmur3's finalizer: consecutive blocks land on unrelated nodes.
+        int hash = block;
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, nodeCount);
+    }
+}
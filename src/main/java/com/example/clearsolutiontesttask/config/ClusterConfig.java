@@ -0,0 +1,83 @@
+package com.example.clearsolutiontesttask.config;
+
+import com.example.clearsolutiontesttask.cluster.ClusterClient;
+import com.example.clearsolutiontesttask.cluster.ClusterProperties;
+import com.example.clearsolutiontesttask.cluster.ClusterUserBulkWrites;
+import com.example.clearsolutiontesttask.cluster.ClusterUserQueries;
+import com.example.clearsolutiontesttask.cluster.ShardRoutingInterceptor;
+import com.example.clearsolutiontesttask.cluster.ShardedIdAllocator;
+import com.example.clearsolutiontesttask.cluster.UserShards;
+import com.example.clearsolutiontesttask.repository.IdAllocator;
+import com.example.clearsolutiontesttask.service.UserBulkService;
+import com.example.clearsolutiontesttask.service.UserQueryService;
+import com.example.clearsolutiontesttask.service.UserSearchService;
+import com.example.clearsolutiontesttask.service.UserService;
+import com.example.clearsolutiontesttask.stats.UserBirthDateStats;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Configuration of the partitioned mode, in which every node stores the
+ * users whose IDs it owns, forwards requests for other users to their
+ * owner, and gathers queries and bulk writes over all users from every
+ * node.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "user.cluster", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ClusterProperties.class)
+public class ClusterConfig implements WebMvcConfigurer {
+    private final UserShards userShards;
+    private final ClusterClient clusterClient;
+
+    public ClusterConfig(ClusterProperties properties, ObjectMapper objectMapper) {
+        this.userShards = new UserShards(properties.getNodes().size(),
+                properties.getNodeIndex(), properties.getIdBlockSize());
+        this.clusterClient = new ClusterClient(userShards, properties, objectMapper);
+    }
+
+    @Bean
+    public UserShards userShards() {
+        return userShards;
+    }
+
+    @Bean
+    public ClusterClient clusterClient() {
+        return clusterClient;
+    }
+
+    /**
+     * Allocates IDs from this node's blocks only, in place of the
+     * single-node counter.
+     *
+     * @return The allocator.
+     */
+    @Bean
+    public IdAllocator shardedIdAllocator() {
+        return new ShardedIdAllocator(userShards);
+    }
+
+    @Bean
+    public ClusterUserQueries clusterUserQueries(UserService userService,
+                                                 UserSearchService userSearchService,
+                                                 UserQueryService userQueryService,
+                                                 UserBirthDateStats birthDateStats) {
+        return new ClusterUserQueries(userService, userSearchService, userQueryService,
+                birthDateStats, clusterClient);
+    }
+
+    @Bean
+    public ClusterUserBulkWrites clusterUserBulkWrites(UserBulkService userBulkService) {
+        return new ClusterUserBulkWrites(userBulkService, userShards, clusterClient);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ShardRoutingInterceptor(userShards, clusterClient))
+                .addPathPatterns("/users/**");
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.clearsolutiontesttask.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Caps how many requests are handled at the same time, independently of
+ * the number of server threads.
+ *
+ * <p>With a platform-thread pool the pool size already bounds concurrency,
+ * but with virtual threads every accepted connection gets its own thread,
+ * so a burst could otherwise pile up unbounded work behind slow writes.
+ * Requests over the limit wait up to the queue timeout for a slot and are
+ * then rejected with 503 and a {@code Retry-After} header.
+ *
+ * <p>Only the initial dispatch holds a slot; the asynchronous part of a
+ * streamed response does not.
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+    private final Semaphore permits;
+    private final long queueTimeoutNanos;
+    private final Counter rejected;
+
+    /**
+     * Creates the filter and registers its meters.
+     *
+     * @param properties The limit and the queue timeout.
+     * @param registry   Receives the in-flight gauge and the rejection counter.
+     */
+    public ConcurrencyLimitFilter(ConcurrencyLimitProperties properties,
+                                  MeterRegistry registry) {
+        int limit = properties.getConcurrencyLimit();
+        permits = new Semaphore(limit);
+        queueTimeoutNanos = properties.getQueueTimeout().toNanos();
+        registry.gauge("users.http.requests.active", permits,
+                semaphore -> limit - semaphore.availablePermits());
+        rejected = Counter.builder("users.http.requests.rejected")
+                .description("Requests rejected because the concurrency limit was reached")
+                .register(registry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(queueTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejected.increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(),
+                    "Too many concurrent requests");
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+}
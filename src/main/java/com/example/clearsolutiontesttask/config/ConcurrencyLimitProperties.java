@@ -0,0 +1,26 @@
+package com.example.clearsolutiontesttask.config;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the concurrency limit for the {@code /users} endpoints,
+ * bound from the {@code user.http.*} properties.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "user.http")
+public class ConcurrencyLimitProperties {
+    /**
+     * How many {@code /users} requests may be handled at the same time;
+     * 0 or less disables the limit.
+     */
+    private int concurrencyLimit;
+    /**
+     * How long a request waits for a free slot before it is rejected with
+     * 503 Service Unavailable.
+     */
+    private Duration queueTimeout = Duration.ofMillis(500);
+}
@@ -0,0 +1,32 @@
+package com.example.clearsolutiontesttask.config;
+
+import com.example.clearsolutiontesttask.replication.ReplicaReadInterceptor;
+import com.example.clearsolutiontesttask.replication.ReplicationFollower;
+import com.example.clearsolutiontesttask.replication.ReplicationProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Web configuration of a follower, which serves {@code /users} reads
+ * within the staleness bound and rejects writes.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "user.replication", name = "role", havingValue = "follower")
+public class ReplicationConfig implements WebMvcConfigurer {
+    private final ReplicationFollower follower;
+    private final ReplicationProperties properties;
+
+    public ReplicationConfig(ReplicationFollower follower, ReplicationProperties properties) {
+        this.follower = follower;
+        this.properties = properties;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ReplicaReadInterceptor(follower,
+                        properties.getMaxStaleness().toMillis()))
+                .addPathPatterns("/users/**");
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.clearsolutiontesttask.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Web layer configuration for the {@code /users} endpoints.
+ */
+@Configuration
+@EnableConfigurationProperties(ConcurrencyLimitProperties.class)
+public class WebConfig {
+    /**
+     * Registers the concurrency limit for {@code /users/**} when
+     * {@code user.http.concurrency-limit} is positive.
+     *
+     * @param properties The limit settings.
+     * @param registry   The registry for the limiter's meters.
+     * @return The filter registration.
+     */
+    @Bean
+    @ConditionalOnExpression("${user.http.concurrency-limit:0} > 0")
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(
+            ConcurrencyLimitProperties properties, MeterRegistry registry) {
+        var registration = new FilterRegistrationBean<>(
+                new ConcurrencyLimitFilter(properties, registry));
+        registration.addUrlPatterns("/users/*");
+        return registration;
+    }
+}
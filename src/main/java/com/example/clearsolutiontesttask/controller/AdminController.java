@@ -0,0 +1,36 @@
+package com.example.clearsolutiontesttask.controller;
+
+import com.example.clearsolutiontesttask.dto.SnapshotResult;
+import com.example.clearsolutiontesttask.persistence.UserPersistenceManager;
+import java.io.IOException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controller class for maintenance operations on the user store.
+ */
+@RequiredArgsConstructor
+@RestController
+@RequestMapping(value = "/admin")
+@ConditionalOnProperty(prefix = "user.persistence", name = "enabled", havingValue = "true")
+public class AdminController {
+    private final UserPersistenceManager persistenceManager;
+
+    /**
+     * Writes a snapshot of all users right away, instead of waiting for
+     * the scheduled compaction.
+     *
+     * @return The generation and the number of users of the new snapshot.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    @PostMapping(value = "/snapshot")
+    @ResponseStatus(HttpStatus.OK)
+    public SnapshotResult takeSnapshot() throws IOException {
+        return persistenceManager.compact();
+    }
+}
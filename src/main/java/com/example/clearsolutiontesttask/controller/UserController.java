@@ -1,17 +1,49 @@
 package com.example.clearsolutiontesttask.controller;
 
+import com.example.clearsolutiontesttask.cache.UserAgeQueryCache;
+import com.example.clearsolutiontesttask.cache.UserJsonCache;
+import com.example.clearsolutiontesttask.cluster.ClusterClient;
+import com.example.clearsolutiontesttask.cluster.ClusterUserBulkWrites;
+import com.example.clearsolutiontesttask.cluster.ClusterUserQueries;
+import com.example.clearsolutiontesttask.dto.BatchResult;
+import com.example.clearsolutiontesttask.dto.BulkPatchRequest;
+import com.example.clearsolutiontesttask.dto.BulkResult;
 import com.example.clearsolutiontesttask.dto.UpdateFieldRequest;
+import com.example.clearsolutiontesttask.dto.UserPage;
+import com.example.clearsolutiontesttask.dto.UserQuery;
+import com.example.clearsolutiontesttask.dto.UserSelection;
 import com.example.clearsolutiontesttask.entity.User;
 import com.example.clearsolutiontesttask.exception.ValidationException;
+import com.example.clearsolutiontesttask.exception.VersionConflictException;
+import com.example.clearsolutiontesttask.export.ExportFormat;
+import com.example.clearsolutiontesttask.export.UserExportWriter;
+import com.example.clearsolutiontesttask.service.UserBatchService;
+import com.example.clearsolutiontesttask.service.UserBulkService;
+import com.example.clearsolutiontesttask.service.UserQueryService;
+import com.example.clearsolutiontesttask.service.UserSearchService;
 import com.example.clearsolutiontesttask.service.UserService;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
@@ -19,10 +51,12 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * Controller class for managing user-related operations.
@@ -31,7 +65,24 @@ import org.springframework.web.bind.annotation.RestController;
 @RestController
 @RequestMapping(value = "/users")
 public class UserController {
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    /**
+     * Response header naming the access path a query took.
+     */
+    public static final String QUERY_PLAN_HEADER = "X-Query-Plan";
+    private static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_QUERY_LENGTH = 200;
+
     private final UserService userService;
+    private final UserBatchService userBatchService;
+    private final UserBulkService userBulkService;
+    private final UserSearchService userSearchService;
+    private final UserQueryService userQueryService;
+    private final UserAgeQueryCache ageQueryCache;
+    private final UserJsonCache userJson;
+    private final Optional<ClusterUserQueries> clusterQueries;
+    private final Optional<ClusterUserBulkWrites> clusterBulkWrites;
 
     /**
      * Adds a new user.
@@ -48,68 +99,542 @@ public class UserController {
     }
 
     /**
-     * Deletes a user by ID.
+     * Adds a batch of users given as a JSON array. Invalid users are
+     * reported by their position in the array and do not stop the others
+     * from being added.
+     *
+     * @param users The users to add.
+     * @return How many users were added, and the rejected positions.
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public BatchResult addNewUsers(@RequestBody List<User> users) {
+        return userBatchService.addUsers(users);
+    }
+
+    /**
+     * Adds a batch of users given as newline-delimited JSON, one user per
+     * line. The body is read and imported in chunks, so the batch never has
+     * to fit in memory at once. Lines that are not valid JSON are reported
+     * like any other invalid user.
+     *
+     * @param body The request body.
+     * @return How many users were added, and the rejected line positions.
+     * @throws IOException if the request body cannot be read.
+     */
+    @PostMapping(value = "/batch", consumes = APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public BatchResult addNewUsersFromNdjson(InputStream body) throws IOException {
+        return userBatchService.addUsers(new BufferedReader(
+                new InputStreamReader(body, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Deletes every selected user in one pass. Users that do not exist are
+     * reported by ID and do not stop the others from being deleted.
+     *
+     * @param selection The IDs or the birth date range of the users.
+     * @param peer      The node that sent the request, if another node did.
+     * @return How many users were deleted, and the IDs that do not exist.
+     * @throws ValidationException if the selection names neither IDs nor a
+     * complete birth date range, or both.
+     */
+    @PostMapping(value = "/bulk/delete")
+    public BulkResult deleteUsers(@RequestBody @Valid UserSelection selection,
+                                  @RequestHeader(value = ClusterClient.PEER_HEADER,
+                                          required = false) String peer)
+            throws ValidationException {
+        Optional<ClusterUserBulkWrites> cluster = clusterBulkWrites(peer);
+        if (cluster.isPresent()) {
+            return cluster.get().deleteUsers(selection);
+        }
+        return userBulkService.deleteUsers(selection);
+    }
+
+    /**
+     * Updates the same fields of every selected user in one pass. Users that
+     * do not exist, would get a taken email or a birth date below the
+     * minimum age are reported by ID and do not stop the others from being
+     * updated.
+     *
+     * @param request The IDs or the birth date range of the users, and the
+     *                fields to update.
+     * @param peer    The node that sent the request, if another node did.
+     * @return How many users were updated or already had the fields, and
+     * why the others were not updated.
+     * @throws ValidationException if the selection names neither IDs nor a
+     * complete birth date range, or both.
+     */
+    @PostMapping(value = "/bulk/updateField")
+    public BulkResult updateUsersField(@RequestBody @Valid BulkPatchRequest request,
+                                       @RequestHeader(value = ClusterClient.PEER_HEADER,
+                                               required = false) String peer)
+            throws ValidationException {
+        Optional<ClusterUserBulkWrites> cluster = clusterBulkWrites(peer);
+        if (cluster.isPresent()) {
+            return cluster.get().updateUserFields(request);
+        }
+        return userBulkService.updateUserFields(request, request.getFields());
+    }
+
+    /**
+     * Retrieves a user by ID. The response carries the user's version as
+     * its ETag, to be sent back in {@code If-Match} by conditional writes;
+     * a request whose {@code If-None-Match} still matches gets 304 Not
+     * Modified without a body.
      *
-     * @param id The ID of the user to delete.
+     * @param id          The ID of the user.
+     * @param ifNoneMatch The ETag of the client's copy, if any.
+     * @return The user.
      * @throws EntityNotFoundException if the user with the specified ID is
      * not found.
      */
+    @GetMapping(value = "/{id}")
+    public ResponseEntity<byte[]> findUserById(@PathVariable @Positive int id,
+                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH,
+                                                       required = false) String ifNoneMatch)
+            throws EntityNotFoundException {
+        User user = userService.findUserById(id);
+        String eTag = eTag(user.getVersion());
+        if (UserAgeQueryCache.CachedJson.matches(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(userJson.toJson(user));
+    }
+
+    /**
+     * Deletes a user by ID. With an {@code If-Match} header the user is only
+     * deleted if it is still at that version.
+     *
+     * @param id      The ID of the user to delete.
+     * @param ifMatch The ETag of the version the client based the delete
+     *                on, if any.
+     * @throws EntityNotFoundException  if the user with the specified ID is
+     * not found.
+     * @throws VersionConflictException if the user is no longer at the
+     * version given in {@code If-Match}.
+     */
     @DeleteMapping(value = "/delete/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void deleteUser(@PathVariable @Positive int id) throws EntityNotFoundException {
-        userService.deleteUser(id);
+    public void deleteUser(@PathVariable @Positive int id,
+                           @RequestHeader(value = HttpHeaders.IF_MATCH,
+                                   required = false) String ifMatch)
+            throws EntityNotFoundException {
+        userService.deleteUser(id, expectedVersion(ifMatch, id));
     }
 
     /**
-     * Updates a user's information.
+     * Updates a user's information. With an {@code If-Match} header the
+     * update is only applied if the user is still at that version.
      *
      * @param updateUserRequest The updated user data.
      * @param id                The ID of the user to update.
-     * @throws EntityNotFoundException if the user with the specified ID is
+     * @param ifMatch           The ETag of the version the client based the
+     *                          update on, if any.
+     * @return An empty response carrying the ETag of the updated user.
+     * @throws EntityNotFoundException  if the user with the specified ID is
      * not found.
-     * @throws ValidationException     If the user does not pass the age
+     * @throws ValidationException      If the user does not pass the age
      * or specified an invalid email.
+     * @throws VersionConflictException if the user is no longer at the
+     * version given in {@code If-Match}.
      */
     @PutMapping(value = "/update/{id}")
-    @ResponseStatus(HttpStatus.OK)
-    public void updateUser(@RequestBody @Valid User updateUserRequest,
-                           @PathVariable @Positive int id) throws EntityNotFoundException,
-            ValidationException {
-        userService.updateUser(updateUserRequest, id);
+    public ResponseEntity<Void> updateUser(@RequestBody @Valid User updateUserRequest,
+                                           @PathVariable @Positive int id,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH,
+                                                   required = false) String ifMatch)
+            throws EntityNotFoundException, ValidationException {
+        long version = userService.updateUser(updateUserRequest, id, expectedVersion(ifMatch, id));
+        return ResponseEntity.ok().eTag(eTag(version)).build();
     }
 
     /**
-     * Updates specific fields of a user.
+     * Updates specific fields of a user. With an {@code If-Match} header the
+     * update is only applied if the user is still at that version.
      *
-     * @param fields The fields to update.
-     * @param id     The ID of the user to update.
-     * @throws EntityNotFoundException if the user with the specified ID is
+     * @param fields  The fields to update.
+     * @param id      The ID of the user to update.
+     * @param ifMatch The ETag of the version the client based the update on,
+     *                if any.
+     * @return An empty response carrying the ETag of the updated user.
+     * @throws EntityNotFoundException  if the user with the specified ID is
      * not found.
-     * @throws ValidationException     If the user does not pass the age or
+     * @throws ValidationException      If the user does not pass the age or
      * specified an invalid email.
+     * @throws VersionConflictException if the user is no longer at the
+     * version given in {@code If-Match}.
      */
     @PatchMapping(value = "/updateField/{id}")
-    @ResponseStatus(HttpStatus.OK)
-    public void updateUserField(@RequestBody @Valid UpdateFieldRequest fields,
-                                @PathVariable @Positive int id) throws EntityNotFoundException, ValidationException {
-        userService.updateUserField(fields, id);
+    public ResponseEntity<Void> updateUserField(@RequestBody @Valid UpdateFieldRequest fields,
+                                                @PathVariable @Positive int id,
+                                                @RequestHeader(value = HttpHeaders.IF_MATCH,
+                                                        required = false) String ifMatch)
+            throws EntityNotFoundException, ValidationException {
+        long version = userService.updateUserField(fields, id, expectedVersion(ifMatch, id));
+        return ResponseEntity.ok().eTag(eTag(version)).build();
     }
 
     /**
-     * Retrieves users within a specified age range.
+     * Retrieves the user with the given email, ignoring case and
+     * surrounding blanks.
      *
-     * @param fromDate The start date of the age range.
-     * @param toDate   The end date of the age range.
-     * @return A list of users within the specified age range.
+     * @param email The email of the user.
+     * @param peer  The node that sent the request, if another node did.
+     * @return The user.
+     * @throws EntityNotFoundException if no user has the email.
      */
-    @GetMapping(value = "/age")
-    @ResponseStatus(HttpStatus.OK)
-    public List<User> findUsersByAgeBetween(@RequestParam("fromDate")
-                                            @DateTimeFormat(iso =
-                                                    DateTimeFormat.ISO.DATE) LocalDate fromDate,
-                                            @RequestParam("toDate")
-                                            @DateTimeFormat(iso =
-                                                    DateTimeFormat.ISO.DATE) LocalDate toDate) {
-        return userService.findAllByBirthDateBetween(fromDate, toDate);
+    @GetMapping(value = "/by-email")
+    public User findUserByEmail(@RequestParam("email") String email,
+                                @RequestHeader(value = ClusterClient.PEER_HEADER,
+                                        required = false) String peer)
+            throws EntityNotFoundException {
+        Optional<ClusterUserQueries> cluster = clusterQueries(peer);
+        if (cluster.isPresent()) {
+            return cluster.get().findUserByEmail(email);
+        }
+        return userService.findUserByEmail(email);
+    }
+
+    /**
+     * Searches users by first name, last name and address. Every word of
+     * the query must occur in one of the fields; words shorter than three
+     * characters must start a word there. Case is ignored.
+     *
+     * @param query  The words to search for.
+     * @param cursor The {@code nextCursor} of the previous page, omitted for
+     *               the first page.
+     * @param limit  The maximum number of users on the page.
+     * @param peer   The node that sent the request, if another node did.
+     * @return The page of matching users, ordered by ID.
+     * @throws ValidationException if the query has no letters or digits, or
+     * the cursor is malformed.
+     */
+    @GetMapping(value = "/search")
+    public UserPage searchUsers(@RequestParam("q") @Size(max = MAX_QUERY_LENGTH) String query,
+                                @RequestParam(value = "cursor", required = false) String cursor,
+                                @RequestParam(value = "limit", defaultValue = "20") @Positive
+                                @Max(MAX_PAGE_SIZE) int limit,
+                                @RequestHeader(value = ClusterClient.PEER_HEADER,
+                                        required = false) String peer)
+            throws ValidationException {
+        Optional<ClusterUserQueries> cluster = clusterQueries(peer);
+        if (cluster.isPresent()) {
+            return cluster.get().search(query, cursor, limit);
+        }
+        return userSearchService.search(query, cursor, limit);
+    }
+
+    /**
+     * Retrieves the users matching every given filter. Each filter is
+     * optional; the response names the access path chosen in the
+     * {@value #QUERY_PLAN_HEADER} header, unless the users of several nodes
+     * were merged.
+     *
+     * @param fromDate       The earliest birth date to include.
+     * @param toDate         The latest birth date to include.
+     * @param lastNamePrefix The start of the last name, ignoring case.
+     * @param emailDomain    The part of the email after the {@code @},
+     *                       ignoring case.
+     * @param sort           {@code id}, {@code birthDate} or {@code lastName}.
+     * @param limit          The maximum number of users to return.
+     * @param peer           The node that sent the request, if another node did.
+     * @return The first matching users in the requested order.
+     * @throws ValidationException if the sort is unknown.
+     */
+    @GetMapping(value = "/query")
+    public ResponseEntity<List<User>> queryUsers(@RequestParam(value = "fromDate", required = false)
+                                                 @DateTimeFormat(iso =
+                                                         DateTimeFormat.ISO.DATE) LocalDate fromDate,
+                                                 @RequestParam(value = "toDate", required = false)
+                                                 @DateTimeFormat(iso =
+                                                         DateTimeFormat.ISO.DATE) LocalDate toDate,
+                                                 @RequestParam(value = "lastNamePrefix",
+                                                         required = false)
+                                                 @Size(max = MAX_QUERY_LENGTH) String lastNamePrefix,
+                                                 @RequestParam(value = "emailDomain",
+                                                         required = false)
+                                                 @Size(max = MAX_QUERY_LENGTH) String emailDomain,
+                                                 @RequestParam(value = "sort",
+                                                         defaultValue = "id") String sort,
+                                                 @RequestParam(value = "limit", defaultValue = "100")
+                                                 @Positive @Max(MAX_PAGE_SIZE) int limit,
+                                                 @RequestHeader(value = ClusterClient.PEER_HEADER,
+                                                         required = false) String peer)
+            throws ValidationException {
+        UserQuery query = new UserQuery(fromDate, toDate, lastNamePrefix, emailDomain,
+                UserQuery.Sort.fromParameter(sort), limit);
+        Optional<ClusterUserQueries> cluster = clusterQueries(peer);
+        if (cluster.isPresent()) {
+            return ResponseEntity.ok(cluster.get().query(query));
+        }
+        UserQueryService.Result result = userQueryService.query(query);
+        return ResponseEntity.ok()
+                .header(QUERY_PLAN_HEADER, result.plan())
+                .body(result.users());
+    }
+
+    /**
+     * Retrieves users within a specified age range. Responses carry an
+     * ETag; a request whose {@code If-None-Match} still matches gets 304
+     * Not Modified without a body.
+     *
+     * @param fromDate    The earliest birth date to include.
+     * @param toDate      The latest birth date to include.
+     * @param ifNoneMatch The ETag of the client's copy, if any.
+     * @param peer        The node that sent the request, if another node did.
+     * @return A list of users within the specified age range, ordered by
+     * birth date.
+     * @throws ValidationException if the query fails validation.
+     */
+    @GetMapping(value = "/age", params = {"!limit", "!stream"})
+    public ResponseEntity<byte[]> findUsersByAgeBetween(@RequestParam("fromDate")
+                                                        @DateTimeFormat(iso =
+                                                                DateTimeFormat.ISO.DATE) LocalDate fromDate,
+                                                        @RequestParam("toDate")
+                                                        @DateTimeFormat(iso =
+                                                                DateTimeFormat.ISO.DATE) LocalDate toDate,
+                                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH,
+                                                                required = false) String ifNoneMatch,
+                                                        @RequestHeader(value = ClusterClient.PEER_HEADER,
+                                                                required = false) String peer)
+            throws ValidationException {
+        Optional<ClusterUserQueries> cluster = clusterQueries(peer);
+        if (cluster.isPresent()) {
+            return toResponse(ageQueryCache.load(
+                    () -> cluster.get().findAllByBirthDateBetween(fromDate, toDate)), ifNoneMatch);
+        }
+        return toResponse(ageQueryCache.get(fromDate, toDate, null, null,
+                () -> userService.findAllByBirthDateBetween(fromDate, toDate)), ifNoneMatch);
+    }
+
+    /**
+     * Retrieves one page of users within a specified age range, using keyset
+     * pagination. Supports {@code If-None-Match} like the unpaged query.
+     *
+     * @param fromDate    The earliest birth date to include.
+     * @param toDate      The latest birth date to include.
+     * @param cursor      The {@code nextCursor} of the previous page, omitted
+     *                    for the first page.
+     * @param limit       The maximum number of users on the page.
+     * @param ifNoneMatch The ETag of the client's copy, if any.
+     * @param peer        The node that sent the request, if another node did.
+     * @return The page of users, ordered by birth date.
+     * @throws ValidationException if the cursor is malformed.
+     */
+    @GetMapping(value = "/age", params = {"limit", "!stream"})
+    public ResponseEntity<byte[]> findUsersPageByAgeBetween(@RequestParam("fromDate")
+                                                            @DateTimeFormat(iso =
+                                                                    DateTimeFormat.ISO.DATE) LocalDate fromDate,
+                                                            @RequestParam("toDate")
+                                                            @DateTimeFormat(iso =
+                                                                    DateTimeFormat.ISO.DATE) LocalDate toDate,
+                                                            @RequestParam(value = "cursor",
+                                                                    required = false) String cursor,
+                                                            @RequestParam("limit") @Positive
+                                                            @Max(MAX_PAGE_SIZE) int limit,
+                                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH,
+                                                                    required = false) String ifNoneMatch,
+                                                            @RequestHeader(value = ClusterClient.PEER_HEADER,
+                                                                    required = false) String peer)
+            throws ValidationException {
+        Optional<ClusterUserQueries> cluster = clusterQueries(peer);
+        if (cluster.isPresent()) {
+            return toResponse(ageQueryCache.load(() -> cluster.get()
+                    .findPageByBirthDateBetween(fromDate, toDate, cursor, limit)), ifNoneMatch);
+        }
+        return toResponse(ageQueryCache.get(fromDate, toDate, cursor, limit,
+                () -> userService.findPageByBirthDateBetween(fromDate, toDate, cursor, limit)),
+                ifNoneMatch);
+    }
+
+    /**
+     * Streams users within a specified age range as newline-delimited JSON,
+     * one user per line, writing each user as soon as it is read. In a
+     * cluster the users of all nodes are gathered first.
+     *
+     * @param fromDate The earliest birth date to include.
+     * @param toDate   The latest birth date to include.
+     * @return The response body writer.
+     */
+    @GetMapping(value = "/age", params = {"stream=ndjson", "!limit"},
+            produces = APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamUsersByAgeBetweenAsNdjson(@RequestParam("fromDate")
+                                                                 @DateTimeFormat(iso =
+                                                                         DateTimeFormat.ISO.DATE) LocalDate fromDate,
+                                                                 @RequestParam("toDate")
+                                                                 @DateTimeFormat(iso =
+                                                                         DateTimeFormat.ISO.DATE) LocalDate toDate) {
+        return writeUsers(streamAllByBirthDateBetween(fromDate, toDate), true);
+    }
+
+    /**
+     * Streams users within a specified age range as a JSON array, writing
+     * each user as soon as it is read instead of building the whole list.
+     * In a cluster the users of all nodes are gathered first.
+     *
+     * @param fromDate The earliest birth date to include.
+     * @param toDate   The latest birth date to include.
+     * @return The response body writer.
+     */
+    @GetMapping(value = "/age", params = {"stream=json", "!limit"},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody streamUsersByAgeBetweenAsJson(@RequestParam("fromDate")
+                                                               @DateTimeFormat(iso =
+                                                                       DateTimeFormat.ISO.DATE) LocalDate fromDate,
+                                                               @RequestParam("toDate")
+                                                               @DateTimeFormat(iso =
+                                                                       DateTimeFormat.ISO.DATE) LocalDate toDate) {
+        return writeUsers(streamAllByBirthDateBetween(fromDate, toDate), false);
+    }
+
+    /**
+     * Rejects an age range query whose {@code stream} parameter the stream
+     * handlers above do not take: an unknown format, or a stream combined
+     * with {@code limit}.
+     *
+     * @param stream The requested stream format.
+     * @param limit  The requested page size, if any.
+     * @return Never returns normally.
+     * @throws ValidationException always.
+     */
+    @GetMapping(value = "/age", params = "stream")
+    public ResponseEntity<byte[]> rejectUsersByAgeBetweenStream(@RequestParam("stream") String stream,
+                                                                @RequestParam(value = "limit",
+                                                                        required = false) String limit)
+            throws ValidationException {
+        if (limit != null) {
+            throw new ValidationException("stream cannot be combined with limit");
+        }
+        throw new ValidationException("Unknown stream format: " + stream
+                + "; expected ndjson or json");
+    }
+
+    /**
+     * Exports all users, ordered by ID, as CSV with a header line or as
+     * newline-delimited JSON, optionally compressed with gzip. The users
+     * are those of one snapshot taken when the request arrives, so writes
+     * made while the export is being downloaded are not part of it, and
+     * never wait for it.
+     *
+     * @param format {@code csv} or {@code ndjson}.
+     * @param gzip   Whether to compress the export with gzip.
+     * @param peer   The node that sent the request, if another node did.
+     * @return The response streaming the export.
+     * @throws ValidationException if the format is unknown.
+     */
+    @GetMapping(value = "/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam(value = "format",
+                                                                     defaultValue = "csv") String format,
+                                                             @RequestParam(value = "gzip",
+                                                                     defaultValue = "false") boolean gzip,
+                                                             @RequestHeader(value = ClusterClient.PEER_HEADER,
+                                                                     required = false) String peer)
+            throws ValidationException {
+        ExportFormat exportFormat = ExportFormat.fromParameter(format);
+        Optional<ClusterUserQueries> cluster = clusterQueries(peer);
+        Stream<User> users = cluster.isPresent() ? cluster.get().snapshotById()
+                : userService.snapshotById().stream();
+        String fileName = "users." + exportFormat.parameter() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .contentType(gzip ? GZIP : MediaType.parseMediaType(exportFormat.mediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(fileName)
+                        .build()
+                        .toString())
+                .body(outputStream -> {
+                    try (users) {
+                        UserExportWriter.export(users.iterator(), exportFormat, gzip, outputStream);
+                    }
+                });
+    }
+
+    /**
+     * Returns the queries over all nodes, unless there is no cluster or the
+     * request comes from another node and only wants this node's users.
+     */
+    private Optional<ClusterUserQueries> clusterQueries(String peer) {
+        return peer == null ? clusterQueries : Optional.empty();
+    }
+
+    /**
+     * Returns the bulk writes over all nodes, unless there is no cluster or
+     * the request comes from another node and only wants this node's users
+     * written.
+     */
+    private Optional<ClusterUserBulkWrites> clusterBulkWrites(String peer) {
+        return peer == null ? clusterBulkWrites : Optional.empty();
+    }
+
+    /**
+     * Streams the users of a birth date range. Peers never ask for streams,
+     * so in a cluster this always gathers from every node.
+     */
+    private Stream<User> streamAllByBirthDateBetween(LocalDate fromDate, LocalDate toDate) {
+        return clusterQueries
+                .map(cluster -> cluster.findAllByBirthDateBetween(fromDate, toDate).stream())
+                .orElseGet(() -> userService.streamAllByBirthDateBetween(fromDate, toDate));
+    }
+
+    private static String eTag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Returns the version named by an {@code If-Match} header: null if
+     * there is no header or it lists {@code *}, -1, which no user has, if
+     * it lists none of our ETags. If-Match compares strongly, so weak ETags
+     * never match. Of several listed versions the one the user is at is
+     * returned; the write still fails if the user changes meanwhile.
+     */
+    private Long expectedVersion(String ifMatch, int id) throws EntityNotFoundException {
+        if (ifMatch == null) {
+            return null;
+        }
+        List<Long> versions = new ArrayList<>();
+        for (String tag : ifMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*")) {
+                return null;
+            }
+            if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+                try {
+                    versions.add(Long.parseLong(tag.substring(1, tag.length() - 1)));
+                } catch (NumberFormatException e) {
+                    // Skip it: a foreign ETag never matches.
+                }
+            }
+        }
+        if (versions.size() <= 1) {
+            return versions.isEmpty() ? -1L : versions.get(0);
+        }
+        long current = userService.findUserById(id).getVersion();
+        return versions.contains(current) ? current : -1L;
+    }
+
+    private ResponseEntity<byte[]> toResponse(UserAgeQueryCache.CachedJson json,
+                                              String ifNoneMatch) {
+        if (json.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(json.etag()).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(json.etag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(json.body());
+    }
+
+    private StreamingResponseBody writeUsers(Stream<User> users, boolean ndjson) {
+        return outputStream -> {
+            try (users) {
+                if (ndjson) {
+                    userJson.writeNdjson(users.iterator(), outputStream);
+                } else {
+                    userJson.writeArray(users.iterator(), outputStream);
+                }
+            }
+        };
     }
 }
@@ -0,0 +1,159 @@
+package com.example.clearsolutiontesttask.controller;
+
+import com.example.clearsolutiontesttask.dto.ChangeCursor;
+import com.example.clearsolutiontesttask.dto.UserEvent;
+import com.example.clearsolutiontesttask.dto.UserEventBatch;
+import com.example.clearsolutiontesttask.events.UserEventFeed;
+import com.example.clearsolutiontesttask.exception.ValidationException;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Controller class for following changes to users incrementally, instead of
+ * polling full query results.
+ */
+@RestController
+@RequestMapping(value = "/users/changes")
+public class UserEventController {
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final int MAX_WAIT_SECONDS = 60;
+    private static final long STREAM_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    private static final CompletableFuture<UserEventBatch> CLOSED =
+            CompletableFuture.completedFuture(null);
+
+    private final UserEventFeed eventFeed;
+    private final TaskExecutor taskExecutor;
+
+    public UserEventController(UserEventFeed eventFeed,
+                               @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor) {
+        this.eventFeed = eventFeed;
+        this.taskExecutor = taskExecutor;
+    }
+
+    /**
+     * Long-polls for user changes: answers as soon as there are events
+     * after the cursor, or with no events once the wait is over.
+     *
+     * @param cursor The {@code cursor} of the previous batch; omitted to
+     *               start from the latest change.
+     * @param limit  The maximum number of events in the batch.
+     * @param wait   How long to wait for an event, in seconds.
+     * @return The events in order, with the cursor to continue from; or a
+     * resync marker if events after the cursor are no longer available.
+     * @throws ValidationException if the cursor is malformed.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<UserEventBatch> pollChanges(@RequestParam(value = "cursor",
+                                                              required = false) String cursor,
+                                                      @RequestParam(value = "limit",
+                                                              defaultValue = "100") @Positive
+                                                      @Max(MAX_BATCH_SIZE) int limit,
+                                                      @RequestParam(value = "wait",
+                                                              defaultValue = "30") @PositiveOrZero
+                                                      @Max(MAX_WAIT_SECONDS) int wait)
+            throws ValidationException {
+        ChangeCursor after = cursor == null ? eventFeed.head() : ChangeCursor.fromToken(cursor);
+        // Outlast the wait, so that the container never times out first.
+        var result = new DeferredResult<UserEventBatch>(TimeUnit.SECONDS.toMillis(wait + 5));
+        if (wait == 0) {
+            result.setResult(eventFeed.read(after, limit));
+            return result;
+        }
+        CompletableFuture<UserEventBatch> batch = eventFeed.poll(after, limit)
+                .orTimeout(wait, TimeUnit.SECONDS);
+        batch.whenComplete((events, failure) -> result.setResult(events != null ? events
+                : new UserEventBatch(List.of(), after.toToken(), false)));
+        result.onCompletion(() -> batch.cancel(false));
+        return result;
+    }
+
+    /**
+     * Streams user changes as Server-Sent Events. Each event's ID is the
+     * cursor after it, so a reconnecting client resumes where it left off
+     * through {@code Last-Event-ID}. A consumer that falls too far behind
+     * gets a {@code resync} event instead of the lost changes.
+     *
+     * @param cursor      The cursor to start after; omitted to start from
+     *                    the latest change.
+     * @param lastEventId The ID of the last event received before a
+     *                    reconnect; takes precedence over {@code cursor}.
+     * @return The event stream.
+     * @throws ValidationException if the cursor is malformed.
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestParam(value = "cursor", required = false) String cursor,
+                                    @RequestHeader(value = "Last-Event-ID",
+                                            required = false) String lastEventId)
+            throws ValidationException {
+        String token = lastEventId != null ? lastEventId : cursor;
+        ChangeCursor after = token == null ? eventFeed.head() : ChangeCursor.fromToken(token);
+        var emitter = new SseEmitter(STREAM_TIMEOUT_MILLIS);
+        var pending = new AtomicReference<CompletableFuture<UserEventBatch>>();
+        Runnable stop = () -> {
+            CompletableFuture<UserEventBatch> next = pending.getAndSet(CLOSED);
+            if (next != null) {
+                next.cancel(false);
+            }
+        };
+        emitter.onCompletion(stop);
+        emitter.onTimeout(stop);
+        emitter.onError(failure -> stop.run());
+        sendNext(emitter, after, pending);
+        return emitter;
+    }
+
+    /**
+     * Sends the next batch once it is available, then schedules the one
+     * after, until the emitter is done. Sending happens on the task
+     * executor, so a slow client only ever holds up a pool thread.
+     */
+    private void sendNext(SseEmitter emitter, ChangeCursor after,
+                          AtomicReference<CompletableFuture<UserEventBatch>> pending) {
+        CompletableFuture<UserEventBatch> current = pending.get();
+        CompletableFuture<UserEventBatch> next = eventFeed.poll(after, MAX_BATCH_SIZE);
+        if (current == CLOSED || !pending.compareAndSet(current, next)) {
+            // The emitter was closed meanwhile.
+            next.cancel(false);
+            return;
+        }
+        next.thenAcceptAsync(batch -> {
+            try {
+                sendNext(emitter, send(emitter, after, batch), pending);
+            } catch (IOException | IllegalStateException e) {
+                emitter.completeWithError(e);
+            }
+        }, taskExecutor);
+    }
+
+    private ChangeCursor send(SseEmitter emitter, ChangeCursor after, UserEventBatch batch)
+            throws IOException {
+        if (batch.isResync()) {
+            ChangeCursor head = eventFeed.head();
+            emitter.send(SseEmitter.event().name("resync").id(head.toToken()).data(""));
+            return head;
+        }
+        ChangeCursor last = after;
+        for (UserEvent event : batch.getEvents()) {
+            last = new ChangeCursor(after.epoch(), event.sequence());
+            emitter.send(SseEmitter.event().name("change").id(last.toToken())
+                    .data(event, MediaType.APPLICATION_JSON));
+        }
+        return last;
+    }
+}
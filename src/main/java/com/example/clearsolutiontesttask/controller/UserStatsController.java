@@ -0,0 +1,103 @@
+package com.example.clearsolutiontesttask.controller;
+
+import com.example.clearsolutiontesttask.cluster.ClusterClient;
+import com.example.clearsolutiontesttask.cluster.ClusterUserQueries;
+import com.example.clearsolutiontesttask.dto.AgeHistogram;
+import com.example.clearsolutiontesttask.dto.BirthMonthCount;
+import com.example.clearsolutiontesttask.dto.BirthYearCount;
+import com.example.clearsolutiontesttask.stats.UserBirthDateStats;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Positive;
+import java.util.List;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controller class for statistics over all users. Answers are read from
+ * counters that follow every write, so they take time in proportion to the
+ * number of buckets, not of users.
+ */
+@RequiredArgsConstructor
+@RestController
+@RequestMapping(value = "/users/stats")
+public class UserStatsController {
+    private static final int MAX_BUCKETS = 100;
+    private static final int MAX_BUCKET_WIDTH = 100;
+
+    private final UserBirthDateStats birthDateStats;
+    private final Optional<ClusterUserQueries> clusterQueries;
+
+    /**
+     * Counts users by age as of today, in buckets of equal width starting
+     * at the minimum age. The last bucket takes all older users.
+     *
+     * @param width   The number of ages in each bucket.
+     * @param buckets The number of buckets.
+     * @param peer    The node that sent the request, if another node did.
+     * @return The histogram.
+     */
+    @GetMapping(value = "/age-histogram")
+    public AgeHistogram ageHistogram(@RequestParam(value = "width", defaultValue = "10")
+                                     @Positive @Max(MAX_BUCKET_WIDTH) int width,
+                                     @RequestParam(value = "buckets", defaultValue = "10")
+                                     @Positive @Max(MAX_BUCKETS) int buckets,
+                                     @RequestHeader(value = ClusterClient.PEER_HEADER,
+                                             required = false) String peer) {
+        Optional<ClusterUserQueries> cluster = clusterQueries(peer);
+        if (cluster.isPresent()) {
+            return cluster.get().ageHistogram(width, buckets);
+        }
+        return birthDateStats.ageHistogram(width, buckets);
+    }
+
+    /**
+     * Counts users by birth year.
+     *
+     * @param peer The node that sent the request, if another node did.
+     * @return The years in which users were born, in order, with the number
+     * of users born in each.
+     */
+    @GetMapping(value = "/birth-years")
+    public List<BirthYearCount> birthYears(@RequestHeader(value = ClusterClient.PEER_HEADER,
+            required = false) String peer) {
+        Optional<ClusterUserQueries> cluster = clusterQueries(peer);
+        if (cluster.isPresent()) {
+            return cluster.get().birthYears();
+        }
+        return birthDateStats.birthYears();
+    }
+
+    /**
+     * Counts users by birth month.
+     *
+     * @param year The year whose twelve months to count; omitted for all
+     *             months in which users were born.
+     * @param peer The node that sent the request, if another node did.
+     * @return The months in order, with the number of users born in each.
+     */
+    @GetMapping(value = "/birth-months")
+    public List<BirthMonthCount> birthMonths(@RequestParam(value = "year", required = false)
+                                             @Min(1) @Max(9999) Integer year,
+                                             @RequestHeader(value = ClusterClient.PEER_HEADER,
+                                                     required = false) String peer) {
+        Optional<ClusterUserQueries> cluster = clusterQueries(peer);
+        if (cluster.isPresent()) {
+            return cluster.get().birthMonths(year);
+        }
+        return birthDateStats.birthMonths(year);
+    }
+
+    /**
+     * Returns the queries over all nodes, unless there is no cluster or the
+     * request comes from another node and only wants this node's counts.
+     */
+    private Optional<ClusterUserQueries> clusterQueries(String peer) {
+        return peer == null ? clusterQueries : Optional.empty();
+    }
+}
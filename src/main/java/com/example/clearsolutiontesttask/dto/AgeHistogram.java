@@ -0,0 +1,36 @@
+package com.example.clearsolutiontesttask.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * DTO representing how many users are of each age, in buckets of equal
+ * width starting at the minimum age.
+ */
+@Getter
+@RequiredArgsConstructor
+public class AgeHistogram {
+    /**
+     * The day the ages were computed for.
+     */
+    private final LocalDate asOf;
+    private final int minimumAge;
+    /**
+     * The number of users younger than the minimum age.
+     */
+    private final long younger;
+    private final List<Bucket> buckets;
+
+    /**
+     * The users within a range of ages.
+     *
+     * @param fromAge The lowest age in the bucket.
+     * @param toAge   The highest age in the bucket, or null for the last
+     *                bucket, which has no upper bound.
+     * @param count   The number of users.
+     */
+    public record Bucket(int fromAge, Integer toAge, long count) {
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.clearsolutiontesttask.dto;
+
+import java.util.List;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * DTO representing the outcome of a batch import: how many users were
+ * added and which items were rejected.
+ */
+@Getter
+@RequiredArgsConstructor
+public class BatchResult {
+    private final int accepted;
+    private final List<ItemError> errors;
+
+    /**
+     * A rejected item of the batch.
+     *
+     * @param index    The zero-based position of the item in the request.
+     * @param messages Why the item was rejected.
+     */
+    public record ItemError(int index, List<String> messages) {
+    }
+}
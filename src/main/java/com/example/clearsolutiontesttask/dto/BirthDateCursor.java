@@ -0,0 +1,62 @@
+package com.example.clearsolutiontesttask.dto;
+
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.exception.ValidationException;
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/**
+ * Position in the birth date ordering of users, used as a keyset
+ * pagination cursor. Clients only ever see it as an opaque token.
+ *
+ * @param birthDate The birth date of the last user already returned.
+ * @param id        The ID of the last user already returned.
+ */
+public record BirthDateCursor(LocalDate birthDate, int id) {
+    private static final int TOKEN_BYTES = Long.BYTES + Integer.BYTES;
+
+    /**
+     * Creates a cursor that continues right after the given user.
+     *
+     * @param user The last user of a page.
+     * @return The cursor.
+     */
+    public static BirthDateCursor after(User user) {
+        return new BirthDateCursor(user.getBirthDate(), user.getId());
+    }
+
+    /**
+     * Decodes a token produced by {@link #toToken()}.
+     *
+     * @param token The opaque token.
+     * @return The decoded cursor.
+     * @throws ValidationException if the token is malformed.
+     */
+    public static BirthDateCursor fromToken(String token) throws ValidationException {
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(token);
+            if (bytes.length != TOKEN_BYTES) {
+                throw new ValidationException("Invalid cursor.");
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            return new BirthDateCursor(LocalDate.ofEpochDay(buffer.getLong()),
+                    buffer.getInt());
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new ValidationException("Invalid cursor.");
+        }
+    }
+
+    /**
+     * Encodes the cursor as an opaque, URL-safe token.
+     *
+     * @return The token.
+     */
+    public String toToken() {
+        ByteBuffer buffer = ByteBuffer.allocate(TOKEN_BYTES)
+                .putLong(birthDate.toEpochDay())
+                .putInt(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.clearsolutiontesttask.dto;
+
+import java.time.YearMonth;
+
+/**
+ * DTO representing the number of users born in a month.
+ *
+ * @param month The birth month.
+ * @param count The number of users.
+ */
+public record BirthMonthCount(YearMonth month, long count) {
+}
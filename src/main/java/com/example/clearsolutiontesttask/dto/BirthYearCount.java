@@ -0,0 +1,10 @@
+package com.example.clearsolutiontesttask.dto;
+
+/**
+ * DTO representing the number of users born in a year.
+ *
+ * @param year  The birth year.
+ * @param count The number of users.
+ */
+public record BirthYearCount(int year, long count) {
+}
@@ -0,0 +1,17 @@
+package com.example.clearsolutiontesttask.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * DTO representing a request to update the same fields of many users.
+ */
+@Getter
+@Setter
+public class BulkPatchRequest extends UserSelection {
+    @Valid
+    @NotNull(message = "Fields are required")
+    private UpdateFieldRequest fields;
+}
@@ -0,0 +1,33 @@
+package com.example.clearsolutiontesttask.dto;
+
+import java.util.List;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * DTO representing the outcome of a bulk update or delete: how many of the
+ * selected users were written or already as requested, and why the others
+ * were not.
+ */
+@Getter
+@RequiredArgsConstructor
+public class BulkResult {
+    /**
+     * The number of users written: deleted, or updated to a new version.
+     */
+    private final int applied;
+    /**
+     * The number of users a patch did not change, which keep their version.
+     */
+    private final int unchanged;
+    private final List<ItemError> errors;
+
+    /**
+     * A selected user that was not written.
+     *
+     * @param id      The ID of the user.
+     * @param message Why the user was not written.
+     */
+    public record ItemError(int id, String message) {
+    }
+}
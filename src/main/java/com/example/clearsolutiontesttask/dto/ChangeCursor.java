@@ -0,0 +1,45 @@
+package com.example.clearsolutiontesttask.dto;
+
+import com.example.clearsolutiontesttask.exception.ValidationException;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Position in the stream of user change events. Clients only ever see it
+ * as an opaque token.
+ *
+ * @param epoch    Identifies the stream; it changes when the application
+ *                 restarts and numbering starts over.
+ * @param sequence The sequence number of the last event already consumed.
+ */
+public record ChangeCursor(long epoch, long sequence) {
+    /**
+     * Decodes a token produced by {@link #toToken()}.
+     *
+     * @param token The opaque token.
+     * @return The decoded cursor.
+     * @throws ValidationException if the token is malformed.
+     */
+    public static ChangeCursor fromToken(String token) throws ValidationException {
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(token);
+            if (bytes.length != 2 * Long.BYTES) {
+                throw new ValidationException("Invalid cursor.");
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            return new ChangeCursor(buffer.getLong(), buffer.getLong());
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Invalid cursor.");
+        }
+    }
+
+    /**
+     * Encodes the cursor as an opaque, URL-safe token.
+     *
+     * @return The token.
+     */
+    public String toToken() {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(
+                ByteBuffer.allocate(2 * Long.BYTES).putLong(epoch).putLong(sequence).array());
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.clearsolutiontesttask.dto;
+
+import com.example.clearsolutiontesttask.exception.ValidationException;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Position in the ID ordering of search results, used as a keyset
+ * pagination cursor. Clients only ever see it as an opaque token.
+ *
+ * @param id The ID of the last user already returned.
+ */
+public record SearchCursor(int id) {
+    /**
+     * Decodes a token produced by {@link #toToken()}.
+     *
+     * @param token The opaque token.
+     * @return The decoded cursor.
+     * @throws ValidationException if the token is malformed.
+     */
+    public static SearchCursor fromToken(String token) throws ValidationException {
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(token);
+            if (bytes.length != Integer.BYTES) {
+                throw new ValidationException("Invalid cursor.");
+            }
+            return new SearchCursor(ByteBuffer.wrap(bytes).getInt());
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Invalid cursor.");
+        }
+    }
+
+    /**
+     * Encodes the cursor as an opaque, URL-safe token.
+     *
+     * @return The token.
+     */
+    public String toToken() {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(
+                ByteBuffer.allocate(Integer.BYTES).putInt(id).array());
+    }
+}
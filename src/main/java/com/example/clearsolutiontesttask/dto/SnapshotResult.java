@@ -0,0 +1,18 @@
+package com.example.clearsolutiontesttask.dto;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * DTO describing a snapshot written by log compaction.
+ */
+@Getter
+@RequiredArgsConstructor
+public class SnapshotResult {
+    /**
+     * The first log generation not fully contained in the snapshot.
+     */
+    private final long generation;
+    private final int users;
+    private final long durationMillis;
+}
@@ -0,0 +1,23 @@
+package com.example.clearsolutiontesttask.dto;
+
+import com.example.clearsolutiontesttask.entity.User;
+
+/**
+ * A change to a user, as published to change stream consumers.
+ *
+ * @param sequence The position of the event in the stream; consecutive
+ *                 events have consecutive numbers.
+ * @param type     What happened to the user.
+ * @param id       The ID of the user.
+ * @param user     The user after the change, or null if it was deleted.
+ */
+public record UserEvent(long sequence, Type type, int id, User user) {
+    /**
+     * Kinds of user changes.
+     */
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.clearsolutiontesttask.dto;
+
+import java.util.List;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * DTO representing the change events read in one request, and where to
+ * continue.
+ */
+@Getter
+@RequiredArgsConstructor
+public class UserEventBatch {
+    private final List<UserEvent> events;
+    /**
+     * Token to pass as {@code cursor} to read the events after these.
+     */
+    private final String cursor;
+    /**
+     * Whether events were lost because the consumer fell too far behind, or
+     * its cursor belongs to an earlier run of the application. The
+     * consumer must then reload the users it tracks, after taking this
+     * batch's cursor.
+     */
+    private final boolean resync;
+}
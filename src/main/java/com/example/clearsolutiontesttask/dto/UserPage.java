@@ -0,0 +1,20 @@
+package com.example.clearsolutiontesttask.dto;
+
+import com.example.clearsolutiontesttask.entity.User;
+import java.util.List;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * DTO representing one page of users and the cursor for the next page.
+ */
+@Getter
+@RequiredArgsConstructor
+public class UserPage {
+    private final List<User> users;
+    /**
+     * Token to pass as {@code cursor} to fetch the next page, or null if
+     * this is the last page.
+     */
+    private final String nextCursor;
+}
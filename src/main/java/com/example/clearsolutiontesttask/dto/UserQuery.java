@@ -0,0 +1,66 @@
+package com.example.clearsolutiontesttask.dto;
+
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.exception.ValidationException;
+import java.time.LocalDate;
+import java.util.Comparator;
+
+/**
+ * DTO representing a query for the users matching every given filter. A
+ * null filter matches all users.
+ *
+ * @param fromDate       The first birth date to include.
+ * @param toDate         The last birth date to include.
+ * @param lastNamePrefix The start of the last name, ignoring case.
+ * @param emailDomain    The part of the email after the {@code @},
+ *                       ignoring case.
+ * @param sort           The order of the results.
+ * @param limit          The maximum number of users to return.
+ */
+public record UserQuery(LocalDate fromDate, LocalDate toDate, String lastNamePrefix,
+                        String emailDomain, Sort sort, int limit) {
+    /**
+     * The orders results can be sorted in; ties are broken by ID.
+     */
+    public enum Sort {
+        ID("id", Comparator.comparingInt(User::getId)),
+        BIRTH_DATE("birthDate", Comparator.comparing(User::getBirthDate,
+                Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparingInt(User::getId)),
+        LAST_NAME("lastName", Comparator.comparing(User::getLastName,
+                Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER))
+                .thenComparingInt(User::getId));
+
+        private final String parameter;
+        private final Comparator<User> order;
+
+        Sort(String parameter, Comparator<User> order) {
+            this.parameter = parameter;
+            this.order = order;
+        }
+
+        /**
+         * Returns the sort named by a request parameter.
+         *
+         * @param parameter The parameter value, such as {@code birthDate}.
+         * @return The sort.
+         * @throws ValidationException if no sort has the name.
+         */
+        public static Sort fromParameter(String parameter) throws ValidationException {
+            for (Sort sort : values()) {
+                if (sort.parameter.equals(parameter)) {
+                    return sort;
+                }
+            }
+            throw new ValidationException("Sort must be one of id, birthDate, lastName.");
+        }
+
+        public String parameter() {
+            return parameter;
+        }
+
+        public Comparator<User> order() {
+            return order;
+        }
+    }
+}
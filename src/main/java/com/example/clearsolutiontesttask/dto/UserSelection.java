@@ -0,0 +1,40 @@
+package com.example.clearsolutiontesttask.dto;
+
+import com.example.clearsolutiontesttask.exception.ValidationException;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.time.LocalDate;
+import java.util.List;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * DTO selecting the users a bulk operation applies to: either a list of
+ * IDs or a birth date range, both dates inclusive.
+ */
+@Getter
+@Setter
+public class UserSelection {
+    public static final int MAX_IDS = 100_000;
+
+    @Size(max = MAX_IDS, message = "At most " + MAX_IDS + " ids can be selected")
+    private List<@NotNull Integer> ids;
+    private LocalDate fromDate;
+    private LocalDate toDate;
+
+    /**
+     * Checks whether the users are selected by ID.
+     *
+     * @return true for a list of IDs, false for a birth date range.
+     * @throws ValidationException unless exactly one of the IDs or the
+     * complete birth date range is given.
+     */
+    public boolean byIds() throws ValidationException {
+        boolean byRange = fromDate != null || toDate != null;
+        if ((ids != null) == byRange || byRange && (fromDate == null || toDate == null)) {
+            throw new ValidationException("Select users either by ids or by fromDate "
+                    + "and toDate.");
+        }
+        return ids != null;
+    }
+}
@@ -1,11 +1,18 @@
 package com.example.clearsolutiontesttask.entity;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Past;
 import java.time.LocalDate;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import lombok.experimental.Accessors;
 
 /**
@@ -16,6 +23,13 @@ import lombok.experimental.Accessors;
 public class User {
     private int id;
 
+    /**
+     * Incremented by every update of the user, for optimistic concurrency
+     * control; clients cannot set it.
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
+
     @NotBlank(message = "Email is required")
     @Email(message = "Invalid email format")
     private String email;
@@ -34,4 +48,35 @@ public class User {
 
     @NotBlank
     private String address;
+
+    /**
+     * The user as UTF-8 JSON, built on first read by
+     * {@link com.example.clearsolutiontesttask.cache.UserJsonCache}. Stored
+     * users are never modified: every write stores a new object, which
+     * starts without JSON, so the bytes never go stale.
+     */
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient volatile byte[] json;
+
+    /**
+     * Returns the JSON cached with this user.
+     *
+     * @return The UTF-8 JSON, or null if it was not built yet.
+     */
+    public byte[] cachedJson() {
+        return json;
+    }
+
+    /**
+     * Caches the JSON of this user, or drops it.
+     *
+     * @param json The UTF-8 JSON of the user as it is now, or null.
+     */
+    public void cacheJson(byte[] json) {
+        this.json = json;
+    }
 }
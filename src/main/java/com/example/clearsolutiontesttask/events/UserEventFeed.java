@@ -0,0 +1,183 @@
+package com.example.clearsolutiontesttask.events;
+
+import com.example.clearsolutiontesttask.dto.ChangeCursor;
+import com.example.clearsolutiontesttask.dto.UserEvent;
+import com.example.clearsolutiontesttask.dto.UserEventBatch;
+import com.example.clearsolutiontesttask.repository.UserChange;
+import com.example.clearsolutiontesttask.repository.UserChangeListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ordered stream of every write to the user repository, kept in a bounded
+ * ring buffer for consumers to read incrementally.
+ *
+ * <p>Each write gets the next sequence number and overwrites the oldest
+ * slot of the ring; publishing takes one atomic increment and one array
+ * store, and never waits for consumers. A consumer that falls more than
+ * the ring's capacity behind has lost events and is told to resync
+ * instead. Events of a user are numbered in the order its writes were
+ * applied, since they are published under the repository's lock for that
+ * user.
+ *
+ * <p>Sequence numbers start over when the application restarts; cursors
+ * carry a random epoch so that a cursor from an earlier run is recognized
+ * and answered with a resync.
+ */
+@Component
+public class UserEventFeed implements UserChangeListener {
+    private final AtomicReferenceArray<UserEvent> ring;
+    private final int mask;
+    private final long epoch = ThreadLocalRandom.current().nextLong();
+    private final AtomicLong lastSequence = new AtomicLong();
+    private final Set<Waiter> waiters = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates an empty feed.
+     *
+     * @param capacity The number of most recent events to keep, rounded up
+     *                 to a power of two.
+     */
+    public UserEventFeed(@Value("${user.events.capacity:65536}") int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        ring = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    @Override
+    public void onChange(UserChange change) {
+        long sequence = lastSequence.incrementAndGet();
+        UserEvent.Type type = change.isDelete() ? UserEvent.Type.DELETED
+                : change.previous() == null ? UserEvent.Type.CREATED : UserEvent.Type.UPDATED;
+        ring.set((int) sequence & mask,
+                new UserEvent(sequence, type, change.id(), change.current()));
+    }
+
+    @Override
+    public void afterChange() {
+        if (waiters.isEmpty()) {
+            return;
+        }
+        for (Waiter waiter : waiters) {
+            if (waiters.remove(waiter)) {
+                CompletableFuture.runAsync(waiter);
+            }
+        }
+    }
+
+    /**
+     * Returns the position after the latest event, for consumers that only
+     * want changes from now on.
+     *
+     * @return The cursor.
+     */
+    public ChangeCursor head() {
+        return new ChangeCursor(epoch, lastSequence.get());
+    }
+
+    /**
+     * Reads the events after a cursor that are available now.
+     *
+     * @param after The cursor of the last consumed event.
+     * @param limit The maximum number of events to read.
+     * @return The events, possibly none, or a resync marker if events after
+     * the cursor have been lost.
+     */
+    public UserEventBatch read(ChangeCursor after, int limit) {
+        long last = lastSequence.get();
+        if (after.epoch() != epoch || after.sequence() > last
+                || last - after.sequence() > ring.length()) {
+            return resync();
+        }
+        List<UserEvent> events = new ArrayList<>(
+                (int) Math.min(limit, last - after.sequence()));
+        long sequence = after.sequence();
+        while (sequence < last && events.size() < limit) {
+            UserEvent event = ring.get((int) (sequence + 1) & mask);
+            if (event == null || event.sequence() <= sequence) {
+                // Numbered but not stored yet: its writer is still running.
+                break;
+            }
+            if (event.sequence() > sequence + 1) {
+                // Overwritten while we were reading.
+                return resync();
+            }
+            events.add(event);
+            sequence++;
+        }
+        return new UserEventBatch(events, new ChangeCursor(epoch, sequence).toToken(), false);
+    }
+
+    /**
+     * Waits for events after a cursor. The future completes on a pool
+     * thread, never on the writer's.
+     *
+     * @param after The cursor of the last consumed event.
+     * @param limit The maximum number of events to read.
+     * @return A future of the first non-empty batch, or of a resync marker.
+     */
+    public CompletableFuture<UserEventBatch> poll(ChangeCursor after, int limit) {
+        CompletableFuture<UserEventBatch> result = new CompletableFuture<>();
+        var waiter = new Waiter(after, limit, result);
+        // Completing the future in any way, including cancelling it or
+        // timing it out, stops the wait.
+        result.whenComplete((batch, failure) -> waiters.remove(waiter));
+        waiter.run();
+        return result;
+    }
+
+    /**
+     * Number of polls waiting for a write.
+     */
+    int waiting() {
+        return waiters.size();
+    }
+
+    private UserEventBatch resync() {
+        return new UserEventBatch(List.of(), head().toToken(), true);
+    }
+
+    /**
+     * A poll that waits for a write. Each write takes all waiters out of
+     * the set and runs them again, and they put themselves back if there
+     * is still nothing to read.
+     */
+    private final class Waiter implements Runnable {
+        private final ChangeCursor after;
+        private final int limit;
+        private final CompletableFuture<UserEventBatch> result;
+
+        private Waiter(ChangeCursor after, int limit, CompletableFuture<UserEventBatch> result) {
+            this.after = after;
+            this.limit = limit;
+            this.result = result;
+        }
+
+        @Override
+        public void run() {
+            if (result.isDone()) {
+                return;
+            }
+            // Wait before reading, so that a write landing in between still
+            // wakes us up.
+            waiters.add(this);
+            if (result.isDone()) {
+                // Completed after the check above; nothing will remove us.
+                waiters.remove(this);
+                return;
+            }
+            UserEventBatch batch = read(after, limit);
+            if (batch.isResync() || !batch.getEvents().isEmpty()) {
+                result.complete(batch);
+            }
+        }
+    }
+}
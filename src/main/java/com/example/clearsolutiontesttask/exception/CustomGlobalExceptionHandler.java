@@ -26,6 +26,43 @@ public class CustomGlobalExceptionHandler extends ResponseEntityExceptionHandler
                 HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(DuplicateEmailException.class)
+    public ResponseEntity<Object> handleDuplicateEmailException(
+            DuplicateEmailException ex) {
+        return new ResponseEntity<>(ex.getLocalizedMessage(),
+                HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(VersionConflictException.class)
+    public ResponseEntity<Object> handleVersionConflictException(
+            VersionConflictException ex) {
+        return new ResponseEntity<>(ex.getLocalizedMessage(),
+                HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @ExceptionHandler(ShardUnavailableException.class)
+    public ResponseEntity<Object> handleShardUnavailableException(
+            ShardUnavailableException ex) {
+        return new ResponseEntity<>(ex.getLocalizedMessage(),
+                HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler(ReadOnlyReplicaException.class)
+    public ResponseEntity<Object> handleReadOnlyReplicaException(
+            ReadOnlyReplicaException ex) {
+        return ResponseEntity.status(HttpStatus.METHOD_NOT_ALLOWED)
+                .header(HttpHeaders.ALLOW, "GET, HEAD")
+                .body(ex.getLocalizedMessage());
+    }
+
+    @ExceptionHandler(StaleReplicaException.class)
+    public ResponseEntity<Object> handleStaleReplicaException(
+            StaleReplicaException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ex.getLocalizedMessage());
+    }
+
     @ExceptionHandler(ValidationException.class)
     public ResponseEntity<Object> handleEntityNotFoundException(
             ValidationException ex) {
@@ -0,0 +1,10 @@
+package com.example.clearsolutiontesttask.exception;
+
+/**
+ * Thrown when a user would get an email that another user already has.
+ */
+public class DuplicateEmailException extends RuntimeException {
+    public DuplicateEmailException(String email) {
+        super("Email " + email + " is already in use.");
+    }
+}
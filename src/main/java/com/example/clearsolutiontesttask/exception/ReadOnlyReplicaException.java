@@ -0,0 +1,10 @@
+package com.example.clearsolutiontesttask.exception;
+
+/**
+ * Thrown when a write is sent to a follower, which only serves reads.
+ */
+public class ReadOnlyReplicaException extends RuntimeException {
+    public ReadOnlyReplicaException() {
+        super("This node is a read-only replica; send writes to the leader.");
+    }
+}
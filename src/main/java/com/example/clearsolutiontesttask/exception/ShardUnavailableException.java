@@ -0,0 +1,11 @@
+package com.example.clearsolutiontesttask.exception;
+
+/**
+ * Thrown when another node of the cluster, which holds part of the users,
+ * cannot be reached or gave an unusable answer.
+ */
+public class ShardUnavailableException extends RuntimeException {
+    public ShardUnavailableException(int node, Throwable cause) {
+        super("Node " + node + " of the cluster is unavailable.", cause);
+    }
+}
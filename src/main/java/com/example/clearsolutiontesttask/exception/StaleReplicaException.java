@@ -0,0 +1,10 @@
+package com.example.clearsolutiontesttask.exception;
+
+/**
+ * Thrown when a follower is too far behind its leader to serve a read.
+ */
+public class StaleReplicaException extends RuntimeException {
+    public StaleReplicaException() {
+        super("This replica is too far behind the leader to serve reads.");
+    }
+}
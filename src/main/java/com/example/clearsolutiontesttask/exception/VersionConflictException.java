@@ -0,0 +1,11 @@
+package com.example.clearsolutiontesttask.exception;
+
+/**
+ * Thrown when a conditional write expected a different version of the user
+ * than the stored one.
+ */
+public class VersionConflictException extends RuntimeException {
+    public VersionConflictException(int id) {
+        super("User with id: " + id + " was modified by another request.");
+    }
+}
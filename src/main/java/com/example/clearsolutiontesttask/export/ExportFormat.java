@@ -0,0 +1,59 @@
+package com.example.clearsolutiontesttask.export;
+
+import com.example.clearsolutiontesttask.exception.ValidationException;
+
+/**
+ * The formats users can be exported in.
+ */
+public enum ExportFormat {
+    /**
+     * Comma-separated values with a header line, quoted as in RFC 4180.
+     */
+    CSV("csv", "text/csv"),
+    /**
+     * One JSON object per line, as the API returns users.
+     */
+    NDJSON("ndjson", "application/x-ndjson");
+
+    private final String parameter;
+    private final String mediaType;
+
+    ExportFormat(String parameter, String mediaType) {
+        this.parameter = parameter;
+        this.mediaType = mediaType;
+    }
+
+    /**
+     * Returns the format named by a request parameter.
+     *
+     * @param parameter The parameter value, such as {@code csv}.
+     * @return The format.
+     * @throws ValidationException if no format has the name.
+     */
+    public static ExportFormat fromParameter(String parameter) throws ValidationException {
+        for (ExportFormat format : values()) {
+            if (format.parameter.equals(parameter)) {
+                return format;
+            }
+        }
+        throw new ValidationException("Format must be one of csv, ndjson.");
+    }
+
+    /**
+     * Returns the name of the format, which is also its file extension.
+     *
+     * @return The parameter value naming the format.
+     */
+    public String parameter() {
+        return parameter;
+    }
+
+    /**
+     * Returns the content type of an export in the format.
+     *
+     * @return The media type.
+     */
+    public String mediaType() {
+        return mediaType;
+    }
+}
@@ -0,0 +1,406 @@
+package com.example.clearsolutiontesttask.export;
+
+import com.example.clearsolutiontesttask.entity.User;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes users as CSV or NDJSON.
+ *
+ * <p>Users are encoded straight into one buffer, which is handed to the
+ * output whenever it fills up, so the memory used does not depend on the
+ * number of users and no strings, JSON trees or per-user byte arrays are
+ * created along the way. Stored users are spread over the whole heap, so
+ * walking them in ID order mostly waits for memory; users are therefore
+ * fetched into the cache a batch at a time before they are encoded.
+ * NDJSON lines are the same JSON the API returns for a user. Compressed
+ * exports are deflated at the fastest level, to keep up with the encoder.
+ */
+public final class UserExportWriter {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int BATCH_SIZE = 64;
+    /**
+     * The most bytes a single character can take: six for a JSON escape of
+     * a control character, while UTF-8 needs at most three.
+     */
+    private static final int MAX_CHAR_BYTES = 6;
+    /**
+     * The most characters encoded between two checks for room in the buffer.
+     */
+    private static final int SEGMENT_LENGTH = BUFFER_SIZE / MAX_CHAR_BYTES / 2;
+    private static final byte[] CSV_HEADER = ("id,version,email,firstName,lastName,birthDate,"
+            + "phoneNumber,address\n").getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[][] JSON_NAMES = jsonNames("{\"id\":", ",\"version\":",
+            ",\"email\":", ",\"firstName\":", ",\"lastName\":", ",\"birthDate\":",
+            ",\"phoneNumber\":", ",\"address\":");
+    private static final boolean[] CSV_PLAIN = plain("\",\r\n", true);
+    private static final boolean[] JSON_PLAIN = plain("\"\\", false);
+
+    private final OutputStream out;
+    private final ExportFormat format;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    /**
+     * Keeps the reads of {@link #touch(User)} from being optimized away.
+     */
+    private int touched;
+
+    private UserExportWriter(OutputStream out, ExportFormat format) {
+        this.out = out;
+        this.format = format;
+    }
+
+    /**
+     * Writes users to a stream.
+     *
+     * @param users  The users, in the order to write them.
+     * @param format The format to write.
+     * @param gzip   Whether to compress the output with gzip.
+     * @param out    The stream to write to; it is flushed, not closed.
+     * @return The number of users written.
+     * @throws IOException if the stream cannot be written.
+     */
+    public static long export(Iterator<User> users, ExportFormat format, boolean gzip,
+                              OutputStream out) throws IOException {
+        GZIPOutputStream compressed = gzip ? new FastGzipOutputStream(out) : null;
+        var writer = new UserExportWriter(compressed == null ? out : compressed, format);
+        if (format == ExportFormat.CSV) {
+            writer.writeBytes(CSV_HEADER);
+        }
+        // Users are written in batches, touching the fields of a whole
+        // batch first: the memory they are scattered over is then loaded
+        // many cache misses at a time rather than one by one.
+        User[] batch = new User[BATCH_SIZE];
+        long count = 0;
+        while (users.hasNext()) {
+            int size = 0;
+            while (size < BATCH_SIZE && users.hasNext()) {
+                batch[size++] = users.next();
+            }
+            for (int i = 0; i < size; i++) {
+                writer.touch(batch[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                writer.write(batch[i]);
+            }
+            count += size;
+        }
+        writer.drain();
+        if (compressed != null) {
+            compressed.finish();
+        }
+        out.flush();
+        return count;
+    }
+
+    /**
+     * Reads every field of a user without using it, to bring the user
+     * into the cache.
+     */
+    private void touch(User user) {
+        touched += length(user.getEmail()) + length(user.getFirstName())
+                + length(user.getLastName()) + length(user.getPhoneNumber())
+                + length(user.getAddress())
+                + (user.getBirthDate() == null ? 0 : user.getBirthDate().getDayOfMonth());
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private void write(User user) throws IOException {
+        if (format == ExportFormat.CSV) {
+            writeCsv(user);
+        } else {
+            writeJson(user);
+        }
+    }
+
+    private void writeCsv(User user) throws IOException {
+        writeLong(user.getId());
+        writeByte(',');
+        writeLong(user.getVersion());
+        writeByte(',');
+        writeCsvString(user.getEmail());
+        writeByte(',');
+        writeCsvString(user.getFirstName());
+        writeByte(',');
+        writeCsvString(user.getLastName());
+        writeByte(',');
+        if (user.getBirthDate() != null) {
+            writeDate(user.getBirthDate());
+        }
+        writeByte(',');
+        writeCsvString(user.getPhoneNumber());
+        writeByte(',');
+        writeCsvString(user.getAddress());
+        writeByte('\n');
+    }
+
+    private void writeJson(User user) throws IOException {
+        writeBytes(JSON_NAMES[0]);
+        writeLong(user.getId());
+        writeBytes(JSON_NAMES[1]);
+        writeLong(user.getVersion());
+        writeBytes(JSON_NAMES[2]);
+        writeJsonString(user.getEmail());
+        writeBytes(JSON_NAMES[3]);
+        writeJsonString(user.getFirstName());
+        writeBytes(JSON_NAMES[4]);
+        writeJsonString(user.getLastName());
+        writeBytes(JSON_NAMES[5]);
+        if (user.getBirthDate() == null) {
+            writeBytes(NULL);
+        } else {
+            writeByte('"');
+            writeDate(user.getBirthDate());
+            writeByte('"');
+        }
+        writeBytes(JSON_NAMES[6]);
+        writeJsonString(user.getPhoneNumber());
+        writeBytes(JSON_NAMES[7]);
+        writeJsonString(user.getAddress());
+        writeByte('}');
+        writeByte('\n');
+    }
+
+    private void writeCsvString(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.length() <= SEGMENT_LENGTH) {
+            // With room for the whole value reserved, nothing is drained
+            // while it is written, so a value that turns out to need
+            // quoting can be written again.
+            ensure((value.length() + 1) * MAX_CHAR_BYTES + 2);
+            int start = position;
+            if (writeString(value, CSV_PLAIN, false)) {
+                return;
+            }
+            position = start;
+        }
+        writeByte('"');
+        writeString(value, CSV_PLAIN, true);
+        writeByte('"');
+    }
+
+    private void writeJsonString(String value) throws IOException {
+        if (value == null) {
+            writeBytes(NULL);
+            return;
+        }
+        writeByte('"');
+        writeString(value, JSON_PLAIN, true);
+        writeByte('"');
+    }
+
+    /**
+     * Encodes a string as UTF-8. Room in the buffer is checked once per
+     * segment of the string rather than for every character, and ASCII
+     * characters that need no escaping, which is nearly all of them, are
+     * copied in a tight loop.
+     *
+     * @param plain  Which ASCII characters need no escaping.
+     * @param escape Whether to escape the other ASCII characters; if not,
+     *               writing stops at the first of them.
+     * @return Whether the whole string was written.
+     */
+    private boolean writeString(String value, boolean[] plain, boolean escape)
+            throws IOException {
+        int length = value.length();
+        for (int from = 0; from < length; ) {
+            int to = Math.min(length, from + SEGMENT_LENGTH);
+            // One more character than the segment, for a surrogate pair
+            // that straddles its end.
+            ensure((to - from + 1) * MAX_CHAR_BYTES);
+            byte[] bytes = buffer;
+            int p = position;
+            for (int i = from; i < to; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80 && plain[c]) {
+                    bytes[p++] = (byte) c;
+                } else if (c >= 0x80) {
+                    position = p;
+                    i = putChar(value, i);
+                    p = position;
+                    to = Math.max(to, i + 1);
+                } else if (!escape) {
+                    position = p;
+                    return false;
+                } else if (plain == CSV_PLAIN) {
+                    if (c == '"') {
+                        bytes[p++] = '"';
+                    }
+                    bytes[p++] = (byte) c;
+                } else if (c == '"' || c == '\\') {
+                    bytes[p++] = '\\';
+                    bytes[p++] = (byte) c;
+                } else {
+                    position = p;
+                    putControl(c);
+                    p = position;
+                }
+            }
+            position = p;
+            from = to;
+        }
+        return true;
+    }
+
+    /**
+     * Escapes a control character the way Jackson does.
+     */
+    private void putControl(char c) {
+        buffer[position++] = '\\';
+        switch (c) {
+            case '\n' -> buffer[position++] = 'n';
+            case '\r' -> buffer[position++] = 'r';
+            case '\t' -> buffer[position++] = 't';
+            case '\b' -> buffer[position++] = 'b';
+            case '\f' -> buffer[position++] = 'f';
+            default -> {
+                buffer[position++] = 'u';
+                buffer[position++] = '0';
+                buffer[position++] = '0';
+                buffer[position++] = HEX[c >> 4];
+                buffer[position++] = HEX[c & 0xF];
+            }
+        }
+    }
+
+    /**
+     * Encodes the character at {@code i} as UTF-8. There must be room for
+     * {@link #MAX_CHAR_BYTES} bytes.
+     *
+     * @return The index of the last character consumed, which is {@code i}
+     * unless it started a surrogate pair.
+     */
+    private int putChar(String value, int i) {
+        char c = value.charAt(i);
+        if (c < 0x80) {
+            buffer[position++] = (byte) c;
+        } else if (c < 0x800) {
+            buffer[position++] = (byte) (0xC0 | c >> 6);
+            buffer[position++] = (byte) (0x80 | c & 0x3F);
+        } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(i + 1))) {
+            int codePoint = Character.toCodePoint(c, value.charAt(i + 1));
+            buffer[position++] = (byte) (0xF0 | codePoint >> 18);
+            buffer[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+            buffer[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+            buffer[position++] = (byte) (0x80 | codePoint & 0x3F);
+            return i + 1;
+        } else if (Character.isSurrogate(c)) {
+            // A lone surrogate cannot be encoded; String.getBytes does the same.
+            buffer[position++] = '?';
+        } else {
+            buffer[position++] = (byte) (0xE0 | c >> 12);
+            buffer[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+            buffer[position++] = (byte) (0x80 | c & 0x3F);
+        }
+        return i;
+    }
+
+    private void writeDate(LocalDate date) throws IOException {
+        int year = date.getYear();
+        if (year < 0 || year > 9999) {
+            writeBytes(date.toString().getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+        ensure(10);
+        putDigits(year, 4);
+        buffer[position++] = '-';
+        putDigits(date.getMonthValue(), 2);
+        buffer[position++] = '-';
+        putDigits(date.getDayOfMonth(), 2);
+    }
+
+    private void writeLong(long value) throws IOException {
+        if (value < 0) {
+            writeBytes(Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        ensure(digits);
+        int end = position + digits;
+        for (int i = end - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position = end;
+    }
+
+    private void putDigits(int value, int digits) {
+        for (int i = position + digits - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position += digits;
+    }
+
+    private void writeByte(char c) throws IOException {
+        ensure(1);
+        buffer[position++] = (byte) c;
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (position + bytes > buffer.length) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+
+    /**
+     * Marks the ASCII characters that can be written as they are.
+     *
+     * @param special  The characters that must be escaped or quoted.
+     * @param controls Whether other control characters can be written as
+     *                 they are.
+     */
+    private static boolean[] plain(String special, boolean controls) {
+        boolean[] plain = new boolean[0x80];
+        for (char c = 0; c < 0x80; c++) {
+            plain[c] = special.indexOf(c) < 0 && (controls || c >= 0x20);
+        }
+        return plain;
+    }
+
+    private static byte[][] jsonNames(String... names) {
+        byte[][] bytes = new byte[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            bytes[i] = names[i].getBytes(StandardCharsets.US_ASCII);
+        }
+        return bytes;
+    }
+
+    /**
+     * Gzip at the fastest compression level, through a buffer as large as
+     * the writer's.
+     */
+    private static final class FastGzipOutputStream extends GZIPOutputStream {
+        private FastGzipOutputStream(OutputStream out) throws IOException {
+            super(out, BUFFER_SIZE);
+            def.setLevel(Deflater.BEST_SPEED);
+        }
+    }
+}
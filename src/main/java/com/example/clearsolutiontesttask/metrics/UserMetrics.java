@@ -0,0 +1,155 @@
+package com.example.clearsolutiontesttask.metrics;
+
+import com.example.clearsolutiontesttask.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Timers, counters and gauges of the user service.
+ *
+ * <p>Operations are timed with a start/stop pair rather than by wrapping
+ * them in a lambda, so an instrumented call allocates nothing. With
+ * {@code user.metrics.enabled=false} no meters are registered and
+ * {@link #start()} and {@link #stop(Operation, long)} reduce to a check
+ * of a final field, which the JIT folds away.
+ */
+@Component
+public class UserMetrics {
+    private static final UserMetrics DISABLED = new UserMetrics();
+
+    private final boolean enabled;
+    private final Timer[] timers;
+    private final Counter validationFailures;
+    private final Counter notFound;
+
+    /**
+     * Creates the meters in the given registry.
+     *
+     * @param registry       The registry to publish to.
+     * @param userRepository The repository whose size is published.
+     * @param enabled        Whether to publish any meters.
+     */
+    @Autowired
+    public UserMetrics(MeterRegistry registry, UserRepository userRepository,
+                       @Value("${user.metrics.enabled:true}") boolean enabled) {
+        if (!enabled) {
+            this.enabled = false;
+            timers = null;
+            validationFailures = null;
+            notFound = null;
+            return;
+        }
+        this.enabled = true;
+        Operation[] operations = Operation.values();
+        timers = new Timer[operations.length];
+        for (Operation operation : operations) {
+            timers[operation.ordinal()] = Timer.builder("users.service")
+                    .description("Time spent in user service operations")
+                    .tag("operation", operation.tag)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+        validationFailures = Counter.builder("users.validation.failures")
+                .description("Users rejected by validation")
+                .register(registry);
+        notFound = Counter.builder("users.not.found")
+                .description("Operations on a user ID that does not exist")
+                .register(registry);
+        Gauge.builder("users.store.size", userRepository, UserRepository::count)
+                .description("Number of stored users")
+                .register(registry);
+        userRepository.indexSizes().forEach((index, size) ->
+                Gauge.builder("users.index.size", userRepository,
+                                repository -> repository.indexSizes().get(index))
+                        .description("Number of entries in a secondary index")
+                        .tag("index", index)
+                        .register(registry));
+    }
+
+    private UserMetrics() {
+        enabled = false;
+        timers = null;
+        validationFailures = null;
+        notFound = null;
+    }
+
+    /**
+     * Returns an instance that records nothing, e.g. for tests.
+     *
+     * @return The disabled metrics.
+     */
+    public static UserMetrics disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Starts timing an operation.
+     *
+     * @return The start time to pass to {@link #stop(Operation, long)}.
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Records the time since {@link #start()}.
+     *
+     * @param operation The timed operation.
+     * @param started   The value returned by {@link #start()}.
+     */
+    public void stop(Operation operation, long started) {
+        if (enabled) {
+            timers[operation.ordinal()].record(System.nanoTime() - started,
+                    TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Counts users rejected by validation.
+     *
+     * @param count The number of rejected users.
+     */
+    public void validationFailed(int count) {
+        if (enabled && count > 0) {
+            validationFailures.increment(count);
+        }
+    }
+
+    /**
+     * Counts an operation on a user ID that does not exist.
+     */
+    public void notFound() {
+        if (enabled) {
+            notFound.increment();
+        }
+    }
+
+    /**
+     * The timed operations, published as the {@code operation} tag.
+     */
+    public enum Operation {
+        ADD("add"),
+        ADD_BATCH("add-batch"),
+        UPDATE("update"),
+        PATCH("patch"),
+        DELETE("delete"),
+        BULK_PATCH("bulk-patch"),
+        BULK_DELETE("bulk-delete"),
+        FIND_BY_BIRTH_DATE("find-by-birth-date"),
+        FIND_PAGE_BY_BIRTH_DATE("find-page-by-birth-date"),
+        SEARCH("search"),
+        QUERY("query");
+
+        private final String tag;
+
+        Operation(String tag) {
+            this.tag = tag;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.clearsolutiontesttask.persistence;
+
+/**
+ * When writes to the user log are forced to disk.
+ */
+public enum FsyncPolicy {
+    /**
+     * Every write waits until it is on disk. Concurrent writers share one
+     * flush (group commit).
+     */
+    ALWAYS,
+    /**
+     * The log is flushed in the background at a fixed interval; a crash
+     * may lose the writes of the last interval.
+     */
+    INTERVAL,
+    /**
+     * The log is never flushed explicitly; the operating system decides.
+     */
+    NEVER
+}
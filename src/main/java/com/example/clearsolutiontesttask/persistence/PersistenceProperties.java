@@ -0,0 +1,37 @@
+package com.example.clearsolutiontesttask.persistence;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the optional on-disk persistence of users, bound from the
+ * {@code user.persistence.*} properties.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "user.persistence")
+public class PersistenceProperties {
+    /**
+     * Whether users are logged to disk and restored on startup.
+     */
+    private boolean enabled;
+    /**
+     * Directory holding the log files and the snapshot.
+     */
+    private Path directory = Path.of("data");
+    /**
+     * When log writes are forced to disk.
+     */
+    private FsyncPolicy fsync = FsyncPolicy.INTERVAL;
+    /**
+     * How often the log is forced to disk with {@link FsyncPolicy#INTERVAL}.
+     */
+    private Duration fsyncInterval = Duration.ofMillis(100);
+    /**
+     * How often the log is compacted into a snapshot.
+     */
+    private Duration compactionInterval = Duration.ofMinutes(10);
+}
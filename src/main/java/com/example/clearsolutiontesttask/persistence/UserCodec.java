@@ -0,0 +1,105 @@
+package com.example.clearsolutiontesttask.persistence;
+
+import com.example.clearsolutiontesttask.entity.User;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Compact binary encoding of a {@link User}: the ID, the birth date as an
+ * epoch day, each string as a length-prefixed UTF-8 byte sequence, and the
+ * version. Encodings written before users had versions end after the
+ * strings and decode with version 0.
+ */
+public final class UserCodec {
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final int NO_STRING = -1;
+
+    private UserCodec() {
+    }
+
+    /**
+     * Encodes a user.
+     *
+     * @param user The user to encode.
+     * @return The encoded bytes.
+     */
+    public static byte[] encode(User user) {
+        byte[][] strings = {utf8(user.getEmail()), utf8(user.getFirstName()),
+                utf8(user.getLastName()), utf8(user.getPhoneNumber()),
+                utf8(user.getAddress())};
+        int size = Integer.BYTES + 2 * Long.BYTES;
+        for (byte[] string : strings) {
+            size += Integer.BYTES + (string == null ? 0 : string.length);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size)
+                .putInt(user.getId())
+                .putLong(user.getBirthDate() == null ? NO_DATE
+                        : user.getBirthDate().toEpochDay());
+        for (byte[] string : strings) {
+            putString(buffer, string);
+        }
+        return buffer.putLong(user.getVersion()).array();
+    }
+
+    /**
+     * Returns an upper bound on the size of the encoding of a user, without
+     * encoding it: UTF-8 takes at most three bytes per UTF-16 char.
+     *
+     * @param user The user.
+     * @return The most bytes {@link #encode(User)} can return for the user.
+     */
+    public static int maxEncodedSize(User user) {
+        String[] strings = {user.getEmail(), user.getFirstName(), user.getLastName(),
+                user.getPhoneNumber(), user.getAddress()};
+        int size = Integer.BYTES + 2 * Long.BYTES;
+        for (String string : strings) {
+            size += Integer.BYTES + (string == null ? 0 : 3 * string.length());
+        }
+        return size;
+    }
+
+    /**
+     * Decodes a user written by {@link #encode(User)}, advancing the buffer
+     * past it.
+     *
+     * @param buffer The buffer positioned at the encoded user, and ending
+     *               with it.
+     * @return The decoded user.
+     */
+    public static User decode(ByteBuffer buffer) {
+        int id = buffer.getInt();
+        long epochDay = buffer.getLong();
+        User user = new User()
+                .setId(id)
+                .setBirthDate(epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay))
+                .setEmail(getString(buffer))
+                .setFirstName(getString(buffer))
+                .setLastName(getString(buffer))
+                .setPhoneNumber(getString(buffer))
+                .setAddress(getString(buffer));
+        return buffer.hasRemaining() ? user.setVersion(buffer.getLong()) : user;
+    }
+
+    static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    static void putString(ByteBuffer buffer, byte[] utf8) {
+        if (utf8 == null) {
+            buffer.putInt(NO_STRING);
+        } else {
+            buffer.putInt(utf8.length).put(utf8);
+        }
+    }
+
+    static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == NO_STRING) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        buffer.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.clearsolutiontesttask.persistence;
+
+import com.example.clearsolutiontesttask.dto.SnapshotResult;
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.exception.DuplicateEmailException;
+import com.example.clearsolutiontesttask.repository.IdAllocator;
+import com.example.clearsolutiontesttask.repository.UserRepository;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Restores the user repository from disk on startup and keeps the log
+ * short by compacting it into a snapshot from time to time.
+ *
+ * <p>Recovery maps the latest snapshot, loads it in parallel chunks,
+ * replays the log generations it does not fully contain, and only then
+ * opens a new log generation, so the replayed writes are not logged twice. It runs once all beans are created
+ * and before the web server accepts requests.
+ *
+ * <p>Writes to different users are logged in the order their stripes
+ * were unlocked, so a user may be logged with an email before the record
+ * of the user that gave the email up, and a snapshot may hold both users
+ * with the same email. Users whose email is still taken are held back and
+ * retried after every record, like {@link
+ * com.example.clearsolutiontesttask.replication.ReplicaApplier} does;
+ * recovery fails if any are left at the end.
+ */
+@Component
+@EnableScheduling
+@ConditionalOnProperty(prefix = "user.persistence", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class UserPersistenceManager implements SmartInitializingSingleton {
+    static final String SNAPSHOT_FILE = "users.snapshot";
+
+    private final PersistenceProperties properties;
+    private final UserWriteAheadLog log;
+    private final UserRepository userRepository;
+    private final IdAllocator idAllocator;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to restore users from "
+                    + properties.getDirectory(), e);
+        }
+    }
+
+    /**
+     * Loads the snapshot and replays the log into the repository, then
+     * starts logging into a fresh generation.
+     *
+     * @throws IOException if the files cannot be read or written.
+     */
+    void recover() throws IOException {
+        Path directory = properties.getDirectory();
+        Path snapshotFile = directory.resolve(SNAPSHOT_FILE);
+        int[] maxId = {0};
+        long nextGeneration = 0;
+        Map<Integer, User> heldBack = new LinkedHashMap<>();
+        if (Files.exists(snapshotFile)) {
+            UserSnapshot snapshot = UserSnapshot.open(snapshotFile);
+            snapshot.load(users -> {
+                List<User> rejected = userRepository.saveAll(users);
+                if (!rejected.isEmpty()) {
+                    synchronized (heldBack) {
+                        rejected.forEach(user -> heldBack.put(user.getId(), user));
+                    }
+                }
+            });
+            maxId[0] = snapshot.maxId();
+            nextGeneration = snapshot.generation();
+            retryHeldBack(heldBack);
+        }
+        for (long generation : UserWriteAheadLog.generations(directory)) {
+            if (generation < nextGeneration) {
+                continue;
+            }
+            UserWriteAheadLog.replay(UserWriteAheadLog.file(directory, generation),
+                    user -> {
+                        maxId[0] = Math.max(maxId[0], user.getId());
+                        heldBack.remove(user.getId());
+                        try {
+                            userRepository.save(user);
+                        } catch (DuplicateEmailException e) {
+                            heldBack.put(user.getId(), user);
+                        }
+                        retryHeldBack(heldBack);
+                    },
+                    id -> {
+                        maxId[0] = Math.max(maxId[0], id);
+                        heldBack.remove(id);
+                        userRepository.deleteById(id);
+                        retryHeldBack(heldBack);
+                    });
+            nextGeneration = generation + 1;
+        }
+        if (!heldBack.isEmpty()) {
+            throw new IllegalStateException("Cannot restore users " + heldBack.keySet()
+                    + ": their emails are taken by other users");
+        }
+        idAllocator.advancePast(maxId[0]);
+        log.open(nextGeneration);
+    }
+
+    /**
+     * Saves the held-back users whose emails have been given up meanwhile,
+     * until no more can be saved.
+     */
+    private void retryHeldBack(Map<Integer, User> heldBack) {
+        boolean progress = true;
+        while (progress && !heldBack.isEmpty()) {
+            progress = false;
+            for (Iterator<User> iterator = heldBack.values().iterator(); iterator.hasNext(); ) {
+                try {
+                    userRepository.save(iterator.next());
+                    iterator.remove();
+                    progress = true;
+                } catch (DuplicateEmailException e) {
+                    // Still taken.
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes all users into a new snapshot and deletes the log files it
+     * makes obsolete. The log is rotated first, so every write that is not
+     * in the snapshot is in the new generation, which is kept.
+     *
+     * @return The generation and the number of users of the new snapshot.
+     * @throws IOException if the files cannot be written.
+     */
+    public synchronized SnapshotResult compact() throws IOException {
+        long started = System.nanoTime();
+        long generation = log.rotate();
+        List<User> users = userRepository.findAll();
+        Path directory = properties.getDirectory();
+        UserSnapshot.write(directory.resolve(SNAPSHOT_FILE), generation, users);
+        for (long obsolete : UserWriteAheadLog.generations(directory)) {
+            if (obsolete < generation) {
+                Files.deleteIfExists(UserWriteAheadLog.file(directory, obsolete));
+            }
+        }
+        return new SnapshotResult(generation, users.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    @Scheduled(fixedDelayString = "${user.persistence.compaction-interval:PT10M}",
+            initialDelayString = "${user.persistence.compaction-interval:PT10M}")
+    void scheduledCompaction() throws IOException {
+        compact();
+    }
+}
@@ -0,0 +1,345 @@
+package com.example.clearsolutiontesttask.persistence;
+
+import com.example.clearsolutiontesttask.entity.User;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * A point-in-time copy of all users in a compact, columnar binary format.
+ *
+ * <p>The snapshot remembers the log generation it was taken at: it
+ * contains every write logged in older generations, and possibly some of
+ * the writes of its own generation, which are replayed on top of it.
+ *
+ * <p>Rows are stored in birth date then ID order, which is the order of
+ * the repository's birth date index, followed by one column per field:
+ * <pre>
+ * header   magic, format version, generation (long), row count, max ID
+ * birth    long[rows]  epoch days; Long.MIN_VALUE for no birth date
+ * ids      int[rows]
+ * versions long[rows]
+ * strings  5 x (int[rows] end offsets, UTF-8 bytes padded to 4 bytes)
+ * </pre>
+ * A string's end offset has its top bit set if the value is null. Format
+ * 2 snapshots, which have no version column, are still read; their users
+ * get version 0. Loading maps the columns into memory and decodes row ranges in
+ * parallel, without any intermediate copy of the file.
+ */
+public final class UserSnapshot {
+    private static final int MAGIC = 0x55534E50;
+    private static final int FORMAT_VERSION = 3;
+    private static final int UNVERSIONED_FORMAT = 2;
+    private static final int HEADER_BYTES = 4 * Integer.BYTES + Long.BYTES;
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final int NULL_STRING = 0x8000_0000;
+    private static final int LOAD_CHUNK_ROWS = 1 << 16;
+    private static final List<Function<User, String>> STRING_COLUMNS = List.of(
+            User::getEmail, User::getFirstName, User::getLastName,
+            User::getPhoneNumber, User::getAddress);
+
+    private final long generation;
+    private final int rows;
+    private final int maxId;
+    private final LongBuffer epochDays;
+    private final IntBuffer ids;
+    private final LongBuffer versions;
+    private final IntBuffer[] stringEnds;
+    private final ByteBuffer[] stringBytes;
+
+    private UserSnapshot(long generation, int rows, int maxId, LongBuffer epochDays,
+                         IntBuffer ids, LongBuffer versions, IntBuffer[] stringEnds,
+                         ByteBuffer[] stringBytes) {
+        this.generation = generation;
+        this.rows = rows;
+        this.maxId = maxId;
+        this.epochDays = epochDays;
+        this.ids = ids;
+        this.versions = versions;
+        this.stringEnds = stringEnds;
+        this.stringBytes = stringBytes;
+    }
+
+    /**
+     * Writes a snapshot atomically: the file is written next to the target,
+     * forced to disk and then moved into place, so a crash leaves either
+     * the old or the new snapshot, never a partial one.
+     *
+     * @param file       The snapshot file.
+     * @param generation The first log generation not fully contained.
+     * @param users      The users.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(Path file, long generation, Collection<User> users)
+            throws IOException {
+        User[] rows = users.toArray(User[]::new);
+        Arrays.parallelSort(rows, Comparator
+                .comparingLong(UserSnapshot::epochDay)
+                .thenComparingInt(User::getId));
+        int maxId = 0;
+        for (User user : rows) {
+            maxId = Math.max(maxId, user.getId());
+        }
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ColumnWriter out = new ColumnWriter(channel);
+            out.putInt(MAGIC);
+            out.putInt(FORMAT_VERSION);
+            out.putLong(generation);
+            out.putInt(rows.length);
+            out.putInt(maxId);
+            for (User user : rows) {
+                out.putLong(epochDay(user));
+            }
+            for (User user : rows) {
+                out.putInt(user.getId());
+            }
+            for (User user : rows) {
+                out.putLong(user.getVersion());
+            }
+            for (Function<User, String> column : STRING_COLUMNS) {
+                writeStringColumn(out, rows, column);
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeStringColumn(ColumnWriter out, User[] rows,
+                                          Function<User, String> column) throws IOException {
+        byte[][] values = new byte[rows.length][];
+        int end = 0;
+        for (int i = 0; i < rows.length; i++) {
+            String value = column.apply(rows[i]);
+            values[i] = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+            if (values[i] != null) {
+                end = Math.addExact(end, values[i].length);
+            }
+            out.putInt(values[i] == null ? end | NULL_STRING : end);
+        }
+        for (byte[] value : values) {
+            if (value != null) {
+                out.put(value);
+            }
+        }
+        out.put(new byte[padding(end)]);
+    }
+
+    /**
+     * Opens a snapshot written by {@link #write(Path, long, Collection)} by
+     * mapping its columns into memory.
+     *
+     * @param file The snapshot file.
+     * @return The snapshot.
+     * @throws IOException if the file cannot be read or is not a snapshot.
+     */
+    public static UserSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    Math.min(channel.size(), HEADER_BYTES));
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                throw new IOException("Not a user snapshot: " + file);
+            }
+            int format = header.getInt();
+            if (format != FORMAT_VERSION && format != UNVERSIONED_FORMAT) {
+                throw new IOException("Unsupported snapshot format " + format + ": " + file);
+            }
+            long generation = header.getLong();
+            int rows = header.getInt();
+            int maxId = header.getInt();
+
+            long position = HEADER_BYTES;
+            long longColumnBytes = (long) rows * Long.BYTES;
+            LongBuffer epochDays = mapLongs(channel, position, longColumnBytes);
+            position += longColumnBytes;
+            long intColumnBytes = (long) rows * Integer.BYTES;
+            IntBuffer ids = mapInts(channel, position, intColumnBytes);
+            position += intColumnBytes;
+            LongBuffer versions = null;
+            if (format == FORMAT_VERSION) {
+                versions = mapLongs(channel, position, longColumnBytes);
+                position += longColumnBytes;
+            }
+            IntBuffer[] stringEnds = new IntBuffer[STRING_COLUMNS.size()];
+            ByteBuffer[] stringBytes = new ByteBuffer[STRING_COLUMNS.size()];
+            for (int column = 0; column < stringEnds.length; column++) {
+                stringEnds[column] = mapInts(channel, position, intColumnBytes);
+                position += intColumnBytes;
+                int length = rows == 0 ? 0 : stringEnds[column].get(rows - 1) & ~NULL_STRING;
+                stringBytes[column] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        position, length);
+                position += length + padding(length);
+            }
+            return new UserSnapshot(generation, rows, maxId, epochDays, ids, versions,
+                    stringEnds, stringBytes);
+        }
+    }
+
+    private static IntBuffer mapInts(FileChannel channel, long position, long bytes)
+            throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, bytes).asIntBuffer();
+    }
+
+    private static LongBuffer mapLongs(FileChannel channel, long position, long bytes)
+            throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, bytes).asLongBuffer();
+    }
+
+    /**
+     * Returns the first log generation not fully contained.
+     *
+     * @return The generation.
+     */
+    public long generation() {
+        return generation;
+    }
+
+    /**
+     * Returns the number of users.
+     *
+     * @return The number of users.
+     */
+    public int size() {
+        return rows;
+    }
+
+    /**
+     * Returns the highest user ID in the snapshot.
+     *
+     * @return The highest ID, or 0 if the snapshot is empty.
+     */
+    public int maxId() {
+        return maxId;
+    }
+
+    /**
+     * Decodes all users and hands them to the sink in chunks. Chunks are
+     * decoded in parallel, so the sink must be thread-safe; users within a
+     * chunk are in birth date order.
+     *
+     * @param sink Receives the chunks of users.
+     */
+    public void load(Consumer<List<User>> sink) {
+        int chunks = (rows + LOAD_CHUNK_ROWS - 1) / LOAD_CHUNK_ROWS;
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            int from = chunk * LOAD_CHUNK_ROWS;
+            int to = Math.min(rows, from + LOAD_CHUNK_ROWS);
+            List<User> users = new ArrayList<>(to - from);
+            for (int row = from; row < to; row++) {
+                users.add(user(row));
+            }
+            sink.accept(users);
+        });
+    }
+
+    /**
+     * Decodes all users, in birth date then ID order.
+     *
+     * @return The users.
+     */
+    public List<User> users() {
+        List<User> users = new ArrayList<>(rows);
+        for (int row = 0; row < rows; row++) {
+            users.add(user(row));
+        }
+        return users;
+    }
+
+    private User user(int row) {
+        long epochDay = epochDays.get(row);
+        return new User()
+                .setId(ids.get(row))
+                .setVersion(versions == null ? 0 : versions.get(row))
+                .setBirthDate(epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay))
+                .setEmail(string(0, row))
+                .setFirstName(string(1, row))
+                .setLastName(string(2, row))
+                .setPhoneNumber(string(3, row))
+                .setAddress(string(4, row));
+    }
+
+    private String string(int column, int row) {
+        int end = stringEnds[column].get(row);
+        if ((end & NULL_STRING) != 0) {
+            return null;
+        }
+        int start = row == 0 ? 0 : stringEnds[column].get(row - 1) & ~NULL_STRING;
+        byte[] utf8 = new byte[end - start];
+        stringBytes[column].get(start, utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static long epochDay(User user) {
+        return user.getBirthDate() == null ? NO_DATE : user.getBirthDate().toEpochDay();
+    }
+
+    private static int padding(int length) {
+        return -length & (Integer.BYTES - 1);
+    }
+
+    /**
+     * Buffers column values and writes them to the channel in large blocks.
+     */
+    private static final class ColumnWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+
+        ColumnWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int value) throws IOException {
+            ensureRemaining(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensureRemaining(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void put(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensureRemaining(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void ensureRemaining(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+    }
+}
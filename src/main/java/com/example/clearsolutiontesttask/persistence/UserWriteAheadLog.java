@@ -0,0 +1,537 @@
+package com.example.clearsolutiontesttask.persistence;
+
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.repository.UserChange;
+import com.example.clearsolutiontesttask.repository.UserChangeListener;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Append-only, memory-mapped log of every write to the user repository.
+ *
+ * <p>The log is split into generations, one file each. Every record holds
+ * the full state of the user after the write, or a delete marker, so
+ * replaying the records of a user in order always ends in its latest state,
+ * no matter which state replay started from.
+ *
+ * <p>Each record is framed as {@code [length][crc32][payload]}. Appends copy
+ * the record into a mapped region of the file, which is cheap; forcing the
+ * regions to disk is left to a background flusher according to the
+ * {@link FsyncPolicy}. With {@link FsyncPolicy#ALWAYS}, writers wait in
+ * {@link #afterChange()} until the flusher has forced their record, and
+ * one flush covers every writer that appended meanwhile.
+ *
+ * <p>Records are appended while the repository holds its lock and the
+ * write is already applied in memory, so appending must not fail. Each
+ * operation therefore reserves room for the largest records it may write
+ * in {@link #beforeChange(Collection, int)}, before the store changes,
+ * mapping a new region if the current one cannot hold every reservation.
+ * If mapping fails there, the write is rejected with nothing applied, and
+ * so is every later write; writers that reserved before keep their room.
+ * Only changes reported without a reservation, which the repositories never
+ * do, are mapped for while appending; if that fails, the change stays
+ * unlogged and fails in {@link #afterChange()}.
+ *
+ * <p>Changes are ignored until {@link #open(long)} is called, so that
+ * replaying the log through the repository on startup does not log the
+ * replayed writes again.
+ */
+@Component
+@ConditionalOnProperty(prefix = "user.persistence", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(PersistenceProperties.class)
+public class UserWriteAheadLog implements UserChangeListener {
+    static final int DEFAULT_REGION_SIZE = 16 * 1024 * 1024;
+    private static final long REPLAY_WINDOW_SIZE = 64 * 1024 * 1024;
+    private static final String FILE_PREFIX = "users-";
+    private static final String FILE_SUFFIX = ".wal";
+    private static final int FRAME_HEADER_BYTES = 2 * Integer.BYTES;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+
+    private final Path directory;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalMillis;
+    private final int regionSize;
+
+    private final Object appendLock = new Object();
+    private final Object flushMonitor = new Object();
+    /**
+     * Per writer thread: the log size after its last record, or -1 if its
+     * last record could not be appended; and the bytes it has reserved.
+     */
+    private final ThreadLocal<long[]> writerState = ThreadLocal.withInitial(() -> new long[2]);
+
+    // Guarded by appendLock; appendedBytes counts across all generations.
+    private volatile FileChannel channel;
+    private long generation;
+    private MappedByteBuffer region;
+    private long regionStart;
+    private long appendedBytes;
+    private final List<MappedByteBuffer> unforcedRegions = new ArrayList<>();
+    /**
+     * Bytes of the current region promised to writers, all of which fit in
+     * its remaining space.
+     */
+    private long reservedBytes;
+    private volatile IOException appendFailure;
+
+    // Guarded by flushMonitor.
+    private long flushRequestedBytes;
+    private long durableBytes;
+    private UncheckedIOException failure;
+    private Thread flusher;
+    private volatile boolean closed;
+
+    @Autowired
+    public UserWriteAheadLog(PersistenceProperties properties) {
+        this(properties.getDirectory(), properties.getFsync(),
+                properties.getFsyncInterval().toMillis(), DEFAULT_REGION_SIZE);
+    }
+
+    UserWriteAheadLog(Path directory, FsyncPolicy fsyncPolicy,
+                      long fsyncIntervalMillis, int regionSize) {
+        this.directory = directory;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        this.regionSize = regionSize;
+    }
+
+    /**
+     * Starts logging into a new file of the given generation.
+     *
+     * @param generation The generation to write; must be newer than every
+     *                   existing log file.
+     * @throws IOException if the file cannot be created.
+     */
+    public void open(long generation) throws IOException {
+        synchronized (appendLock) {
+            Files.createDirectories(directory);
+            openFile(generation);
+        }
+        if (fsyncPolicy != FsyncPolicy.NEVER) {
+            flusher = new Thread(this::runFlusher, "user-wal-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+    }
+
+    /**
+     * Returns the generation currently written to.
+     *
+     * @return The current generation.
+     */
+    public long generation() {
+        synchronized (appendLock) {
+            return generation;
+        }
+    }
+
+    /**
+     * Forces the current file to disk and continues in a new file of the
+     * next generation. Every write logged before this call is in an older
+     * generation, every write after it in the new one.
+     *
+     * @return The new generation.
+     * @throws IOException if the files cannot be written.
+     */
+    public long rotate() throws IOException {
+        synchronized (appendLock) {
+            forceUnforcedRegions();
+            channel.close();
+            openFile(generation + 1);
+            return generation;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UncheckedIOException if the log has failed, or no room can
+     * be mapped for the records of the operation.
+     */
+    @Override
+    public void beforeChange(Collection<User> written, int deleted) {
+        if (channel == null) {
+            return;
+        }
+        long bytes = (long) deleted * (FRAME_HEADER_BYTES + 1 + Integer.BYTES);
+        for (User user : written) {
+            bytes += FRAME_HEADER_BYTES + 1 + UserCodec.maxEncodedSize(user);
+        }
+        synchronized (appendLock) {
+            if (channel == null) {
+                return;
+            }
+            IOException failed = appendFailure;
+            if (failed != null) {
+                throw new UncheckedIOException("The write-ahead log failed; writes are rejected",
+                        failed);
+            }
+            long needed = reservedBytes + bytes;
+            if (region.remaining() < needed) {
+                try {
+                    mapRegion(regionStart + region.position(), regionSize(needed));
+                } catch (IOException e) {
+                    appendFailure = e;
+                    throw new UncheckedIOException(e);
+                }
+            }
+            reservedBytes = needed;
+            writerState.get()[1] += bytes;
+        }
+    }
+
+    @Override
+    public void onChange(UserChange change) {
+        if (channel == null) {
+            return;
+        }
+        byte[] payload = encode(change);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        long[] state = writerState.get();
+        synchronized (appendLock) {
+            if (channel == null) {
+                return;
+            }
+            int frameSize = FRAME_HEADER_BYTES + payload.length;
+            if (state[1] >= frameSize) {
+                // Reserved in beforeChange, so the region has room for it.
+                state[1] -= frameSize;
+                reservedBytes -= frameSize;
+            } else {
+                if (appendFailure == null && region.remaining() < reservedBytes + frameSize) {
+                    try {
+                        mapRegion(regionStart + region.position(),
+                                regionSize(reservedBytes + frameSize));
+                    } catch (IOException e) {
+                        // The write is applied already; report it after the
+                        // lock is released, and let no further write through.
+                        appendFailure = e;
+                    }
+                }
+                if (appendFailure != null) {
+                    state[0] = -1;
+                    return;
+                }
+            }
+            region.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+            appendedBytes += frameSize;
+            state[0] = appendedBytes;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UncheckedIOException if a record of this thread could not be
+     * appended, or, with {@link FsyncPolicy#ALWAYS}, forced to disk.
+     */
+    @Override
+    public void afterChange() {
+        long[] state = writerState.get();
+        if (state[1] > 0) {
+            synchronized (appendLock) {
+                reservedBytes -= state[1];
+            }
+            state[1] = 0;
+        }
+        if (state[0] < 0) {
+            state[0] = 0;
+            throw new UncheckedIOException("The write was applied but not logged",
+                    appendFailure);
+        }
+        if (fsyncPolicy != FsyncPolicy.ALWAYS) {
+            return;
+        }
+        if (state[0] > 0) {
+            awaitDurable(state[0]);
+            state[0] = 0;
+        }
+    }
+
+    /**
+     * Stops the flusher and forces everything logged so far to disk.
+     *
+     * @throws IOException if the log cannot be forced.
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        closed = true;
+        synchronized (flushMonitor) {
+            flushMonitor.notifyAll();
+        }
+        if (flusher != null) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (appendLock) {
+            if (channel != null) {
+                forceUnforcedRegions();
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+    /**
+     * Lists the generations of the log files in a directory.
+     *
+     * @param directory The log directory.
+     * @return The generations, oldest first.
+     * @throws IOException if the directory cannot be listed.
+     */
+    public static List<Long> generations(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(FILE_PREFIX.length(),
+                            name.length() - FILE_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Returns the file of a generation.
+     *
+     * @param directory  The log directory.
+     * @param generation The generation.
+     * @return The path of the log file.
+     */
+    public static Path file(Path directory, long generation) {
+        return directory.resolve(String.format("%s%020d%s", FILE_PREFIX, generation, FILE_SUFFIX));
+    }
+
+    /**
+     * Replays a log file in write order. Reading stops at the first record
+     * that is incomplete or fails its checksum, i.e. at the end of what was
+     * written before the log was closed or the process died.
+     *
+     * @param file   The log file.
+     * @param put    Receives the state of each written user.
+     * @param delete Receives the ID of each deleted user.
+     * @return The number of records replayed.
+     * @throws IOException if the file cannot be read.
+     */
+    public static long replay(Path file, Consumer<User> put, IntConsumer delete)
+            throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            long records = 0;
+            long position = 0;
+            long size = in.size();
+            while (position + FRAME_HEADER_BYTES <= size) {
+                MappedByteBuffer window = in.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(size - position, REPLAY_WINDOW_SIZE));
+                int consumed = 0;
+                while (consumed + FRAME_HEADER_BYTES <= window.capacity()) {
+                    int length = window.getInt(consumed);
+                    if (length <= 0) {
+                        return records;
+                    }
+                    int end = consumed + FRAME_HEADER_BYTES + length;
+                    if (end < 0 || end > window.capacity()) {
+                        break;
+                    }
+                    ByteBuffer payload = window.slice(consumed + FRAME_HEADER_BYTES, length);
+                    CRC32 crc = new CRC32();
+                    crc.update(payload.duplicate());
+                    if ((int) crc.getValue() != window.getInt(consumed + Integer.BYTES)
+                            || !apply(payload, put, delete)) {
+                        return records;
+                    }
+                    consumed = end;
+                    records++;
+                }
+                if (consumed == 0) {
+                    // The record at this position runs past the end of the
+                    // file: the write that produced it was cut short.
+                    return records;
+                }
+                position += consumed;
+            }
+            return records;
+        }
+    }
+
+    private static boolean apply(ByteBuffer payload, Consumer<User> put, IntConsumer delete) {
+        try {
+            switch (payload.get()) {
+                case PUT -> put.accept(UserCodec.decode(payload));
+                case DELETE -> delete.accept(payload.getInt());
+                default -> {
+                    return false;
+                }
+            }
+            return true;
+        } catch (BufferUnderflowException e) {
+            return false;
+        }
+    }
+
+    private static byte[] encode(UserChange change) {
+        if (change.isDelete()) {
+            return ByteBuffer.allocate(1 + Integer.BYTES)
+                    .put(DELETE)
+                    .putInt(change.id())
+                    .array();
+        }
+        byte[] user = UserCodec.encode(change.current());
+        return ByteBuffer.allocate(1 + user.length)
+                .put(PUT)
+                .put(user)
+                .array();
+    }
+
+    private void openFile(long generation) throws IOException {
+        channel = FileChannel.open(file(directory, generation), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.generation = generation;
+        region = null;
+        // Writers that reserved in the previous file append into this one.
+        mapRegion(0, regionSize(reservedBytes));
+    }
+
+    private int regionSize(long needed) {
+        if (needed > Integer.MAX_VALUE) {
+            throw new UncheckedIOException(new IOException(
+                    "Cannot map " + needed + " bytes of log at once"));
+        }
+        return Math.max(regionSize, (int) needed);
+    }
+
+    /**
+     * Maps the next region of the current file, growing the file as needed.
+     * The previous region stays queued for the flusher until it is forced.
+     */
+    private void mapRegion(long position, int size) throws IOException {
+        if (region != null) {
+            unforcedRegions.add(region);
+        }
+        region = channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+        regionStart = position;
+    }
+
+    /**
+     * Forces every region written so far. Must be called under the append
+     * lock.
+     */
+    private void forceUnforcedRegions() {
+        for (MappedByteBuffer unforced : unforcedRegions) {
+            unforced.force();
+        }
+        unforcedRegions.clear();
+        region.force();
+        markDurable(appendedBytes);
+    }
+
+    private void runFlusher() {
+        while (!closed) {
+            synchronized (flushMonitor) {
+                try {
+                    if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                        while (!closed && flushRequestedBytes <= durableBytes) {
+                            flushMonitor.wait();
+                        }
+                    } else {
+                        flushMonitor.wait(fsyncIntervalMillis);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            try {
+                flush();
+            } catch (UncheckedIOException e) {
+                synchronized (flushMonitor) {
+                    failure = e;
+                    flushMonitor.notifyAll();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Forces everything appended so far. The regions are collected under
+     * the append lock but forced outside it, so appends continue while the
+     * disk catches up.
+     */
+    private void flush() {
+        List<MappedByteBuffer> toForce;
+        long target;
+        synchronized (appendLock) {
+            if (channel == null || appendedBytes == durableBytes()) {
+                return;
+            }
+            toForce = new ArrayList<>(unforcedRegions);
+            toForce.add(region);
+            unforcedRegions.clear();
+            target = appendedBytes;
+        }
+        for (MappedByteBuffer unforced : toForce) {
+            unforced.force();
+        }
+        markDurable(target);
+    }
+
+    private long durableBytes() {
+        synchronized (flushMonitor) {
+            return durableBytes;
+        }
+    }
+
+    private void markDurable(long bytes) {
+        synchronized (flushMonitor) {
+            if (bytes > durableBytes) {
+                durableBytes = bytes;
+            }
+            flushMonitor.notifyAll();
+        }
+    }
+
+    private void awaitDurable(long bytes) {
+        synchronized (flushMonitor) {
+            if (flushRequestedBytes < bytes) {
+                flushRequestedBytes = bytes;
+                flushMonitor.notifyAll();
+            }
+            try {
+                while (durableBytes < bytes && failure == null && !closed) {
+                    flushMonitor.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (durableBytes < bytes && failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
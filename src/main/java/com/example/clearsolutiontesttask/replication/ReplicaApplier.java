@@ -0,0 +1,140 @@
+package com.example.clearsolutiontesttask.replication;
+
+import com.example.clearsolutiontesttask.dto.ChangeCursor;
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.exception.DuplicateEmailException;
+import com.example.clearsolutiontesttask.repository.UserRepository;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Applies the leader's changes to the local repository, in the order
+ * received, and keeps track of how current the local users are.
+ *
+ * <p>A change may reach the follower before the change that freed its
+ * email: the leader releases an email before the releasing write is
+ * numbered. Such a write is held back and retried after every later
+ * change, and the follower does not count as current while one is held.
+ *
+ * <p>Freshness is tracked with heartbeats: once every change up to a
+ * heartbeat's sequence is applied, the follower is as current as the
+ * leader was when it sent the heartbeat, which is taken to be when the
+ * heartbeat arrived.
+ *
+ * <p>Changes are applied by one thread; {@link #stalenessNanos(long)} may
+ * be called from any thread.
+ */
+final class ReplicaApplier {
+    private static final long NEVER = Long.MIN_VALUE;
+
+    private final UserRepository userRepository;
+    private final Map<Integer, User> heldBack = new LinkedHashMap<>();
+    private final ArrayDeque<long[]> heartbeats = new ArrayDeque<>();
+    private long epoch;
+    private long appliedSequence = -1;
+    private volatile long currentAsOf = NEVER;
+
+    ReplicaApplier(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Returns the position to resume from after a reconnect.
+     *
+     * @return The cursor of the last applied change, or null if the full
+     * state has never been received.
+     */
+    ChangeCursor position() {
+        return appliedSequence < 0 ? null : new ChangeCursor(epoch, appliedSequence);
+    }
+
+    /**
+     * Drops all users, before the leader sends its full state.
+     *
+     * @param epoch    The epoch of the leader's sequence numbers.
+     * @param sequence The sequence the full state is taken at.
+     */
+    void reset(long epoch, long sequence) {
+        userRepository.deleteAll();
+        heldBack.clear();
+        heartbeats.clear();
+        this.epoch = epoch;
+        this.appliedSequence = sequence;
+    }
+
+    void put(long sequence, User user) {
+        heldBack.remove(user.getId());
+        try {
+            userRepository.save(user);
+        } catch (DuplicateEmailException e) {
+            heldBack.put(user.getId(), user);
+        }
+        applied(sequence);
+    }
+
+    void delete(long sequence, int id) {
+        heldBack.remove(id);
+        userRepository.deleteById(id);
+        applied(sequence);
+    }
+
+    /**
+     * Records the leader's latest sequence.
+     *
+     * @param sequence      The sequence from the heartbeat.
+     * @param receivedNanos When the heartbeat arrived, from
+     *                      {@link System#nanoTime()}.
+     */
+    void heartbeat(long sequence, long receivedNanos) {
+        heartbeats.add(new long[] {sequence, receivedNanos});
+        advance();
+    }
+
+    /**
+     * Returns how long ago the local users were last known to be as current
+     * as the leader's.
+     *
+     * @param nowNanos The current {@link System#nanoTime()}.
+     * @return The staleness, or {@link Long#MAX_VALUE} if the follower has
+     * never caught up.
+     */
+    long stalenessNanos(long nowNanos) {
+        long asOf = currentAsOf;
+        return asOf == NEVER ? Long.MAX_VALUE : Math.max(0, nowNanos - asOf);
+    }
+
+    int heldBackCount() {
+        return heldBack.size();
+    }
+
+    private void applied(long sequence) {
+        appliedSequence = Math.max(appliedSequence, sequence);
+        retryHeldBack();
+        advance();
+    }
+
+    private void retryHeldBack() {
+        boolean progress = true;
+        while (progress && !heldBack.isEmpty()) {
+            progress = false;
+            for (Iterator<User> iterator = heldBack.values().iterator(); iterator.hasNext(); ) {
+                try {
+                    userRepository.save(iterator.next());
+                    iterator.remove();
+                    progress = true;
+                } catch (DuplicateEmailException e) {
+                    // Still taken; a later change frees it.
+                }
+            }
+        }
+    }
+
+    private void advance() {
+        while (!heartbeats.isEmpty() && heldBack.isEmpty()
+                && heartbeats.peek()[0] <= appliedSequence) {
+            currentAsOf = heartbeats.poll()[1];
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.clearsolutiontesttask.replication;
+
+import com.example.clearsolutiontesttask.exception.ReadOnlyReplicaException;
+import com.example.clearsolutiontesttask.exception.StaleReplicaException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Lets a follower serve reads only, and only while it is current enough.
+ * Every read is answered with the follower's staleness in the
+ * {@link #STALENESS_HEADER}, so clients can tell how old the data may be.
+ */
+public class ReplicaReadInterceptor implements HandlerInterceptor {
+    /**
+     * Response header with the staleness of the answer, in milliseconds.
+     */
+    public static final String STALENESS_HEADER = "X-Replica-Staleness";
+
+    private final ReplicationFollower follower;
+    private final long maxStalenessMillis;
+
+    public ReplicaReadInterceptor(ReplicationFollower follower, long maxStalenessMillis) {
+        this.follower = follower;
+        this.maxStalenessMillis = maxStalenessMillis;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
+                             Object handler) {
+        String method = request.getMethod();
+        if (!HttpMethod.GET.matches(method) && !HttpMethod.HEAD.matches(method)) {
+            throw new ReadOnlyReplicaException();
+        }
+        long staleness = follower.stalenessMillis();
+        if (staleness > maxStalenessMillis) {
+            throw new StaleReplicaException();
+        }
+        response.setHeader(STALENESS_HEADER, Long.toString(staleness));
+        return true;
+    }
+}
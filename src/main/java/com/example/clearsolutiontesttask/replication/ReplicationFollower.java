@@ -0,0 +1,130 @@
+package com.example.clearsolutiontesttask.replication;
+
+import com.example.clearsolutiontesttask.dto.ChangeCursor;
+import com.example.clearsolutiontesttask.repository.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the local user repository a copy of the leader's by applying the
+ * changes the leader ships, reconnecting whenever the connection is lost.
+ */
+@Component
+@ConditionalOnProperty(prefix = "user.replication", name = "role", havingValue = "follower")
+@EnableConfigurationProperties(ReplicationProperties.class)
+public class ReplicationFollower implements SmartInitializingSingleton {
+    private static final long RECONNECT_DELAY_MILLIS = 200;
+
+    private final ReplicationProperties properties;
+    private final ReplicaApplier applier;
+    private final int readTimeoutMillis;
+    private volatile Socket socket;
+    private volatile boolean closed;
+
+    public ReplicationFollower(ReplicationProperties properties, UserRepository userRepository,
+                               MeterRegistry registry) {
+        this.properties = properties;
+        this.applier = new ReplicaApplier(userRepository);
+        // A leader that misses several heartbeats is presumed gone.
+        this.readTimeoutMillis = (int) Math.max(1000,
+                10 * properties.getHeartbeatInterval().toMillis());
+        Gauge.builder("users.replication.staleness", this, follower -> {
+                    long millis = follower.stalenessMillis();
+                    return millis == Long.MAX_VALUE ? Double.NaN : millis / 1000.0;
+                })
+                .description("Time since the replica was last as current as its leader")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        Thread replicator = new Thread(this::replicate, "user-replication-follower");
+        replicator.setDaemon(true);
+        replicator.start();
+    }
+
+    /**
+     * Returns how long ago the local users were last known to be as current
+     * as the leader's.
+     *
+     * @return The staleness in milliseconds, or {@link Long#MAX_VALUE} if
+     * the follower has not caught up with the leader yet.
+     */
+    public long stalenessMillis() {
+        long nanos = applier.stalenessNanos(System.nanoTime());
+        return nanos == Long.MAX_VALUE ? Long.MAX_VALUE : TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        closed = true;
+        Socket current = socket;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    private void replicate() {
+        while (!closed) {
+            try (Socket connection = new Socket()) {
+                socket = connection;
+                connection.connect(new InetSocketAddress(properties.getHost(),
+                        properties.getPort()), readTimeoutMillis);
+                connection.setSoTimeout(readTimeoutMillis);
+                connection.setTcpNoDelay(true);
+                follow(connection);
+            } catch (IOException e) {
+                // Leader unreachable or connection lost: staleness grows
+                // until we are back.
+            }
+            try {
+                Thread.sleep(RECONNECT_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void follow(Socket connection) throws IOException {
+        var out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+        ChangeCursor position = applier.position();
+        out.writeBoolean(position != null);
+        if (position != null) {
+            out.writeLong(position.epoch());
+            out.writeLong(position.sequence());
+        }
+        out.flush();
+        var in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+        while (!closed) {
+            byte type = in.readByte();
+            switch (type) {
+                case ReplicationProtocol.RESET -> applier.reset(in.readLong(), in.readLong());
+                case ReplicationProtocol.PUT -> {
+                    long sequence = in.readLong();
+                    applier.put(sequence, ReplicationProtocol.readUser(in));
+                }
+                case ReplicationProtocol.DELETE -> {
+                    long sequence = in.readLong();
+                    applier.delete(sequence, in.readInt());
+                }
+                case ReplicationProtocol.HEARTBEAT ->
+                        applier.heartbeat(in.readLong(), System.nanoTime());
+                default -> throw new IOException("Unknown replication message " + type);
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.clearsolutiontesttask.replication;
+
+import com.example.clearsolutiontesttask.dto.ChangeCursor;
+import com.example.clearsolutiontesttask.dto.UserEvent;
+import com.example.clearsolutiontesttask.dto.UserEventBatch;
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.events.UserEventFeed;
+import com.example.clearsolutiontesttask.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ships every write to the user repository to the connected followers.
+ *
+ * <p>The ordered change log is the {@link UserEventFeed}: each follower
+ * session reads it from its own cursor and writes the changes to the
+ * follower's socket, so a slow follower never holds up writers or other
+ * followers. A follower that reconnects continues where it left off; one
+ * that is new, or has fallen further behind than the feed keeps, gets the
+ * full state first.
+ */
+@Component
+@ConditionalOnProperty(prefix = "user.replication", name = "role", havingValue = "leader")
+@EnableConfigurationProperties(ReplicationProperties.class)
+public class ReplicationLeader implements SmartInitializingSingleton {
+    private static final int BATCH_SIZE = 1000;
+
+    private final ReplicationProperties properties;
+    private final UserEventFeed eventFeed;
+    private final UserRepository userRepository;
+    private final long heartbeatNanos;
+    private final Set<Socket> sessions = ConcurrentHashMap.newKeySet();
+    private ServerSocket serverSocket;
+    private volatile boolean closed;
+
+    public ReplicationLeader(ReplicationProperties properties, UserEventFeed eventFeed,
+                             UserRepository userRepository) {
+        this.properties = properties;
+        this.eventFeed = eventFeed;
+        this.userRepository = userRepository;
+        this.heartbeatNanos = properties.getHeartbeatInterval().toNanos();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            serverSocket = new ServerSocket(properties.getPort(), 50,
+                    InetAddress.getByName(properties.getHost()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to listen for followers on "
+                    + properties.getHost() + ":" + properties.getPort(), e);
+        }
+        Thread acceptor = new Thread(this::acceptFollowers, "user-replication-leader");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Returns the port followers connect to, which differs from the
+     * configured one if that was 0.
+     *
+     * @return The local port.
+     */
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        for (Socket session : sessions) {
+            session.close();
+        }
+    }
+
+    private void acceptFollowers() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                sessions.add(socket);
+                Thread session = new Thread(() -> serve(socket),
+                        "user-replication-session-" + socket.getPort());
+                session.setDaemon(true);
+                session.start();
+            } catch (IOException e) {
+                // Closed, or the connection was reset before it was accepted.
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             var in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             var out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            ChangeCursor after = in.readBoolean()
+                    ? new ChangeCursor(in.readLong(), in.readLong()) : null;
+            if (after == null || eventFeed.read(after, 1).isResync()) {
+                after = sendState(out);
+            }
+            streamChanges(after, out);
+        } catch (IOException | InterruptedException e) {
+            // The follower went away, or we are shutting down; it reconnects.
+        } finally {
+            sessions.remove(socket);
+        }
+    }
+
+    private void streamChanges(ChangeCursor after, DataOutputStream out)
+            throws IOException, InterruptedException {
+        long lastHeartbeat = System.nanoTime();
+        CompletableFuture<UserEventBatch> next = eventFeed.poll(after, BATCH_SIZE);
+        while (!closed) {
+            UserEventBatch batch = null;
+            try {
+                batch = next.get(heartbeatNanos, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // Idle: only the heartbeat below.
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+            if (batch != null) {
+                if (batch.isResync()) {
+                    after = sendState(out);
+                } else {
+                    after = sendChanges(after, batch, out);
+                }
+                next = eventFeed.poll(after, BATCH_SIZE);
+            }
+            long now = System.nanoTime();
+            if (batch == null || now - lastHeartbeat >= heartbeatNanos) {
+                out.writeByte(ReplicationProtocol.HEARTBEAT);
+                out.writeLong(eventFeed.head().sequence());
+                lastHeartbeat = now;
+            }
+            out.flush();
+        }
+    }
+
+    private ChangeCursor sendState(DataOutputStream out) throws IOException {
+        // Writes during the scan are sent again as changes after the
+        // cursor, and replaying them ends in the same state.
+        ChangeCursor cursor = eventFeed.head();
+        out.writeByte(ReplicationProtocol.RESET);
+        out.writeLong(cursor.epoch());
+        out.writeLong(cursor.sequence());
+        for (User user : userRepository.findAll()) {
+            ReplicationProtocol.writePut(out, cursor.sequence(), user);
+        }
+        return cursor;
+    }
+
+    private static ChangeCursor sendChanges(ChangeCursor after, UserEventBatch batch,
+                                            DataOutputStream out) throws IOException {
+        long sequence = after.sequence();
+        for (UserEvent event : batch.getEvents()) {
+            sequence = event.sequence();
+            if (event.type() == UserEvent.Type.DELETED) {
+                out.writeByte(ReplicationProtocol.DELETE);
+                out.writeLong(sequence);
+                out.writeInt(event.id());
+            } else {
+                ReplicationProtocol.writePut(out, sequence, event.user());
+            }
+        }
+        return new ChangeCursor(after.epoch(), sequence);
+    }
+}
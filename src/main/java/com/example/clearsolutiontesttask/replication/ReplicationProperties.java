@@ -0,0 +1,38 @@
+package com.example.clearsolutiontesttask.replication;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the optional leader/follower replication, bound from the
+ * {@code user.replication.*} properties.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "user.replication")
+public class ReplicationProperties {
+    /**
+     * Whether this node is a leader, a follower, or neither.
+     */
+    private ReplicationRole role = ReplicationRole.NONE;
+    /**
+     * Address the leader listens on for followers, and followers connect
+     * to.
+     */
+    private String host = "127.0.0.1";
+    /**
+     * Port the leader listens on for followers, and followers connect to.
+     */
+    private int port = 7070;
+    /**
+     * How often the leader tells idle followers its latest position, which
+     * bounds how precisely followers know their staleness.
+     */
+    private Duration heartbeatInterval = Duration.ofMillis(100);
+    /**
+     * How far behind the leader a follower may be and still serve reads.
+     */
+    private Duration maxStaleness = Duration.ofSeconds(5);
+}
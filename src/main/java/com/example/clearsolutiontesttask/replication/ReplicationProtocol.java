@@ -0,0 +1,56 @@
+package com.example.clearsolutiontesttask.replication;
+
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.persistence.UserCodec;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Messages exchanged between a leader and a follower.
+ *
+ * <p>On connecting, the follower sends its position: a flag and, if set,
+ * the epoch and sequence of the last change it applied. From then on only
+ * the leader sends. If it cannot continue from the follower's position, it
+ * starts with {@link #RESET} and the full state: a {@link #PUT} of every
+ * user at the reset's sequence. After that come the changes in sequence
+ * order, {@link #PUT} with the new state of a user or {@link #DELETE}, and
+ * every now and then a {@link #HEARTBEAT} with the leader's latest
+ * sequence.
+ */
+final class ReplicationProtocol {
+    /**
+     * {@code [epoch: long][sequence: long]}: drop all users.
+     */
+    static final byte RESET = 1;
+    /**
+     * {@code [sequence: long][length: int][user: UserCodec]}.
+     */
+    static final byte PUT = 2;
+    /**
+     * {@code [sequence: long][id: int]}.
+     */
+    static final byte DELETE = 3;
+    /**
+     * {@code [sequence: long]}: the leader's latest sequence when sent.
+     */
+    static final byte HEARTBEAT = 4;
+
+    private ReplicationProtocol() {
+    }
+
+    static void writePut(DataOutputStream out, long sequence, User user) throws IOException {
+        byte[] bytes = UserCodec.encode(user);
+        out.writeByte(PUT);
+        out.writeLong(sequence);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static User readUser(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return UserCodec.decode(ByteBuffer.wrap(bytes));
+    }
+}
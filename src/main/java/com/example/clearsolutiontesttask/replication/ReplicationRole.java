@@ -0,0 +1,19 @@
+package com.example.clearsolutiontesttask.replication;
+
+/**
+ * Part a node plays in replicating the user store.
+ */
+public enum ReplicationRole {
+    /**
+     * No replication.
+     */
+    NONE,
+    /**
+     * Accepts writes and ships them to followers.
+     */
+    LEADER,
+    /**
+     * Applies the leader's writes and serves reads only.
+     */
+    FOLLOWER
+}
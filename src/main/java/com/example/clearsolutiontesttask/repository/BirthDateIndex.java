@@ -0,0 +1,113 @@
+package com.example.clearsolutiontesttask.repository;
+
+import com.example.clearsolutiontesttask.dto.BirthDateCursor;
+import com.example.clearsolutiontesttask.entity.User;
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+/**
+ * Sorted secondary index of user IDs by birth date.
+ *
+ * <p>Each entry packs the birth date's epoch day into the high half of a
+ * {@code long} and the user ID into the low half, so entries sort by birth
+ * date first and ID second and a date range maps onto one contiguous
+ * sub-set of a concurrent skip list.
+ */
+final class BirthDateIndex {
+    private static final long ID_MASK = 0xFFFF_FFFFL;
+
+    private final ConcurrentSkipListSet<Long> entries = new ConcurrentSkipListSet<>();
+    // The skip list counts its entries by traversal; keep a cheap count.
+    private final AtomicInteger size = new AtomicInteger();
+
+    void add(int id, LocalDate birthDate) {
+        if (birthDate != null && entries.add(key(birthDate, id))) {
+            size.incrementAndGet();
+        }
+    }
+
+    void remove(int id, LocalDate birthDate) {
+        if (birthDate != null && entries.remove(key(birthDate, id))) {
+            size.decrementAndGet();
+        }
+    }
+
+    /**
+     * Moves a user's entry if the birth date changed.
+     *
+     * @param id        The user ID.
+     * @param oldDate   The previously indexed birth date, may be null.
+     * @param newDate   The new birth date, may be null.
+     */
+    void update(int id, LocalDate oldDate, LocalDate newDate) {
+        if (oldDate == null ? newDate != null : !oldDate.equals(newDate)) {
+            add(id, newDate);
+            remove(id, oldDate);
+        }
+    }
+
+    /**
+     * Lazily streams the users born between the dates, both inclusive, in
+     * birth date then ID order, optionally resuming after a cursor.
+     *
+     * <p>Entries are resolved through the primary index while the stream is
+     * consumed, so memory use does not depend on the size of the range. An
+     * entry whose user was deleted, or whose birth date was changed by a
+     * writer racing with the stream, is skipped, so no user is reported
+     * twice.
+     *
+     * @param fromDate The first birth date to include.
+     * @param toDate   The last birth date to include.
+     * @param after    Only users strictly after this position are returned;
+     *                 may be null to start at the beginning of the range.
+     * @param users    Looks up the current user by ID, returning null if absent.
+     * @return The matching users.
+     */
+    Stream<User> streamBetween(LocalDate fromDate, LocalDate toDate,
+                               BirthDateCursor after, IntFunction<User> users) {
+        long low = epochDayBits(fromDate);
+        boolean lowInclusive = true;
+        if (after != null && key(after.birthDate(), after.id()) >= low) {
+            low = key(after.birthDate(), after.id());
+            lowInclusive = false;
+        }
+        long high = epochDayBits(toDate) | ID_MASK;
+        if (low > high) {
+            return Stream.empty();
+        }
+        return entries.subSet(low, lowInclusive, high, true).stream()
+                .map(entry -> {
+                    User user = users.apply((int) entry.longValue());
+                    return user != null && user.getBirthDate() != null
+                            && key(user.getBirthDate(), user.getId()) == entry
+                            && !user.getBirthDate().isBefore(fromDate)
+                            && !user.getBirthDate().isAfter(toDate) ? user : null;
+                })
+                .filter(Objects::nonNull);
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    void clear() {
+        entries.clear();
+        size.set(0);
+    }
+
+    private static long key(LocalDate birthDate, int id) {
+        return epochDayBits(birthDate) | (id & ID_MASK);
+    }
+
+    private static long epochDayBits(LocalDate date) {
+        // Dates beyond the int range of epoch days are clamped; callers
+        // re-check the real birth date of every returned user.
+        long epochDay = Math.max(Integer.MIN_VALUE,
+                Math.min(Integer.MAX_VALUE, date.toEpochDay()));
+        return epochDay << 32;
+    }
+}
@@ -0,0 +1,622 @@
+package com.example.clearsolutiontesttask.repository;
+
+import com.example.clearsolutiontesttask.dto.BirthDateCursor;
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.exception.DuplicateEmailException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Memory-compact user repository that stores users in primitive columns
+ * instead of one {@link User} object per user. Selected with
+ * {@code user.store.type=columnar}.
+ *
+ * <p>Each user is a row across parallel arrays: the ID and the birth date
+ * as an epoch day are plain {@code int}s, first and last names are codes
+ * into a {@link StringDictionary}, and the email, phone number and address
+ * are references into a {@link Utf8Arena}, which can live off-heap. Rows
+ * are found by ID and by email through open-addressing tables of row
+ * numbers, which hold no keys of their own. {@link User} objects are only
+ * built when a user is read.
+ *
+ * <p>All access goes through one read-write lock, so writes do not run in
+ * parallel as they do in {@link InMemoryUserRepository}, and since reads
+ * build fresh objects, {@link #replace(User, User)} and
+ * {@link #delete(User)} compare the stored user with the expected one by
+ * value instead of by identity.
+ */
+@Component
+@ConditionalOnProperty(prefix = "user.store", name = "type", havingValue = "columnar")
+public class ColumnarUserRepository implements UserRepository {
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    // Epoch day of birth dates outside the int range; see farDates.
+    private static final int FAR_DATE = Integer.MIN_VALUE + 1;
+    private static final int INITIAL_ROWS = 16;
+
+    private final StampedLock lock = new StampedLock();
+    private final List<UserChangeListener> listeners;
+    private final boolean offHeap;
+    private final BirthDateIndex birthDateIndex = new BirthDateIndex();
+    private final StringDictionary names = new StringDictionary();
+    private final RowTable rowsById = new RowTable();
+    private final RowTable rowsByEmail = new RowTable();
+    private final Map<Integer, LocalDate> farDates = new HashMap<>();
+    private Utf8Arena strings;
+
+    private int[] ids = new int[INITIAL_ROWS];
+    private long[] versions = new long[INITIAL_ROWS];
+    private int[] epochDays = new int[INITIAL_ROWS];
+    private int[] firstNames = new int[INITIAL_ROWS];
+    private int[] lastNames = new int[INITIAL_ROWS];
+    private long[] emails = new long[INITIAL_ROWS];
+    private int[] emailHashes = new int[INITIAL_ROWS];
+    private long[] phoneNumbers = new long[INITIAL_ROWS];
+    private long[] addresses = new long[INITIAL_ROWS];
+    private int rowCount;
+    private int[] freeRows = new int[INITIAL_ROWS];
+    private int freeCount;
+    private final IntUnaryOperator idHash = row -> IntObjectHashMap.mix(ids[row]);
+    private final IntUnaryOperator emailHash = row -> emailHashes[row];
+
+    public ColumnarUserRepository() {
+        this(List.of(), false);
+    }
+
+    @Autowired
+    public ColumnarUserRepository(ObjectProvider<UserChangeListener> listeners,
+                                  @Value("${user.store.off-heap:false}") boolean offHeap) {
+        this(listeners.orderedStream().toList(), offHeap);
+    }
+
+    public ColumnarUserRepository(List<UserChangeListener> listeners, boolean offHeap) {
+        this.listeners = listeners;
+        this.offHeap = offHeap;
+        this.strings = new Utf8Arena(offHeap);
+    }
+
+    @Override
+    public Optional<User> findById(int id) {
+        return Optional.ofNullable(get(id));
+    }
+
+    private User get(int id) {
+        long stamp = lock.readLock();
+        try {
+            int row = rowOf(id);
+            return row < 0 ? null : materialize(row);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        String normalized = EmailIndex.normalize(email);
+        if (normalized == null) {
+            return Optional.empty();
+        }
+        long stamp = lock.readLock();
+        try {
+            int row = rowOfEmail(normalized);
+            return row < 0 ? Optional.empty() : Optional.of(materialize(row));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public User save(User user) {
+        beforeChange(List.of(user), 0);
+        long stamp = lock.writeLock();
+        try {
+            int row = rowOf(user.getId());
+            write(row, row < 0 ? null : materialize(row), user);
+        } finally {
+            lock.unlockWrite(stamp);
+            afterChange();
+        }
+        return user;
+    }
+
+    @Override
+    public List<User> saveAll(List<User> users) {
+        beforeChange(users, 0);
+        List<User> rejected = new ArrayList<>();
+        long stamp = lock.writeLock();
+        try {
+            for (User user : users) {
+                int row = rowOf(user.getId());
+                try {
+                    write(row, row < 0 ? null : materialize(row), user);
+                } catch (DuplicateEmailException e) {
+                    rejected.add(user);
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+            afterChange();
+        }
+        return rejected;
+    }
+
+    @Override
+    public boolean replace(User user) {
+        beforeChange(List.of(user), 0);
+        long stamp = lock.writeLock();
+        try {
+            int row = rowOf(user.getId());
+            if (row < 0) {
+                return false;
+            }
+            write(row, materialize(row), user);
+        } finally {
+            lock.unlockWrite(stamp);
+            afterChange();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean replace(User current, User updated) {
+        beforeChange(List.of(updated), 0);
+        long stamp = lock.writeLock();
+        try {
+            int row = rowOf(current.getId());
+            if (row < 0) {
+                return false;
+            }
+            User stored = materialize(row);
+            if (!stored.equals(current)) {
+                return false;
+            }
+            write(row, stored, updated);
+        } finally {
+            lock.unlockWrite(stamp);
+            afterChange();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean delete(User current) {
+        beforeChange(List.of(), 1);
+        long stamp = lock.writeLock();
+        try {
+            int row = rowOf(current.getId());
+            if (row < 0) {
+                return false;
+            }
+            User stored = materialize(row);
+            if (!stored.equals(current)) {
+                return false;
+            }
+            removeRow(row, stored);
+        } finally {
+            lock.unlockWrite(stamp);
+            afterChange();
+        }
+        return true;
+    }
+
+    @Override
+    public List<UserChange> applyAll(List<UserChange> writes) {
+        List<User> written = new ArrayList<>(writes.size());
+        for (UserChange write : writes) {
+            if (!write.isDelete()) {
+                written.add(write.current());
+            }
+        }
+        beforeChange(written, writes.size() - written.size());
+        List<UserChange> rejected = new ArrayList<>();
+        long stamp = lock.writeLock();
+        try {
+            for (UserChange write : writes) {
+                int row = rowOf(write.id());
+                User stored = row < 0 ? null : materialize(row);
+                if (stored == null || !stored.equals(write.previous())) {
+                    rejected.add(write);
+                } else if (write.isDelete()) {
+                    removeRow(row, stored);
+                } else {
+                    try {
+                        write(row, stored, write.current());
+                    } catch (DuplicateEmailException e) {
+                        rejected.add(write);
+                    }
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+            afterChange();
+        }
+        return rejected;
+    }
+
+    @Override
+    public boolean deleteById(int id) {
+        beforeChange(List.of(), 1);
+        long stamp = lock.writeLock();
+        try {
+            int row = rowOf(id);
+            if (row < 0) {
+                return false;
+            }
+            removeRow(row, materialize(row));
+        } finally {
+            lock.unlockWrite(stamp);
+            afterChange();
+        }
+        return true;
+    }
+
+    @Override
+    public List<User> findAll() {
+        long stamp = lock.readLock();
+        try {
+            List<User> users = new ArrayList<>(rowsById.size());
+            forEachRow(row -> users.add(materialize(row)));
+            return users;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The users are materialized under the read lock, so writers wait
+     * until all of them are.
+     */
+    @Override
+    public List<User> snapshotById() {
+        long stamp = lock.readLock();
+        try {
+            long[] keys = new long[rowsById.size()];
+            int[] next = new int[1];
+            forEachRow(row -> keys[next[0]++] = (long) ids[row] << 32 | row);
+            Arrays.parallelSort(keys);
+            List<User> users = new ArrayList<>(keys.length);
+            for (long key : keys) {
+                users.add(materialize((int) key));
+            }
+            return users;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public List<User> findAllByBirthDateBetween(LocalDate fromDate, LocalDate toDate) {
+        return streamByBirthDateBetween(fromDate, toDate, null).toList();
+    }
+
+    @Override
+    public Stream<User> streamByBirthDateBetween(LocalDate fromDate, LocalDate toDate,
+                                                 BirthDateCursor after) {
+        return birthDateIndex.streamBetween(fromDate, toDate, after, this::get);
+    }
+
+    @Override
+    public int count() {
+        long stamp = lock.readLock();
+        try {
+            return rowsById.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public Map<String, Integer> indexSizes() {
+        long stamp = lock.readLock();
+        try {
+            return Map.of("birthDate", birthDateIndex.size(), "email", rowsByEmail.size());
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void deleteAll() {
+        long stamp = lock.writeLock();
+        try {
+            // The number of deletes is only known under the lock.
+            beforeChange(List.of(), rowsById.size());
+            if (!listeners.isEmpty()) {
+                forEachRow(row -> notifyListeners(materialize(row), null));
+            }
+            rowsById.clear();
+            rowsByEmail.clear();
+            birthDateIndex.clear();
+            names.clear();
+            farDates.clear();
+            strings = new Utf8Arena(offHeap);
+            rowCount = 0;
+            freeCount = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+            afterChange();
+        }
+    }
+
+    /**
+     * Returns the bytes allocated for the string arena, including unused
+     * page space; for footprint reports.
+     *
+     * @return The allocated arena bytes.
+     */
+    public long stringBytes() {
+        long stamp = lock.readLock();
+        try {
+            return strings.capacity();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Stores a user into a row, or into a new row if {@code row} is
+     * negative. Must be called under the write lock.
+     *
+     * @throws DuplicateEmailException if another row has the same email;
+     *                                 nothing is changed then.
+     */
+    private void write(int row, User previous, User user) {
+        String email = EmailIndex.normalize(user.getEmail());
+        String previousEmail = previous == null ? null : EmailIndex.normalize(previous.getEmail());
+        boolean emailChanged = !Objects.equals(email, previousEmail);
+        if (email != null && emailChanged && rowOfEmail(email) >= 0) {
+            throw new DuplicateEmailException(user.getEmail());
+        }
+        if (row < 0) {
+            row = allocateRow();
+            ids[row] = user.getId();
+            rowsById.add(row, idHash);
+        } else {
+            if (emailChanged && previousEmail != null) {
+                rowsByEmail.remove(row, emailHash);
+            }
+            releaseValues(row);
+        }
+        versions[row] = user.getVersion();
+        epochDays[row] = toEpochDay(row, user.getBirthDate());
+        firstNames[row] = names.acquire(user.getFirstName());
+        lastNames[row] = names.acquire(user.getLastName());
+        emails[row] = strings.put(user.getEmail());
+        emailHashes[row] = email == null ? 0 : IntObjectHashMap.mix(email.hashCode());
+        phoneNumbers[row] = strings.put(user.getPhoneNumber());
+        addresses[row] = strings.put(user.getAddress());
+        if (email != null && emailChanged) {
+            rowsByEmail.add(row, emailHash);
+        }
+        birthDateIndex.update(user.getId(),
+                previous == null ? null : previous.getBirthDate(), user.getBirthDate());
+        notifyListeners(previous, user);
+        compactStringsIfWasteful();
+    }
+
+    /**
+     * Deletes the user stored in a row. Must be called under the write
+     * lock.
+     */
+    private void removeRow(int row, User previous) {
+        rowsById.remove(row, idHash);
+        if (emails[row] != Utf8Arena.NULL) {
+            rowsByEmail.remove(row, emailHash);
+        }
+        birthDateIndex.remove(previous.getId(), previous.getBirthDate());
+        clearRow(row);
+        notifyListeners(previous, null);
+    }
+
+    private User materialize(int row) {
+        int epochDay = epochDays[row];
+        return new User()
+                .setId(ids[row])
+                .setVersion(versions[row])
+                .setEmail(strings.get(emails[row]))
+                .setFirstName(names.get(firstNames[row]))
+                .setLastName(names.get(lastNames[row]))
+                .setBirthDate(epochDay == NO_DATE ? null
+                        : epochDay == FAR_DATE ? farDates.get(row)
+                        : LocalDate.ofEpochDay(epochDay))
+                .setPhoneNumber(strings.get(phoneNumbers[row]))
+                .setAddress(strings.get(addresses[row]));
+    }
+
+    private int toEpochDay(int row, LocalDate birthDate) {
+        if (birthDate == null) {
+            return NO_DATE;
+        }
+        long epochDay = birthDate.toEpochDay();
+        if (epochDay <= FAR_DATE || epochDay > Integer.MAX_VALUE) {
+            farDates.put(row, birthDate);
+            return FAR_DATE;
+        }
+        return (int) epochDay;
+    }
+
+    private int rowOf(int id) {
+        return rowsById.find(IntObjectHashMap.mix(id), row -> ids[row] == id);
+    }
+
+    private int rowOfEmail(String normalized) {
+        return rowsByEmail.find(IntObjectHashMap.mix(normalized.hashCode()),
+                row -> normalized.equals(EmailIndex.normalize(strings.get(emails[row]))));
+    }
+
+    private int allocateRow() {
+        if (freeCount > 0) {
+            return freeRows[--freeCount];
+        }
+        if (rowCount == ids.length) {
+            int capacity = rowCount + (rowCount >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            firstNames = Arrays.copyOf(firstNames, capacity);
+            lastNames = Arrays.copyOf(lastNames, capacity);
+            emails = Arrays.copyOf(emails, capacity);
+            emailHashes = Arrays.copyOf(emailHashes, capacity);
+            phoneNumbers = Arrays.copyOf(phoneNumbers, capacity);
+            addresses = Arrays.copyOf(addresses, capacity);
+        }
+        return rowCount++;
+    }
+
+    private void releaseValues(int row) {
+        if (epochDays[row] == FAR_DATE) {
+            farDates.remove(row);
+        }
+        names.release(firstNames[row]);
+        names.release(lastNames[row]);
+        strings.free(emails[row]);
+        strings.free(phoneNumbers[row]);
+        strings.free(addresses[row]);
+    }
+
+    private void clearRow(int row) {
+        releaseValues(row);
+        if (freeCount == freeRows.length) {
+            freeRows = Arrays.copyOf(freeRows, freeCount * 2);
+        }
+        freeRows[freeCount++] = row;
+    }
+
+    private void forEachRow(IntConsumer action) {
+        rowsById.forEach(action);
+    }
+
+    /**
+     * Copies the live strings into a fresh arena once more than half of
+     * the old one is garbage. Must be called under the write lock.
+     */
+    private void compactStringsIfWasteful() {
+        if (strings.garbageBytes() <= Math.max(strings.liveBytes(), Utf8Arena.PAGE_SIZE)) {
+            return;
+        }
+        Utf8Arena old = strings;
+        strings = new Utf8Arena(offHeap);
+        forEachRow(row -> {
+            emails[row] = strings.put(old.get(emails[row]));
+            phoneNumbers[row] = strings.put(old.get(phoneNumbers[row]));
+            addresses[row] = strings.put(old.get(addresses[row]));
+        });
+    }
+
+    private void notifyListeners(User previous, User current) {
+        if (!listeners.isEmpty()) {
+            var change = new UserChange(previous, current);
+            for (UserChangeListener listener : listeners) {
+                listener.onChange(change);
+            }
+        }
+    }
+
+    private void beforeChange(Collection<User> written, int deleted) {
+        for (UserChangeListener listener : listeners) {
+            listener.beforeChange(written, deleted);
+        }
+    }
+
+    private void afterChange() {
+        for (UserChangeListener listener : listeners) {
+            listener.afterChange();
+        }
+    }
+
+    /**
+     * Open-addressing hash set of row numbers, with linear probing and
+     * backward-shift deletion. The keys live in the columns, so callers
+     * pass the hash and equality of the key they look for, and how to
+     * re-hash a stored row.
+     */
+    private static final class RowTable {
+        private int[] slots = new int[16];
+        private int size;
+
+        int find(int hash, IntPredicate matches) {
+            int mask = slots.length - 1;
+            for (int i = hash & mask; slots[i] != 0; i = (i + 1) & mask) {
+                if (matches.test(slots[i] - 1)) {
+                    return slots[i] - 1;
+                }
+            }
+            return -1;
+        }
+
+        void add(int row, IntUnaryOperator hashOf) {
+            if ((size + 1) * 4L > slots.length * 3L) {
+                int[] old = slots;
+                slots = new int[old.length * 2];
+                for (int slot : old) {
+                    if (slot != 0) {
+                        insert(slot - 1, hashOf);
+                    }
+                }
+            }
+            insert(row, hashOf);
+            size++;
+        }
+
+        void remove(int row, IntUnaryOperator hashOf) {
+            int mask = slots.length - 1;
+            int hole = hashOf.applyAsInt(row) & mask;
+            while (slots[hole] != row + 1) {
+                hole = (hole + 1) & mask;
+            }
+            for (int i = (hole + 1) & mask; slots[i] != 0; i = (i + 1) & mask) {
+                int home = hashOf.applyAsInt(slots[i] - 1) & mask;
+                if (((i - home) & mask) >= ((i - hole) & mask)) {
+                    slots[hole] = slots[i];
+                    hole = i;
+                }
+            }
+            slots[hole] = 0;
+            size--;
+        }
+
+        void forEach(IntConsumer action) {
+            for (int slot : slots) {
+                if (slot != 0) {
+                    action.accept(slot - 1);
+                }
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            slots = new int[16];
+            size = 0;
+        }
+
+        private void insert(int row, IntUnaryOperator hashOf) {
+            int mask = slots.length - 1;
+            int i = hashOf.applyAsInt(row) & mask;
+            while (slots[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            slots[i] = row + 1;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.clearsolutiontesttask.repository;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Unique index of user IDs by normalized email address.
+ *
+ * <p>An email is claimed with a single {@code putIfAbsent}, so of two
+ * writers racing for the same address, across any stripes, exactly one
+ * wins. The entries of a user are only ever changed under that user's
+ * stripe lock, which keeps them in step with the primary table.
+ */
+final class EmailIndex {
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+
+    /**
+     * Normalizes an email for comparison: surrounding blanks are ignored
+     * and case does not matter.
+     *
+     * @param email The email, may be null.
+     * @return The normalized email, or null.
+     */
+    static String normalize(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Claims the email for a user, unless another user holds it.
+     *
+     * @param id    The user ID.
+     * @param email The normalized email, may be null.
+     * @return true if the user now holds the email, false if another user
+     * does.
+     */
+    boolean claim(int id, String email) {
+        if (email == null) {
+            return true;
+        }
+        Integer holder = ids.putIfAbsent(email, id);
+        return holder == null || holder == id;
+    }
+
+    /**
+     * Releases a user's email, if the user holds it.
+     *
+     * @param id    The user ID.
+     * @param email The normalized email, may be null.
+     */
+    void release(int id, String email) {
+        if (email != null) {
+            ids.remove(email, id);
+        }
+    }
+
+    /**
+     * Finds the holder of an email.
+     *
+     * @param email The normalized email.
+     * @return The user ID, or null if nobody holds the email.
+     */
+    Integer find(String email) {
+        return ids.get(email);
+    }
+
+    int size() {
+        return ids.size();
+    }
+
+    void clear() {
+        ids.clear();
+    }
+}
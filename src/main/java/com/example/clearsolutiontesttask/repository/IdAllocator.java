@@ -0,0 +1,40 @@
+package com.example.clearsolutiontesttask.repository;
+
+/**
+ * Hands out user IDs. Implementations must be safe to call from concurrent
+ * request threads and must never return the same ID twice.
+ */
+public interface IdAllocator {
+    /**
+     * Allocates the next free user ID.
+     *
+     * @return A new, unique user ID.
+     */
+    int nextId();
+
+    /**
+     * Allocates a contiguous block of user IDs in one step.
+     *
+     * @param count The number of IDs to allocate.
+     * @return The first ID of the block; the block ends at
+     * {@code first + count - 1}.
+     */
+    int nextIds(int count);
+
+    /**
+     * Returns the largest count that {@link #nextIds(int)} accepts.
+     *
+     * @return The maximum number of contiguous IDs in one allocation.
+     */
+    default int maxContiguousIds() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Makes sure that IDs up to and including the given one are never
+     * handed out, e.g. after users were restored from disk.
+     *
+     * @param id The highest ID known to be in use.
+     */
+    void advancePast(int id);
+}
@@ -0,0 +1,545 @@
+package com.example.clearsolutiontesttask.repository;
+
+import com.example.clearsolutiontesttask.dto.BirthDateCursor;
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.exception.DuplicateEmailException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory user repository backed by an ID-indexed hash table, so lookup,
+ * update and delete by ID take constant time.
+ *
+ * <p>The table is split into independently locked stripes, so writes to
+ * different IDs rarely contend. Reads are optimistic and never block
+ * writers; they fall back to a read lock only when a write to the same
+ * stripe raced with them. Stored users are treated as immutable: writers
+ * always replace the whole {@link User}, so a reader never observes a
+ * half-applied update.
+ *
+ * <p>A {@link BirthDateIndex} is kept in sync by every write, under the
+ * same stripe lock as the primary entry, so birth date range queries cost
+ * O(log n + k) instead of a full scan. An {@link EmailIndex} enforces
+ * unique emails: a write claims the new email before it touches the
+ * primary table and fails if another user holds it. {@link UserChangeListener}s
+ * are notified of each write under the same lock as well.
+ */
+@Component
+@ConditionalOnProperty(prefix = "user.store", name = "type", havingValue = "heap",
+        matchIfMissing = true)
+public class InMemoryUserRepository implements UserRepository {
+    private static final int OPTIMISTIC_SNAPSHOT_ATTEMPTS = 3;
+
+    private final Stripe[] stripes;
+    private final int stripeShift;
+    private final BirthDateIndex birthDateIndex = new BirthDateIndex();
+    private final EmailIndex emailIndex = new EmailIndex();
+    private final List<UserChangeListener> listeners;
+
+    public InMemoryUserRepository() {
+        this(List.of());
+    }
+
+    @Autowired
+    public InMemoryUserRepository(ObjectProvider<UserChangeListener> listeners) {
+        this(listeners.orderedStream().toList());
+    }
+
+    public InMemoryUserRepository(List<UserChangeListener> listeners) {
+        this(Runtime.getRuntime().availableProcessors() * 4, listeners);
+    }
+
+    InMemoryUserRepository(int concurrencyLevel, List<UserChangeListener> listeners) {
+        this.listeners = listeners;
+        int stripeCount = 16;
+        while (stripeCount < concurrencyLevel) {
+            stripeCount <<= 1;
+        }
+        stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+        stripeShift = Integer.SIZE - Integer.numberOfTrailingZeros(stripeCount);
+    }
+
+    @Override
+    public Optional<User> findById(int id) {
+        return Optional.ofNullable(get(id));
+    }
+
+    private User get(int id) {
+        Stripe stripe = stripeFor(id);
+        long stamp = stripe.lock.tryOptimisticRead();
+        User user = stripe.users.get(id);
+        if (!stripe.lock.validate(stamp)) {
+            stamp = stripe.lock.readLock();
+            try {
+                user = stripe.users.get(id);
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        return user;
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        String normalized = EmailIndex.normalize(email);
+        Integer id = normalized == null ? null : emailIndex.find(normalized);
+        User user = id == null ? null : get(id);
+        // The holder may have changed its email since the index was read.
+        return user != null && normalized.equals(EmailIndex.normalize(user.getEmail()))
+                ? Optional.of(user) : Optional.empty();
+    }
+
+    @Override
+    public User save(User user) {
+        beforeChange(List.of(user), 0);
+        Stripe stripe = stripeFor(user.getId());
+        long stamp = stripe.lock.writeLock();
+        try {
+            claimEmail(user);
+            applied(stripe.users.put(user.getId(), user), user);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+            afterChange();
+        }
+        return user;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Users are grouped by stripe first, so that each stripe lock is
+     * taken once per batch rather than once per user.
+     */
+    @Override
+    public List<User> saveAll(List<User> users) {
+        beforeChange(users, 0);
+        try {
+            List<User> rejected = new ArrayList<>();
+            User[] byStripe = new User[users.size()];
+            int[] stripeCounts = groupByStripe(users, User::getId, byStripe);
+            for (int s = 0; s < stripes.length; s++) {
+                if (stripeCounts[s] == stripeCounts[s + 1]) {
+                    continue;
+                }
+                Stripe stripe = stripes[s];
+                long stamp = stripe.lock.writeLock();
+                try {
+                    for (int i = stripeCounts[s]; i < stripeCounts[s + 1]; i++) {
+                        User user = byStripe[i];
+                        if (emailIndex.claim(user.getId(), EmailIndex.normalize(user.getEmail()))) {
+                            applied(stripe.users.put(user.getId(), user), user);
+                        } else {
+                            rejected.add(user);
+                        }
+                    }
+                } finally {
+                    stripe.lock.unlockWrite(stamp);
+                }
+            }
+            return rejected;
+        } finally {
+            afterChange();
+        }
+    }
+
+    @Override
+    public boolean replace(User user) {
+        beforeChange(List.of(user), 0);
+        Stripe stripe = stripeFor(user.getId());
+        long stamp = stripe.lock.writeLock();
+        try {
+            User previous = stripe.users.get(user.getId());
+            if (previous == null) {
+                return false;
+            }
+            claimEmail(user);
+            stripe.users.put(user.getId(), user);
+            applied(previous, user);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+            afterChange();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean replace(User current, User updated) {
+        beforeChange(List.of(updated), 0);
+        Stripe stripe = stripeFor(current.getId());
+        long stamp = stripe.lock.writeLock();
+        try {
+            if (stripe.users.get(current.getId()) != current) {
+                return false;
+            }
+            if (!sameEmail(current, updated)) {
+                claimEmail(updated);
+            }
+            stripe.users.put(current.getId(), updated);
+            applied(current, updated);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+            afterChange();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean delete(User current) {
+        beforeChange(List.of(), 1);
+        Stripe stripe = stripeFor(current.getId());
+        long stamp = stripe.lock.writeLock();
+        try {
+            if (stripe.users.get(current.getId()) != current) {
+                return false;
+            }
+            stripe.users.remove(current.getId());
+            applied(current, null);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+            afterChange();
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Writes are grouped by stripe, like in {@link #saveAll(List)}.
+     */
+    @Override
+    public List<UserChange> applyAll(List<UserChange> writes) {
+        List<User> written = new ArrayList<>(writes.size());
+        for (UserChange write : writes) {
+            if (!write.isDelete()) {
+                written.add(write.current());
+            }
+        }
+        beforeChange(written, writes.size() - written.size());
+        try {
+            List<UserChange> rejected = new ArrayList<>();
+            UserChange[] byStripe = new UserChange[writes.size()];
+            int[] stripeCounts = groupByStripe(writes, UserChange::id, byStripe);
+            for (int s = 0; s < stripes.length; s++) {
+                if (stripeCounts[s] == stripeCounts[s + 1]) {
+                    continue;
+                }
+                Stripe stripe = stripes[s];
+                long stamp = stripe.lock.writeLock();
+                try {
+                    for (int i = stripeCounts[s]; i < stripeCounts[s + 1]; i++) {
+                        if (!apply(stripe, byStripe[i])) {
+                            rejected.add(byStripe[i]);
+                        }
+                    }
+                } finally {
+                    stripe.lock.unlockWrite(stamp);
+                }
+            }
+            return rejected;
+        } finally {
+            afterChange();
+        }
+    }
+
+    /**
+     * Applies one write of {@link #applyAll(List)}. Must be called under
+     * the stripe's write lock.
+     */
+    private boolean apply(Stripe stripe, UserChange write) {
+        User previous = write.previous();
+        User current = write.current();
+        if (stripe.users.get(previous.getId()) != previous) {
+            return false;
+        }
+        if (current == null) {
+            stripe.users.remove(previous.getId());
+        } else {
+            if (!sameEmail(previous, current) && !emailIndex.claim(current.getId(),
+                    EmailIndex.normalize(current.getEmail()))) {
+                return false;
+            }
+            stripe.users.put(current.getId(), current);
+        }
+        applied(previous, current);
+        return true;
+    }
+
+    @Override
+    public boolean deleteById(int id) {
+        beforeChange(List.of(), 1);
+        Stripe stripe = stripeFor(id);
+        long stamp = stripe.lock.writeLock();
+        try {
+            User previous = stripe.users.remove(id);
+            if (previous == null) {
+                return false;
+            }
+            applied(previous, null);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+            afterChange();
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Each stripe is copied atomically, but stripes are copied one after
+     * another, so writes that land while the copy is running may or may not
+     * be included.
+     */
+    @Override
+    public List<User> findAll() {
+        List<User> users = new ArrayList<>(count());
+        for (Stripe stripe : stripes) {
+            int mark = users.size();
+            long stamp = stripe.lock.tryOptimisticRead();
+            stripe.users.forEachValue(users::add);
+            if (!stripe.lock.validate(stamp)) {
+                users.subList(mark, users.size()).clear();
+                stamp = stripe.lock.readLock();
+                try {
+                    stripe.users.forEachValue(users::add);
+                } finally {
+                    stripe.lock.unlockRead(stamp);
+                }
+            }
+        }
+        return users;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>All stripes are first copied optimistically, which succeeds if no
+     * write lands anywhere during the copy. Only after a few failed attempts
+     * are the read locks of all stripes held at once, which makes writers
+     * wait for as long as it takes to copy the references to the users.
+     */
+    @Override
+    public List<User> snapshotById() {
+        long[] stamps = new long[stripes.length];
+        for (int attempt = 0; attempt < OPTIMISTIC_SNAPSHOT_ATTEMPTS; attempt++) {
+            for (int i = 0; i < stripes.length; i++) {
+                stamps[i] = stripes[i].lock.tryOptimisticRead();
+            }
+            List<User> users = new ArrayList<>(count());
+            for (Stripe stripe : stripes) {
+                stripe.users.forEachValue(users::add);
+            }
+            boolean consistent = true;
+            for (int i = 0; i < stripes.length && consistent; i++) {
+                consistent = stripes[i].lock.validate(stamps[i]);
+            }
+            if (consistent) {
+                return sortById(users);
+            }
+        }
+        List<User> users = new ArrayList<>(count());
+        for (int i = 0; i < stripes.length; i++) {
+            stamps[i] = stripes[i].lock.readLock();
+        }
+        try {
+            for (Stripe stripe : stripes) {
+                stripe.users.forEachValue(users::add);
+            }
+        } finally {
+            for (int i = 0; i < stripes.length; i++) {
+                stripes[i].lock.unlockRead(stamps[i]);
+            }
+        }
+        return sortById(users);
+    }
+
+    private static List<User> sortById(List<User> users) {
+        // Sorting packed (ID, position) pairs avoids comparing through
+        // references.
+        long[] keys = new long[users.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (long) users.get(i).getId() << 32 | i;
+        }
+        Arrays.parallelSort(keys);
+        User[] sorted = new User[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            sorted[i] = users.get((int) keys[i]);
+        }
+        return Arrays.asList(sorted);
+    }
+
+    @Override
+    public List<User> findAllByBirthDateBetween(LocalDate fromDate, LocalDate toDate) {
+        return streamByBirthDateBetween(fromDate, toDate, null).toList();
+    }
+
+    @Override
+    public Stream<User> streamByBirthDateBetween(LocalDate fromDate, LocalDate toDate,
+                                                 BirthDateCursor after) {
+        return birthDateIndex.streamBetween(fromDate, toDate, after, this::get);
+    }
+
+    @Override
+    public int count() {
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            long stamp = stripe.lock.tryOptimisticRead();
+            int size = stripe.users.size();
+            if (!stripe.lock.validate(stamp)) {
+                stamp = stripe.lock.readLock();
+                try {
+                    size = stripe.users.size();
+                } finally {
+                    stripe.lock.unlockRead(stamp);
+                }
+            }
+            count += size;
+        }
+        return count;
+    }
+
+    @Override
+    public Map<String, Integer> indexSizes() {
+        return Map.of("birthDate", birthDateIndex.size(), "email", emailIndex.size());
+    }
+
+    @Override
+    public void deleteAll() {
+        long[] stamps = new long[stripes.length];
+        for (int i = 0; i < stripes.length; i++) {
+            stamps[i] = stripes[i].lock.writeLock();
+        }
+        try {
+            // The number of deletes is only known under the locks.
+            int deleted = 0;
+            for (Stripe stripe : stripes) {
+                deleted += stripe.users.size();
+            }
+            beforeChange(List.of(), deleted);
+            for (Stripe stripe : stripes) {
+                if (!listeners.isEmpty()) {
+                    stripe.users.forEachValue(user -> notifyListeners(user, null));
+                }
+                stripe.users.clear();
+            }
+            birthDateIndex.clear();
+            emailIndex.clear();
+        } finally {
+            for (int i = 0; i < stripes.length; i++) {
+                stripes[i].lock.unlockWrite(stamps[i]);
+            }
+            afterChange();
+        }
+    }
+
+    /**
+     * Claims the email of a user about to be written. Must be called under
+     * the stripe's write lock, before the primary table is changed.
+     */
+    private void claimEmail(User user) {
+        if (!emailIndex.claim(user.getId(), EmailIndex.normalize(user.getEmail()))) {
+            throw new DuplicateEmailException(user.getEmail());
+        }
+    }
+
+    /**
+     * Brings the secondary indexes and the listeners up to date with a
+     * write to the primary table. Must be called under the stripe's write
+     * lock.
+     */
+    private void applied(User previous, User current) {
+        if (current == null) {
+            birthDateIndex.remove(previous.getId(), previous.getBirthDate());
+        } else {
+            birthDateIndex.update(current.getId(),
+                    previous == null ? null : previous.getBirthDate(),
+                    current.getBirthDate());
+        }
+        if (previous != null && (current == null || !sameEmail(previous, current))) {
+            emailIndex.release(previous.getId(), EmailIndex.normalize(previous.getEmail()));
+        }
+        notifyListeners(previous, current);
+    }
+
+    private static boolean sameEmail(User previous, User current) {
+        // Patches carry untouched fields over by reference.
+        return previous.getEmail() == current.getEmail()
+                || Objects.equals(EmailIndex.normalize(previous.getEmail()),
+                EmailIndex.normalize(current.getEmail()));
+    }
+
+    private void notifyListeners(User previous, User current) {
+        if (!listeners.isEmpty()) {
+            var change = new UserChange(previous, current);
+            for (UserChangeListener listener : listeners) {
+                listener.onChange(change);
+            }
+        }
+    }
+
+    private void beforeChange(Collection<User> written, int deleted) {
+        for (UserChangeListener listener : listeners) {
+            listener.beforeChange(written, deleted);
+        }
+    }
+
+    private void afterChange() {
+        for (UserChangeListener listener : listeners) {
+            listener.afterChange();
+        }
+    }
+
+    /**
+     * Sorts items by the stripe of their ID, so that each stripe lock is
+     * taken once per batch.
+     *
+     * @param items   The items to sort.
+     * @param idOf    The user ID of an item.
+     * @param grouped Receives the items, stripe after stripe.
+     * @return For each stripe, the position of its first item in
+     * {@code grouped}, and finally the number of items.
+     */
+    private <T> int[] groupByStripe(List<T> items, ToIntFunction<T> idOf, T[] grouped) {
+        int[] stripeCounts = new int[stripes.length + 1];
+        for (T item : items) {
+            stripeCounts[stripeIndex(idOf.applyAsInt(item)) + 1]++;
+        }
+        for (int i = 1; i < stripeCounts.length; i++) {
+            stripeCounts[i] += stripeCounts[i - 1];
+        }
+        int[] next = Arrays.copyOf(stripeCounts, stripes.length);
+        for (T item : items) {
+            grouped[next[stripeIndex(idOf.applyAsInt(item))]++] = item;
+        }
+        return stripeCounts;
+    }
+
+    private Stripe stripeFor(int id) {
+        return stripes[stripeIndex(id)];
+    }
+
+    private int stripeIndex(int id) {
+        // High bits pick the stripe; the table inside uses the low bits.
+        return IntObjectHashMap.mix(id) >>> stripeShift;
+    }
+
+    private static final class Stripe {
+        private final StampedLock lock = new StampedLock();
+        private final IntObjectHashMap<User> users = new IntObjectHashMap<>();
+    }
+}
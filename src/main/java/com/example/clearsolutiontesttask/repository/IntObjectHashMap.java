@@ -0,0 +1,200 @@
+package com.example.clearsolutiontesttask.repository;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Open-addressing hash map with primitive {@code int} keys.
+ *
+ * <p>Uses linear probing with backward-shift deletion, so no tombstones are
+ * left behind and lookups stay short after many removals. A slot is free
+ * when its value is {@code null}, which is why {@code null} values are not
+ * supported. The map is not thread-safe; callers guard writes externally.
+ * {@link #get(int)} tolerates running concurrently with a writer: it may
+ * return a stale or wrong answer, but never fails, so it can be used under
+ * an optimistic read that the caller validates afterwards.
+ *
+ * @param <V> The type of mapped values.
+ */
+final class IntObjectHashMap<V> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private Table table;
+    private int size;
+    private int threshold;
+
+    IntObjectHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    IntObjectHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Returns the value mapped to the key, or {@code null} if there is none.
+     *
+     * @param key The key to look up.
+     * @return The mapped value or {@code null}.
+     */
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        Table t = table;
+        int[] keys = t.keys;
+        Object[] values = t.values;
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        // Bounded so that a torn view of the table cannot loop forever.
+        for (int probes = 0; probes <= mask; probes++, i = (i + 1) & mask) {
+            Object value = values[i];
+            if (value == null) {
+                return null;
+            }
+            if (keys[i] == key) {
+                return (V) value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Maps the key to the value, replacing any previous mapping.
+     *
+     * @param key   The key.
+     * @param value The non-null value.
+     * @return The previously mapped value or {@code null}.
+     */
+    @SuppressWarnings("unchecked")
+    V put(int key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null values are not supported");
+        }
+        int[] keys = table.keys;
+        Object[] values = table.values;
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V previous = (V) values[i];
+                values[i] = value;
+                return previous;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size >= threshold) {
+            resize(keys.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * Removes the mapping for the key.
+     *
+     * @param key The key to remove.
+     * @return The removed value or {@code null} if the key was absent.
+     */
+    @SuppressWarnings("unchecked")
+    V remove(int key) {
+        int[] keys = table.keys;
+        Object[] values = table.values;
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V previous = (V) values[i];
+                shiftBack(keys, values, i, mask);
+                size--;
+                return previous;
+            }
+        }
+        return null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(table.values, null);
+        size = 0;
+    }
+
+    /**
+     * Passes every value to the action, in table order.
+     *
+     * @param action The action to apply.
+     */
+    @SuppressWarnings("unchecked")
+    void forEachValue(Consumer<? super V> action) {
+        for (Object value : table.values) {
+            if (value != null) {
+                action.accept((V) value);
+            }
+        }
+    }
+
+    private static void shiftBack(int[] keys, Object[] values, int hole, int mask) {
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            if (values[i] == null) {
+                break;
+            }
+            int home = mix(keys[i]) & mask;
+            // Move the entry into the hole unless its home lies cyclically
+            // between the hole and its current position.
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        values[hole] = null;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = table.keys;
+        Object[] oldValues = table.values;
+        int[] keys = new int[capacity];
+        Object[] values = new Object[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldValues.length; j++) {
+            if (oldValues[j] != null) {
+                int i = mix(oldKeys[j]) & mask;
+                while (values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+        table = new Table(keys, values);
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void allocate(int capacity) {
+        table = new Table(new int[capacity], new Object[capacity]);
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity * LOAD_FACTOR <= expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Keys and values published together, so a reader never pairs arrays
+     * of different sizes.
+     */
+    private record Table(int[] keys, Object[] values) {
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.clearsolutiontesttask.repository;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Allocates user IDs from a single atomic counter starting at 1. Used
+ * unless the users are partitioned across a cluster.
+ */
+@Component
+@ConditionalOnProperty(prefix = "user.cluster", name = "enabled", havingValue = "false",
+        matchIfMissing = true)
+public class SequentialIdAllocator implements IdAllocator {
+    private final AtomicInteger lastId = new AtomicInteger();
+
+    @Override
+    public int nextId() {
+        return lastId.incrementAndGet();
+    }
+
+    @Override
+    public int nextIds(int count) {
+        return lastId.getAndAdd(count) + 1;
+    }
+
+    @Override
+    public void advancePast(int id) {
+        lastId.accumulateAndGet(id, Math::max);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.clearsolutiontesttask.repository;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reference-counted dictionary that stores each distinct string once and
+ * hands out small integer codes for it.
+ *
+ * <p>Meant for low-cardinality columns such as first names, where a
+ * million rows share a few thousand values: each row then costs one
+ * {@code int} instead of its own {@link String}. Codes of values no row
+ * references any more are reused. The dictionary is not thread-safe.
+ */
+final class StringDictionary {
+    /**
+     * Code of the {@code null} value.
+     */
+    static final int NULL = -1;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private String[] values = new String[16];
+    private int[] references = new int[16];
+    private int[] freeCodes = new int[16];
+    private int freeCount;
+    private int nextCode;
+
+    /**
+     * Adds a reference to a value, adding the value if it is new.
+     *
+     * @param value The value, may be null.
+     * @return The code of the value.
+     */
+    int acquire(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = freeCount > 0 ? freeCodes[--freeCount] : nextCode++;
+            if (code == values.length) {
+                values = Arrays.copyOf(values, code * 2);
+                references = Arrays.copyOf(references, code * 2);
+            }
+            values[code] = value;
+            codes.put(value, code);
+        }
+        references[code]++;
+        return code;
+    }
+
+    /**
+     * Drops a reference to a value, removing the value once it has none.
+     *
+     * @param code The code returned by {@link #acquire(String)}.
+     */
+    void release(int code) {
+        if (code == NULL || --references[code] > 0) {
+            return;
+        }
+        codes.remove(values[code]);
+        values[code] = null;
+        if (freeCount == freeCodes.length) {
+            freeCodes = Arrays.copyOf(freeCodes, freeCount * 2);
+        }
+        freeCodes[freeCount++] = code;
+    }
+
+    /**
+     * Returns the value of a code.
+     *
+     * @param code The code.
+     * @return The value, or null for {@link #NULL}.
+     */
+    String get(int code) {
+        return code == NULL ? null : values[code];
+    }
+
+    /**
+     * Returns the number of distinct values.
+     *
+     * @return The number of values.
+     */
+    int size() {
+        return codes.size();
+    }
+
+    void clear() {
+        codes.clear();
+        Arrays.fill(values, null);
+        Arrays.fill(references, 0);
+        freeCount = 0;
+        nextCode = 0;
+    }
+}
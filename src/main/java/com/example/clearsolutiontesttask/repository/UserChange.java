@@ -0,0 +1,26 @@
+package com.example.clearsolutiontesttask.repository;
+
+import com.example.clearsolutiontesttask.entity.User;
+
+/**
+ * A single write to the user repository.
+ *
+ * @param previous The stored user before the write, or null if the user
+ *                 was created.
+ * @param current  The stored user after the write, or null if the user
+ *                 was deleted.
+ */
+public record UserChange(User previous, User current) {
+    /**
+     * Returns the ID of the written user.
+     *
+     * @return The user ID.
+     */
+    public int id() {
+        return current != null ? current.getId() : previous.getId();
+    }
+
+    public boolean isDelete() {
+        return current == null;
+    }
+}
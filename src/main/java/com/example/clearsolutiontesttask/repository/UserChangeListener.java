@@ -0,0 +1,44 @@
+package com.example.clearsolutiontesttask.repository;
+
+import com.example.clearsolutiontesttask.entity.User;
+import java.util.Collection;
+
+/**
+ * Callback for components that must follow every write to the user
+ * repository, such as logs and derived indexes.
+ *
+ * <p>{@link #onChange(UserChange)} runs while the repository still holds
+ * the lock for the written ID, so changes to the same user are observed in
+ * the order they were applied. It must be fast and must not call back into
+ * the repository. Slow follow-up work, such as waiting for a disk flush,
+ * belongs in {@link #afterChange()}, which runs on the same thread once
+ * the lock is released. Work that may fail, and must then keep the write
+ * from happening at all, belongs in {@link #beforeChange(Collection, int)}.
+ */
+public interface UserChangeListener {
+    /**
+     * Called once per repository operation, before it changes anything,
+     * with the most the operation may write. Throwing rejects the operation
+     * with nothing applied; otherwise {@link #afterChange()} is called when
+     * the operation ends, whether it wrote anything or not.
+     *
+     * @param written The users the operation may store.
+     * @param deleted The number of users the operation may delete.
+     */
+    default void beforeChange(Collection<User> written, int deleted) {
+    }
+
+    /**
+     * Called for each user written, inside the repository lock.
+     *
+     * @param change The write.
+     */
+    void onChange(UserChange change);
+
+    /**
+     * Called once per repository operation, after all its changes were
+     * reported and the locks were released, also if the operation failed.
+     */
+    default void afterChange() {
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.clearsolutiontesttask.repository;
+
+import com.example.clearsolutiontesttask.dto.BirthDateCursor;
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.exception.DuplicateEmailException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Storage abstraction for users, keyed by user ID.
+ */
+public interface UserRepository {
+    /**
+     * Finds a user by ID.
+     *
+     * @param id The ID of the user.
+     * @return The user, or an empty optional if it does not exist.
+     */
+    Optional<User> findById(int id);
+
+    /**
+     * Finds a user by email. Emails are compared ignoring case and
+     * surrounding blanks.
+     *
+     * @param email The email of the user.
+     * @return The user, or an empty optional if no user has the email.
+     */
+    Optional<User> findByEmail(String email);
+
+    /**
+     * Stores the user under its ID, replacing any existing user with the
+     * same ID.
+     *
+     * @param user The user to store.
+     * @return The stored user.
+     * @throws DuplicateEmailException if another user has the same email.
+     */
+    User save(User user);
+
+    /**
+     * Stores many users in one pass, replacing existing users with the same
+     * IDs. This is cheaper than calling {@link #save(User)} for each user.
+     * Users whose email another user already has, including one earlier in
+     * the same batch, are skipped.
+     *
+     * @param users The users to store.
+     * @return The skipped users; empty if all were stored.
+     */
+    List<User> saveAll(List<User> users);
+
+    /**
+     * Replaces the stored user with the same ID, but only if one exists.
+     *
+     * @param user The new state of the user.
+     * @return true if the user existed and was replaced, false otherwise.
+     * @throws DuplicateEmailException if another user has the same email.
+     */
+    boolean replace(User user);
+
+    /**
+     * Atomically replaces the stored user, but only if it is still the
+     * given instance, i.e. nobody else wrote it in the meantime.
+     *
+     * @param current The instance previously read from the repository.
+     * @param updated The new state of the user, with the same ID.
+     * @return true if the user was replaced, false if it changed or no
+     * longer exists.
+     * @throws DuplicateEmailException if another user has the same email.
+     */
+    boolean replace(User current, User updated);
+
+    /**
+     * Atomically deletes the stored user, but only if it is still the given
+     * instance, i.e. nobody else wrote it in the meantime.
+     *
+     * @param current The instance previously read from the repository.
+     * @return true if the user was deleted, false if it changed or no
+     * longer exists.
+     */
+    boolean delete(User current);
+
+    /**
+     * Applies many conditional writes in one pass. Each write replaces the
+     * stored user with {@link UserChange#current()}, or deletes it if that is
+     * null, but only if the stored user is still
+     * {@link UserChange#previous()}, as for {@link #replace(User, User)} and
+     * {@link #delete(User)}. This is cheaper than writing the users one by
+     * one, and listeners see the whole batch before
+     * {@link UserChangeListener#afterChange()} runs once.
+     *
+     * @param writes The writes, each for a different user.
+     * @return The writes not applied, because the user changed or no longer
+     * exists, or because another user has the new email; empty if all were
+     * applied.
+     */
+    List<UserChange> applyAll(List<UserChange> writes);
+
+    /**
+     * Deletes a user by ID.
+     *
+     * @param id The ID of the user to delete.
+     * @return true if the user existed and was deleted, false otherwise.
+     */
+    boolean deleteById(int id);
+
+    /**
+     * Returns all stored users in no particular order.
+     *
+     * @return A list of all users.
+     */
+    List<User> findAll();
+
+    /**
+     * Returns all users as they were at a single point in time, so that
+     * every write either is entirely included or not at all.
+     *
+     * @return A list of all users, ordered by ID.
+     */
+    List<User> snapshotById();
+
+    /**
+     * Finds users born between the given dates, both inclusive.
+     *
+     * @param fromDate The first birth date to include.
+     * @param toDate   The last birth date to include.
+     * @return The matching users, ordered by birth date and then by ID.
+     */
+    List<User> findAllByBirthDateBetween(LocalDate fromDate, LocalDate toDate);
+
+    /**
+     * Lazily streams users born between the given dates, both inclusive,
+     * without materializing the whole result.
+     *
+     * @param fromDate The first birth date to include.
+     * @param toDate   The last birth date to include.
+     * @param after    Only users strictly after this position are returned;
+     *                 may be null to start at the beginning of the range.
+     * @return The matching users, ordered by birth date and then by ID.
+     */
+    Stream<User> streamByBirthDateBetween(LocalDate fromDate, LocalDate toDate,
+                                          BirthDateCursor after);
+
+    /**
+     * Returns the number of stored users.
+     *
+     * @return The number of users.
+     */
+    int count();
+
+    /**
+     * Returns the number of entries of each secondary index, for monitoring.
+     * The set of index names never changes.
+     *
+     * @return The index sizes by index name.
+     */
+    Map<String, Integer> indexSizes();
+
+    /**
+     * Deletes all users.
+     */
+    void deleteAll();
+}
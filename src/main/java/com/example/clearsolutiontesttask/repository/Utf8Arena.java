@@ -0,0 +1,127 @@
+package com.example.clearsolutiontesttask.repository;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only storage of strings as UTF-8 bytes in large pages, on or off
+ * the Java heap.
+ *
+ * <p>A stored string is addressed by a single {@code long} reference that
+ * packs its page, offset and length, so a column of strings is a
+ * {@code long[]} rather than an array of {@link String} objects. Freed
+ * strings leave garbage behind; the owner tracks it with
+ * {@link #garbageBytes()} and copies the live strings into a fresh arena
+ * when it grows too large. The arena is not thread-safe.
+ */
+final class Utf8Arena {
+    /**
+     * Reference of the {@code null} string.
+     */
+    static final long NULL = -1L;
+    static final int PAGE_SIZE = 1 << 20;
+    private static final int LENGTH_BITS = 24;
+    private static final int OFFSET_BITS = 20;
+
+    private final boolean offHeap;
+    private final List<ByteBuffer> pages = new ArrayList<>();
+    private ByteBuffer page;
+    private long liveBytes;
+    private long garbageBytes;
+
+    /**
+     * Creates an empty arena.
+     *
+     * @param offHeap Whether to allocate the pages as direct buffers.
+     */
+    Utf8Arena(boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * Stores a string.
+     *
+     * @param value The string, may be null.
+     * @return The reference of the stored bytes.
+     */
+    long put(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= 1 << LENGTH_BITS) {
+            throw new IllegalArgumentException("String of " + bytes.length
+                    + " bytes is too long to store");
+        }
+        if (page == null || page.remaining() < bytes.length) {
+            // Oversized strings get a page of their own.
+            int size = Math.max(PAGE_SIZE, bytes.length);
+            page = offHeap ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+            pages.add(page);
+        }
+        int offset = page.position();
+        page.put(bytes);
+        liveBytes += bytes.length;
+        return (long) (pages.size() - 1) << (OFFSET_BITS + LENGTH_BITS)
+                | (long) offset << LENGTH_BITS
+                | bytes.length;
+    }
+
+    /**
+     * Reads a stored string.
+     *
+     * @param reference The reference returned by {@link #put(String)}.
+     * @return The string, or null for {@link #NULL}.
+     */
+    String get(long reference) {
+        if (reference == NULL) {
+            return null;
+        }
+        ByteBuffer source = pages.get((int) (reference >>> (OFFSET_BITS + LENGTH_BITS)));
+        int offset = (int) (reference >>> LENGTH_BITS) & ((1 << OFFSET_BITS) - 1);
+        int length = (int) reference & ((1 << LENGTH_BITS) - 1);
+        if (source.hasArray()) {
+            return new String(source.array(), source.arrayOffset() + offset, length,
+                    StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[length];
+        source.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Marks a stored string as no longer used.
+     *
+     * @param reference The reference returned by {@link #put(String)}.
+     */
+    void free(long reference) {
+        if (reference != NULL) {
+            int length = (int) reference & ((1 << LENGTH_BITS) - 1);
+            liveBytes -= length;
+            garbageBytes += length;
+        }
+    }
+
+    long liveBytes() {
+        return liveBytes;
+    }
+
+    long garbageBytes() {
+        return garbageBytes;
+    }
+
+    /**
+     * Returns the bytes allocated for pages, used or not.
+     *
+     * @return The allocated bytes.
+     */
+    long capacity() {
+        long capacity = 0;
+        for (ByteBuffer buffer : pages) {
+            capacity += buffer.capacity();
+        }
+        return capacity;
+    }
+}
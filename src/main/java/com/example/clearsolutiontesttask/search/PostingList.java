@@ -0,0 +1,330 @@
+package com.example.clearsolutiontesttask.search;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Set of non-negative user IDs, split into chunks of 65536 consecutive
+ * IDs that are each stored in the more compact of two forms.
+ *
+ * <p>A sparse chunk is a sorted array of the low 16 bits of its IDs, two
+ * bytes per ID. Once it holds more than {@link #ARRAY_MAX} IDs it becomes
+ * a bitmap of all 65536 slots, which takes 8 KiB whatever its cardinality
+ * and tests membership in constant time; it turns back into an array when
+ * it shrinks to half that. Queries intersect chunk by chunk on bitmaps
+ * (see {@link #copyChunk} and {@link #retainChunk}), so intersecting dense
+ * lists costs one {@code AND} per 64 IDs.
+ *
+ * <p>All methods are thread-safe. Readers share a read lock, held for one
+ * chunk at a time.
+ */
+final class PostingList {
+    static final int ARRAY_MAX = 4096;
+    static final int CHUNK_WORDS = 1 << 10;
+
+    private final StampedLock lock = new StampedLock();
+    private int[] keys = new int[1];
+    private Chunk[] chunks = new Chunk[1];
+    private int chunkCount;
+    private int size;
+
+    /**
+     * Adds an ID.
+     *
+     * @param id The ID, not negative.
+     * @return true if the ID was not in the list yet.
+     */
+    boolean add(int id) {
+        long stamp = lock.writeLock();
+        try {
+            int index = Arrays.binarySearch(keys, 0, chunkCount, id >>> 16);
+            if (index < 0) {
+                index = -index - 1;
+                insertChunk(index, id >>> 16);
+            }
+            if (!chunks[index].add((char) id)) {
+                return false;
+            }
+            size++;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes an ID.
+     *
+     * @param id The ID.
+     * @return true if the ID was in the list.
+     */
+    boolean remove(int id) {
+        long stamp = lock.writeLock();
+        try {
+            int index = Arrays.binarySearch(keys, 0, chunkCount, id >>> 16);
+            if (index < 0 || !chunks[index].remove((char) id)) {
+                return false;
+            }
+            if (chunks[index].cardinality == 0) {
+                removeChunk(index);
+            }
+            size--;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Checks whether the list contains an ID.
+     *
+     * @param id The ID.
+     * @return true if the ID is in the list.
+     */
+    boolean contains(int id) {
+        long stamp = lock.readLock();
+        try {
+            int index = Arrays.binarySearch(keys, 0, chunkCount, id >>> 16);
+            return index >= 0 && chunks[index].contains((char) id);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the number of IDs in the list.
+     *
+     * @return The number of IDs.
+     */
+    int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the first non-empty chunk at or after the given one.
+     *
+     * @param key The chunk key, i.e. the ID shifted right by 16 bits.
+     * @return The chunk key, or -1 if there is none.
+     */
+    int nextChunk(int key) {
+        long stamp = lock.readLock();
+        try {
+            int index = Arrays.binarySearch(keys, 0, chunkCount, key);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return index < chunkCount ? keys[index] : -1;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Writes a chunk of the list into a bitmap.
+     *
+     * @param key  The chunk key.
+     * @param into The bitmap of {@link #CHUNK_WORDS} words, overwritten.
+     * @return false if the chunk is empty.
+     */
+    boolean copyChunk(int key, long[] into) {
+        Arrays.fill(into, 0L);
+        long stamp = lock.readLock();
+        try {
+            int index = Arrays.binarySearch(keys, 0, chunkCount, key);
+            if (index < 0) {
+                return false;
+            }
+            chunks[index].orInto(into);
+            return true;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Clears the bits of a bitmap whose IDs are not in a chunk of the list.
+     *
+     * @param key     The chunk key.
+     * @param bitmap  The bitmap of {@link #CHUNK_WORDS} words to narrow.
+     * @param scratch A bitmap of the same size, overwritten.
+     * @return false if no bit is left set.
+     */
+    boolean retainChunk(int key, long[] bitmap, long[] scratch) {
+        long stamp = lock.readLock();
+        try {
+            int index = Arrays.binarySearch(keys, 0, chunkCount, key);
+            if (index < 0) {
+                return false;
+            }
+            return chunks[index].retainIn(bitmap, scratch);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Intersects a chunk of several lists into a bitmap.
+     *
+     * @param lists   The lists, best ordered from the smallest.
+     * @param key     The chunk key.
+     * @param bitmap  The bitmap of {@link #CHUNK_WORDS} words, overwritten
+     *                with the IDs of the chunk that are in every list.
+     * @param scratch A bitmap of the same size, overwritten.
+     * @return false if no ID of the chunk is in every list.
+     */
+    static boolean intersectChunk(PostingList[] lists, int key, long[] bitmap,
+                                  long[] scratch) {
+        if (!lists[0].copyChunk(key, bitmap)) {
+            return false;
+        }
+        for (int i = 1; i < lists.length; i++) {
+            if (!lists[i].retainChunk(key, bitmap, scratch)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void insertChunk(int index, int key) {
+        if (chunkCount == keys.length) {
+            keys = Arrays.copyOf(keys, chunkCount * 2);
+            chunks = Arrays.copyOf(chunks, chunkCount * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, chunkCount - index);
+        System.arraycopy(chunks, index, chunks, index + 1, chunkCount - index);
+        keys[index] = key;
+        chunks[index] = new Chunk();
+        chunkCount++;
+    }
+
+    private void removeChunk(int index) {
+        System.arraycopy(keys, index + 1, keys, index, chunkCount - index - 1);
+        System.arraycopy(chunks, index + 1, chunks, index, chunkCount - index - 1);
+        chunkCount--;
+        chunks[chunkCount] = null;
+    }
+
+    /**
+     * The IDs of one chunk: either the sorted {@code array} of their low 16
+     * bits, or a {@code bitmap}, never both.
+     */
+    private static final class Chunk {
+        private char[] array = new char[2];
+        private long[] bitmap;
+        private int cardinality;
+
+        boolean add(char value) {
+            if (bitmap != null) {
+                long bit = 1L << value;
+                if ((bitmap[value >>> 6] & bit) != 0) {
+                    return false;
+                }
+                bitmap[value >>> 6] |= bit;
+                cardinality++;
+                return true;
+            }
+            int position = cardinality == 0 || array[cardinality - 1] < value
+                    ? -cardinality - 1
+                    : Arrays.binarySearch(array, 0, cardinality, value);
+            if (position >= 0) {
+                return false;
+            }
+            if (cardinality == ARRAY_MAX) {
+                long[] bits = new long[CHUNK_WORDS];
+                orInto(bits);
+                bitmap = bits;
+                array = null;
+                return add(value);
+            }
+            position = -position - 1;
+            if (cardinality == array.length) {
+                array = Arrays.copyOf(array, Math.min(cardinality * 2, ARRAY_MAX));
+            }
+            System.arraycopy(array, position, array, position + 1, cardinality - position);
+            array[position] = value;
+            cardinality++;
+            return true;
+        }
+
+        boolean remove(char value) {
+            if (bitmap != null) {
+                long bit = 1L << value;
+                if ((bitmap[value >>> 6] & bit) == 0) {
+                    return false;
+                }
+                bitmap[value >>> 6] &= ~bit;
+                cardinality--;
+                if (cardinality == ARRAY_MAX / 2) {
+                    toArray();
+                }
+                return true;
+            }
+            int position = Arrays.binarySearch(array, 0, cardinality, value);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(array, position + 1, array, position, cardinality - position - 1);
+            cardinality--;
+            return true;
+        }
+
+        boolean contains(char value) {
+            return bitmap != null
+                    ? (bitmap[value >>> 6] & (1L << value)) != 0
+                    : Arrays.binarySearch(array, 0, cardinality, value) >= 0;
+        }
+
+        void orInto(long[] into) {
+            if (bitmap != null) {
+                for (int i = 0; i < CHUNK_WORDS; i++) {
+                    into[i] |= bitmap[i];
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    into[array[i] >>> 6] |= 1L << array[i];
+                }
+            }
+        }
+
+        boolean retainIn(long[] into, long[] scratch) {
+            long any = 0;
+            if (bitmap != null) {
+                for (int i = 0; i < CHUNK_WORDS; i++) {
+                    into[i] &= bitmap[i];
+                    any |= into[i];
+                }
+                return any != 0;
+            }
+            Arrays.fill(scratch, 0L);
+            for (int i = 0; i < cardinality; i++) {
+                char value = array[i];
+                long bit = 1L << value;
+                if ((into[value >>> 6] & bit) != 0) {
+                    scratch[value >>> 6] |= bit;
+                    any = 1;
+                }
+            }
+            System.arraycopy(scratch, 0, into, 0, CHUNK_WORDS);
+            return any != 0;
+        }
+
+        private void toArray() {
+            char[] values = new char[ARRAY_MAX];
+            int count = 0;
+            for (int i = 0; i < CHUNK_WORDS; i++) {
+                long word = bitmap[i];
+                while (word != 0) {
+                    values[count++] = (char) (i << 6 | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            array = values;
+            bitmap = null;
+        }
+    }
+}
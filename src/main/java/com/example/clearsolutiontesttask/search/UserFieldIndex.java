@@ -0,0 +1,191 @@
+package com.example.clearsolutiontesttask.search;
+
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.repository.UserChange;
+import com.example.clearsolutiontesttask.repository.UserChangeListener;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntPredicate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exact-match indexes of the users by last name prefix and by email
+ * domain, for filtering queries.
+ *
+ * <p>Each last name is indexed under its lower-cased first one, two and
+ * three characters, and each email under its lower-cased domain. The IDs
+ * are kept in {@link PostingList}s, so the sizes of the lists are exact
+ * match counts for the planner, and several filters are combined by
+ * intersecting their bitmaps chunk by chunk. A prefix longer than
+ * {@link #PREFIX_LENGTH} characters only narrows down to the users sharing
+ * its first three characters, so the caller must check the candidates.
+ */
+@Component
+public class UserFieldIndex implements UserChangeListener {
+    /**
+     * Longest last name prefix that is indexed.
+     */
+    static final int PREFIX_LENGTH = 3;
+
+    private final ConcurrentHashMap<String, PostingList> lastNamePrefixes =
+            new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, PostingList> emailDomains = new ConcurrentHashMap<>();
+    private final LongAdder lastNameEntries = new LongAdder();
+    private final LongAdder emailDomainEntries = new LongAdder();
+
+    public UserFieldIndex(MeterRegistry registry) {
+        Gauge.builder("users.index.size", lastNameEntries, LongAdder::sum)
+                .description("Number of entries in a secondary index")
+                .tag("index", "last-name")
+                .register(registry);
+        Gauge.builder("users.index.size", emailDomainEntries, LongAdder::sum)
+                .description("Number of entries in a secondary index")
+                .tag("index", "email-domain")
+                .register(registry);
+    }
+
+    @Override
+    public void onChange(UserChange change) {
+        User previous = change.previous();
+        User current = change.current();
+        int id = change.id();
+        String oldName = previous == null ? null : normalize(previous.getLastName());
+        String newName = current == null ? null : normalize(current.getLastName());
+        if (!Objects.equals(oldName, newName)) {
+            for (int length = 1; length <= PREFIX_LENGTH; length++) {
+                String oldPrefix = prefix(oldName, length);
+                String newPrefix = prefix(newName, length);
+                if (!Objects.equals(oldPrefix, newPrefix)) {
+                    remove(lastNamePrefixes, oldPrefix, id, lastNameEntries);
+                    add(lastNamePrefixes, newPrefix, id, lastNameEntries);
+                }
+            }
+        }
+        String oldDomain = previous == null ? null : emailDomain(previous.getEmail());
+        String newDomain = current == null ? null : emailDomain(current.getEmail());
+        if (!Objects.equals(oldDomain, newDomain)) {
+            remove(emailDomains, oldDomain, id, emailDomainEntries);
+            add(emailDomains, newDomain, id, emailDomainEntries);
+        }
+    }
+
+    /**
+     * Counts the users whose last name starts with the first characters of
+     * a prefix.
+     *
+     * @param prefix A normalized prefix, not empty.
+     * @return The number of users sharing the first {@link #PREFIX_LENGTH}
+     * characters of the prefix; an upper bound for longer prefixes.
+     */
+    public int countLastNamePrefix(String prefix) {
+        return size(lastNamePrefixes.get(indexedPrefix(prefix)));
+    }
+
+    /**
+     * Counts the users with an email in a domain.
+     *
+     * @param domain A normalized domain.
+     * @return The number of users.
+     */
+    public int countEmailDomain(String domain) {
+        return size(emailDomains.get(domain));
+    }
+
+    /**
+     * Visits, in ascending order, the IDs of the users that match both
+     * filters as far as the index can tell.
+     *
+     * @param lastNamePrefix A normalized last name prefix, or null.
+     * @param emailDomain    A normalized email domain, or null; at least one
+     *                       filter must be given.
+     * @param action         Receives each ID; returning false stops the visit.
+     */
+    public void forEachCandidate(String lastNamePrefix, String emailDomain, IntPredicate action) {
+        PostingList[] lists = new PostingList[2];
+        int count = 0;
+        if (lastNamePrefix != null) {
+            lists[count++] = lastNamePrefixes.get(indexedPrefix(lastNamePrefix));
+        }
+        if (emailDomain != null) {
+            lists[count++] = emailDomains.get(emailDomain);
+        }
+        lists = Arrays.copyOf(lists, count);
+        if (count == 0 || Arrays.asList(lists).contains(null)) {
+            return;
+        }
+        Arrays.sort(lists, Comparator.comparingInt(PostingList::size));
+        long[] bitmap = new long[PostingList.CHUNK_WORDS];
+        long[] scratch = new long[PostingList.CHUNK_WORDS];
+        for (int key = lists[0].nextChunk(0); key >= 0; key = lists[0].nextChunk(key + 1)) {
+            if (!PostingList.intersectChunk(lists, key, bitmap, scratch)) {
+                continue;
+            }
+            for (int word = 0; word < bitmap.length; word++) {
+                for (long bits = bitmap[word]; bits != 0; bits &= bits - 1) {
+                    if (!action.test(key << 16 | word << 6 | Long.numberOfTrailingZeros(bits))) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Brings a last name or prefix into the form it is indexed in.
+     *
+     * @param text The text, may be null.
+     * @return The lower-cased text, or null if it was null.
+     */
+    public static String normalize(String text) {
+        return text == null ? null : text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the domain of an email, in the form it is indexed in.
+     *
+     * @param email The email, may be null.
+     * @return The lower-cased part after the last {@code @}, or null if
+     * there is none.
+     */
+    public static String emailDomain(String email) {
+        if (email == null) {
+            return null;
+        }
+        int at = email.lastIndexOf('@');
+        return at < 0 ? null : email.substring(at + 1).trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String indexedPrefix(String prefix) {
+        return prefix(prefix, Math.min(prefix.length(), PREFIX_LENGTH));
+    }
+
+    private static String prefix(String name, int length) {
+        return name == null || name.length() < length ? null : name.substring(0, length);
+    }
+
+    private static void add(ConcurrentHashMap<String, PostingList> index, String key, int id,
+                            LongAdder entries) {
+        if (key != null && index.computeIfAbsent(key, k -> new PostingList()).add(id)) {
+            entries.increment();
+        }
+    }
+
+    private static void remove(ConcurrentHashMap<String, PostingList> index, String key, int id,
+                               LongAdder entries) {
+        // Emptied lists are kept, as in the search index.
+        PostingList list = key == null ? null : index.get(key);
+        if (list != null && list.remove(id)) {
+            entries.decrement();
+        }
+    }
+
+    private static int size(PostingList list) {
+        return list == null ? 0 : list.size();
+    }
+}
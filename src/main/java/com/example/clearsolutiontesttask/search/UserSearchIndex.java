@@ -0,0 +1,250 @@
+package com.example.clearsolutiontesttask.search;
+
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.repository.UserChange;
+import com.example.clearsolutiontesttask.repository.UserChangeListener;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import org.springframework.stereotype.Component;
+
+/**
+ * Inverted n-gram index over the first name, last name and address of
+ * users, for substring and prefix search.
+ *
+ * <p>The fields are lower-cased and split into words of letters and
+ * digits. Every word is indexed under each of its trigrams and under its
+ * first one and two characters. A query term of three or more characters
+ * matches users having a word that contains the term; shorter terms match
+ * word prefixes. The posting lists of the term's n-grams are intersected,
+ * and each candidate is checked against the current state of the user,
+ * since sharing n-grams does not imply a match. IDs must not be negative.
+ *
+ * <p>The index follows every repository write incrementally. Writers only
+ * touch the posting lists of the n-grams that changed, and queries never
+ * block writers for longer than it takes to intersect one chunk. A query
+ * racing with a write to a matching user may miss that user, but never
+ * returns a user that does not match.
+ */
+@Component
+public class UserSearchIndex implements UserChangeListener {
+    /**
+     * Shortest query term that is matched anywhere in a word, not only at
+     * its start.
+     */
+    static final int GRAM_LENGTH = 3;
+    private static final int MAX_CHUNK = Integer.MAX_VALUE >>> 16;
+
+    private final ConcurrentHashMap<Long, PostingList> postings = new ConcurrentHashMap<>();
+    private final LongAdder entries = new LongAdder();
+
+    public UserSearchIndex(MeterRegistry registry) {
+        Gauge.builder("users.index.size", entries, LongAdder::sum)
+                .description("Number of entries in a secondary index")
+                .tag("index", "search")
+                .register(registry);
+    }
+
+    /**
+     * Finds the users that match every term of a query, in ID order.
+     *
+     * @param terms   The query terms, as returned by {@link #terms(String)}.
+     * @param afterId Only users with a larger ID are returned.
+     * @param limit   The maximum number of users to return.
+     * @param users   Looks up the current user by ID, returning null if absent.
+     * @return The matching users, ordered by ID.
+     */
+    public List<User> search(List<String> terms, int afterId, int limit,
+                             IntFunction<User> users) {
+        List<User> found = new ArrayList<>(Math.min(limit, 64));
+        if (terms.isEmpty() || afterId == Integer.MAX_VALUE) {
+            return found;
+        }
+        long[] grams = grams(terms, true);
+        PostingList[] lists = new PostingList[grams.length];
+        for (int i = 0; i < grams.length; i++) {
+            lists[i] = postings.get(grams[i]);
+            if (lists[i] == null) {
+                return found;
+            }
+        }
+        // Intersect chunk by chunk, starting from the rarest n-gram, and
+        // stop as soon as the page is full.
+        Arrays.sort(lists, Comparator.comparingInt(PostingList::size));
+        long[] bitmap = new long[PostingList.CHUNK_WORDS];
+        long[] scratch = new long[PostingList.CHUNK_WORDS];
+        int from = afterId + 1;
+        for (int key = lists[0].nextChunk(from >>> 16); key >= 0 && found.size() < limit;
+             key = key == MAX_CHUNK ? -1 : lists[0].nextChunk(key + 1)) {
+            if (!PostingList.intersectChunk(lists, key, bitmap, scratch)) {
+                continue;
+            }
+            int firstBit = key == from >>> 16 ? from & 0xFFFF : 0;
+            for (int word = firstBit >>> 6; word < bitmap.length && found.size() < limit; word++) {
+                long bits = bitmap[word];
+                if (word == firstBit >>> 6) {
+                    bits &= -1L << firstBit;
+                }
+                while (bits != 0 && found.size() < limit) {
+                    int id = key << 16 | word << 6 | Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    User user = users.apply(id);
+                    if (user != null && matches(user, terms)) {
+                        found.add(user);
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public void onChange(UserChange change) {
+        User previous = change.previous();
+        User current = change.current();
+        if (previous != null && current != null
+                && Objects.equals(previous.getFirstName(), current.getFirstName())
+                && Objects.equals(previous.getLastName(), current.getLastName())
+                && Objects.equals(previous.getAddress(), current.getAddress())) {
+            return;
+        }
+        long[] before = previous == null ? new long[0] : grams(words(previous), false);
+        long[] after = current == null ? new long[0] : grams(words(current), false);
+        int id = current == null ? previous.getId() : current.getId();
+        int i = 0;
+        int j = 0;
+        while (i < before.length || j < after.length) {
+            if (j == after.length || (i < before.length && before[i] < after[j])) {
+                remove(before[i++], id);
+            } else if (i == before.length || after[j] < before[i]) {
+                add(after[j++], id);
+            } else {
+                i++;
+                j++;
+            }
+        }
+    }
+
+    /**
+     * Splits a query into its terms.
+     *
+     * @param query The query text.
+     * @return The distinct lower-cased words of the query; empty if it has
+     * no letters or digits.
+     */
+    public static List<String> terms(String query) {
+        List<String> terms = new ArrayList<>();
+        split(query, terms);
+        return terms.stream().distinct().toList();
+    }
+
+    private void add(long gram, int id) {
+        if (postings.computeIfAbsent(gram, key -> new PostingList()).add(id)) {
+            entries.increment();
+        }
+    }
+
+    private void remove(long gram, int id) {
+        // Emptied lists are kept: the n-gram vocabulary is bounded, and
+        // dropping them would race with concurrent adds.
+        PostingList list = postings.get(gram);
+        if (list != null && list.remove(id)) {
+            entries.decrement();
+        }
+    }
+
+    private static boolean matches(User user, List<String> terms) {
+        List<String> words = words(user);
+        for (String term : terms) {
+            boolean found = false;
+            for (String word : words) {
+                if (term.length() >= GRAM_LENGTH ? word.contains(term) : word.startsWith(term)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<String> words(User user) {
+        List<String> words = new ArrayList<>();
+        split(user.getFirstName(), words);
+        split(user.getLastName(), words);
+        split(user.getAddress(), words);
+        return words;
+    }
+
+    private static void split(String text, List<String> words) {
+        if (text == null) {
+            return;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+    }
+
+    /**
+     * Returns the sorted, distinct n-grams of the words. Indexed words
+     * contribute all their n-grams; query terms only those that a matching
+     * word must have.
+     */
+    private static long[] grams(List<String> words, boolean query) {
+        long[] grams = new long[16];
+        int count = 0;
+        for (String word : words) {
+            int length = word.length();
+            if (count + length + 2 > grams.length) {
+                grams = Arrays.copyOf(grams, Math.max(grams.length * 2, count + length + 2));
+            }
+            if (!query || length < GRAM_LENGTH) {
+                for (int prefix = 1; prefix < GRAM_LENGTH && prefix <= length; prefix++) {
+                    if (!query || prefix == length) {
+                        grams[count++] = prefixGram(word, prefix);
+                    }
+                }
+            }
+            for (int i = 0; i + GRAM_LENGTH <= length; i++) {
+                grams[count++] = (long) word.charAt(i) << 32
+                        | (long) word.charAt(i + 1) << 16
+                        | word.charAt(i + 2);
+            }
+        }
+        Arrays.sort(grams, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || grams[i] != grams[distinct - 1]) {
+                grams[distinct++] = grams[i];
+            }
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+
+    private static long prefixGram(String word, int length) {
+        // The length in the top bits keeps prefixes apart from trigrams.
+        long gram = (long) length << 48;
+        for (int i = 0; i < length; i++) {
+            gram |= (long) word.charAt(i) << (32 - 16 * i);
+        }
+        return gram;
+    }
+}
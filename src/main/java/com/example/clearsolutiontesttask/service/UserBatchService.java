@@ -0,0 +1,177 @@
+package com.example.clearsolutiontesttask.service;
+
+import com.example.clearsolutiontesttask.dto.BatchResult;
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.metrics.UserMetrics;
+import com.example.clearsolutiontesttask.metrics.UserMetrics.Operation;
+import com.example.clearsolutiontesttask.repository.IdAllocator;
+import com.example.clearsolutiontesttask.repository.UserRepository;
+import com.example.clearsolutiontesttask.validator.UserAgeValidator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Service class for adding many users at once.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserBatchService {
+    private static final int CHUNK_SIZE = 10_000;
+
+    private final Validator validator;
+    private final UserAgeValidator ageValidator;
+    private final UserRepository userRepository;
+    private final IdAllocator idAllocator;
+    private final ObjectMapper objectMapper;
+    private final UserMetrics metrics;
+
+    /**
+     * Adds a batch of users. Every user is validated as if it were added on
+     * its own, but invalid users are reported instead of failing the whole
+     * batch. Users are imported in chunks, no larger than the ID allocator
+     * can hand out at once: the valid users of a chunk get IDs from one
+     * contiguous block and are stored in a single pass; users
+     * whose email is taken, by a stored user or an earlier user of the
+     * batch, are rejected then.
+     *
+     * @param users The users to add; null items are rejected.
+     * @return How many users were added, and the rejected positions.
+     */
+    public BatchResult addUsers(List<User> users) {
+        long started = metrics.start();
+        try {
+            List<BatchResult.ItemError> errors = new ArrayList<>();
+            int accepted = 0;
+            int chunkSize = chunkSize();
+            for (int from = 0; from < users.size(); from += chunkSize) {
+                int offset = from;
+                accepted += importChunk(users.subList(from,
+                        Math.min(users.size(), from + chunkSize)), i -> offset + i, errors);
+            }
+            errors.sort((a, b) -> Integer.compare(a.index(), b.index()));
+            return new BatchResult(accepted, errors);
+        } finally {
+            metrics.stop(Operation.ADD_BATCH, started);
+        }
+    }
+
+    /**
+     * Adds a batch of users given as newline-delimited JSON, one user per
+     * line, in the same way as {@link #addUsers(List)}. The input is read
+     * and imported in chunks, so the batch never has to fit in memory at
+     * once. Lines that are not valid JSON are rejected like invalid users;
+     * blank lines are ignored.
+     *
+     * @param ndjson The reader of the input.
+     * @return How many users were added, and the rejected line positions,
+     * counting non-blank lines from zero.
+     * @throws IOException if the input cannot be read.
+     */
+    public BatchResult addUsers(BufferedReader ndjson) throws IOException {
+        long started = metrics.start();
+        try {
+            return addUsersFromLines(ndjson);
+        } finally {
+            metrics.stop(Operation.ADD_BATCH, started);
+        }
+    }
+
+    private BatchResult addUsersFromLines(BufferedReader ndjson) throws IOException {
+        List<BatchResult.ItemError> errors = new ArrayList<>();
+        int chunkSize = chunkSize();
+        List<User> chunk = new ArrayList<>(chunkSize);
+        int[] positions = new int[chunkSize];
+        int accepted = 0;
+        int index = 0;
+        for (String line = ndjson.readLine(); line != null; line = ndjson.readLine()) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                positions[chunk.size()] = index;
+                chunk.add(objectMapper.readValue(line, User.class));
+            } catch (JsonProcessingException e) {
+                metrics.validationFailed(1);
+                errors.add(new BatchResult.ItemError(index, List.of("Malformed JSON")));
+            }
+            index++;
+            if (chunk.size() == chunkSize) {
+                accepted += importChunk(chunk, i -> positions[i], errors);
+                chunk.clear();
+            }
+        }
+        accepted += importChunk(chunk, i -> positions[i], errors);
+        errors.sort((a, b) -> Integer.compare(a.index(), b.index()));
+        return new BatchResult(accepted, errors);
+    }
+
+    private int chunkSize() {
+        return Math.min(CHUNK_SIZE, idAllocator.maxContiguousIds());
+    }
+
+    private int importChunk(List<User> users, IntUnaryOperator position,
+                            List<BatchResult.ItemError> errors) {
+        List<List<String>> problems = IntStream.range(0, users.size())
+                .parallel()
+                .mapToObj(i -> validate(users.get(i)))
+                .toList();
+
+        List<User> accepted = new ArrayList<>(users.size());
+        int[] acceptedPositions = new int[users.size()];
+        int rejected = 0;
+        for (int i = 0; i < users.size(); i++) {
+            if (problems.get(i).isEmpty()) {
+                acceptedPositions[accepted.size()] = position.applyAsInt(i);
+                accepted.add(users.get(i));
+            } else {
+                rejected++;
+                errors.add(new BatchResult.ItemError(position.applyAsInt(i),
+                        problems.get(i)));
+            }
+        }
+        if (accepted.isEmpty()) {
+            metrics.validationFailed(rejected);
+            return 0;
+        }
+        int firstId = idAllocator.nextIds(accepted.size());
+        int id = firstId;
+        for (User user : accepted) {
+            user.setId(id++).setVersion(1);
+        }
+        List<User> duplicates = userRepository.saveAll(accepted);
+        for (User duplicate : duplicates) {
+            // IDs were handed out in order, so the ID gives the position.
+            errors.add(new BatchResult.ItemError(
+                    acceptedPositions[duplicate.getId() - firstId],
+                    List.of("Email is already in use.")));
+        }
+        metrics.validationFailed(rejected + duplicates.size());
+        return accepted.size() - duplicates.size();
+    }
+
+    private List<String> validate(User user) {
+        if (user == null) {
+            return List.of("User is required");
+        }
+        List<String> problems = new ArrayList<>();
+        for (ConstraintViolation<User> violation : validator.validate(user)) {
+            problems.add(violation.getMessage());
+        }
+        if (user.getBirthDate() == null) {
+            problems.add("Birth date is required");
+        } else if (!ageValidator.isUserOldEnough(user.getBirthDate())) {
+            problems.add("User is not old enough.");
+        }
+        return problems;
+    }
+}
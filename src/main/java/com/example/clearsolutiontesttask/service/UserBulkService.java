@@ -0,0 +1,186 @@
+package com.example.clearsolutiontesttask.service;
+
+import com.example.clearsolutiontesttask.dto.BulkResult;
+import com.example.clearsolutiontesttask.dto.UpdateFieldRequest;
+import com.example.clearsolutiontesttask.dto.UserSelection;
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.exception.ValidationException;
+import com.example.clearsolutiontesttask.metrics.UserMetrics;
+import com.example.clearsolutiontesttask.metrics.UserMetrics.Operation;
+import com.example.clearsolutiontesttask.repository.UserChange;
+import com.example.clearsolutiontesttask.repository.UserRepository;
+import com.example.clearsolutiontesttask.validator.UserAgeValidator;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Service class for updating or deleting many users at once.
+ *
+ * <p>The selected users are read once, through the birth date index for a
+ * range, and written back in chunks with
+ * {@link UserRepository#applyAll(List)}, so each chunk takes every lock
+ * once and updates the indexes and listeners in one go. Each user is
+ * written only if nobody else changed it since it was read; otherwise it
+ * is read again and retried, like a single patch. Problems with single
+ * users are reported per user and do not stop the others.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserBulkService {
+    private static final int CHUNK_SIZE = 10_000;
+    private static final String EMAIL_IN_USE = "Email is already in use.";
+    private static final String NOT_OLD_ENOUGH = "User is not old enough.";
+
+    private final UserAgeValidator ageValidator;
+    private final UserRepository userRepository;
+    private final UserMetrics metrics;
+
+    /**
+     * Deletes the selected users.
+     *
+     * @param selection The IDs or the birth date range of the users.
+     * @return How many users were deleted, and the IDs that do not exist.
+     * @throws ValidationException if the selection names neither IDs nor a
+     * complete birth date range, or both.
+     */
+    public BulkResult deleteUsers(UserSelection selection) throws ValidationException {
+        long started = metrics.start();
+        try {
+            return write(selection, user -> Edit.to(null));
+        } finally {
+            metrics.stop(Operation.BULK_DELETE, started);
+        }
+    }
+
+    /**
+     * Updates the same fields of the selected users, like
+     * {@link UserService#updateUserField(UpdateFieldRequest, int)} does for
+     * one user. A new birth date is checked against the minimum age once;
+     * if it fails, only users whose birth date it would change are
+     * rejected.
+     *
+     * @param selection The IDs or the birth date range of the users.
+     * @param fields    The fields to update.
+     * @return How many users were updated or already had the fields, and
+     * why the others were not updated.
+     * @throws ValidationException if the selection names neither IDs nor a
+     * complete birth date range, or both.
+     */
+    public BulkResult updateUserFields(UserSelection selection, UpdateFieldRequest fields)
+            throws ValidationException {
+        long started = metrics.start();
+        try {
+            var patch = new UserPatch(fields);
+            boolean oldEnough = fields.getBirthDate() == null
+                    || ageValidator.isUserOldEnough(fields.getBirthDate());
+            return write(selection, user -> !oldEnough && patch.changesBirthDate(user)
+                    ? Edit.rejected(NOT_OLD_ENOUGH) : Edit.to(patch.applyTo(user)));
+        } finally {
+            metrics.stop(Operation.BULK_PATCH, started);
+        }
+    }
+
+    private BulkResult write(UserSelection selection, Editor editor) throws ValidationException {
+        List<BulkResult.ItemError> errors = new ArrayList<>();
+        List<User> selected = selection.byIds() ? findByIds(selection.getIds(), errors)
+                : findByBirthDate(selection.getFromDate(), selection.getToDate());
+        int applied = 0;
+        int unchanged = 0;
+        int rejected = 0;
+        for (int from = 0; from < selected.size(); from += CHUNK_SIZE) {
+            List<User> pending = selected.subList(from, Math.min(selected.size(),
+                    from + CHUNK_SIZE));
+            while (!pending.isEmpty()) {
+                List<UserChange> writes = new ArrayList<>(pending.size());
+                for (User user : pending) {
+                    Edit edit = editor.edit(user);
+                    if (edit.error() != null) {
+                        rejected++;
+                        errors.add(new BulkResult.ItemError(user.getId(), edit.error()));
+                    } else if (edit.user() == user) {
+                        unchanged++;
+                    } else {
+                        writes.add(new UserChange(user, edit.user()));
+                    }
+                }
+                List<UserChange> conflicts = userRepository.applyAll(writes);
+                applied += writes.size() - conflicts.size();
+                pending = new ArrayList<>();
+                for (UserChange conflict : conflicts) {
+                    Optional<User> stored = userRepository.findById(conflict.id());
+                    if (stored.isEmpty()) {
+                        // Deleted meanwhile: for a delete, that is the outcome.
+                        if (conflict.isDelete()) {
+                            applied++;
+                        } else {
+                            errors.add(notFound(conflict.id()));
+                        }
+                    } else if (stored.get().getVersion() == conflict.previous().getVersion()) {
+                        // Still the version that was read, so the email was taken.
+                        rejected++;
+                        errors.add(new BulkResult.ItemError(conflict.id(), EMAIL_IN_USE));
+                    } else if (selection.getIds() != null || inRange(stored.get(), selection)) {
+                        pending.add(stored.get());
+                    }
+                }
+            }
+        }
+        metrics.validationFailed(rejected);
+        errors.sort(Comparator.comparingInt(BulkResult.ItemError::id));
+        return new BulkResult(applied, unchanged, errors);
+    }
+
+    private List<User> findByIds(List<Integer> ids, List<BulkResult.ItemError> errors) {
+        List<User> users = new ArrayList<>(ids.size());
+        ids.stream().mapToInt(Integer::intValue).distinct().forEach(id ->
+                userRepository.findById(id).ifPresentOrElse(users::add,
+                        () -> errors.add(notFound(id))));
+        return users;
+    }
+
+    private List<User> findByBirthDate(LocalDate fromDate, LocalDate toDate) {
+        return fromDate.isAfter(toDate) ? List.of()
+                : userRepository.findAllByBirthDateBetween(fromDate, toDate);
+    }
+
+    private static boolean inRange(User user, UserSelection selection) {
+        LocalDate birthDate = user.getBirthDate();
+        return birthDate != null && !birthDate.isBefore(selection.getFromDate())
+                && !birthDate.isAfter(selection.getToDate());
+    }
+
+    private BulkResult.ItemError notFound(int id) {
+        metrics.notFound();
+        return new BulkResult.ItemError(id, "User with id: " + id + " does not exist.");
+    }
+
+    /**
+     * Works out what to write for one selected user.
+     */
+    @FunctionalInterface
+    private interface Editor {
+        /**
+         * Edits a user.
+         *
+         * @param user The stored user.
+         * @return The new state of the user: null to delete it, the user
+         * itself to leave it as it is, or a rejection.
+         */
+        Edit edit(User user);
+    }
+
+    private record Edit(User user, String error) {
+        static Edit to(User user) {
+            return new Edit(user, null);
+        }
+
+        static Edit rejected(String error) {
+            return new Edit(null, error);
+        }
+    }
+}
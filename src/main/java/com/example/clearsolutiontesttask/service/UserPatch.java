@@ -0,0 +1,67 @@
+package com.example.clearsolutiontesttask.service;
+
+import com.example.clearsolutiontesttask.dto.UpdateFieldRequest;
+import com.example.clearsolutiontesttask.entity.User;
+
+/**
+ * Applies the fields present in an {@link UpdateFieldRequest} to a user.
+ *
+ * <p>Only fields that are present and differ from the stored value count
+ * as changed. Unchanged fields are carried over by reference, so the
+ * repository and its listeners can tell by identity that, say, the email
+ * was not touched, and skip re-indexing it.
+ */
+public final class UserPatch {
+    private final UpdateFieldRequest fields;
+
+    public UserPatch(UpdateFieldRequest fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * Returns the user with the patch applied. The given user is not
+     * modified.
+     *
+     * @param user The stored user.
+     * @return A new user with the next version, or the given user itself if
+     * the patch changes nothing.
+     */
+    public User applyTo(User user) {
+        String email = pick(fields.getEmail(), user.getEmail());
+        String firstName = pick(fields.getFirstName(), user.getFirstName());
+        String lastName = pick(fields.getLastName(), user.getLastName());
+        String phoneNumber = pick(fields.getPhoneNumber(), user.getPhoneNumber());
+        String address = pick(fields.getAddress(), user.getAddress());
+        boolean birthDateChanged = changesBirthDate(user);
+        if (email == user.getEmail() && firstName == user.getFirstName()
+                && lastName == user.getLastName() && phoneNumber == user.getPhoneNumber()
+                && address == user.getAddress() && !birthDateChanged) {
+            return user;
+        }
+        return new User()
+                .setId(user.getId())
+                .setVersion(user.getVersion() + 1)
+                .setEmail(email)
+                .setFirstName(firstName)
+                .setLastName(lastName)
+                .setBirthDate(birthDateChanged ? fields.getBirthDate() : user.getBirthDate())
+                .setPhoneNumber(phoneNumber)
+                .setAddress(address);
+    }
+
+    /**
+     * Checks whether the patch changes the birth date of a user, i.e.
+     * whether the result needs to pass the age check again.
+     *
+     * @param user The stored user.
+     * @return true if the patch sets a different birth date.
+     */
+    public boolean changesBirthDate(User user) {
+        return fields.getBirthDate() != null
+                && !fields.getBirthDate().equals(user.getBirthDate());
+    }
+
+    private static String pick(String patched, String stored) {
+        return patched == null || patched.equals(stored) ? stored : patched;
+    }
+}
@@ -0,0 +1,279 @@
+package com.example.clearsolutiontesttask.service;
+
+import com.example.clearsolutiontesttask.dto.UserQuery;
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.metrics.UserMetrics;
+import com.example.clearsolutiontesttask.metrics.UserMetrics.Operation;
+import com.example.clearsolutiontesttask.repository.UserRepository;
+import com.example.clearsolutiontesttask.search.UserFieldIndex;
+import com.example.clearsolutiontesttask.stats.UserBirthDateStats;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Service class for queries combining several filters.
+ *
+ * <p>A query is answered along one of three access paths, whichever the
+ * cost model expects to touch the fewest users:
+ * <ul>
+ *     <li>{@code index}: the intersection of the last name prefix and
+ *     email domain indexes, visited in ID order;</li>
+ *     <li>{@code birthDate}: the birth date index, visited in birth date
+ *     order;</li>
+ *     <li>{@code scan}: all users, checked in parallel on the fork-join
+ *     pool.</li>
+ * </ul>
+ * The number of users behind each filter is known exactly from the
+ * indexes and the birth date counters, and filters are assumed to be
+ * independent. Looking a user up through an index costs several times as
+ * much as checking it during a scan, but a path that yields users in the
+ * requested order stops after {@code limit} matches. Every user found is
+ * checked against all filters, so the indexes only decide how many users
+ * are looked at.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserQueryService {
+    /**
+     * Relative cost of looking up and checking one user found through an
+     * index, against checking one user during a scan.
+     */
+    private static final double LOOKUP_COST = 4;
+
+    private final UserFieldIndex fieldIndex;
+    private final UserBirthDateStats birthDateStats;
+    private final UserRepository userRepository;
+    private final UserMetrics metrics;
+
+    /**
+     * Finds the users that match every filter of a query.
+     *
+     * @param query The query.
+     * @return The first {@code limit} matching users in the requested order,
+     * and the access path used.
+     */
+    public Result query(UserQuery query) {
+        long started = metrics.start();
+        try {
+            Filter filter = new Filter(query);
+            Plan plan = plan(filter, query);
+            List<User> users = switch (plan.path()) {
+                case EMPTY -> List.of();
+                case INDEX -> queryIndex(filter, plan, query);
+                case BIRTH_DATE -> queryBirthDates(filter, query);
+                case SCAN -> scan(filter, query);
+            };
+            return new Result(users, plan.describe());
+        } finally {
+            metrics.stop(Operation.QUERY, started);
+        }
+    }
+
+    private Plan plan(Filter filter, UserQuery query) {
+        double users = userRepository.count();
+        double nameRows = filter.lastNamePrefix == null ? users
+                : fieldIndex.countLastNamePrefix(filter.lastNamePrefix);
+        double domainRows = filter.emailDomain == null ? users
+                : fieldIndex.countEmailDomain(filter.emailDomain);
+        boolean dateIndexed = query.fromDate() != null && query.toDate() != null;
+        if (dateIndexed && query.fromDate().isAfter(query.toDate())) {
+            return Plan.EMPTY;
+        }
+        double dateRows = dateIndexed
+                ? birthDateStats.countBornBetween(query.fromDate(), query.toDate()) : users;
+        if (users == 0 || nameRows == 0 || domainRows == 0 || dateRows == 0) {
+            return Plan.EMPTY;
+        }
+        double limit = query.limit();
+        Plan best = Plan.SCAN;
+        double bestCost = users / (ForkJoinPool.getCommonPoolParallelism() + 1);
+        if (filter.lastNamePrefix != null || filter.emailDomain != null) {
+            // The second index is only worth intersecting if it at least
+            // halves the candidates; the others are checked on the users.
+            boolean byName = filter.lastNamePrefix != null
+                    && (nameRows <= domainRows || nameRows <= users / 2);
+            boolean byDomain = filter.emailDomain != null
+                    && (domainRows < nameRows || domainRows <= users / 2);
+            double candidates = (byName ? nameRows : users) * (byDomain ? domainRows : users)
+                    / users;
+            double visited = query.sort() == UserQuery.Sort.ID
+                    ? Math.min(candidates, limit * users / dateRows) : candidates;
+            if (visited * LOOKUP_COST < bestCost) {
+                best = new Plan(Path.INDEX, byName, byDomain);
+                bestCost = visited * LOOKUP_COST;
+            }
+        }
+        if (dateIndexed) {
+            double visited = query.sort() == UserQuery.Sort.BIRTH_DATE
+                    ? Math.min(dateRows, limit * users / nameRows * users / domainRows)
+                    : dateRows;
+            if (visited * LOOKUP_COST < bestCost) {
+                best = Plan.BIRTH_DATE;
+            }
+        }
+        return best;
+    }
+
+    private List<User> queryIndex(Filter filter, Plan plan, UserQuery query) {
+        boolean inOrder = query.sort() == UserQuery.Sort.ID;
+        List<User> found = new ArrayList<>();
+        TopUsers top = new TopUsers(query.sort().order(), query.limit());
+        fieldIndex.forEachCandidate(plan.byLastName() ? filter.lastNamePrefix : null,
+                plan.byEmailDomain() ? filter.emailDomain : null, id -> {
+                    User user = userRepository.findById(id).orElse(null);
+                    if (user == null || !filter.test(user)) {
+                        return true;
+                    }
+                    if (!inOrder) {
+                        top.add(user);
+                        return true;
+                    }
+                    found.add(user);
+                    return found.size() < query.limit();
+                });
+        return inOrder ? found : top.toList();
+    }
+
+    private List<User> queryBirthDates(Filter filter, UserQuery query) {
+        try (Stream<User> users = userRepository.streamByBirthDateBetween(
+                query.fromDate(), query.toDate(), null).filter(filter::test)) {
+            if (query.sort() == UserQuery.Sort.BIRTH_DATE) {
+                return users.limit(query.limit()).toList();
+            }
+            TopUsers top = new TopUsers(query.sort().order(), query.limit());
+            users.forEach(top::add);
+            return top.toList();
+        }
+    }
+
+    private List<User> scan(Filter filter, UserQuery query) {
+        Comparator<User> order = query.sort().order();
+        return userRepository.findAll().parallelStream()
+                .filter(filter::test)
+                .collect(() -> new TopUsers(order, query.limit()), TopUsers::add,
+                        TopUsers::addAll)
+                .toList();
+    }
+
+    /**
+     * The users matching a query and how they were found.
+     *
+     * @param users The users, in the requested order.
+     * @param plan  The access path: {@code index(...)} with the indexes
+     *              intersected, {@code birthDate}, {@code scan} or
+     *              {@code empty} if an index showed there is no match.
+     */
+    public record Result(List<User> users, String plan) {
+    }
+
+    private enum Path {
+        EMPTY, INDEX, BIRTH_DATE, SCAN
+    }
+
+    /**
+     * The access path chosen for a query and, for {@link Path#INDEX}, the
+     * indexes to intersect.
+     */
+    private record Plan(Path path, boolean byLastName, boolean byEmailDomain) {
+        static final Plan EMPTY = new Plan(Path.EMPTY, false, false);
+        static final Plan BIRTH_DATE = new Plan(Path.BIRTH_DATE, false, false);
+        static final Plan SCAN = new Plan(Path.SCAN, false, false);
+
+        String describe() {
+            return switch (path) {
+                case EMPTY -> "empty";
+                case BIRTH_DATE -> "birthDate";
+                case SCAN -> "scan";
+                case INDEX -> byLastName && byEmailDomain ? "index(lastName,emailDomain)"
+                        : byLastName ? "index(lastName)" : "index(emailDomain)";
+            };
+        }
+    }
+
+    /**
+     * The filters of a query in normalized form, checked against users.
+     */
+    private static final class Filter {
+        private final LocalDate fromDate;
+        private final LocalDate toDate;
+        private final String lastNamePrefix;
+        private final String emailDomain;
+
+        private Filter(UserQuery query) {
+            fromDate = query.fromDate();
+            toDate = query.toDate();
+            lastNamePrefix = emptyToNull(UserFieldIndex.normalize(query.lastNamePrefix()));
+            String domain = query.emailDomain() == null ? null : query.emailDomain().trim();
+            if (domain != null && domain.startsWith("@")) {
+                domain = domain.substring(1);
+            }
+            emailDomain = emptyToNull(UserFieldIndex.normalize(domain));
+        }
+
+        boolean test(User user) {
+            LocalDate birthDate = user.getBirthDate();
+            if ((fromDate != null || toDate != null) && birthDate == null) {
+                return false;
+            }
+            if (fromDate != null && birthDate.isBefore(fromDate)
+                    || toDate != null && birthDate.isAfter(toDate)) {
+                return false;
+            }
+            if (lastNamePrefix != null) {
+                String lastName = UserFieldIndex.normalize(user.getLastName());
+                if (lastName == null || !lastName.startsWith(lastNamePrefix)) {
+                    return false;
+                }
+            }
+            return emailDomain == null
+                    || emailDomain.equals(UserFieldIndex.emailDomain(user.getEmail()));
+        }
+
+        private static String emptyToNull(String text) {
+            return text == null || text.isEmpty() ? null : text;
+        }
+    }
+
+    /**
+     * The first users in an order, among those added, up to a limit.
+     */
+    private static final class TopUsers {
+        private final Comparator<User> order;
+        private final int limit;
+        private final PriorityQueue<User> heap;
+
+        private TopUsers(Comparator<User> order, int limit) {
+            this.order = order;
+            this.limit = limit;
+            // The head is the last user kept, the first to drop.
+            this.heap = new PriorityQueue<>(Math.min(limit, 1024) + 1, order.reversed());
+        }
+
+        void add(User user) {
+            if (heap.size() < limit) {
+                heap.add(user);
+            } else if (order.compare(user, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(user);
+            }
+        }
+
+        void addAll(TopUsers other) {
+            other.heap.forEach(this::add);
+        }
+
+        List<User> toList() {
+            List<User> users = new ArrayList<>(heap);
+            users.sort(order);
+            return Collections.unmodifiableList(users);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.clearsolutiontesttask.service;
+
+import com.example.clearsolutiontesttask.dto.SearchCursor;
+import com.example.clearsolutiontesttask.dto.UserPage;
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.exception.ValidationException;
+import com.example.clearsolutiontesttask.metrics.UserMetrics;
+import com.example.clearsolutiontesttask.metrics.UserMetrics.Operation;
+import com.example.clearsolutiontesttask.repository.UserRepository;
+import com.example.clearsolutiontesttask.search.UserSearchIndex;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Service class for searching users by name and address.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserSearchService {
+    private final UserSearchIndex searchIndex;
+    private final UserRepository userRepository;
+    private final UserMetrics metrics;
+
+    /**
+     * Finds one page of users whose first name, last name or address
+     * contain every word of the query. Words shorter than three characters
+     * only match the start of a word; case is ignored.
+     *
+     * @param query  The words to search for.
+     * @param cursor The cursor returned with the previous page, or null
+     *               for the first page.
+     * @param limit  The maximum number of users on the page.
+     * @return The page, ordered by ID.
+     * @throws ValidationException if the query has no letters or digits, or
+     * the cursor is malformed.
+     */
+    public UserPage search(String query, String cursor, int limit) throws ValidationException {
+        long started = metrics.start();
+        try {
+            List<String> terms = UserSearchIndex.terms(query);
+            if (terms.isEmpty()) {
+                throw new ValidationException("Search query must contain a letter or digit.");
+            }
+            int afterId = cursor == null ? 0 : SearchCursor.fromToken(cursor).id();
+            // Fetching one extra user tells whether there is a next page.
+            List<User> users = searchIndex.search(terms, afterId, limit + 1,
+                    id -> userRepository.findById(id).orElse(null));
+            String nextCursor = null;
+            if (users.size() > limit) {
+                users = users.subList(0, limit);
+                nextCursor = new SearchCursor(users.get(limit - 1).getId()).toToken();
+            }
+            return new UserPage(users, nextCursor);
+        } finally {
+            metrics.stop(Operation.SEARCH, started);
+        }
+    }
+}
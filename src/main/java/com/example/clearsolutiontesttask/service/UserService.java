@@ -1,16 +1,23 @@
 package com.example.clearsolutiontesttask.service;
 
+import com.example.clearsolutiontesttask.dto.BirthDateCursor;
 import com.example.clearsolutiontesttask.dto.UpdateFieldRequest;
+import com.example.clearsolutiontesttask.dto.UserPage;
 import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.exception.DuplicateEmailException;
 import com.example.clearsolutiontesttask.exception.ValidationException;
-import com.example.clearsolutiontesttask.mapper.UserMapper;
+import com.example.clearsolutiontesttask.exception.VersionConflictException;
+import com.example.clearsolutiontesttask.metrics.UserMetrics;
+import com.example.clearsolutiontesttask.metrics.UserMetrics.Operation;
+import com.example.clearsolutiontesttask.repository.IdAllocator;
+import com.example.clearsolutiontesttask.repository.UserRepository;
 import com.example.clearsolutiontesttask.validator.UserAgeValidator;
 import jakarta.persistence.EntityNotFoundException;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
-import lombok.Getter;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
@@ -21,21 +28,26 @@ import org.springframework.stereotype.Component;
 @RequiredArgsConstructor
 public class UserService {
     private final UserAgeValidator ageValidator;
-    @Getter
-    private final List<User> users = new ArrayList<>();
-    private int nextId = 1;
-    private final UserMapper userMapper;
+    private final UserRepository userRepository;
+    private final IdAllocator idAllocator;
+    private final UserMetrics metrics;
 
     /**
      * Adds a new user.
      *
      * @param request The user data to add.
      * @throws ValidationException if there is a validation error.
+     * @throws DuplicateEmailException if another user has the same email.
      */
     public void addUser(User request) throws ValidationException {
-        var user = ageVerification(request);
-        user.setId(nextId++);
-        users.add(user);
+        long started = metrics.start();
+        try {
+            var user = ageVerification(request);
+            user.setId(idAllocator.nextId()).setVersion(1);
+            userRepository.save(user);
+        } finally {
+            metrics.stop(Operation.ADD, started);
+        }
     }
 
     /**
@@ -46,14 +58,49 @@ public class UserService {
      * @throws EntityNotFoundException if the user with the specified ID is
      * not found.
      * @throws ValidationException     if there is a validation error.
+     * @throws DuplicateEmailException if another user has the same email.
      */
     public void updateUser(User request, int id) throws EntityNotFoundException,
             ValidationException {
-        // Checking that the user exists and taking its index from the list
-        int index = users.indexOf(getUserById(id));
-        var user = ageVerification(request);
-        user.setId(id);
-        users.set(index, user);
+        updateUser(request, id, null);
+    }
+
+    /**
+     * Updates all field of an existing user, optionally only if the user is
+     * still at the version the client last saw.
+     *
+     * @param request         The updated user data.
+     * @param id              The ID of the user to update.
+     * @param expectedVersion The version the user must have, or null to
+     *                        replace whatever version is stored.
+     * @return The version of the user after the update.
+     * @throws EntityNotFoundException  if the user with the specified ID is
+     * not found.
+     * @throws ValidationException      if there is a validation error.
+     * @throws DuplicateEmailException  if another user has the same email.
+     * @throws VersionConflictException if the user is not at the expected
+     * version.
+     */
+    public long updateUser(User request, int id, Long expectedVersion)
+            throws EntityNotFoundException, ValidationException {
+        long started = metrics.start();
+        try {
+            // A missing user is reported before the request is validated.
+            var stored = getCurrentUser(id, expectedVersion);
+            var user = ageVerification(request);
+            user.setId(id);
+            // The version must follow the stored one, so swap the user in
+            // only if nobody else updated it meanwhile.
+            while (true) {
+                user.setVersion(stored.getVersion() + 1);
+                if (userRepository.replace(stored, user)) {
+                    return user.getVersion();
+                }
+                stored = getCurrentUser(id, expectedVersion);
+            }
+        } finally {
+            metrics.stop(Operation.UPDATE, started);
+        }
     }
 
     /**
@@ -64,23 +111,141 @@ public class UserService {
      * not found.
      */
     public void deleteUser(int id) throws EntityNotFoundException {
-        var user = getUserById(id);
-        users.remove(user);
+        deleteUser(id, null);
+    }
+
+    /**
+     * Deletes a user by ID, optionally only if the user is still at the
+     * version the client last saw.
+     *
+     * @param id              The ID of the user to delete.
+     * @param expectedVersion The version the user must have, or null to
+     *                        delete whatever version is stored.
+     * @throws EntityNotFoundException  if the user with the specified ID is
+     * not found.
+     * @throws VersionConflictException if the user is not at the expected
+     * version.
+     */
+    public void deleteUser(int id, Long expectedVersion) throws EntityNotFoundException {
+        long started = metrics.start();
+        try {
+            if (expectedVersion == null) {
+                if (!userRepository.deleteById(id)) {
+                    throw notFound(id);
+                }
+                return;
+            }
+            // Delete only the version that was checked, retrying if another
+            // write got in between.
+            while (true) {
+                var stored = getCurrentUser(id, expectedVersion);
+                if (userRepository.delete(stored)) {
+                    return;
+                }
+            }
+        } finally {
+            metrics.stop(Operation.DELETE, started);
+        }
+    }
+
+    /**
+     * Finds a user by ID.
+     *
+     * @param id The ID of the user.
+     * @return The user.
+     * @throws EntityNotFoundException if the user with the specified ID is
+     * not found.
+     */
+    public User findUserById(int id) throws EntityNotFoundException {
+        return getUserById(id);
+    }
+
+    /**
+     * Finds a user by email, ignoring case and surrounding blanks.
+     *
+     * @param email The email of the user.
+     * @return The user.
+     * @throws EntityNotFoundException if no user has the email.
+     */
+    public User findUserByEmail(String email) throws EntityNotFoundException {
+        return userRepository.findByEmail(email)
+                .orElseThrow(() -> {
+                    metrics.notFound();
+                    return new EntityNotFoundException("User with email: " + email
+                            + " does not exist.");
+                });
     }
 
     /**
      * Finds users with birth dates within the specified range.
      *
-     * @param fromDate The start date of the range.
-     * @param toDate   The end date of the range.
-     * @return A list of users within the specified date range.
+     * @param fromDate The start date of the range, inclusive.
+     * @param toDate   The end date of the range, inclusive.
+     * @return A list of users within the specified date range, ordered by
+     * birth date and then by ID.
      */
     public List<User> findAllByBirthDateBetween(LocalDate fromDate,
                                                 LocalDate toDate) {
-        return users.stream()
-                .filter(user -> user.getBirthDate().isAfter(fromDate)
-                        && user.getBirthDate().isBefore(toDate.plusDays(1)))
-                .collect(Collectors.toList());
+        long started = metrics.start();
+        try {
+            return userRepository.findAllByBirthDateBetween(fromDate, toDate);
+        } finally {
+            metrics.stop(Operation.FIND_BY_BIRTH_DATE, started);
+        }
+    }
+
+    /**
+     * Finds one page of users with birth dates within the specified range.
+     *
+     * @param fromDate The start date of the range, inclusive.
+     * @param toDate   The end date of the range, inclusive.
+     * @param cursor   The cursor returned with the previous page, or null
+     *                 for the first page.
+     * @param limit    The maximum number of users on the page.
+     * @return The page, ordered by birth date and then by ID.
+     * @throws ValidationException if the cursor is malformed.
+     */
+    public UserPage findPageByBirthDateBetween(LocalDate fromDate, LocalDate toDate,
+                                               String cursor, int limit)
+            throws ValidationException {
+        long started = metrics.start();
+        try {
+            var after = cursor == null ? null : BirthDateCursor.fromToken(cursor);
+            // Fetching one extra user tells whether there is a next page.
+            List<User> users = userRepository.streamByBirthDateBetween(fromDate, toDate, after)
+                    .limit(limit + 1L)
+                    .collect(Collectors.toCollection(ArrayList::new));
+            String nextCursor = null;
+            if (users.size() > limit) {
+                users.remove(limit);
+                nextCursor = BirthDateCursor.after(users.get(limit - 1)).toToken();
+            }
+            return new UserPage(users, nextCursor);
+        } finally {
+            metrics.stop(Operation.FIND_PAGE_BY_BIRTH_DATE, started);
+        }
+    }
+
+    /**
+     * Lazily streams users with birth dates within the specified range, so
+     * that arbitrarily large results can be written out incrementally.
+     *
+     * @param fromDate The start date of the range, inclusive.
+     * @param toDate   The end date of the range, inclusive.
+     * @return The users, ordered by birth date and then by ID.
+     */
+    public Stream<User> streamAllByBirthDateBetween(LocalDate fromDate,
+                                                    LocalDate toDate) {
+        return userRepository.streamByBirthDateBetween(fromDate, toDate, null);
+    }
+
+    /**
+     * Takes a consistent snapshot of all users for an export.
+     *
+     * @return All users as they were at one point in time, ordered by ID.
+     */
+    public List<User> snapshotById() {
+        return userRepository.snapshotById();
     }
 
     /**
@@ -92,25 +257,79 @@ public class UserService {
      * specified an invalid email.
      * @throws EntityNotFoundException if the user with the specified ID is
      * not found.
+     * @throws DuplicateEmailException if another user has the new email.
      */
     public void updateUserField(UpdateFieldRequest updateRequest, int id) throws
             ValidationException {
-        var userById = getUserById(id);
-        int index = users.indexOf(userById);
-
-        var updatedUser = userMapper.toUser(updateRequest, userById);
+        updateUserField(updateRequest, id, null);
+    }
 
-        ageVerification(updatedUser);
-        users.set(index, updatedUser);
+    /**
+     * Updates specific fields of a user, optionally only if the user is
+     * still at the version the client last saw. A patch that changes
+     * nothing does not write and keeps the version.
+     *
+     * @param updateRequest   The fields to update.
+     * @param id              The ID of the user to update.
+     * @param expectedVersion The version the user must have, or null to
+     *                        patch whatever version is stored.
+     * @return The version of the user after the patch.
+     * @throws ValidationException      If the user does not pass the age or
+     * specified an invalid email.
+     * @throws EntityNotFoundException  if the user with the specified ID is
+     * not found.
+     * @throws DuplicateEmailException  if another user has the new email.
+     * @throws VersionConflictException if the user is not at the expected
+     * version.
+     */
+    public long updateUserField(UpdateFieldRequest updateRequest, int id,
+                                Long expectedVersion) throws ValidationException {
+        long started = metrics.start();
+        try {
+            var patch = new UserPatch(updateRequest);
+            // Stored users are never modified in place: patch a copy and swap
+            // it in only if nobody else updated the user meanwhile, retrying
+            // if so.
+            while (true) {
+                var userById = getCurrentUser(id, expectedVersion);
+                var updatedUser = patch.applyTo(userById);
+                if (updatedUser == userById) {
+                    return userById.getVersion();
+                }
+                if (patch.changesBirthDate(userById)) {
+                    ageVerification(updatedUser);
+                }
+                if (userRepository.replace(userById, updatedUser)) {
+                    return updatedUser.getVersion();
+                }
+            }
+        } finally {
+            metrics.stop(Operation.PATCH, started);
+        }
     }
 
     private User getUserById(int id) {
-        for (User user : users) {
-            if (user.getId() == id) {
-                return user;
-            }
+        return userRepository.findById(id)
+                .orElseThrow(() -> notFound(id));
+    }
+
+    /**
+     * Reads a user to base a conditional write on.
+     *
+     * @throws VersionConflictException if the user is not at the expected
+     *                                  version.
+     */
+    private User getCurrentUser(int id, Long expectedVersion) {
+        var user = getUserById(id);
+        if (expectedVersion != null && user.getVersion() != expectedVersion) {
+            throw new VersionConflictException(id);
         }
-        throw new EntityNotFoundException("User with id: " + id + " does not " +
+        return user;
+    }
+
+    private EntityNotFoundException notFound(int id) {
+        metrics.notFound();
+        return new EntityNotFoundException("User with id: " + id + " does not " +
                 "exist.");
     }
 
@@ -118,6 +337,7 @@ public class UserService {
         if (ageValidator.isUserOldEnough(user.getBirthDate())) {
             return user;
         } else {
+            metrics.validationFailed(1);
             throw new ValidationException("User is not old enough.");
         }
     }
@@ -0,0 +1,152 @@
+package com.example.clearsolutiontesttask.stats;
+
+/**
+ * Counts per day, kept in a Fenwick tree so that the count of any range of
+ * days takes {@code O(log n)} time to read and to update. The tree covers
+ * a window of days that grows, by doubling, to take in every day added;
+ * it starts around the first day added. Not thread-safe.
+ */
+final class DayCounts {
+    private static final int INITIAL_DAYS = 1 << 15;
+    private static final int MAX_DAYS = 1 << 22;
+
+    /**
+     * The epoch day counted in {@code tree[1]}.
+     */
+    private long origin;
+    /**
+     * The Fenwick tree, 1-based; its length minus one is a power of two.
+     */
+    private long[] tree;
+    private long total;
+
+    /**
+     * Adds to the count of a day.
+     *
+     * @param epochDay The day.
+     * @param delta    The amount to add; negative to remove.
+     * @throws IllegalArgumentException if the window would have to grow
+     * beyond {@code 2^22} days, about 11,000 years.
+     */
+    void add(long epochDay, long delta) {
+        if (tree == null) {
+            origin = epochDay - INITIAL_DAYS / 2;
+            tree = new long[INITIAL_DAYS + 1];
+        } else if (epochDay < origin || epochDay >= origin + days()) {
+            grow(epochDay);
+        }
+        for (int i = (int) (epochDay - origin) + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+        total += delta;
+    }
+
+    /**
+     * Returns the sum of the counts of a range of days.
+     *
+     * @param fromEpochDay The first day of the range.
+     * @param toEpochDay   The last day of the range.
+     * @return The sum; 0 if the range is empty.
+     */
+    long count(long fromEpochDay, long toEpochDay) {
+        return fromEpochDay > toEpochDay ? 0
+                : countBefore(toEpochDay + 1) - countBefore(fromEpochDay);
+    }
+
+    /**
+     * Returns the sum of the counts of all days before a day.
+     *
+     * @param epochDay The day after the last day summed.
+     * @return The sum.
+     */
+    long countBefore(long epochDay) {
+        if (tree == null || epochDay <= origin) {
+            return 0;
+        }
+        if (epochDay >= origin + days()) {
+            return total;
+        }
+        long sum = 0;
+        for (int i = (int) (epochDay - origin); i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    long total() {
+        return total;
+    }
+
+    /**
+     * Returns the first day with a count.
+     *
+     * @return The epoch day, or {@link Long#MAX_VALUE} if no day has one.
+     */
+    long firstDay() {
+        return total == 0 ? Long.MAX_VALUE : origin + search(1);
+    }
+
+    /**
+     * Returns the last day with a count.
+     *
+     * @return The epoch day, or {@link Long#MIN_VALUE} if no day has one.
+     */
+    long lastDay() {
+        return total == 0 ? Long.MIN_VALUE : origin + search(total);
+    }
+
+    /**
+     * Returns the index of the first day whose prefix sum reaches a
+     * target, descending the tree once. Counts are never negative, so
+     * prefix sums only grow.
+     */
+    private int search(long target) {
+        int position = 0;
+        long remaining = target;
+        for (int step = days(); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next < tree.length && tree[next] < remaining) {
+                position = next;
+                remaining -= tree[next];
+            }
+        }
+        return position;
+    }
+
+    private int days() {
+        return tree.length - 1;
+    }
+
+    private void grow(long epochDay) {
+        long first = Math.min(origin, epochDay);
+        long end = Math.max(origin + days(), epochDay + 1);
+        long days = days();
+        while (days < end - first) {
+            days *= 2;
+        }
+        if (days > MAX_DAYS) {
+            throw new IllegalArgumentException("Day out of range: " + epochDay);
+        }
+        // Days before the window are added on the left, keeping room on
+        // the side the window grows towards.
+        long newOrigin = epochDay < origin ? end - days : origin;
+        // Undo the tree into plain counts, shift them and rebuild; both
+        // directions take linear time.
+        for (int i = days(); i > 0; i--) {
+            int parent = i + (i & -i);
+            if (parent < tree.length) {
+                tree[parent] -= tree[i];
+            }
+        }
+        long[] grown = new long[(int) days + 1];
+        System.arraycopy(tree, 1, grown, (int) (origin - newOrigin) + 1, days());
+        for (int i = 1; i < grown.length; i++) {
+            int parent = i + (i & -i);
+            if (parent < grown.length) {
+                grown[parent] += grown[i];
+            }
+        }
+        tree = grown;
+        origin = newOrigin;
+    }
+}
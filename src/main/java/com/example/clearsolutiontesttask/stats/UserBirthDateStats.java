@@ -0,0 +1,187 @@
+package com.example.clearsolutiontesttask.stats;
+
+import com.example.clearsolutiontesttask.dto.AgeHistogram;
+import com.example.clearsolutiontesttask.dto.BirthMonthCount;
+import com.example.clearsolutiontesttask.dto.BirthYearCount;
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.repository.UserChange;
+import com.example.clearsolutiontesttask.repository.UserChangeListener;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts users by birth date, following every repository write, to answer
+ * age and birth date statistics without reading the users.
+ *
+ * <p>Only the number of users born on each day is kept, in a Fenwick tree,
+ * so a write updates {@code O(log d)} counters for a window of {@code d}
+ * days, and the count for any range of birth dates takes as long to read.
+ * Ages are never stored: the birth dates of each age bucket are worked out
+ * from the current day for every request, which makes the buckets roll
+ * forward as days pass, including for birthdays on 29 February. A user is
+ * of age {@code a} or older exactly when born on or before
+ * {@code today.minusYears(a)}, as for the age validation.
+ */
+@Component
+public class UserBirthDateStats implements UserChangeListener {
+    // Keeps absurd dates from growing the window beyond what years 1 to
+    // 9999 need; they are counted on the nearest day inside.
+    private static final long FIRST_DAY = LocalDate.of(1, 1, 1).toEpochDay();
+    private static final long LAST_DAY = LocalDate.of(9999, 12, 31).toEpochDay();
+
+    @Value("${user.age.minimum}")
+    private int minimumAge;
+
+    private final Clock clock;
+    private final DayCounts births = new DayCounts();
+
+    public UserBirthDateStats() {
+        this(Clock.systemDefaultZone());
+    }
+
+    UserBirthDateStats(Clock clock) {
+        this.clock = clock;
+    }
+
+    UserBirthDateStats(Clock clock, int minimumAge) {
+        this(clock);
+        this.minimumAge = minimumAge;
+    }
+
+    @Override
+    public void onChange(UserChange change) {
+        LocalDate before = birthDate(change.previous());
+        LocalDate after = birthDate(change.current());
+        if (Objects.equals(before, after)) {
+            return;
+        }
+        synchronized (births) {
+            if (before != null) {
+                births.add(epochDay(before), -1);
+            }
+            if (after != null) {
+                births.add(epochDay(after), 1);
+            }
+        }
+    }
+
+    /**
+     * Counts users by age as of today, in buckets of equal width starting
+     * at the minimum age; the last bucket takes all older users.
+     *
+     * @param width       The number of ages in each bucket.
+     * @param bucketCount The number of buckets.
+     * @return The histogram.
+     */
+    public AgeHistogram ageHistogram(int width, int bucketCount) {
+        LocalDate today = LocalDate.now(clock);
+        int minimum = minimumAge;
+        // bornBy[k] is the last birth date of bucket k; the bucket starts
+        // the day after bornBy[k + 1].
+        long[] bornBy = new long[bucketCount + 1];
+        for (int k = 0; k <= bucketCount; k++) {
+            bornBy[k] = today.minusYears(minimum + (long) k * width).toEpochDay();
+        }
+        List<AgeHistogram.Bucket> buckets = new ArrayList<>(bucketCount);
+        long younger;
+        synchronized (births) {
+            younger = births.total() - births.countBefore(bornBy[0] + 1);
+            for (int k = 0; k < bucketCount; k++) {
+                int fromAge = minimum + k * width;
+                boolean last = k == bucketCount - 1;
+                long count = last ? births.countBefore(bornBy[k] + 1)
+                        : births.count(bornBy[k + 1] + 1, bornBy[k]);
+                buckets.add(new AgeHistogram.Bucket(fromAge,
+                        last ? null : fromAge + width - 1, count));
+            }
+        }
+        return new AgeHistogram(today, minimum, younger, buckets);
+    }
+
+    /**
+     * Counts the users born within a range of dates.
+     *
+     * @param fromDate The first birth date to include.
+     * @param toDate   The last birth date to include.
+     * @return The number of users; only approximate for dates outside
+     * years 1 to 9999.
+     */
+    public long countBornBetween(LocalDate fromDate, LocalDate toDate) {
+        long from = epochDay(fromDate);
+        long to = epochDay(toDate);
+        synchronized (births) {
+            return births.count(from, to);
+        }
+    }
+
+    /**
+     * Counts users by birth year.
+     *
+     * @return The years in which users were born, in order, with the number
+     * of users born in each.
+     */
+    public List<BirthYearCount> birthYears() {
+        List<BirthYearCount> years = new ArrayList<>();
+        synchronized (births) {
+            if (births.total() == 0) {
+                return years;
+            }
+            int last = LocalDate.ofEpochDay(births.lastDay()).getYear();
+            for (int year = LocalDate.ofEpochDay(births.firstDay()).getYear(); year <= last;
+                 year++) {
+                long count = births.count(LocalDate.of(year, 1, 1).toEpochDay(),
+                        LocalDate.of(year, 12, 31).toEpochDay());
+                if (count > 0) {
+                    years.add(new BirthYearCount(year, count));
+                }
+            }
+        }
+        return years;
+    }
+
+    /**
+     * Counts users by birth month.
+     *
+     * @param year The year whose twelve months to count, or null for all
+     *             months in which users were born.
+     * @return The months in order, with the number of users born in each.
+     */
+    public List<BirthMonthCount> birthMonths(Integer year) {
+        List<BirthMonthCount> months = new ArrayList<>();
+        synchronized (births) {
+            YearMonth first;
+            YearMonth last;
+            if (year != null) {
+                first = YearMonth.of(year, 1);
+                last = YearMonth.of(year, 12);
+            } else if (births.total() > 0) {
+                first = YearMonth.from(LocalDate.ofEpochDay(births.firstDay()));
+                last = YearMonth.from(LocalDate.ofEpochDay(births.lastDay()));
+            } else {
+                return months;
+            }
+            for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+                long count = births.count(month.atDay(1).toEpochDay(),
+                        month.atEndOfMonth().toEpochDay());
+                if (count > 0 || year != null) {
+                    months.add(new BirthMonthCount(month, count));
+                }
+            }
+        }
+        return months;
+    }
+
+    private static LocalDate birthDate(User user) {
+        return user == null ? null : user.getBirthDate();
+    }
+
+    private static long epochDay(LocalDate date) {
+        return Math.max(FIRST_DAY, Math.min(LAST_DAY, date.toEpochDay()));
+    }
+}
@@ -1,12 +1,20 @@
 package com.example.clearsolutiontesttask.validator;
 
+import java.time.Clock;
 import java.time.LocalDate;
-import java.time.Period;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 /**
  * Validator component for validating user age.
+ *
+ * <p>Rather than computing a {@code Period} for every check, the validator
+ * keeps the latest birth date that is still old enough for the current day
+ * and compares against it. The cutoff is recomputed lazily on the first
+ * check after midnight. A user is old enough exactly when
+ * {@code birthDate <= today.minusYears(minimumAge)}, which matches
+ * {@code Period.between(birthDate, today).getYears() >= minimumAge},
+ * including birthdays on 29 February.
  */
 @Component
 public final class UserAgeValidator {
@@ -16,6 +24,21 @@ public final class UserAgeValidator {
     @Value("${user.age.minimum}")
     private int minimumAge;
 
+    private final Clock clock;
+    private volatile Cutoff cutoff;
+
+    public UserAgeValidator() {
+        this(Clock.systemDefaultZone());
+    }
+
+    UserAgeValidator(Clock clock) {
+        this.clock = clock;
+    }
+
+    UserAgeValidator(Clock clock, int minimumAge) {
+        this(clock);
+        this.minimumAge = minimumAge;
+    }
 
     /**
      * Checks if the user is old enough based on their birth date.
@@ -24,6 +47,48 @@ public final class UserAgeValidator {
      * @return true if the user is old enough, false otherwise.
      */
     public boolean isUserOldEnough(LocalDate birthDate) {
-        return Period.between(birthDate, LocalDate.now()).getYears() >= minimumAge;
+        return !birthDate.isAfter(currentCutoff());
+    }
+
+    /**
+     * Checks many birth dates against the same cutoff.
+     *
+     * @param birthDates The birth dates to validate.
+     * @return For each birth date, true if the user is old enough.
+     */
+    public boolean[] areUsersOldEnough(LocalDate[] birthDates) {
+        LocalDate latestBirthDate = currentCutoff();
+        boolean[] result = new boolean[birthDates.length];
+        for (int i = 0; i < birthDates.length; i++) {
+            result[i] = !birthDates[i].isAfter(latestBirthDate);
+        }
+        return result;
+    }
+
+    private LocalDate currentCutoff() {
+        Cutoff current = cutoff;
+        long now = clock.millis();
+        if (current == null || now < current.validFrom() || now >= current.validUntil()
+                || current.minimumAge() != minimumAge) {
+            current = computeCutoff();
+            cutoff = current;
+        }
+        return current.latestBirthDate();
+    }
+
+    private Cutoff computeCutoff() {
+        LocalDate today = LocalDate.now(clock);
+        long validFrom = today.atStartOfDay(clock.getZone()).toInstant().toEpochMilli();
+        long validUntil = today.plusDays(1).atStartOfDay(clock.getZone())
+                .toInstant().toEpochMilli();
+        return new Cutoff(today.minusYears(minimumAge), minimumAge, validFrom, validUntil);
+    }
+
+    /**
+     * The latest acceptable birth date, and the time span, in epoch
+     * milliseconds, of the day it was computed for.
+     */
+    private record Cutoff(LocalDate latestBirthDate, int minimumAge,
+                          long validFrom, long validUntil) {
     }
 }
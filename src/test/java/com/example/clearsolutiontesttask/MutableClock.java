@@ -0,0 +1,55 @@
+package com.example.clearsolutiontesttask;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A clock for tests that stands still until it is moved. Clocks derived
+ * with {@link #withZone(ZoneId)} move along with it.
+ */
+public final class MutableClock extends Clock {
+    private final AtomicReference<Instant> instant;
+    private final ZoneId zone;
+
+    /**
+     * Creates a UTC clock.
+     *
+     * @param instant The instant the clock shows.
+     */
+    public MutableClock(Instant instant) {
+        this(new AtomicReference<>(instant), ZoneOffset.UTC);
+    }
+
+    private MutableClock(AtomicReference<Instant> instant, ZoneId zone) {
+        this.instant = instant;
+        this.zone = zone;
+    }
+
+    /**
+     * Moves the clock.
+     *
+     * @param amount The time to move forward by; negative to move back.
+     */
+    public void advance(Duration amount) {
+        instant.updateAndGet(now -> now.plus(amount));
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return zone.equals(this.zone) ? this : new MutableClock(instant, zone);
+    }
+
+    @Override
+    public Instant instant() {
+        return instant.get();
+    }
+}
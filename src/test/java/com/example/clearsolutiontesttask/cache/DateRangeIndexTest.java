@@ -0,0 +1,51 @@
+package com.example.clearsolutiontesttask.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class DateRangeIndexTest {
+    @Test
+    @DisplayName("Lookups find exactly the ranges that contain the date")
+    void testMatchesScan() {
+        // Arrange
+        DateRangeIndex<Integer> index = new DateRangeIndex<>();
+        List<LocalDate[]> ranges = new ArrayList<>();
+        Random random = new Random(42);
+        LocalDate epoch = LocalDate.of(1970, 1, 1);
+        for (int i = 0; i < 500; i++) {
+            LocalDate from = epoch.plusDays(random.nextInt(4000) - 2000);
+            ranges.add(new LocalDate[] {from, from.plusDays(random.nextInt(i % 10 == 0 ? 3000 : 40))});
+            index.add(ranges.get(i)[0], ranges.get(i)[1], i);
+        }
+        ranges.add(new LocalDate[] {LocalDate.MIN, LocalDate.MAX});
+        index.add(LocalDate.MIN, LocalDate.MAX, 500);
+
+        // Act
+        for (int i = 0; i < 500; i += 2) {
+            index.remove(ranges.get(i)[0], ranges.get(i)[1], i);
+        }
+
+        // Assert
+        for (int day = -2100; day < 5100; day++) {
+            LocalDate date = epoch.plusDays(day);
+            Set<Integer> expected = new HashSet<>();
+            for (int i = 1; i < ranges.size(); i += 2) {
+                if (!date.isBefore(ranges.get(i)[0]) && !date.isAfter(ranges.get(i)[1])) {
+                    expected.add(i);
+                }
+            }
+            expected.add(500);
+            Set<Integer> found = new HashSet<>();
+            index.forEachContaining(date, found::add);
+            assertEquals(expected, found);
+        }
+    }
+}
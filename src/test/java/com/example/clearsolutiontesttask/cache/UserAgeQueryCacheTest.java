@@ -0,0 +1,91 @@
+package com.example.clearsolutiontesttask.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.exception.ValidationException;
+import com.example.clearsolutiontesttask.repository.UserChange;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class UserAgeQueryCacheTest {
+    private static final LocalDate FROM = LocalDate.of(1990, 1, 1);
+    private static final LocalDate TO = LocalDate.of(1995, 12, 31);
+
+    private final UserAgeQueryCache cache =
+            new UserAgeQueryCache(new UserJsonCache(new ObjectMapper(), true),
+                    new SimpleMeterRegistry(), 1 << 20);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    @DisplayName("Only writes inside the cached range invalidate it")
+    void testPreciseInvalidation() throws ValidationException {
+        query();
+        query();
+        assertEquals(1, loads.get());
+
+        cache.onChange(new UserChange(null, user(LocalDate.of(2001, 1, 1))));
+        query();
+        assertEquals(1, loads.get());
+
+        cache.onChange(new UserChange(user(LocalDate.of(1993, 1, 1)),
+                user(LocalDate.of(2001, 1, 1))));
+        query();
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("A result loaded while a write happened is not kept")
+    void testRacingWriteIsNotCached() throws ValidationException {
+        cache.get(FROM, TO, null, null, () -> {
+            loads.incrementAndGet();
+            cache.onChange(new UserChange(null, user(LocalDate.of(1993, 1, 1))));
+            return List.of();
+        });
+
+        query();
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("A write outside the range does not drop a result loaded meanwhile")
+    void testRacingWriteOutsideRangeIsCached() throws ValidationException {
+        cache.get(FROM, TO, null, null, () -> {
+            loads.incrementAndGet();
+            cache.onChange(new UserChange(null, user(LocalDate.of(2001, 1, 1))));
+            return List.of();
+        });
+
+        query();
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    @DisplayName("If-None-Match accepts lists, weak tags and wildcards")
+    void testMatches() throws ValidationException {
+        UserAgeQueryCache.CachedJson json = query();
+
+        assertTrue(json.matches("\"other\", W/" + json.etag()));
+        assertTrue(json.matches("*"));
+        assertFalse(json.matches("\"other\""));
+        assertFalse(json.matches(null));
+    }
+
+    private UserAgeQueryCache.CachedJson query() throws ValidationException {
+        return cache.get(FROM, TO, null, null, () -> {
+            loads.incrementAndGet();
+            return List.of();
+        });
+    }
+
+    private User user(LocalDate birthDate) {
+        return new User().setId(1).setBirthDate(birthDate);
+    }
+}
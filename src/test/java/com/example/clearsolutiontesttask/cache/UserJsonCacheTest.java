@@ -0,0 +1,100 @@
+package com.example.clearsolutiontesttask.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.example.clearsolutiontesttask.dto.UpdateFieldRequest;
+import com.example.clearsolutiontesttask.dto.UserPage;
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.exception.ValidationException;
+import com.example.clearsolutiontesttask.metrics.UserMetrics;
+import com.example.clearsolutiontesttask.repository.InMemoryUserRepository;
+import com.example.clearsolutiontesttask.repository.SequentialIdAllocator;
+import com.example.clearsolutiontesttask.repository.UserRepository;
+import com.example.clearsolutiontesttask.service.UserService;
+import com.example.clearsolutiontesttask.validator.UserAgeValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class UserJsonCacheTest {
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final UserJsonCache userJson = new UserJsonCache(objectMapper, true);
+
+    @Test
+    @DisplayName("Users, lists and pages are written as Jackson writes them")
+    void testMatchesJackson() throws IOException {
+        List<User> users = List.of(user(1), user(2).setAddress("\"Quoted\"\n"), user(3));
+        UserPage page = new UserPage(users, "next\"cursor");
+
+        assertArrayEquals(objectMapper.writeValueAsBytes(users.get(1)),
+                userJson.toJson(users.get(1)));
+        assertArrayEquals(objectMapper.writeValueAsBytes(users), userJson.toJson(users));
+        assertArrayEquals(objectMapper.writeValueAsBytes(List.of()), userJson.toJson(List.of()));
+        assertArrayEquals(objectMapper.writeValueAsBytes(page), userJson.toJson(page));
+        assertArrayEquals(objectMapper.writeValueAsBytes(new UserPage(users, null)),
+                userJson.toJson(new UserPage(users, null)));
+
+        var ndjson = new ByteArrayOutputStream();
+        userJson.writeNdjson(users.iterator(), ndjson);
+        String[] lines = ndjson.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(objectMapper.writeValueAsString(users.get(2)), lines[2]);
+    }
+
+    @Test
+    @DisplayName("The JSON is built once per stored user and follows writes")
+    void testCachedUntilWritten() throws ValidationException {
+        UserRepository userRepository = new InMemoryUserRepository();
+        var userService = new UserService(mock(UserAgeValidator.class), userRepository,
+                new SequentialIdAllocator(),
+                UserMetrics.disabled());
+        userRepository.save(user(1));
+        User stored = userService.findUserById(1);
+        byte[] json = userJson.toJson(stored);
+        assertSame(json, userJson.toJson(userService.findUserById(1)));
+
+        var patch = new UpdateFieldRequest();
+        patch.setAddress("Elm St");
+        userService.updateUserField(patch, 1);
+
+        String patched = new String(userJson.toJson(userService.findUserById(1)),
+                StandardCharsets.UTF_8);
+        assertTrue(patched.contains("\"address\":\"Elm St\""));
+        assertSame(json, stored.cachedJson());
+    }
+
+    @Test
+    @DisplayName("A disabled cache serializes every time and keeps nothing")
+    void testDisabled() {
+        var uncached = new UserJsonCache(objectMapper, false);
+        User user = user(1);
+
+        assertArrayEquals(uncached.toJson(user), uncached.toJson(user));
+        assertNull(user.cachedJson());
+    }
+
+    private static User user(int id) {
+        return new User()
+                .setId(id)
+                .setVersion(1)
+                .setEmail("user" + id + "@gmail.com")
+                .setFirstName("John")
+                .setLastName("Doe")
+                .setBirthDate(LocalDate.of(1990, 1, 2))
+                .setPhoneNumber("123 33 44 55")
+                .setAddress("Main St");
+    }
+}
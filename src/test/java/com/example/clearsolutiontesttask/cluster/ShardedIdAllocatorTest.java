@@ -0,0 +1,73 @@
+package com.example.clearsolutiontesttask.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ShardedIdAllocatorTest {
+    private static final int NODES = 3;
+    private static final int BLOCK_SIZE = 100;
+
+    @Test
+    @DisplayName("Nodes allocate disjoint IDs that they own themselves")
+    void testNodesNeverCollide() {
+        Set<Integer> allocated = new HashSet<>();
+        for (int node = 0; node < NODES; node++) {
+            UserShards shards = new UserShards(NODES, node, BLOCK_SIZE);
+            var allocator = new ShardedIdAllocator(shards);
+            for (int i = 0; i < 1_000; i++) {
+                int id = allocator.nextId();
+                assertTrue(shards.isLocal(id));
+                assertTrue(allocated.add(id), "ID " + id + " was allocated twice");
+            }
+            for (int i = 0; i < 20; i++) {
+                int first = allocator.nextIds(70);
+                for (int id = first; id < first + 70; id++) {
+                    assertTrue(shards.isLocal(id));
+                    assertTrue(allocated.add(id), "ID " + id + " was allocated twice");
+                }
+            }
+        }
+        assertEquals(NODES * 2_400, allocated.size());
+        assertThrows(IllegalArgumentException.class,
+                () -> new ShardedIdAllocator(new UserShards(NODES, 0, BLOCK_SIZE))
+                        .nextIds(BLOCK_SIZE + 1));
+    }
+
+    @Test
+    @DisplayName("Blocks are spread evenly over the nodes")
+    void testEvenSpread() {
+        UserShards shards = new UserShards(NODES, 0, BLOCK_SIZE);
+        int[] blocks = new int[NODES];
+        for (int block = 0; block < 30_000; block++) {
+            blocks[shards.ownerOfBlock(block)]++;
+        }
+        for (int count : blocks) {
+            assertTrue(Math.abs(count - 10_000) < 500, "Uneven spread: " + count);
+        }
+        assertEquals(shards.ownerOf(1), shards.ownerOf(BLOCK_SIZE));
+    }
+
+    @Test
+    @DisplayName("IDs restored from disk are never handed out again")
+    void testAdvancePast() {
+        UserShards shards = new UserShards(NODES, 1, BLOCK_SIZE);
+        var allocator = new ShardedIdAllocator(shards);
+        int first = allocator.nextId();
+        allocator.advancePast(first + 10);
+        assertEquals(first + 11, allocator.nextId());
+
+        int owned = first + 5 * NODES * BLOCK_SIZE;
+        while (!shards.isLocal(owned)) {
+            owned += BLOCK_SIZE;
+        }
+        allocator.advancePast(owned);
+        int next = allocator.nextId();
+        assertTrue(next > owned && shards.isLocal(next));
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.clearsolutiontesttask.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.clearsolutiontesttask.ClearSolutionTestTaskApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Runs two application nodes in one JVM, as a partitioned cluster.
+ */
+class UserClusterTest {
+    private static final HttpClient HTTP = HttpClient.newHttpClient();
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final List<ConfigurableApplicationContext> NODES = new ArrayList<>();
+    private static final List<String> URLS = new ArrayList<>();
+
+    @BeforeAll
+    static void startNodes() throws IOException {
+        for (int node = 0; node < 2; node++) {
+            try (var socket = new ServerSocket(0)) {
+                URLS.add("http://localhost:" + socket.getLocalPort());
+            }
+        }
+        for (int node = 0; node < 2; node++) {
+            NODES.add(new SpringApplicationBuilder(ClearSolutionTestTaskApplication.class)
+                    .properties("server.port=" + URI.create(URLS.get(node)).getPort(),
+                            "user.cluster.enabled=true",
+                            "user.cluster.nodes=" + String.join(",", URLS),
+                            "user.cluster.node-index=" + node,
+                            "user.cluster.id-block-size=16")
+                    .run());
+        }
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        NODES.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    @DisplayName("Users created on any node are found, updated and queried on every node")
+    void testPartitionedUsers() throws Exception {
+        for (int i = 0; i < 6; i++) {
+            HttpResponse<String> created = send(i % 2, "POST", "/users/add", """
+                    {"email": "user%d@gmail.com", "firstName": "John", "lastName": "Doe",
+                     "birthDate": "19%d0-01-01", "phoneNumber": "123", "address": "Main St"}
+                    """.formatted(i, 9 - i), null);
+            assertEquals(201, created.statusCode());
+        }
+
+        JsonNode all = JSON.readTree(send(0, "GET",
+                "/users/age?fromDate=1900-01-01&toDate=2000-01-01", null, null).body());
+        assertEquals(6, all.size());
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < 6; i++) {
+            assertEquals("user" + (5 - i) + "@gmail.com", all.get(i).get("email").asText());
+            ids.add(all.get(i).get("id").asInt());
+        }
+        assertEquals(6, ids.size());
+
+        JsonNode page = JSON.readTree(send(1, "GET",
+                "/users/age?fromDate=1900-01-01&toDate=2000-01-01&limit=4", null, null).body());
+        assertEquals(4, page.get("users").size());
+        page = JSON.readTree(send(1, "GET", "/users/age?fromDate=1900-01-01&toDate=2000-01-01"
+                + "&limit=4&cursor=" + page.get("nextCursor").asText(), null, null).body());
+        assertEquals(2, page.get("users").size());
+        assertEquals("user0@gmail.com", page.get("users").get(1).get("email").asText());
+        assertTrue(page.get("nextCursor").isNull());
+
+        // user1 was created on node 1, so node 0 has to forward.
+        int id = JSON.readTree(send(1, "GET", "/users/by-email?email=user1@gmail.com",
+                null, null).body()).get("id").asInt();
+        HttpResponse<String> found = send(0, "GET", "/users/" + id, null, null);
+        assertEquals(200, found.statusCode());
+        String eTag = found.headers().firstValue("ETag").orElseThrow();
+        assertEquals(412, send(0, "PATCH", "/users/updateField/" + id,
+                "{\"address\": \"Elm St\"}", "\"7\"").statusCode());
+        assertEquals(200, send(0, "PATCH", "/users/updateField/" + id,
+                "{\"address\": \"Elm St\"}", eTag).statusCode());
+        JsonNode updated = JSON.readTree(send(1, "GET", "/users/" + id, null, null).body());
+        assertEquals("Elm St", updated.get("address").asText());
+        assertEquals(2, updated.get("version").asInt());
+
+        JsonNode byEmail = JSON.readTree(send(0, "GET", "/users/by-email?email=user1@gmail.com",
+                null, null).body());
+        assertEquals(id, byEmail.get("id").asInt());
+        assertEquals(2, byEmail.get("version").asInt());
+        assertEquals(1, JSON.readTree(send(0, "GET", "/users/search?q=elm", null, null).body())
+                .get("users").size());
+        assertEquals(204, send(0, "DELETE", "/users/delete/" + id, null, null).statusCode());
+        assertEquals(404, send(1, "GET", "/users/" + id, null, null).statusCode());
+
+        JsonNode histogram = JSON.readTree(send(1, "GET",
+                "/users/stats/age-histogram?width=100&buckets=1", null, null).body());
+        assertEquals(5, histogram.get("buckets").get(0).get("count").asInt());
+        assertEquals(5, JSON.readTree(send(0, "GET", "/users/stats/birth-years",
+                null, null).body()).size());
+        assertEquals(1, JSON.readTree(send(0, "GET", "/users/stats/birth-months?year=1990",
+                null, null).body()).get(0).get("count").asInt());
+
+        JsonNode queried = JSON.readTree(send(1, "GET",
+                "/users/query?lastNamePrefix=do&sort=birthDate&limit=3", null, null).body());
+        assertEquals(3, queried.size());
+        assertEquals("user5@gmail.com", queried.get(0).get("email").asText());
+        assertEquals("user3@gmail.com", queried.get(2).get("email").asText());
+
+        List<Integer> remaining = new ArrayList<>(ids);
+        remaining.remove(Integer.valueOf(id));
+        String[] exported = send(1, "GET", "/users/export", null, null).body().split("\n");
+        assertEquals(6, exported.length);
+        for (int i = 0; i < remaining.size(); i++) {
+            assertEquals(remaining.stream().sorted().toList().get(i),
+                    Integer.valueOf(exported[i + 1].substring(0, exported[i + 1].indexOf(','))));
+        }
+        JsonNode patched = JSON.readTree(send(0, "POST", "/users/bulk/updateField",
+                "{\"ids\": " + remaining + ", \"fields\": {\"lastName\": \"Roe\"}}",
+                null).body());
+        assertEquals(5, patched.get("applied").asInt());
+        assertEquals(5, JSON.readTree(send(1, "GET", "/users/query?lastNamePrefix=roe",
+                null, null).body()).size());
+        JsonNode deleted = JSON.readTree(send(1, "POST", "/users/bulk/delete",
+                "{\"fromDate\": \"1900-01-01\", \"toDate\": \"1970-01-01\"}", null).body());
+        assertEquals(4, deleted.get("applied").asInt());
+        assertEquals(1, JSON.readTree(send(0, "GET",
+                "/users/age?fromDate=1900-01-01&toDate=2000-01-01", null, null).body()).size());
+
+        // More users than fit in one ID block.
+        List<String> batch = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            batch.add("""
+                    {"email": "batch%d@gmail.com", "firstName": "John", "lastName": "Doe",
+                     "birthDate": "1980-01-01", "phoneNumber": "123", "address": "Main St"}
+                    """.formatted(i));
+        }
+        HttpResponse<String> imported = send(0, "POST", "/users/batch", batch.toString(), null);
+        assertEquals(200, imported.statusCode());
+        assertEquals(40, JSON.readTree(imported.body()).get("accepted").asInt());
+        assertEquals(41, JSON.readTree(send(1, "GET",
+                "/users/age?fromDate=1900-01-01&toDate=2000-01-01", null, null).body()).size());
+    }
+
+    private static HttpResponse<String> send(int node, String method, String path, String body,
+                                             String ifMatch) throws Exception {
+        var request = HttpRequest.newBuilder(URI.create(URLS.get(node) + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body));
+        if (body != null) {
+            request.header("Content-Type", "application/json");
+        }
+        if (ifMatch != null) {
+            request.header("If-Match", ifMatch);
+        }
+        return HTTP.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -1,20 +1,28 @@
 package com.example.clearsolutiontesttask.controller;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.example.clearsolutiontesttask.dto.UserPage;
 import com.example.clearsolutiontesttask.entity.User;
-import com.example.clearsolutiontesttask.service.UserService;
+import com.example.clearsolutiontesttask.repository.UserRepository;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -33,7 +41,7 @@ public class UserControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
     @Autowired
-    private UserService userService;
+    private UserRepository userRepository;
 
     @BeforeAll
     static void beforeAll(@Autowired WebApplicationContext applicationContext) {
@@ -43,7 +51,7 @@ public class UserControllerTest {
 
     @BeforeEach
     void setUp() {
-        userService.getUsers().clear();
+        userRepository.deleteAll();
     }
 
     @Test
@@ -56,7 +64,7 @@ public class UserControllerTest {
                         .content(jsonRequest))
                 .andExpect(status().isCreated());
 
-        assertEquals(1, userService.getUsers().size());
+        assertEquals(1, userRepository.count());
     }
 
     @Test
@@ -67,17 +75,17 @@ public class UserControllerTest {
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(jsonRequest))
                 .andExpect(status().isBadRequest());
-        assertEquals(0, userService.getUsers().size());
+        assertEquals(0, userRepository.count());
     }
 
     @Test
     @DisplayName("Success delete user from list")
     void testDeleteUserSuccess() throws Exception {
-        userService.getUsers().add(createDefaultValidUser());
+        userRepository.save(createDefaultValidUser());
         mockMvc.perform(delete("/users/delete/1"))
                 .andExpect(status().isNoContent());
 
-        assertEquals(0, userService.getUsers().size());
+        assertEquals(0, userRepository.count());
     }
 
     @Test
@@ -90,7 +98,7 @@ public class UserControllerTest {
     @Test
     void testUpdateUserSuccess() throws Exception {
         var user = createDefaultValidUser();
-        userService.getUsers().add(user);
+        userRepository.save(user);
         user.setEmail("newEmail@gmail.com");
         user.setFirstName("New name"); // old fields are same
         var jsonRequest = objectMapper.writeValueAsString(user);
@@ -98,7 +106,7 @@ public class UserControllerTest {
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(jsonRequest))
                 .andExpect(status().isOk());
-        User updatedUser = userService.getUsers().get(0);
+        User updatedUser = userRepository.findById(1).orElseThrow();
 
         assertEquals("newEmail@gmail.com", updatedUser.getEmail());
         assertEquals("New name", updatedUser.getFirstName());
@@ -108,7 +116,7 @@ public class UserControllerTest {
     @Test
     void testUpdateUserBadRequest() throws Exception {
         var user = createDefaultValidUser();
-        userService.getUsers().add(user);
+        userRepository.save(user);
         var updateRequest = new User().setEmail("ValidMail@gmail.com")
                 .setFirstName("Homer")
                 .setAddress("Street 123");
@@ -124,7 +132,7 @@ public class UserControllerTest {
     @Test
     void testUpdateUserFieldSuccess() throws Exception {
         var user = createDefaultValidUser();
-        userService.getUsers().add(user);
+        userRepository.save(user);
         var newAddress = new User().setAddress("new Address");
         var jsonRequest = objectMapper.writeValueAsString(newAddress);
 
@@ -133,15 +141,85 @@ public class UserControllerTest {
                         .content(jsonRequest))
                 .andExpect(status().isOk());
 
-        User updatedUser = userService.getUsers().get(0);
+        User updatedUser = userRepository.findById(1).orElseThrow();
 
         assertEquals("new Address", updatedUser.getAddress());
     }
 
+    @Test
+    @DisplayName("PATCH with If-Match applies only to the version it names")
+    void testUpdateUserField_IfMatch() throws Exception {
+        userRepository.save(createDefaultValidUser().setVersion(1));
+
+        String etag = mockMvc.perform(patch("/users/updateField/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"address\":\"new Address\"}")
+                        .header("If-Match", "\"1\""))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertEquals("\"2\"", etag);
+
+        mockMvc.perform(patch("/users/updateField/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"address\":\"stale Address\"}")
+                        .header("If-Match", "\"1\""))
+                .andExpect(status().isPreconditionFailed());
+        assertEquals("new Address", userRepository.findById(1).orElseThrow().getAddress());
+    }
+
+    @Test
+    @DisplayName("GET by ID returns the version as ETag and honours If-None-Match")
+    void testFindUserById() throws Exception {
+        userRepository.save(createDefaultValidUser().setVersion(3));
+
+        mockMvc.perform(get("/users/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(jsonPath("$.email").value("johnDoe@gmail.com"))
+                .andExpect(jsonPath("$.version").value(3));
+        mockMvc.perform(get("/users/1").header("If-None-Match", "\"3\""))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/users/1").header("If-None-Match", "\"2\", W/\"3\""))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/users/1").header("If-None-Match", "\"2\", \"4\""))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/users/2"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("PUT and DELETE with a stale If-Match are rejected")
+    void testConditionalUpdateAndDelete() throws Exception {
+        userRepository.save(createDefaultValidUser().setVersion(1));
+        var jsonRequest = objectMapper.writeValueAsString(
+                createDefaultValidUser().setFirstName("Jane"));
+
+        mockMvc.perform(put("/users/update/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonRequest)
+                        .header("If-Match", "\"1\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2\""));
+        mockMvc.perform(put("/users/update/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonRequest)
+                        .header("If-Match", "\"1\""))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(delete("/users/delete/1").header("If-Match", "\"1\""))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(delete("/users/delete/1").header("If-Match", "\"1\", W/\"2\""))
+                .andExpect(status().isPreconditionFailed());
+        assertEquals(1, userRepository.count());
+
+        mockMvc.perform(delete("/users/delete/1").header("If-Match", "\"1\", \"2\""))
+                .andExpect(status().isNoContent());
+        assertEquals(0, userRepository.count());
+    }
+
     @Test
     void testFindUsersByAgeBetween_ValidDates_Success() throws Exception {
         var user = createDefaultValidUser();
-        userService.getUsers().add(user);
+        userRepository.save(user);
 
         var secondUser = new User();
         secondUser.setBirthDate(LocalDate.of(1994, 10, 12))
@@ -152,11 +230,12 @@ public class UserControllerTest {
                 .setAddress("Address 1")
                 .setPhoneNumber("999 99 99 99");
 
-        userService.getUsers().add(secondUser);
+        userRepository.save(secondUser);
 
         var thirdUser = createDefaultValidUser();
-        thirdUser.setBirthDate(LocalDate.of(2000,2,12));
-        userService.getUsers().add(thirdUser);
+        thirdUser.setBirthDate(LocalDate.of(2000,2,12)).setId(3)
+                .setEmail("thirdUser@gmail.com");
+        userRepository.save(thirdUser);
 
         MvcResult result = mockMvc.perform(get("/users/age")
                         .param("fromDate", "1990-01-01")
@@ -175,6 +254,422 @@ public class UserControllerTest {
         assertEquals(2, actualUserList.size());
     }
 
+    @Test
+    void testFindUsersPageByAgeBetween_FollowsCursor() throws Exception {
+        saveUsersBornIn(1991, 1992, 1993);
+
+        MvcResult firstPage = mockMvc.perform(get("/users/age")
+                        .param("fromDate", "1990-01-01")
+                        .param("toDate", "1995-12-31")
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users.length()").value(2))
+                .andExpect(jsonPath("$.users[0].id").value(1))
+                .andExpect(jsonPath("$.users[1].id").value(2))
+                .andReturn();
+        String cursor = objectMapper.readValue(firstPage.getResponse()
+                .getContentAsString(), UserPage.class).getNextCursor();
+
+        MvcResult secondPage = mockMvc.perform(get("/users/age")
+                        .param("fromDate", "1990-01-01")
+                        .param("toDate", "1995-12-31")
+                        .param("limit", "2")
+                        .param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users.length()").value(1))
+                .andExpect(jsonPath("$.users[0].id").value(3))
+                .andReturn();
+
+        assertNull(objectMapper.readValue(secondPage.getResponse()
+                .getContentAsString(), UserPage.class).getNextCursor());
+    }
+
+    @Test
+    void testFindUsersPageByAgeBetween_InvalidCursor() throws Exception {
+        mockMvc.perform(get("/users/age")
+                        .param("fromDate", "1990-01-01")
+                        .param("toDate", "1995-12-31")
+                        .param("limit", "2")
+                        .param("cursor", "not a cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Unchanged age query results are answered with 304")
+    void testFindUsersByAgeBetween_NotModified() throws Exception {
+        saveUsersBornIn(1991, 1992);
+
+        String etag = mockMvc.perform(get("/users/age")
+                        .param("fromDate", "1990-01-01")
+                        .param("toDate", "1995-12-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/users/age")
+                        .param("fromDate", "1990-01-01")
+                        .param("toDate", "1995-12-31")
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @DisplayName("Writes in a cached date range refresh the age query result")
+    void testFindUsersByAgeBetween_InvalidatedByWrite() throws Exception {
+        saveUsersBornIn(1991, 1992);
+        String etag = mockMvc.perform(get("/users/age")
+                        .param("fromDate", "1990-01-01")
+                        .param("toDate", "1995-12-31"))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andReturn().getResponse().getHeader("ETag");
+
+        userRepository.save(createDefaultValidUser()
+                .setId(3)
+                .setEmail("user3@gmail.com")
+                .setBirthDate(LocalDate.of(1993, 5, 5)));
+
+        mockMvc.perform(get("/users/age")
+                        .param("fromDate", "1990-01-01")
+                        .param("toDate", "1995-12-31")
+                        .header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3));
+    }
+
+    @Test
+    void testStreamUsersByAgeBetween_Ndjson() throws Exception {
+        saveUsersBornIn(1991, 1992, 1999);
+
+        MvcResult result = mockMvc.perform(get("/users/age")
+                        .param("fromDate", "1990-01-01")
+                        .param("toDate", "1995-12-31")
+                        .param("stream", "ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(2, objectMapper.readValue(lines[1], User.class).getId());
+    }
+
+    @Test
+    void testStreamUsersByAgeBetween_JsonArray() throws Exception {
+        saveUsersBornIn(1991, 1992, 1999);
+
+        MvcResult result = mockMvc.perform(get("/users/age")
+                        .param("fromDate", "1990-01-01")
+                        .param("toDate", "1995-12-31")
+                        .param("stream", "json"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        List<User> users = objectMapper.readValue(body, new TypeReference<>() {
+        });
+        assertEquals(2, users.size());
+    }
+
+    @Test
+    @DisplayName("A stream combined with limit, or an unknown stream format, is rejected")
+    void testStreamUsersByAgeBetween_Rejected() throws Exception {
+        mockMvc.perform(get("/users/age")
+                        .param("fromDate", "1990-01-01")
+                        .param("toDate", "1995-12-31")
+                        .param("limit", "10")
+                        .param("stream", "ndjson"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/users/age")
+                        .param("fromDate", "1990-01-01")
+                        .param("toDate", "1995-12-31")
+                        .param("stream", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Batch import adds valid users and reports invalid ones")
+    void testAddNewUsersBatch() throws Exception {
+        var tooYoung = createDefaultValidUser().setBirthDate(LocalDate.now().minusYears(1));
+        var jsonRequest = objectMapper.writeValueAsString(List.of(
+                createDefaultValidUser(), createInvalidUser(), tooYoung,
+                createDefaultValidUser().setEmail("other@gmail.com"),
+                createDefaultValidUser().setEmail("JohnDoe@gmail.com")));
+
+        mockMvc.perform(post("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonRequest))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.errors.length()").value(3))
+                .andExpect(jsonPath("$.errors[0].index").value(1))
+                .andExpect(jsonPath("$.errors[0].messages[0]")
+                        .value("Invalid email format"))
+                .andExpect(jsonPath("$.errors[1].index").value(2))
+                .andExpect(jsonPath("$.errors[1].messages[0]")
+                        .value("User is not old enough."))
+                .andExpect(jsonPath("$.errors[2].index").value(4))
+                .andExpect(jsonPath("$.errors[2].messages[0]")
+                        .value("Email is already in use."));
+
+        assertEquals(2, userRepository.count());
+    }
+
+    @Test
+    @DisplayName("NDJSON batch import reports malformed lines by position")
+    void testAddNewUsersBatchNdjson() throws Exception {
+        var validUser = objectMapper.writeValueAsString(createDefaultValidUser());
+        var otherUser = objectMapper.writeValueAsString(createDefaultValidUser()
+                .setEmail("other@gmail.com"));
+        var ndjson = validUser + "\n{not json\n\n" + otherUser + "\n";
+
+        mockMvc.perform(post("/users/batch")
+                        .contentType(UserController.APPLICATION_NDJSON_VALUE)
+                        .content(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.errors.length()").value(1))
+                .andExpect(jsonPath("$.errors[0].index").value(1))
+                .andExpect(jsonPath("$.errors[0].messages[0]").value("Malformed JSON"));
+
+        assertEquals(2, userRepository.count());
+    }
+
+    @Test
+    @DisplayName("Adding a user with a taken email returns 409")
+    void testAddNewUser_DuplicateEmail() throws Exception {
+        userRepository.save(createDefaultValidUser());
+        var jsonRequest = objectMapper.writeValueAsString(createDefaultValidUser()
+                .setEmail("JOHNDOE@gmail.com"));
+
+        mockMvc.perform(post("/users/add")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonRequest))
+                .andExpect(status().isConflict());
+
+        assertEquals(1, userRepository.count());
+    }
+
+    @Test
+    @DisplayName("Users are found by email regardless of case")
+    void testFindUserByEmail() throws Exception {
+        userRepository.save(createDefaultValidUser());
+
+        mockMvc.perform(get("/users/by-email").param("email", "JohnDoe@Gmail.com"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1));
+        mockMvc.perform(get("/users/by-email").param("email", "nobody@gmail.com"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("Search pages through users matching every query word")
+    void testSearchUsers() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            userRepository.save(createDefaultValidUser()
+                    .setId(i)
+                    .setEmail("user" + i + "@gmail.com")
+                    .setAddress(i + " Baker Street"));
+        }
+
+        String cursor = mockMvc.perform(get("/users/search")
+                        .param("q", "JOHN bak")
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users.length()").value(2))
+                .andExpect(jsonPath("$.users[0].id").value(1))
+                .andReturn().getResponse().getContentAsString();
+        cursor = objectMapper.readTree(cursor).get("nextCursor").asText();
+
+        mockMvc.perform(get("/users/search")
+                        .param("q", "JOHN bak")
+                        .param("limit", "2")
+                        .param("cursor", cursor))
+                .andExpect(jsonPath("$.users.length()").value(1))
+                .andExpect(jsonPath("$.users[0].id").value(3))
+                .andExpect(jsonPath("$.nextCursor").isEmpty());
+        mockMvc.perform(get("/users/search").param("q", "?!"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Long poll answers with the changes after the cursor")
+    void testPollChanges() throws Exception {
+        MvcResult head = mockMvc.perform(get("/users/changes").param("wait", "0"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(head))
+                .andExpect(jsonPath("$.events.length()").value(0))
+                .andReturn().getResponse().getContentAsString();
+        String cursor = objectMapper.readTree(body).get("cursor").asText();
+
+        MvcResult result = mockMvc.perform(get("/users/changes")
+                        .param("cursor", cursor)
+                        .param("wait", "5"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(post("/users/add")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(createDefaultValidUser())))
+                .andExpect(status().isCreated());
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.events.length()").value(1))
+                .andExpect(jsonPath("$.events[0].type").value("CREATED"))
+                .andExpect(jsonPath("$.events[0].user.email").value("johnDoe@gmail.com"))
+                .andExpect(jsonPath("$.resync").value(false));
+        mockMvc.perform(get("/users/changes").param("cursor", "?!"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Statistics count users by age, birth year and birth month")
+    void testUserStats() throws Exception {
+        saveUsersBornIn(1990, 1985, 1990, 1900);
+
+        mockMvc.perform(get("/users/stats/age-histogram")
+                        .param("width", "50")
+                        .param("buckets", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.younger").value(0))
+                .andExpect(jsonPath("$.buckets[0].fromAge").value(18))
+                .andExpect(jsonPath("$.buckets[0].toAge").value(67))
+                .andExpect(jsonPath("$.buckets[0].count").value(3))
+                .andExpect(jsonPath("$.buckets[1].toAge").doesNotExist())
+                .andExpect(jsonPath("$.buckets[1].count").value(1));
+        mockMvc.perform(get("/users/stats/birth-years"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[2].year").value(1990))
+                .andExpect(jsonPath("$[2].count").value(2));
+        mockMvc.perform(get("/users/stats/birth-months").param("year", "1990"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(12))
+                .andExpect(jsonPath("$[4].month").value("1990-05"))
+                .andExpect(jsonPath("$[4].count").value(2));
+        mockMvc.perform(get("/users/stats/age-histogram").param("width", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Queries combine filters, sort and limit")
+    void testQueryUsers() throws Exception {
+        saveUsersBornIn(1990, 1985, 1970, 2000);
+        userRepository.save(createDefaultValidUser()
+                .setId(2)
+                .setEmail("user2@yahoo.com")
+                .setBirthDate(LocalDate.of(1985, 5, 5)));
+        userRepository.save(createDefaultValidUser()
+                .setId(3)
+                .setEmail("user3@gmail.com")
+                .setLastName("Smith")
+                .setBirthDate(LocalDate.of(1970, 5, 5)));
+
+        mockMvc.perform(get("/users/query")
+                        .param("fromDate", "1980-01-01")
+                        .param("toDate", "2005-01-01")
+                        .param("lastNamePrefix", "DO")
+                        .param("emailDomain", "gmail.com")
+                        .param("sort", "birthDate"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(UserController.QUERY_PLAN_HEADER))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[1].id").value(4));
+        mockMvc.perform(get("/users/query").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(1));
+        mockMvc.perform(get("/users/query").param("sort", "email"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Bulk patch and delete report every user they did not write")
+    void testBulkWrites() throws Exception {
+        saveUsersBornIn(1990, 1985, 1970, 2000);
+
+        mockMvc.perform(post("/users/bulk/updateField")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"ids": [1, 2, 9], "fields": {"address": "Elm St"}}"""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applied").value(2))
+                .andExpect(jsonPath("$.errors.length()").value(1))
+                .andExpect(jsonPath("$.errors[0].id").value(9));
+        assertEquals("Elm St", userRepository.findById(2).orElseThrow().getAddress());
+        mockMvc.perform(post("/users/bulk/updateField")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"ids": [1], "fields": {"email": "invalid"}}"""))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post("/users/bulk/delete")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"fromDate": "1980-01-01", "toDate": "1995-12-31"}"""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applied").value(2))
+                .andExpect(jsonPath("$.errors.length()").value(0));
+        assertEquals(2, userRepository.count());
+        mockMvc.perform(post("/users/bulk/delete")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"ids": [3], "fromDate": "1980-01-01"}"""))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Export streams all users by id as CSV or gzipped NDJSON")
+    void testExportUsers() throws Exception {
+        saveUsersBornIn(1999, 1991, 1992);
+
+        MvcResult csv = mockMvc.perform(get("/users/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(csv))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv"))
+                .andExpect(header().string("Content-Disposition",
+                        "attachment; filename=\"users.csv\""))
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        assertEquals(4, lines.length);
+        assertEquals("2,0,user2@gmail.com,John,Doe,1991-05-05,123 33 44 55,123 Main.st 1",
+                lines[2]);
+
+        MvcResult ndjson = mockMvc.perform(get("/users/export")
+                        .param("format", "ndjson")
+                        .param("gzip", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] gzipped = mockMvc.perform(asyncDispatch(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            lines = new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n");
+        }
+        assertEquals(3, lines.length);
+        assertEquals(objectMapper.writeValueAsString(userRepository.findById(3).orElseThrow()),
+                lines[2]);
+
+        mockMvc.perform(get("/users/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private void saveUsersBornIn(int... years) {
+        for (int i = 0; i < years.length; i++) {
+            userRepository.save(createDefaultValidUser()
+                    .setId(i + 1)
+                    .setEmail("user" + (i + 1) + "@gmail.com")
+                    .setBirthDate(LocalDate.of(years[i], 5, 5)));
+        }
+    }
+
     private User createDefaultValidUser() {
         return new User()
                 .setId(1)
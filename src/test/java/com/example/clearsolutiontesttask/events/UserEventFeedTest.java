@@ -0,0 +1,110 @@
+package com.example.clearsolutiontesttask.events;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.clearsolutiontesttask.dto.ChangeCursor;
+import com.example.clearsolutiontesttask.dto.UserEvent;
+import com.example.clearsolutiontesttask.dto.UserEventBatch;
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.exception.ValidationException;
+import com.example.clearsolutiontesttask.repository.InMemoryUserRepository;
+import com.example.clearsolutiontesttask.repository.UserRepository;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class UserEventFeedTest {
+    private final UserEventFeed feed = new UserEventFeed(8);
+    private final UserRepository userRepository = new InMemoryUserRepository(List.of(feed));
+
+    @Test
+    @DisplayName("Writes are read back in order with their types")
+    void testReadInOrder() throws ValidationException {
+        ChangeCursor start = feed.head();
+        User user = getUser(1, "John");
+        userRepository.save(user);
+        userRepository.replace(user, getUser(1, "Jane"));
+        userRepository.deleteById(1);
+
+        UserEventBatch batch = feed.read(start, 2);
+        assertFalse(batch.isResync());
+        assertEquals(List.of(UserEvent.Type.CREATED, UserEvent.Type.UPDATED),
+                batch.getEvents().stream().map(UserEvent::type).toList());
+        assertEquals("Jane", batch.getEvents().get(1).user().getFirstName());
+
+        batch = feed.read(ChangeCursor.fromToken(batch.getCursor()), 10);
+        assertEquals(1, batch.getEvents().size());
+        UserEvent deleted = batch.getEvents().get(0);
+        assertEquals(UserEvent.Type.DELETED, deleted.type());
+        assertEquals(1, deleted.id());
+        assertNull(deleted.user());
+
+        batch = feed.read(ChangeCursor.fromToken(batch.getCursor()), 10);
+        assertTrue(batch.getEvents().isEmpty());
+        assertEquals(feed.head(), ChangeCursor.fromToken(batch.getCursor()));
+    }
+
+    @Test
+    @DisplayName("A consumer that fell behind the ring is told to resync")
+    void testResyncAfterOverflow() throws ValidationException {
+        ChangeCursor start = feed.head();
+        for (int id = 1; id <= 9; id++) {
+            userRepository.save(getUser(id, "John"));
+        }
+
+        UserEventBatch batch = feed.read(start, 10);
+        assertTrue(batch.isResync());
+        assertEquals(feed.head(), ChangeCursor.fromToken(batch.getCursor()));
+        assertEquals(8, feed.read(new ChangeCursor(start.epoch(), 1), 10).getEvents().size());
+    }
+
+    @Test
+    @DisplayName("Cursors of another run are told to resync")
+    void testResyncOnForeignCursor() {
+        ChangeCursor head = feed.head();
+        assertTrue(feed.read(new ChangeCursor(head.epoch() + 1, 0), 10).isResync());
+        assertTrue(feed.read(new ChangeCursor(head.epoch(), head.sequence() + 1), 10)
+                .isResync());
+        assertThrows(ValidationException.class, () -> ChangeCursor.fromToken("not a cursor"));
+    }
+
+    @Test
+    @DisplayName("A poll completes once a write is published")
+    void testPollWaitsForWrite() throws Exception {
+        CompletableFuture<UserEventBatch> poll = feed.poll(feed.head(), 10);
+        assertFalse(poll.isDone());
+
+        userRepository.save(getUser(1, "John"));
+
+        UserEventBatch batch = poll.get(5, TimeUnit.SECONDS);
+        assertEquals(1, batch.getEvents().size());
+        assertEquals(1, batch.getEvents().get(0).id());
+    }
+
+    @Test
+    @DisplayName("A cancelled poll stops waiting without a write")
+    void testCancelledPollIsDropped() {
+        CompletableFuture<UserEventBatch> poll = feed.poll(feed.head(), 10);
+        CompletableFuture<UserEventBatch> other = feed.poll(feed.head(), 10);
+        assertEquals(2, feed.waiting());
+
+        poll.cancel(false);
+        other.orTimeout(1, TimeUnit.MILLISECONDS).exceptionally(failure -> null).join();
+
+        assertEquals(0, feed.waiting());
+    }
+
+    private User getUser(int id, String firstName) {
+        return new User()
+                .setId(id)
+                .setEmail("user" + id + "@example.com")
+                .setFirstName(firstName)
+                .setLastName("Doe");
+    }
+}
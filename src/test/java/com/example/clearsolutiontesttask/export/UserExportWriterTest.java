@@ -0,0 +1,111 @@
+package com.example.clearsolutiontesttask.export;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.exception.ValidationException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class UserExportWriterTest {
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Test
+    @DisplayName("NDJSON lines are the JSON the API returns for each user")
+    void testNdjsonMatchesJackson() throws IOException {
+        List<User> users = List.of(
+                getUser(1),
+                getUser(2).setFirstName("Олена \"Lena\"\\").setLastName("Tab\tNew\nLine\u0001")
+                        .setAddress("Emoji \uD83D\uDE00 lone \uD800"),
+                getUser(3).setBirthDate(null).setPhoneNumber(null),
+                getUser(Integer.MAX_VALUE).setVersion(Long.MAX_VALUE)
+                        .setBirthDate(LocalDate.of(12_345, 1, 1)));
+
+        String[] lines = export(users, ExportFormat.NDJSON, false).split("\n");
+
+        assertEquals(users.size(), lines.length);
+        for (int i = 0; i < users.size(); i++) {
+            // Jackson writes a lone surrogate as-is; both read back the same.
+            String expected = objectMapper.writeValueAsString(users.get(i))
+                    .replace("\uD800", "?");
+            assertEquals(expected, lines[i]);
+        }
+    }
+
+    @Test
+    @DisplayName("CSV quotes fields with separators, quotes or line breaks")
+    void testCsvQuoting() throws IOException {
+        List<User> users = List.of(
+                getUser(1),
+                getUser(2).setAddress("Main St, 1").setLastName("O\"Neil")
+                        .setFirstName("Two\nLines").setBirthDate(null));
+
+        String csv = export(users, ExportFormat.CSV, false);
+
+        assertEquals("""
+                id,version,email,firstName,lastName,birthDate,phoneNumber,address
+                1,1,user1@gmail.com,John,Doe,1990-01-02,123 33 44 55,Kyiv
+                2,1,user2@gmail.com,"Two
+                Lines","O""Neil",,123 33 44 55,"Main St, 1"
+                """, csv);
+    }
+
+    @Test
+    @DisplayName("Large exports round-trip through gzip")
+    void testGzipRoundTrip() throws IOException {
+        List<User> users = new ArrayList<>();
+        for (int id = 1; id <= 20_000; id++) {
+            users.add(getUser(id));
+        }
+        var out = new ByteArrayOutputStream();
+
+        long written = UserExportWriter.export(users.iterator(), ExportFormat.NDJSON, true, out);
+
+        assertEquals(users.size(), written);
+        byte[] unzipped;
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            unzipped = in.readAllBytes();
+        }
+        assertEquals(export(users, ExportFormat.NDJSON, false),
+                new String(unzipped, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Unknown formats are rejected")
+    void testUnknownFormat() {
+        assertThrows(ValidationException.class, () -> ExportFormat.fromParameter("xml"));
+    }
+
+    private static String export(List<User> users, ExportFormat format, boolean gzip)
+            throws IOException {
+        var out = new ByteArrayOutputStream();
+        UserExportWriter.export(users.iterator(), format, gzip, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static User getUser(int id) {
+        return new User()
+                .setId(id)
+                .setVersion(1)
+                .setEmail("user" + id + "@gmail.com")
+                .setFirstName("John")
+                .setLastName("Doe")
+                .setBirthDate(LocalDate.of(1990, 1, 2))
+                .setPhoneNumber("123 33 44 55")
+                .setAddress("Kyiv");
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.clearsolutiontesttask.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.exception.ValidationException;
+import com.example.clearsolutiontesttask.repository.InMemoryUserRepository;
+import com.example.clearsolutiontesttask.repository.SequentialIdAllocator;
+import com.example.clearsolutiontesttask.repository.UserRepository;
+import com.example.clearsolutiontesttask.service.UserService;
+import com.example.clearsolutiontesttask.validator.UserAgeValidator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityNotFoundException;
+import java.time.LocalDate;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class UserMetricsTest {
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final UserRepository userRepository = new InMemoryUserRepository();
+    private final UserAgeValidator ageValidator = mock(UserAgeValidator.class);
+
+    @Test
+    @DisplayName("Service operations are timed and failures counted")
+    void testServiceMetrics() throws ValidationException {
+        UserService userService = newUserService(true);
+        when(ageValidator.isUserOldEnough(any(LocalDate.class))).thenReturn(true, false);
+
+        userService.addUser(getUser());
+        assertThrows(ValidationException.class, () -> userService.addUser(getUser()));
+        assertThrows(EntityNotFoundException.class, () -> userService.deleteUser(42));
+
+        assertEquals(2, registry.get("users.service").tag("operation", "add").timer().count());
+        assertEquals(1, registry.get("users.service").tag("operation", "delete").timer().count());
+        assertEquals(1, registry.get("users.validation.failures").counter().count());
+        assertEquals(1, registry.get("users.not.found").counter().count());
+        assertEquals(1, registry.get("users.store.size").gauge().value());
+        assertEquals(1, registry.get("users.index.size").tag("index", "birthDate")
+                .gauge().value());
+    }
+
+    @Test
+    @DisplayName("Disabled metrics register no meters")
+    void testDisabled() throws ValidationException {
+        UserService userService = newUserService(false);
+        when(ageValidator.isUserOldEnough(any(LocalDate.class))).thenReturn(true);
+
+        userService.addUser(getUser());
+
+        assertTrue(registry.getMeters().isEmpty());
+    }
+
+    private UserService newUserService(boolean enabled) {
+        return new UserService(ageValidator, userRepository, new SequentialIdAllocator(),
+                new UserMetrics(registry, userRepository, enabled));
+    }
+
+    private User getUser() {
+        return new User()
+                .setEmail("john@example.com")
+                .setFirstName("John")
+                .setLastName("Doe")
+                .setBirthDate(LocalDate.of(1990, 1, 1))
+                .setPhoneNumber("+380501234567")
+                .setAddress("Kyiv");
+    }
+}
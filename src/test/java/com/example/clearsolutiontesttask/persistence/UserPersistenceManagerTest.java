@@ -0,0 +1,206 @@
+package com.example.clearsolutiontesttask.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.repository.IdAllocator;
+import com.example.clearsolutiontesttask.repository.InMemoryUserRepository;
+import com.example.clearsolutiontesttask.repository.SequentialIdAllocator;
+import com.example.clearsolutiontesttask.repository.UserChange;
+import com.example.clearsolutiontesttask.repository.UserRepository;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class UserPersistenceManagerTest {
+    @TempDir
+    private Path directory;
+    private final List<Store> stores = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (Store store : stores) {
+            store.log.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Writes are restored after a restart")
+    void testWritesSurviveRestart() throws IOException {
+        Store store = open(FsyncPolicy.ALWAYS);
+        store.repository.save(getUser(1, "first@example.com"));
+        store.repository.save(getUser(2, "second@example.com"));
+        store.repository.save(getUser(3, "third@example.com"));
+        store.repository.replace(getUser(2, "changed@example.com"));
+        store.repository.deleteById(3);
+        store.log.close();
+
+        Store restored = open(FsyncPolicy.ALWAYS);
+
+        assertEquals(2, restored.repository.count());
+        assertEquals("first@example.com",
+                restored.repository.findById(1).orElseThrow().getEmail());
+        assertEquals("changed@example.com",
+                restored.repository.findById(2).orElseThrow().getEmail());
+        assertTrue(restored.repository.findById(3).isEmpty());
+        assertEquals(4, restored.idAllocator.nextId());
+    }
+
+    @Test
+    @DisplayName("Compaction keeps all users and drops obsolete log files")
+    void testCompaction() throws IOException {
+        Store store = open(FsyncPolicy.INTERVAL);
+        for (int id = 1; id <= 100; id++) {
+            store.repository.save(getUser(id, "user" + id + "@example.com"));
+        }
+        store.manager.compact();
+        store.repository.deleteById(50);
+        store.repository.save(getUser(101, "user101@example.com"));
+        store.log.close();
+
+        assertEquals(List.of(1L), UserWriteAheadLog.generations(directory));
+
+        Store restored = open(FsyncPolicy.INTERVAL);
+
+        assertEquals(100, restored.repository.count());
+        assertTrue(restored.repository.findById(50).isEmpty());
+        assertEquals("user101@example.com",
+                restored.repository.findById(101).orElseThrow().getEmail());
+    }
+
+    @Test
+    @DisplayName("Replay stops at a corrupted record")
+    void testCorruptedTail() throws IOException {
+        Store store = open(FsyncPolicy.NEVER);
+        store.repository.save(getUser(1, "first@example.com"));
+        store.repository.save(getUser(2, "second@example.com"));
+        store.log.close();
+
+        Path file = UserWriteAheadLog.file(directory, 0);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // Flip the last byte of the second record's payload.
+            ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+            channel.read(length, 0);
+            long secondRecord = 2L * Integer.BYTES + length.flip().getInt();
+            channel.read(length.clear(), secondRecord);
+            long lastByte = secondRecord + 2L * Integer.BYTES + length.flip().getInt() - 1;
+            ByteBuffer value = ByteBuffer.allocate(1);
+            channel.read(value, lastByte);
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) ~value.get(0)}), lastByte);
+        }
+
+        Store restored = open(FsyncPolicy.NEVER);
+
+        assertEquals(1, restored.repository.count());
+        assertTrue(restored.repository.findById(1).isPresent());
+    }
+
+    @Test
+    @DisplayName("An email claimed before its hand-off was logged is restored")
+    void testEmailHandOffLoggedOutOfOrder() throws IOException {
+        // B gives x up for z while A is created with x; A's stripe was
+        // unlocked, and logged, first.
+        User formerOwner = getUser(2, "x@example.com");
+        UserWriteAheadLog log = new UserWriteAheadLog(directory, FsyncPolicy.NEVER, 10, 4096);
+        log.open(0);
+        log.onChange(new UserChange(null, formerOwner));
+        log.onChange(new UserChange(null, getUser(1, "x@example.com")));
+        log.onChange(new UserChange(formerOwner, getUser(2, "z@example.com")));
+        log.close();
+
+        Store restored = open(FsyncPolicy.NEVER);
+
+        assertEquals(2, restored.repository.count());
+        assertEquals("x@example.com", restored.repository.findById(1).orElseThrow().getEmail());
+        assertEquals("z@example.com", restored.repository.findById(2).orElseThrow().getEmail());
+    }
+
+    @Test
+    @DisplayName("Recovery fails if an email is never given up")
+    void testUnresolvedEmailConflictFailsRecovery() throws IOException {
+        UserWriteAheadLog log = new UserWriteAheadLog(directory, FsyncPolicy.NEVER, 10, 4096);
+        log.open(0);
+        log.onChange(new UserChange(null, getUser(2, "x@example.com")));
+        log.onChange(new UserChange(null, getUser(1, "x@example.com")));
+        log.close();
+
+        assertThrows(IllegalStateException.class, () -> open(FsyncPolicy.NEVER));
+    }
+
+    @Test
+    @DisplayName("Once the log cannot map more space, writes are rejected before they apply")
+    void testLogFailureRejectsWrites() throws IOException {
+        Store store = open(FsyncPolicy.NEVER);
+        ((FileChannel) ReflectionTestUtils.getField(store.log, "channel")).close();
+
+        int saved = 0;
+        try {
+            // Appends go to the mapped region until it is full.
+            while (true) {
+                store.repository.save(getUser(saved + 1, "user" + (saved + 1) + "@example.com"));
+                saved++;
+            }
+        } catch (UncheckedIOException e) {
+            assertEquals(saved, store.repository.count());
+        }
+        assertTrue(saved > 0);
+        assertThrows(UncheckedIOException.class,
+                () -> store.repository.save(getUser(1000, "late@example.com")));
+        assertTrue(store.repository.findById(1000).isEmpty());
+    }
+
+    @Test
+    @DisplayName("A record larger than a region is rejected before it applies if no room can be mapped")
+    void testOversizeRecordRejectedWhenLogCannotGrow() throws IOException {
+        Store store = open(FsyncPolicy.NEVER);
+        store.repository.save(getUser(1, "first@example.com").setAddress("a".repeat(8192)));
+        ((FileChannel) ReflectionTestUtils.getField(store.log, "channel")).close();
+
+        assertThrows(UncheckedIOException.class, () -> store.repository.save(
+                getUser(2, "second@example.com").setAddress("b".repeat(8192))));
+        assertTrue(store.repository.findById(2).isEmpty());
+    }
+
+    private Store open(FsyncPolicy fsyncPolicy) throws IOException {
+        PersistenceProperties properties = new PersistenceProperties();
+        properties.setDirectory(directory);
+        UserWriteAheadLog log = new UserWriteAheadLog(directory, fsyncPolicy, 10, 4096);
+        UserRepository repository = new InMemoryUserRepository(List.of(log));
+        IdAllocator idAllocator = new SequentialIdAllocator();
+        UserPersistenceManager manager =
+                new UserPersistenceManager(properties, log, repository, idAllocator);
+        manager.recover();
+        Store store = new Store(log, repository, idAllocator, manager);
+        stores.add(store);
+        return store;
+    }
+
+    private User getUser(int id, String email) {
+        return new User()
+                .setId(id)
+                .setEmail(email)
+                .setFirstName("John")
+                .setLastName("Doe")
+                .setBirthDate(LocalDate.of(1990, 1, 1).plusDays(id))
+                .setPhoneNumber("+380501234567")
+                .setAddress("Kyiv");
+    }
+
+    private record Store(UserWriteAheadLog log, UserRepository repository,
+                         IdAllocator idAllocator, UserPersistenceManager manager) {
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.clearsolutiontesttask.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.example.clearsolutiontesttask.entity.User;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class UserSnapshotTest {
+    @TempDir
+    private Path directory;
+
+    @Test
+    @DisplayName("Snapshot keeps every field, including nulls and non-ASCII text")
+    void testRoundTrip() throws IOException {
+        User full = getUser(2, LocalDate.of(1990, 5, 17)).setFirstName("Олена")
+                .setVersion(3);
+        User sparse = new User().setId(1).setEmail("sparse@example.com");
+        Path file = directory.resolve("users.snapshot");
+
+        UserSnapshot.write(file, 7, List.of(full, sparse));
+        UserSnapshot snapshot = UserSnapshot.open(file);
+
+        assertEquals(7, snapshot.generation());
+        assertEquals(2, snapshot.size());
+        assertEquals(2, snapshot.maxId());
+        assertEquals(List.of(sparse, full), snapshot.users());
+    }
+
+    @Test
+    @DisplayName("Users are stored in birth date order and loaded in chunks")
+    void testLoadInChunks() throws IOException {
+        List<User> users = new ArrayList<>();
+        for (int id = 1; id <= 200_000; id++) {
+            users.add(getUser(id, LocalDate.of(1950, 1, 1).plusDays(id % 20_000)));
+        }
+        Collections.shuffle(users);
+        Path file = directory.resolve("users.snapshot");
+
+        UserSnapshot.write(file, 0, users);
+        UserSnapshot snapshot = UserSnapshot.open(file);
+        ConcurrentLinkedQueue<User> loaded = new ConcurrentLinkedQueue<>();
+        snapshot.load(loaded::addAll);
+
+        users.sort(Comparator.comparing(User::getBirthDate).thenComparingInt(User::getId));
+        assertEquals(users, snapshot.users());
+        assertEquals(users.size(), loaded.size());
+        assertEquals(200_000, snapshot.maxId());
+    }
+
+    private User getUser(int id, LocalDate birthDate) {
+        return new User()
+                .setId(id)
+                .setEmail("user" + id + "@example.com")
+                .setFirstName("John")
+                .setLastName("Doe")
+                .setBirthDate(birthDate)
+                .setPhoneNumber("+380501234567")
+                .setAddress("Kyiv");
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.clearsolutiontesttask.replication;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.example.clearsolutiontesttask.dto.ChangeCursor;
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.repository.InMemoryUserRepository;
+import com.example.clearsolutiontesttask.repository.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ReplicaApplierTest {
+    private final UserRepository userRepository = new InMemoryUserRepository();
+    private final ReplicaApplier applier = new ReplicaApplier(userRepository);
+
+    @Test
+    @DisplayName("A write that arrives before its email is freed is applied once it is")
+    void testHeldBackUntilEmailIsFree() {
+        applier.reset(7, 0);
+        applier.put(1, getUser(1, "a@example.com"));
+        applier.heartbeat(1, 100);
+
+        // User 2 took the email that user 1 gave up, but came first.
+        applier.put(2, getUser(2, "a@example.com"));
+        assertEquals(1, applier.heldBackCount());
+        applier.heartbeat(3, 200);
+        assertEquals(50, applier.stalenessNanos(150));
+
+        applier.put(3, getUser(1, "b@example.com"));
+        assertEquals(0, applier.heldBackCount());
+        assertEquals(2, userRepository.findByEmail("a@example.com").orElseThrow().getId());
+        assertEquals(0, applier.stalenessNanos(200));
+        assertEquals(new ChangeCursor(7, 3), applier.position());
+    }
+
+    @Test
+    @DisplayName("Staleness counts from the last heartbeat that is fully applied")
+    void testStaleness() {
+        assertNull(applier.position());
+        assertEquals(Long.MAX_VALUE, applier.stalenessNanos(0));
+
+        applier.reset(7, 10);
+        applier.heartbeat(12, 1_000);
+        assertEquals(Long.MAX_VALUE, applier.stalenessNanos(2_000));
+        applier.put(11, getUser(1, "a@example.com"));
+        applier.delete(12, 5);
+        assertEquals(1_000, applier.stalenessNanos(2_000));
+
+        applier.heartbeat(12, 3_000);
+        assertEquals(500, applier.stalenessNanos(3_500));
+    }
+
+    private User getUser(int id, String email) {
+        return new User()
+                .setId(id)
+                .setEmail(email)
+                .setFirstName("John")
+                .setLastName("Doe");
+    }
+}
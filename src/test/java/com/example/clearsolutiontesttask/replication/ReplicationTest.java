@@ -0,0 +1,141 @@
+package com.example.clearsolutiontesttask.replication;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.clearsolutiontesttask.ClearSolutionTestTaskApplication;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Runs a leader and two followers in one JVM.
+ */
+class ReplicationTest {
+    private static final String ALL_USERS = "/users/age?fromDate=1900-01-01&toDate=2000-01-01";
+    private static final long MAX_STALENESS_MILLIS = 2_000;
+    private static final HttpClient HTTP = HttpClient.newHttpClient();
+    private static final List<ConfigurableApplicationContext> NODES = new ArrayList<>();
+    private static final List<String> URLS = new ArrayList<>();
+
+    @BeforeAll
+    static void startNodes() throws IOException {
+        int replicationPort = freePort();
+        for (int node = 0; node < 3; node++) {
+            int port = freePort();
+            URLS.add("http://localhost:" + port);
+            NODES.add(new SpringApplicationBuilder(ClearSolutionTestTaskApplication.class)
+                    .properties("server.port=" + port,
+                            "user.replication.role=" + (node == 0 ? "leader" : "follower"),
+                            "user.replication.port=" + replicationPort,
+                            "user.replication.heartbeat-interval=50ms",
+                            "user.replication.max-staleness=" + MAX_STALENESS_MILLIS + "ms")
+                    .run());
+        }
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        NODES.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    @DisplayName("Followers converge on the leader's users and stay within the staleness bound")
+    void testConvergenceUnderWriteLoad() throws Exception {
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger reads = new AtomicInteger();
+        AtomicLong maxStaleness = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int writer = 0; writer < 2; writer++) {
+            tasks.add(executor.submit(() -> {
+                while (writing.get()) {
+                    int i = created.incrementAndGet();
+                    assertEquals(201, send(0, "POST", "/users/add", """
+                            {"email": "user%d@gmail.com", "firstName": "John", "lastName": "Doe",
+                             "birthDate": "19%02d-01-01", "phoneNumber": "1", "address": "x"}
+                            """.formatted(i, i % 100)).statusCode());
+                    if (i % 3 == 0) {
+                        send(0, "PATCH", "/users/updateField/" + (i / 3),
+                                "{\"email\": \"moved" + i + "@gmail.com\"}");
+                    }
+                }
+                return null;
+            }));
+        }
+        for (int follower = 1; follower <= 2; follower++) {
+            int node = follower;
+            tasks.add(executor.submit(() -> {
+                while (writing.get()) {
+                    HttpResponse<String> response = send(node, "GET", ALL_USERS, null);
+                    if (response.statusCode() == 200) {
+                        long staleness = Long.parseLong(response.headers()
+                                .firstValue(ReplicaReadInterceptor.STALENESS_HEADER)
+                                .orElseThrow());
+                        maxStaleness.accumulateAndGet(staleness, Math::max);
+                        reads.incrementAndGet();
+                    } else {
+                        assertEquals(503, response.statusCode());
+                    }
+                }
+                return null;
+            }));
+        }
+        Thread.sleep(3_000);
+        writing.set(false);
+        for (Future<?> task : tasks) {
+            task.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertTrue(reads.get() > 0, "No read was served by a follower");
+        assertTrue(maxStaleness.get() <= MAX_STALENESS_MILLIS);
+        String expected = send(0, "GET", ALL_USERS, null).body();
+        for (int follower = 1; follower <= 2; follower++) {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+            String actual = null;
+            while (System.nanoTime() < deadline
+                    && !expected.equals(actual = send(follower, "GET", ALL_USERS, null).body())) {
+                Thread.sleep(50);
+            }
+            assertEquals(expected, actual, "Follower " + follower + " did not converge");
+        }
+        assertEquals(405, send(1, "DELETE", "/users/delete/1", null).statusCode());
+    }
+
+    private static HttpResponse<String> send(int node, String method, String path, String body)
+            throws IOException, InterruptedException {
+        var request = HttpRequest.newBuilder(URI.create(URLS.get(node) + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body));
+        if (body != null) {
+            request.header("Content-Type", "application/json");
+        }
+        return HTTP.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static int freePort() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
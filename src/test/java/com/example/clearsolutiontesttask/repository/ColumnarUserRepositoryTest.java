@@ -0,0 +1,158 @@
+package com.example.clearsolutiontesttask.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.exception.DuplicateEmailException;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ColumnarUserRepositoryTest {
+    private final ColumnarUserRepository userRepository = new ColumnarUserRepository();
+
+    @Test
+    @DisplayName("Stored users read back equal, including nulls and far dates")
+    void testRoundTrip() {
+        User full = getUser(1).setFirstName("Олена").setBirthDate(LocalDate.MIN);
+        User sparse = new User().setId(2);
+
+        userRepository.save(full);
+        userRepository.save(sparse);
+
+        assertEquals(full, userRepository.findById(1).orElseThrow());
+        assertNotSame(full, userRepository.findById(1).orElseThrow());
+        assertEquals(sparse, userRepository.findById(2).orElseThrow());
+        assertEquals(full, userRepository.findByEmail("USER1@example.com").orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Conditional replace and delete compare the stored user by value")
+    void testReplaceComparesByValue() {
+        userRepository.save(getUser(1));
+        User read = userRepository.findById(1).orElseThrow();
+
+        assertTrue(userRepository.replace(read, getUser(1).setAddress("Lviv")));
+        assertFalse(userRepository.replace(read, getUser(1).setAddress("Odesa")));
+        assertEquals("Lviv", userRepository.findById(1).orElseThrow().getAddress());
+        assertFalse(userRepository.delete(read));
+        assertTrue(userRepository.delete(userRepository.findById(1).orElseThrow()));
+        assertEquals(0, userRepository.count());
+    }
+
+    @Test
+    @DisplayName("Snapshots hold every user, ordered by id")
+    void testSnapshotById() {
+        for (int id : new int[] {5, 3, 9, 1}) {
+            userRepository.save(getUser(id));
+        }
+        userRepository.deleteById(9);
+
+        List<User> snapshot = userRepository.snapshotById();
+
+        assertEquals(List.of(1, 3, 5), snapshot.stream().map(User::getId).toList());
+        assertEquals(getUser(3), snapshot.get(1));
+    }
+
+    @Test
+    @DisplayName("Apply all writes only users that are unchanged and keep emails unique")
+    void testApplyAll() {
+        for (int id = 1; id <= 4; id++) {
+            userRepository.save(getUser(id));
+        }
+        User stale = userRepository.findById(4).orElseThrow();
+        userRepository.replace(getUser(4).setAddress("Lviv"));
+
+        List<UserChange> rejected = userRepository.applyAll(List.of(
+                new UserChange(userRepository.findById(1).orElseThrow(), null),
+                new UserChange(userRepository.findById(2).orElseThrow(),
+                        getUser(2).setEmail("user3@example.com")),
+                new UserChange(userRepository.findById(3).orElseThrow(),
+                        getUser(3).setAddress("Kyiv")),
+                new UserChange(stale, null)));
+
+        assertEquals(List.of(2, 4), rejected.stream().map(UserChange::id).toList());
+        assertEquals(3, userRepository.count());
+        assertEquals("Kyiv", userRepository.findById(3).orElseThrow().getAddress());
+        assertEquals(2, userRepository.findByEmail("user2@example.com").orElseThrow().getId());
+    }
+
+    @Test
+    @DisplayName("Emails stay unique and are freed by updates and deletes")
+    void testEmailUniqueness() {
+        userRepository.save(getUser(1));
+        userRepository.save(getUser(2));
+
+        assertThrows(DuplicateEmailException.class,
+                () -> userRepository.save(getUser(3).setEmail(" User1@Example.com")));
+        userRepository.replace(getUser(1).setEmail("renamed@example.com"));
+        userRepository.deleteById(2);
+        List<User> rejected = userRepository.saveAll(List.of(
+                getUser(3).setEmail("user1@example.com"),
+                getUser(4).setEmail("user2@example.com"),
+                getUser(5).setEmail("renamed@example.com")));
+
+        assertEquals(List.of(5), rejected.stream().map(User::getId).toList());
+        assertEquals(3, userRepository.count());
+        assertEquals(3, userRepository.findByEmail("user1@example.com").orElseThrow().getId());
+    }
+
+    @Test
+    @DisplayName("Random writes leave the same users as the heap repository")
+    void testMatchesHeapRepository() {
+        // Arrange
+        UserRepository expected = new InMemoryUserRepository();
+        Random random = new Random(7);
+
+        // Act
+        for (int i = 0; i < 50_000; i++) {
+            int id = random.nextInt(2_000) + 1;
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    expected.deleteById(id);
+                    userRepository.deleteById(id);
+                }
+                case 1 -> {
+                    User user = getUser(id)
+                            .setAddress("Street " + random.nextInt(1_000_000))
+                            .setBirthDate(LocalDate.of(1950, 1, 1)
+                                    .plusDays(random.nextInt(20_000)));
+                    expected.save(user);
+                    userRepository.save(user);
+                }
+                default -> {
+                    User user = getUser(id).setFirstName("Name" + random.nextInt(50));
+                    assertEquals(expected.replace(user), userRepository.replace(user));
+                }
+            }
+        }
+
+        // Assert
+        Comparator<User> byId = Comparator.comparingInt(User::getId);
+        assertEquals(expected.findAll().stream().sorted(byId).toList(),
+                userRepository.findAll().stream().sorted(byId).toList());
+        LocalDate from = LocalDate.of(1960, 1, 1);
+        LocalDate to = LocalDate.of(1970, 1, 1);
+        assertEquals(expected.findAllByBirthDateBetween(from, to),
+                userRepository.findAllByBirthDateBetween(from, to));
+        assertEquals(expected.indexSizes(), userRepository.indexSizes());
+    }
+
+    private User getUser(int id) {
+        return new User()
+                .setId(id)
+                .setEmail("user" + id + "@example.com")
+                .setFirstName("John")
+                .setLastName("Doe")
+                .setBirthDate(LocalDate.of(1990, 1, 1))
+                .setPhoneNumber("+380501234567")
+                .setAddress("Kyiv");
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.clearsolutiontesttask.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.exception.DuplicateEmailException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class InMemoryUserRepositoryTest {
+    private final UserRepository userRepository = new InMemoryUserRepository();
+
+    @Test
+    @DisplayName("Saved user can be found by id")
+    void testSaveAndFindById() {
+        User user = getUser(7);
+
+        userRepository.save(user);
+
+        assertSame(user, userRepository.findById(7).orElseThrow());
+        assertTrue(userRepository.findById(8).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Saving a user with an existing id replaces it")
+    void testSaveReplacesExistingUser() {
+        userRepository.save(getUser(1));
+        User replacement = getUser(1).setFirstName("Jane");
+
+        userRepository.save(replacement);
+
+        assertEquals(1, userRepository.count());
+        assertEquals("Jane", userRepository.findById(1).orElseThrow().getFirstName());
+    }
+
+    @Test
+    @DisplayName("Deleting keeps colliding entries reachable")
+    void testDeleteManyUsers() {
+        // Arrange
+        int total = 10_000;
+        for (int id = 1; id <= total; id++) {
+            userRepository.save(getUser(id));
+        }
+
+        // Act
+        for (int id = 1; id <= total; id += 2) {
+            assertTrue(userRepository.deleteById(id));
+        }
+
+        // Assert
+        assertEquals(total / 2, userRepository.count());
+        for (int id = 1; id <= total; id++) {
+            assertEquals(id % 2 == 0, userRepository.findById(id).isPresent());
+        }
+        assertFalse(userRepository.deleteById(1));
+    }
+
+    @Test
+    @DisplayName("Apply all writes only users that are unchanged and keep emails unique")
+    void testApplyAll() {
+        List<User> users = new ArrayList<>();
+        for (int id = 1; id <= 1_000; id++) {
+            users.add(getUser(id).setEmail("user" + id + "@gmail.com"));
+        }
+        userRepository.saveAll(users);
+        User stale = users.get(999);
+        userRepository.save(getUser(1_000).setEmail("user1000@gmail.com"));
+
+        List<UserChange> writes = new ArrayList<>();
+        for (User user : users) {
+            if (user.getId() % 2 == 0) {
+                writes.add(new UserChange(user, null));
+            } else {
+                writes.add(new UserChange(user, getUser(user.getId())
+                        .setEmail(user.getEmail())
+                        .setBirthDate(LocalDate.of(1991, 1, 1))));
+            }
+        }
+        writes.set(0, new UserChange(users.get(0), getUser(1).setEmail("user3@gmail.com")));
+        List<UserChange> rejected = userRepository.applyAll(writes);
+
+        assertEquals(List.of(1, 1_000), rejected.stream().map(UserChange::id).sorted().toList());
+        assertEquals(501, userRepository.count());
+        assertSame(users.get(0), userRepository.findById(1).orElseThrow());
+        assertEquals(499, userRepository.findAllByBirthDateBetween(
+                LocalDate.of(1991, 1, 1), LocalDate.of(1991, 1, 1)).size());
+        assertEquals(3, userRepository.findByEmail("user3@gmail.com").orElseThrow().getId());
+    }
+
+    @Test
+    @DisplayName("Snapshots are ordered by id and never miss a write that came before another")
+    void testSnapshotById() throws InterruptedException {
+        Thread writer = new Thread(() -> {
+            for (int id = 1; id <= 20_000; id++) {
+                userRepository.save(getUser(id).setEmail("user" + id + "@gmail.com"));
+            }
+        });
+        writer.start();
+        int size;
+        do {
+            List<User> snapshot = userRepository.snapshotById();
+            size = snapshot.size();
+            // Users are added in ID order, so a consistent snapshot holds
+            // exactly the first of them.
+            for (int i = 0; i < size; i++) {
+                assertEquals(i + 1, snapshot.get(i).getId());
+            }
+        } while (size < 20_000);
+        writer.join();
+    }
+
+    @Test
+    @DisplayName("Save all stores every user and indexes its birth date")
+    void testSaveAll() {
+        List<User> users = new ArrayList<>();
+        for (int id = 1; id <= 1_000; id++) {
+            users.add(getUser(id));
+        }
+
+        userRepository.saveAll(users);
+
+        assertEquals(1_000, userRepository.count());
+        assertSame(users.get(499), userRepository.findById(500).orElseThrow());
+        assertEquals(1_000, userRepository.findAllByBirthDateBetween(
+                LocalDate.of(1990, 1, 1), LocalDate.of(1990, 1, 1)).size());
+    }
+
+    @Test
+    @DisplayName("Find all returns every stored user")
+    void testFindAll() {
+        userRepository.save(getUser(1));
+        userRepository.save(getUser(2));
+
+        assertEquals(2, userRepository.findAll().size());
+
+        userRepository.deleteAll();
+
+        assertEquals(0, userRepository.findAll().size());
+    }
+
+    @Test
+    @DisplayName("Birth date range includes both boundaries and is sorted")
+    void testFindAllByBirthDateBetween() {
+        // Arrange
+        userRepository.save(getUser(1).setBirthDate(LocalDate.of(1995, 12, 31)));
+        userRepository.save(getUser(2).setBirthDate(LocalDate.of(1990, 1, 1)));
+        userRepository.save(getUser(3).setBirthDate(LocalDate.of(1989, 12, 31)));
+        userRepository.save(getUser(4).setBirthDate(LocalDate.of(1996, 1, 1)));
+        userRepository.save(getUser(5).setBirthDate(LocalDate.of(1990, 1, 1)));
+
+        // Act
+        List<User> users = userRepository.findAllByBirthDateBetween(
+                LocalDate.of(1990, 1, 1), LocalDate.of(1995, 12, 31));
+
+        // Assert
+        assertEquals(List.of(2, 5, 1), users.stream().map(User::getId).toList());
+        assertTrue(userRepository.findAllByBirthDateBetween(
+                LocalDate.of(1995, 12, 31), LocalDate.of(1990, 1, 1)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Birth date index follows updates and deletes")
+    void testBirthDateIndexFollowsWrites() {
+        // Arrange
+        User user = getUser(1);
+        userRepository.save(user);
+        userRepository.save(getUser(2));
+        LocalDate newBirthDate = LocalDate.of(2000, 6, 1);
+
+        // Act
+        userRepository.replace(user, getUser(1).setBirthDate(newBirthDate));
+        userRepository.deleteById(2);
+
+        // Assert
+        assertTrue(userRepository.findAllByBirthDateBetween(
+                LocalDate.of(1990, 1, 1), LocalDate.of(1990, 1, 1)).isEmpty());
+        assertEquals(1, userRepository.findAllByBirthDateBetween(
+                newBirthDate, newBirthDate).size());
+    }
+
+    @Test
+    @DisplayName("Emails are unique, ignoring case, and freed by updates and deletes")
+    void testEmailIndexFollowsWrites() {
+        // Arrange
+        User user = getUser(1).setEmail("john@example.com");
+        userRepository.save(user);
+        userRepository.save(getUser(2).setEmail("jane@example.com"));
+
+        // Act & Assert
+        assertThrows(DuplicateEmailException.class,
+                () -> userRepository.save(getUser(3).setEmail("John@Example.com ")));
+        userRepository.replace(user, getUser(1).setEmail("johnny@example.com"));
+        userRepository.save(getUser(3).setEmail("john@example.com"));
+        userRepository.deleteById(2);
+        List<User> rejected = userRepository.saveAll(List.of(
+                getUser(4).setEmail("jane@example.com"),
+                getUser(5).setEmail("JOHNNY@example.com")));
+
+        assertEquals(List.of(5), rejected.stream().map(User::getId).toList());
+        assertEquals(3, userRepository.findByEmail("JOHN@example.com")
+                .orElseThrow().getId());
+        assertEquals(4, userRepository.findByEmail("jane@example.com")
+                .orElseThrow().getId());
+        assertTrue(userRepository.findById(5).isEmpty());
+    }
+
+    private User getUser(int id) {
+        return new User()
+                .setId(id)
+                .setFirstName("John")
+                .setLastName("Doe")
+                .setBirthDate(LocalDate.of(1990, 1, 1));
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.clearsolutiontesttask.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class PostingListTest {
+    @Test
+    @DisplayName("Random adds and removes keep the list equal to a sorted set")
+    void testMatchesSortedSet() {
+        // Arrange
+        PostingList list = new PostingList();
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(42);
+
+        // Act
+        for (int id = 1; id <= 20_000; id++) {
+            assertEquals(expected.add(id), list.add(id));
+        }
+        for (int i = 0; i < 200_000; i++) {
+            int id = random.nextInt(20_000) + 1;
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(id), list.add(id));
+            } else {
+                assertEquals(expected.remove(id), list.remove(id));
+            }
+        }
+
+        // Assert
+        assertEquals(expected.size(), list.size());
+        long[] bitmap = new long[PostingList.CHUNK_WORDS];
+        assertEquals(0, list.nextChunk(0));
+        assertTrue(list.copyChunk(0, bitmap));
+        assertEquals(expected.size(), Arrays.stream(bitmap).map(Long::bitCount).sum());
+        for (int id = 0; id <= 20_001; id++) {
+            assertEquals(expected.contains(id), list.contains(id));
+        }
+    }
+}
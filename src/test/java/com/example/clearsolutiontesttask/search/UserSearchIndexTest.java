@@ -0,0 +1,77 @@
+package com.example.clearsolutiontesttask.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.repository.InMemoryUserRepository;
+import com.example.clearsolutiontesttask.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class UserSearchIndexTest {
+    private final UserSearchIndex index = new UserSearchIndex(new SimpleMeterRegistry());
+    private final UserRepository userRepository = new InMemoryUserRepository(List.of(index));
+
+    @Test
+    @DisplayName("Long terms match inside words, short terms match word starts")
+    void testSubstringAndPrefix() {
+        userRepository.save(getUser(1, "John", "Doe", "12 Main St, Kyiv"));
+        userRepository.save(getUser(2, "Johanna", "Smith", "5 Elm Road"));
+        userRepository.save(getUser(3, "Peter", "Griffin", "31 Spooner St"));
+
+        assertEquals(List.of(1, 2), search("joh"));
+        assertEquals(List.of(1, 3), search("St"));
+        assertEquals(List.of(3), search("riff"));
+        assertEquals(List.of(1), search("john main"));
+        assertEquals(List.of(), search("t"));
+        assertEquals(List.of(), search("john elm"));
+    }
+
+    @Test
+    @DisplayName("Updates and deletes are reflected in the results")
+    void testFollowsWrites() {
+        User user = getUser(1, "John", "Doe", "Kyiv");
+        userRepository.save(user);
+        userRepository.save(getUser(2, "Jane", "Doe", "Lviv"));
+
+        userRepository.replace(user, getUser(1, "John", "Roe", "Kyiv"));
+        userRepository.deleteById(2);
+
+        assertTrue(search("doe").isEmpty());
+        assertEquals(List.of(1), search("roe"));
+    }
+
+    @Test
+    @DisplayName("Results are returned in ID order after the given ID")
+    void testPagination() {
+        for (int id = 1; id <= 1_000; id++) {
+            userRepository.save(getUser(id, "First" + id % 7, "Last", "Street " + id));
+        }
+
+        List<User> page = index.search(UserSearchIndex.terms("first3"), 100, 5,
+                id -> userRepository.findById(id).orElse(null));
+
+        assertEquals(List.of(101, 108, 115, 122, 129),
+                page.stream().map(User::getId).toList());
+    }
+
+    private List<Integer> search(String query) {
+        return index.search(UserSearchIndex.terms(query), 0, 100,
+                        id -> userRepository.findById(id).orElse(null))
+                .stream()
+                .map(User::getId)
+                .toList();
+    }
+
+    private User getUser(int id, String firstName, String lastName, String address) {
+        return new User()
+                .setId(id)
+                .setEmail("user" + id + "@example.com")
+                .setFirstName(firstName)
+                .setLastName(lastName)
+                .setAddress(address);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.clearsolutiontesttask.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.example.clearsolutiontesttask.dto.BulkResult;
+import com.example.clearsolutiontesttask.dto.UpdateFieldRequest;
+import com.example.clearsolutiontesttask.dto.UserSelection;
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.exception.ValidationException;
+import com.example.clearsolutiontesttask.metrics.UserMetrics;
+import com.example.clearsolutiontesttask.repository.InMemoryUserRepository;
+import com.example.clearsolutiontesttask.repository.UserRepository;
+import com.example.clearsolutiontesttask.validator.UserAgeValidator;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class UserBulkServiceTest {
+    private static final LocalDate FIRST_BIRTH_DATE = LocalDate.of(1950, 1, 1);
+
+    private final UserAgeValidator ageValidator = mock(UserAgeValidator.class);
+    private final UserRepository userRepository = new InMemoryUserRepository();
+    private final UserBulkService bulkService = new UserBulkService(ageValidator,
+            userRepository, UserMetrics.disabled());
+
+    @BeforeEach
+    void setUp() {
+        List<User> users = new ArrayList<>();
+        for (int id = 1; id <= 30_000; id++) {
+            users.add(new User()
+                    .setId(id)
+                    .setVersion(1)
+                    .setEmail("user" + id + "@gmail.com")
+                    .setFirstName("John")
+                    .setLastName("Doe")
+                    .setBirthDate(FIRST_BIRTH_DATE.plusDays(id % 10_000))
+                    .setPhoneNumber("1")
+                    .setAddress("Main St"));
+        }
+        userRepository.saveAll(users);
+    }
+
+    @Test
+    @DisplayName("Deleting a birth date range removes exactly the users in it")
+    void testDeleteByBirthDate() throws ValidationException {
+        BulkResult result = bulkService.deleteUsers(range(FIRST_BIRTH_DATE.plusDays(1_000),
+                FIRST_BIRTH_DATE.plusDays(8_999)));
+
+        assertEquals(24_000, result.getApplied());
+        assertEquals(List.of(), result.getErrors());
+        assertEquals(6_000, userRepository.count());
+        assertEquals(0, userRepository.findAllByBirthDateBetween(
+                FIRST_BIRTH_DATE.plusDays(1_000), FIRST_BIRTH_DATE.plusDays(8_999)).size());
+    }
+
+    @Test
+    @DisplayName("Patching by ids reports missing users and failed checks per user")
+    void testPatchByIds() throws ValidationException {
+        when(ageValidator.isUserOldEnough(any(LocalDate.class))).thenReturn(false);
+        var fields = new UpdateFieldRequest();
+        fields.setBirthDate(FIRST_BIRTH_DATE.plusDays(3));
+        fields.setAddress("Elm St");
+
+        BulkResult result = bulkService.updateUserFields(ids(3, 4, 4, 40_000), fields);
+
+        assertEquals(1, result.getApplied());
+        assertEquals(List.of(
+                new BulkResult.ItemError(4, "User is not old enough."),
+                new BulkResult.ItemError(40_000, "User with id: 40000 does not exist.")),
+                result.getErrors());
+        User patched = userRepository.findById(3).orElseThrow();
+        assertEquals("Elm St", patched.getAddress());
+        assertEquals(2, patched.getVersion());
+        assertEquals("Main St", userRepository.findById(4).orElseThrow().getAddress());
+    }
+
+    @Test
+    @DisplayName("Patching many users to one email updates only the first one written")
+    void testPatchKeepsEmailsUnique() throws ValidationException {
+        var fields = new UpdateFieldRequest();
+        fields.setEmail("shared@gmail.com");
+
+        BulkResult result = bulkService.updateUserFields(ids(1, 2, 3), fields);
+        BulkResult again = bulkService.updateUserFields(ids(
+                userRepository.findByEmail("shared@gmail.com").orElseThrow().getId()), fields);
+
+        assertEquals(1, result.getApplied());
+        assertEquals(2, result.getErrors().size());
+        assertEquals("Email is already in use.", result.getErrors().get(0).message());
+        assertEquals(1, again.getUnchanged());
+        assertEquals(0, again.getApplied());
+    }
+
+    @Test
+    @DisplayName("A selection needs either ids or a complete birth date range")
+    void testInvalidSelection() {
+        var selection = range(FIRST_BIRTH_DATE, null);
+        assertThrows(ValidationException.class, () -> bulkService.deleteUsers(selection));
+        selection.setIds(List.of(1));
+        selection.setToDate(FIRST_BIRTH_DATE);
+        assertThrows(ValidationException.class, () -> bulkService.deleteUsers(selection));
+        assertEquals(30_000, userRepository.count());
+    }
+
+    private static UserSelection ids(Integer... ids) {
+        var selection = new UserSelection();
+        selection.setIds(List.of(ids));
+        return selection;
+    }
+
+    private static UserSelection range(LocalDate fromDate, LocalDate toDate) {
+        var selection = new UserSelection();
+        selection.setFromDate(fromDate);
+        selection.setToDate(toDate);
+        return selection;
+    }
+}
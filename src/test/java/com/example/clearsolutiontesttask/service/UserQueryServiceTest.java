@@ -0,0 +1,115 @@
+package com.example.clearsolutiontesttask.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.example.clearsolutiontesttask.dto.UserQuery;
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.metrics.UserMetrics;
+import com.example.clearsolutiontesttask.repository.InMemoryUserRepository;
+import com.example.clearsolutiontesttask.repository.UserRepository;
+import com.example.clearsolutiontesttask.search.UserFieldIndex;
+import com.example.clearsolutiontesttask.stats.UserBirthDateStats;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class UserQueryServiceTest {
+    private static final String[] DOMAINS = {"gmail.com", "example.com", "rare.org"};
+
+    private UserRepository userRepository;
+    private UserQueryService queryService;
+
+    @BeforeEach
+    void setUp() {
+        var fieldIndex = new UserFieldIndex(new SimpleMeterRegistry());
+        var birthDateStats = new UserBirthDateStats();
+        userRepository = new InMemoryUserRepository(List.of(fieldIndex, birthDateStats));
+        queryService = new UserQueryService(fieldIndex, birthDateStats, userRepository,
+                UserMetrics.disabled());
+        List<User> users = new ArrayList<>();
+        for (int id = 1; id <= 20_000; id++) {
+            users.add(new User()
+                    .setId(id)
+                    .setEmail("user" + id + "@" + (id % 500 == 0 ? DOMAINS[2]
+                            : DOMAINS[id % 2]).toUpperCase(Locale.ROOT))
+                    .setFirstName("John")
+                    .setLastName((id % 7 == 0 ? "Smith" : "Sm") + (char) ('a' + id % 26))
+                    .setBirthDate(LocalDate.of(1950, 1, 1).plusDays(id * 37L % 20_000))
+                    .setPhoneNumber("1")
+                    .setAddress("Main St"));
+        }
+        userRepository.saveAll(users);
+    }
+
+    @Test
+    @DisplayName("Every plan returns what filtering all users returns")
+    void testPlansMatchNaiveFilter() {
+        Random random = new Random(3);
+        Set<String> plans = new HashSet<>();
+        for (int i = 0; i < 300; i++) {
+            LocalDate fromDate = random.nextInt(4) == 0 ? null
+                    : LocalDate.of(1950, 1, 1).plusDays(random.nextInt(20_000));
+            LocalDate toDate = random.nextInt(4) == 0 || fromDate == null ? null
+                    : fromDate.plusDays(random.nextInt(4) == 0 ? 10_000 : random.nextInt(60));
+            String prefix = switch (random.nextInt(5)) {
+                case 0 -> null;
+                case 1 -> "s";
+                case 2 -> "SMITH";
+                case 3 -> "smithq";
+                default -> "jones";
+            };
+            String domain = random.nextBoolean() ? null : "@" + DOMAINS[random.nextInt(3)];
+            var query = new UserQuery(fromDate, toDate, prefix, domain,
+                    UserQuery.Sort.values()[random.nextInt(3)], 1 + random.nextInt(50));
+
+            UserQueryService.Result result = queryService.query(query);
+            assertEquals(naiveQuery(query), result.users(), query + " with " + result.plan());
+            plans.add(result.plan());
+        }
+        assertEquals(Set.of("empty", "scan", "birthDate", "index(lastName)",
+                "index(emailDomain)", "index(lastName,emailDomain)"), plans);
+    }
+
+    @Test
+    @DisplayName("The planner picks the most selective access path")
+    void testPlanChoice() {
+        LocalDate day = LocalDate.of(1960, 1, 1);
+        assertEquals("birthDate", plan(day, day.plusDays(3), "sm", "gmail.com"));
+        assertEquals("index(emailDomain)", plan(day, day.plusYears(30), "sm", "rare.org"));
+        assertEquals("index(lastName,emailDomain)", plan(null, null, "smithq", "rare.org"));
+        assertEquals("scan", plan(day, day.plusYears(30), "s", null));
+        assertEquals("empty", plan(null, null, "jones", null));
+    }
+
+    private String plan(LocalDate fromDate, LocalDate toDate, String prefix, String domain) {
+        return queryService.query(new UserQuery(fromDate, toDate, prefix, domain,
+                UserQuery.Sort.LAST_NAME, 20)).plan();
+    }
+
+    private List<User> naiveQuery(UserQuery query) {
+        String prefix = query.lastNamePrefix() == null ? null
+                : query.lastNamePrefix().toLowerCase(Locale.ROOT);
+        String domain = query.emailDomain() == null ? null
+                : query.emailDomain().substring(1).toLowerCase(Locale.ROOT);
+        return userRepository.findAll().stream()
+                .filter(user -> query.fromDate() == null
+                        || !user.getBirthDate().isBefore(query.fromDate()))
+                .filter(user -> query.toDate() == null
+                        || !user.getBirthDate().isAfter(query.toDate()))
+                .filter(user -> prefix == null
+                        || user.getLastName().toLowerCase(Locale.ROOT).startsWith(prefix))
+                .filter(user -> domain == null
+                        || user.getEmail().toLowerCase(Locale.ROOT).endsWith("@" + domain))
+                .sorted(query.sort().order())
+                .limit(query.limit())
+                .toList();
+    }
+}
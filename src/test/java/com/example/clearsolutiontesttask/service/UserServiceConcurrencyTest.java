@@ -0,0 +1,225 @@
+package com.example.clearsolutiontesttask.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.example.clearsolutiontesttask.dto.UpdateFieldRequest;
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.exception.DuplicateEmailException;
+import com.example.clearsolutiontesttask.exception.VersionConflictException;
+import com.example.clearsolutiontesttask.metrics.UserMetrics;
+import com.example.clearsolutiontesttask.repository.InMemoryUserRepository;
+import com.example.clearsolutiontesttask.repository.SequentialIdAllocator;
+import com.example.clearsolutiontesttask.repository.UserRepository;
+import com.example.clearsolutiontesttask.validator.UserAgeValidator;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class UserServiceConcurrencyTest {
+    private static final int THREADS = 64;
+
+    private final UserRepository userRepository = new InMemoryUserRepository();
+    private UserService userService;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        UserAgeValidator ageValidator = mock(UserAgeValidator.class);
+        when(ageValidator.isUserOldEnough(any(LocalDate.class))).thenReturn(true);
+        userService = new UserService(ageValidator, userRepository,
+                new SequentialIdAllocator(), UserMetrics.disabled());
+        executor = Executors.newFixedThreadPool(THREADS + 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Concurrent adds are neither lost nor given duplicate ids")
+    void testConcurrentAddUser() throws Exception {
+        // Arrange
+        int usersPerThread = 1_000;
+        var start = new CountDownLatch(1);
+        var writersDone = new AtomicBoolean();
+        var emails = new AtomicInteger();
+        List<Future<?>> writers = new ArrayList<>();
+
+        // Act
+        Future<?> reader = executor.submit(() -> {
+            while (!writersDone.get()) {
+                userService.findAllByBirthDateBetween(LocalDate.of(1900, 1, 1),
+                        LocalDate.of(2100, 1, 1));
+            }
+            return null;
+        });
+        for (int t = 0; t < THREADS; t++) {
+            writers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < usersPerThread; i++) {
+                    userService.addUser(getUser()
+                            .setEmail("user" + emails.incrementAndGet() + "@gmail.com"));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get(60, TimeUnit.SECONDS);
+        }
+        writersDone.set(true);
+        reader.get(60, TimeUnit.SECONDS);
+
+        // Assert
+        int expected = THREADS * usersPerThread;
+        Set<Integer> ids = userRepository.findAll().stream()
+                .map(User::getId)
+                .collect(Collectors.toSet());
+        assertEquals(expected, userRepository.count());
+        assertEquals(expected, ids.size());
+        assertTrue(ids.stream().allMatch(id -> id >= 1 && id <= expected));
+    }
+
+    @Test
+    @DisplayName("Of concurrent adds with the same email exactly one succeeds")
+    void testConcurrentAddUser_SameEmail() throws Exception {
+        // Arrange
+        var start = new CountDownLatch(1);
+        List<Future<Boolean>> writers = new ArrayList<>();
+
+        // Act
+        for (int t = 0; t < THREADS; t++) {
+            String email = t % 2 == 0 ? "Same@Gmail.com" : " same@gmail.com";
+            writers.add(executor.submit(() -> {
+                start.await();
+                try {
+                    userService.addUser(getUser().setEmail(email));
+                    return true;
+                } catch (DuplicateEmailException e) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+        int succeeded = 0;
+        for (Future<Boolean> writer : writers) {
+            if (writer.get(60, TimeUnit.SECONDS)) {
+                succeeded++;
+            }
+        }
+
+        // Assert
+        assertEquals(1, succeeded);
+        assertEquals(1, userRepository.count());
+        assertTrue(userRepository.findByEmail("same@gmail.com").isPresent());
+    }
+
+    @Test
+    @DisplayName("Concurrent patches of different fields do not overwrite each other")
+    void testConcurrentUpdateUserField() throws Exception {
+        // Arrange
+        int patchesPerThread = 500;
+        userService.addUser(getUser());
+        var start = new CountDownLatch(1);
+        List<Future<?>> writers = new ArrayList<>();
+
+        // Act
+        for (int t = 0; t < THREADS; t++) {
+            boolean patchFirstName = t % 2 == 0;
+            String prefix = t + ":";
+            writers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < patchesPerThread; i++) {
+                    var request = new UpdateFieldRequest();
+                    if (patchFirstName) {
+                        request.setFirstName(prefix + i);
+                    } else {
+                        request.setLastName(prefix + i);
+                    }
+                    userService.updateUserField(request, 1);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get(60, TimeUnit.SECONDS);
+        }
+
+        // Assert
+        // The last write to each field is some thread's final patch. A lost
+        // update would roll a field back to an earlier value.
+        User user = userRepository.findById(1).orElseThrow();
+        String lastValueSuffix = ":" + (patchesPerThread - 1);
+        assertTrue(user.getFirstName().endsWith(lastValueSuffix), user.getFirstName());
+        assertTrue(user.getLastName().endsWith(lastValueSuffix), user.getLastName());
+    }
+
+    @Test
+    @DisplayName("Conditional read-modify-write cycles that retry on conflict lose no update")
+    void testConcurrentConditionalUpdates() throws Exception {
+        // Arrange
+        int incrementsPerThread = 100;
+        userService.addUser(getUser().setLastName("0"));
+        var start = new CountDownLatch(1);
+        List<Future<?>> writers = new ArrayList<>();
+
+        // Act
+        for (int t = 0; t < THREADS; t++) {
+            writers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < incrementsPerThread; i++) {
+                    while (true) {
+                        User user = userService.findUserById(1);
+                        var request = new UpdateFieldRequest();
+                        request.setLastName(String.valueOf(
+                                Integer.parseInt(user.getLastName()) + 1));
+                        try {
+                            userService.updateUserField(request, 1, user.getVersion());
+                            break;
+                        } catch (VersionConflictException e) {
+                            // Somebody else incremented first; read again.
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get(60, TimeUnit.SECONDS);
+        }
+
+        // Assert
+        int total = THREADS * incrementsPerThread;
+        User user = userRepository.findById(1).orElseThrow();
+        assertEquals(String.valueOf(total), user.getLastName());
+        assertEquals(1 + total, user.getVersion());
+    }
+
+    private User getUser() {
+        return new User()
+                .setFirstName("John")
+                .setLastName("Doe")
+                .setEmail("johnDoe@gmail.com")
+                .setBirthDate(LocalDate.of(1990, 1, 1));
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.clearsolutiontesttask.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.when;
@@ -8,8 +9,12 @@ import static org.mockito.Mockito.when;
 import com.example.clearsolutiontesttask.dto.UpdateFieldRequest;
 import com.example.clearsolutiontesttask.entity.User;
 import com.example.clearsolutiontesttask.exception.ValidationException;
-import com.example.clearsolutiontesttask.mapper.UserMapper;
-import com.example.clearsolutiontesttask.mapper.impl.UserMapperImpl;
+import com.example.clearsolutiontesttask.exception.VersionConflictException;
+import com.example.clearsolutiontesttask.metrics.UserMetrics;
+import com.example.clearsolutiontesttask.repository.IdAllocator;
+import com.example.clearsolutiontesttask.repository.InMemoryUserRepository;
+import com.example.clearsolutiontesttask.repository.SequentialIdAllocator;
+import com.example.clearsolutiontesttask.repository.UserRepository;
 import com.example.clearsolutiontesttask.validator.UserAgeValidator;
 import jakarta.persistence.EntityNotFoundException;
 import java.time.LocalDate;
@@ -28,7 +33,13 @@ public class UserServiceTest {
     private UserAgeValidator ageValidator;
 
     @Spy
-    private UserMapper bookMapper = new UserMapperImpl();
+    private UserRepository userRepository = new InMemoryUserRepository();
+
+    @Spy
+    private IdAllocator idAllocator = new SequentialIdAllocator();
+
+    @Spy
+    private UserMetrics userMetrics = UserMetrics.disabled();
 
     @InjectMocks
     private UserService userService;
@@ -45,7 +56,7 @@ public class UserServiceTest {
         userService.addUser(user);
 
         // Assert
-        assertEquals(1, userService.getUsers().size());
+        assertEquals(1, userRepository.count());
     }
 
     @Test
@@ -55,8 +66,8 @@ public class UserServiceTest {
         User user = getUser();
         when(ageValidator.isUserOldEnough(any(LocalDate.class))).thenReturn(true);
 
-        // Adding the user to the list
-        userService.getUsers().add(user);
+        // Adding the user to the repository
+        userRepository.save(user);
 
         // Creating a new user with updated details
         User updatedUser = new User()
@@ -71,9 +82,20 @@ public class UserServiceTest {
         userService.updateUser(updatedUser, 1);
 
         // Assert
-        assertEquals("Jane", userService.getUsers().get(0).getFirstName());
+        assertEquals("Jane", userRepository.findById(1).orElseThrow().getFirstName());
         assertEquals(LocalDate.of(2000, 2, 2),
-                userService.getUsers().get(0).getBirthDate());
+                userRepository.findById(1).orElseThrow().getBirthDate());
+    }
+
+    @Test
+    @DisplayName("Updating a missing user fails as not found before validation")
+    void testUpdateUser_Missing_NotFoundBeforeValidation() {
+        // Arrange
+        when(ageValidator.isUserOldEnough(any(LocalDate.class))).thenReturn(false);
+
+        // Act & Assert
+        assertThrows(EntityNotFoundException.class,
+                () -> userService.updateUser(getUser(), 42));
     }
 
     @Test
@@ -82,14 +104,14 @@ public class UserServiceTest {
         // Arrange
         User user = getUser();
 
-        // Adding the user to the list
-        userService.getUsers().add(user);
+        // Adding the user to the repository
+        userRepository.save(user);
 
         // Act
         userService.deleteUser(1);
 
         // Assert
-        assertEquals(0, userService.getUsers().size());
+        assertEquals(0, userRepository.count());
     }
 
     @Test
@@ -97,18 +119,40 @@ public class UserServiceTest {
     void testFindAllByBirthDateBetween() {
         // Arrange
         User user1 = new User();
+        user1.setId(1);
         user1.setFirstName("John");
         user1.setLastName("Doe");
         user1.setBirthDate(LocalDate.of(1990, 10, 2));
 
         User user2 = new User();
+        user2.setId(2);
         user2.setFirstName("Jane");
         user2.setLastName("Doe");
         user2.setBirthDate(LocalDate.of(1995, 6, 15));
 
-        // Adding users to the list
-        userService.getUsers().add(user1);
-        userService.getUsers().add(user2);
+        // Adding users to the repository
+        userRepository.save(user1);
+        userRepository.save(user2);
+
+        // Act
+        List<User> usersInRange = userService.findAllByBirthDateBetween(
+                LocalDate.of(1990, 1, 1),
+                LocalDate.of(1995, 12, 31)
+        );
+
+        // Assert
+        assertEquals(2, usersInRange.size());
+    }
+
+    @Test
+    @DisplayName("Test birth date range includes both boundary dates")
+    void testFindAllByBirthDateBetween_Boundaries() {
+        // Arrange
+        userRepository.save(getUser().setBirthDate(LocalDate.of(1990, 1, 1)));
+        userRepository.save(getUser().setId(2)
+                .setBirthDate(LocalDate.of(1995, 12, 31)));
+        userRepository.save(getUser().setId(3)
+                .setBirthDate(LocalDate.of(1996, 1, 1)));
 
         // Act
         List<User> usersInRange = userService.findAllByBirthDateBetween(
@@ -127,8 +171,8 @@ public class UserServiceTest {
         // Arrange
         User user = getUser();
 
-        // Adding the user to the list
-        userService.getUsers().add(user);
+        // Adding the user to the repository
+        userRepository.save(user);
 
         var updateFieldRequest = new UpdateFieldRequest();
         updateFieldRequest.setFirstName("Jane");
@@ -138,7 +182,58 @@ public class UserServiceTest {
         userService.updateUserField(updateFieldRequest, 1);
 
         // Assert
-        assertEquals("Jane", userService.getUsers().get(0).getFirstName());
+        assertEquals("Jane", userRepository.findById(1).orElseThrow().getFirstName());
+    }
+
+    @Test
+    @DisplayName("Patching other fields does not repeat the age check")
+    void testUpdateUserField_KeepsBirthDate_SkipsAgeCheck() throws ValidationException {
+        // Arrange
+        userRepository.save(getUser().setVersion(1));
+        var updateFieldRequest = new UpdateFieldRequest();
+        updateFieldRequest.setLastName("Smith");
+        updateFieldRequest.setBirthDate(LocalDate.of(1990, 1, 1));
+        when(ageValidator.isUserOldEnough(any(LocalDate.class))).thenReturn(false);
+
+        // Act
+        long version = userService.updateUserField(updateFieldRequest, 1, null);
+
+        // Assert
+        User updated = userRepository.findById(1).orElseThrow();
+        assertEquals("Smith", updated.getLastName());
+        assertEquals(2, version);
+        assertEquals(2, updated.getVersion());
+    }
+
+    @Test
+    @DisplayName("A patch that changes nothing keeps the stored user and version")
+    void testUpdateUserField_NoChange_DoesNotWrite() throws ValidationException {
+        // Arrange
+        User user = getUser().setVersion(4);
+        userRepository.save(user);
+        var updateFieldRequest = new UpdateFieldRequest();
+        updateFieldRequest.setFirstName("John");
+
+        // Act
+        long version = userService.updateUserField(updateFieldRequest, 1, 4L);
+
+        // Assert
+        assertEquals(4, version);
+        assertSame(user, userRepository.findById(1).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("A patch based on an outdated version is rejected")
+    void testUpdateUserField_StaleVersion() {
+        // Arrange
+        userRepository.save(getUser().setVersion(2));
+        var updateFieldRequest = new UpdateFieldRequest();
+        updateFieldRequest.setFirstName("Jane");
+
+        // Act & Assert
+        assertThrows(VersionConflictException.class,
+                () -> userService.updateUserField(updateFieldRequest, 1, 1L));
+        assertEquals("John", userRepository.findById(1).orElseThrow().getFirstName());
     }
 
     @Test
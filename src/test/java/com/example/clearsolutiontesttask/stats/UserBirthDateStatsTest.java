@@ -0,0 +1,126 @@
+package com.example.clearsolutiontesttask.stats;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.example.clearsolutiontesttask.MutableClock;
+import com.example.clearsolutiontesttask.dto.AgeHistogram;
+import com.example.clearsolutiontesttask.dto.BirthMonthCount;
+import com.example.clearsolutiontesttask.dto.BirthYearCount;
+import com.example.clearsolutiontesttask.entity.User;
+import com.example.clearsolutiontesttask.repository.UserChange;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class UserBirthDateStatsTest {
+    private final MutableClock clock = new MutableClock(LocalDate.of(2024, 2, 27)
+            .atTime(12, 0).toInstant(ZoneOffset.UTC));
+    private final UserBirthDateStats stats = new UserBirthDateStats(clock, 18);
+
+    @Test
+    @DisplayName("Age buckets match Period-based ages as days pass")
+    void testAgeHistogramRollsForward() {
+        Random random = new Random(42);
+        Map<Integer, User> users = new HashMap<>();
+        for (int id = 1; id <= 2_000; id++) {
+            // Cluster birth dates around bucket edges and leap days.
+            LocalDate birthDate = LocalDate.of(2024, 3, 1)
+                    .minusYears(18 + 5 * random.nextInt(12))
+                    .plusDays(random.nextInt(9) - 4);
+            users.put(id, write(null, getUser(id, birthDate)));
+        }
+        for (int day = 0; day < 800; day++) {
+            int id = 1 + random.nextInt(users.size());
+            User moved = getUser(id, users.get(id).getBirthDate().minusDays(random.nextInt(400)));
+            users.put(id, write(users.get(id), moved));
+            checkAgainstPeriod(users.values(), 5, 10);
+            clock.advance(Duration.ofDays(1));
+        }
+    }
+
+    @Test
+    @DisplayName("Birth years and months count users born in them")
+    void testBirthYearsAndMonths() {
+        User first = write(null, getUser(1, LocalDate.of(1990, 1, 31)));
+        write(null, getUser(2, LocalDate.of(1990, 2, 1)));
+        write(null, getUser(3, LocalDate.of(1400, 6, 1)));
+        write(null, getUser(4, LocalDate.of(1990, 2, 28)));
+        write(first, null);
+
+        assertEquals(List.of(new BirthYearCount(1400, 1), new BirthYearCount(1990, 2)),
+                stats.birthYears());
+        assertEquals(List.of(new BirthMonthCount(YearMonth.of(1400, 6), 1),
+                new BirthMonthCount(YearMonth.of(1990, 2), 2)), stats.birthMonths(null));
+        List<BirthMonthCount> months = stats.birthMonths(1990);
+        assertEquals(12, months.size());
+        assertEquals(0, months.get(0).count());
+        assertEquals(2, months.get(1).count());
+    }
+
+    @Test
+    @DisplayName("Counts stay exact as the window grows either way")
+    void testDayCountsGrow() {
+        DayCounts counts = new DayCounts();
+        TreeMap<Long, Long> expected = new TreeMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 5_000; i++) {
+            long day = (long) (random.nextGaussian() * (i < 2_500 ? 10_000 : 200_000));
+            counts.add(day, 1);
+            expected.merge(day, 1L, Long::sum);
+        }
+        assertEquals(expected.firstKey(), counts.firstDay());
+        assertEquals(expected.lastKey(), counts.lastDay());
+        for (int i = 0; i < 1_000; i++) {
+            long from = (long) (random.nextGaussian() * 300_000);
+            long to = from + random.nextInt(100_000);
+            long sum = expected.subMap(from, true, to, true).values().stream()
+                    .mapToLong(Long::longValue).sum();
+            assertEquals(sum, counts.count(from, to));
+        }
+    }
+
+    private void checkAgainstPeriod(Iterable<User> users, int width, int bucketCount) {
+        LocalDate today = LocalDate.now(clock);
+        long[] expected = new long[bucketCount];
+        long younger = 0;
+        for (User user : users) {
+            int age = Period.between(user.getBirthDate(), today).getYears();
+            if (age < 18) {
+                younger++;
+            } else {
+                expected[Math.min((age - 18) / width, bucketCount - 1)]++;
+            }
+        }
+        AgeHistogram histogram = stats.ageHistogram(width, bucketCount);
+        assertEquals(today, histogram.getAsOf());
+        assertEquals(younger, histogram.getYounger(), "younger on " + today);
+        for (int k = 0; k < bucketCount; k++) {
+            AgeHistogram.Bucket bucket = histogram.getBuckets().get(k);
+            assertEquals(18 + k * width, bucket.fromAge());
+            assertEquals(expected[k], bucket.count(), "bucket " + k + " on " + today);
+        }
+        assertNull(histogram.getBuckets().get(bucketCount - 1).toAge());
+    }
+
+    private User write(User previous, User current) {
+        stats.onChange(new UserChange(previous, current));
+        return current;
+    }
+
+    private User getUser(int id, LocalDate birthDate) {
+        return new User()
+                .setId(id)
+                .setEmail("user" + id + "@example.com")
+                .setBirthDate(birthDate);
+    }
+}
@@ -1,6 +1,11 @@
 package com.example.clearsolutiontesttask.validator;
 
+import com.example.clearsolutiontesttask.MutableClock;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.Period;
+import java.time.ZoneOffset;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -25,4 +30,55 @@ class UserAgeValidatorTest {
         LocalDate birthDate = LocalDate.of(2012, 1, 25);
         Assertions.assertFalse(ageValidator.isUserOldEnough(birthDate));
     }
+
+    @Test
+    @DisplayName("Cutoff matches Period-based age, including leap days")
+    void cutoffMatchesPeriod() {
+        for (LocalDate today = LocalDate.of(2023, 12, 1);
+             today.isBefore(LocalDate.of(2025, 4, 1)); today = today.plusDays(1)) {
+            var validator = new UserAgeValidator(fixedClock(today), 18);
+            for (LocalDate birthDate = today.minusYears(18).minusDays(3);
+                 !birthDate.isAfter(today.minusYears(18).plusDays(3));
+                 birthDate = birthDate.plusDays(1)) {
+                checkAgainstPeriod(validator, birthDate, today);
+            }
+            checkAgainstPeriod(validator, LocalDate.of(2004, 2, 29), today);
+            checkAgainstPeriod(validator, LocalDate.of(2006, 2, 28), today);
+        }
+    }
+
+    @Test
+    @DisplayName("Cutoff rolls over at midnight")
+    void cutoffRollsOverAtMidnight() {
+        var clock = new MutableClock(LocalDate.of(2022, 2, 28).atTime(23, 59)
+                .toInstant(ZoneOffset.UTC));
+        var validator = new UserAgeValidator(clock, 18);
+        LocalDate birthDate = LocalDate.of(2004, 3, 1);
+
+        Assertions.assertFalse(validator.isUserOldEnough(birthDate));
+        clock.advance(Duration.ofMinutes(1));
+        Assertions.assertTrue(validator.isUserOldEnough(birthDate));
+    }
+
+    @Test
+    @DisplayName("Batch check validates every birth date")
+    void batchCheck() {
+        var validator = new UserAgeValidator(fixedClock(LocalDate.of(2024, 5, 1)), 18);
+
+        boolean[] result = validator.areUsersOldEnough(new LocalDate[] {
+                LocalDate.of(2006, 5, 1), LocalDate.of(2006, 5, 2), LocalDate.of(1950, 1, 1)});
+
+        Assertions.assertArrayEquals(new boolean[] {true, false, true}, result);
+    }
+
+    private static void checkAgainstPeriod(UserAgeValidator validator,
+                                           LocalDate birthDate, LocalDate today) {
+        boolean expected = Period.between(birthDate, today).getYears() >= 18;
+        Assertions.assertEquals(expected, validator.isUserOldEnough(birthDate),
+                () -> "born " + birthDate + ", today " + today);
+    }
+
+    private static Clock fixedClock(LocalDate today) {
+        return Clock.fixed(today.atTime(12, 0).toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+    }
 }